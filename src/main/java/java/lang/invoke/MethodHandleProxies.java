@@ -169,15 +169,27 @@ public class MethodHandleProxies {
             vaTargets[i] = checkTarget.asSpreader(Object[].class, smMT.parameterCount());
         }
         final InvocationHandler ih = new InvocationHandler() {
+                // the Method objects the proxy class dispatches with; the
+                // proxy passes the same ones on every call, so an identity
+                // check usually avoids Method.equals
+                private final Method[] proxyMethods = new Method[methods.length];
                 private Object getArg(String name) {
                     if ((Object)name == "getWrapperInstanceTarget")  return target;
                     if ((Object)name == "getWrapperInstanceType")    return intfc;
                     throw new AssertionError();
                 }
                 public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    for (int i = 0; i < proxyMethods.length; i++) {
+                        if (method == proxyMethods[i])
+                            return vaTargets[i].invokeExact(args);
+                    }
                     for (int i = 0; i < methods.length; i++) {
-                        if (method.equals(methods[i]))
+                        if (method.equals(methods[i])) {
+                            // only ever compared by identity, so a racy
+                            // publication is harmless
+                            proxyMethods[i] = method;
                             return vaTargets[i].invokeExact(args);
+                        }
                     }
                     if (method.getDeclaringClass() == WrapperInstance.class)
                         return getArg(method.getName());
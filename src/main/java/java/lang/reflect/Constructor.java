@@ -566,7 +566,7 @@ public final
             constructorAccessor = tmp;
         } else {
             // Otherwise fabricate one and propagate it up to the root
-            tmp = reflectionFactory.newConstructorAccessor(this);
+            tmp = MethodHandleAccessors.newConstructorAccessor(this);
             setConstructorAccessor(tmp);
         }
 
@@ -1054,7 +1054,7 @@ class Field extends AccessibleObject implements Member {
                 fieldAccessor = tmp;
         } else {
             // Otherwise fabricate one and propagate it up to the root
-            tmp = reflectionFactory.newFieldAccessor(this, overrideFinalCheck);
+            tmp = MethodHandleAccessors.newFieldAccessor(this, overrideFinalCheck);
             setFieldAccessor(tmp, overrideFinalCheck);
         }
 
@@ -666,7 +666,7 @@ public final
             methodAccessor = tmp;
         } else {
             // Otherwise fabricate one and propagate it up to the root
-            tmp = reflectionFactory.newMethodAccessor(this);
+            tmp = MethodHandleAccessors.newMethodAccessor(this);
             setMethodAccessor(tmp);
         }
 
@@ -0,0 +1,847 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.lang.reflect;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.security.AccessController;
+import sun.misc.Unsafe;
+import sun.misc.VM;
+import sun.reflect.ConstructorAccessor;
+import sun.reflect.FieldAccessor;
+import sun.reflect.MethodAccessor;
+import sun.security.action.GetPropertyAction;
+
+/**
+ * Method, constructor and field accessors implemented on top of direct
+ * method handles.
+ *
+ * <p>The accessors made by {@link sun.reflect.ReflectionFactory} start out
+ * as native stubs and are "inflated" into generated bytecode after a
+ * number of invocations, which costs a class definition per member and a
+ * latency spike at the switch. The accessors here invoke a method handle
+ * from the first call on and never change. Primitive field reads and
+ * writes go through exactly typed handles and do not box.
+ *
+ * <p>Members of classes defined by the bootstrap class loader keep the
+ * {@code ReflectionFactory} accessors, because {@code java.lang.invoke}
+ * itself uses reflection and reflection is used before the VM is booted.
+ * So do caller-sensitive methods, which a public lookup refuses to
+ * unreflect, constructors of abstract classes, and writes to final
+ * fields.
+ *
+ * <p>Methods and constructors with up to six parameters are invoked with
+ * the arguments passed one by one to an exactly typed handle; only those
+ * with more parameters spread the argument array. The system property
+ * {@code java.lang.reflect.useMethodHandles} set to {@code false} turns
+ * these accessors off.
+ */
+final class MethodHandleAccessors {
+
+    private MethodHandleAccessors() { }
+
+    private static final Unsafe unsafe = Unsafe.getUnsafe();
+
+    // the property can only be read once the VM is booted
+    private static volatile boolean initted;
+    private static boolean enabled;
+
+    private static boolean useMethodHandles(Class<?> declaringClass) {
+        if (!initted) {
+            if (!VM.isBooted())
+                return false;
+            enabled = !"false".equals(AccessController.doPrivileged(
+                new GetPropertyAction("java.lang.reflect.useMethodHandles")));
+            initted = true;
+        }
+        return enabled && declaringClass.getClassLoader() != null;
+    }
+
+    static MethodAccessor newMethodAccessor(Method method) {
+        Class<?> c = method.getDeclaringClass();
+        if (useMethodHandles(c)) {
+            boolean isStatic = Modifier.isStatic(method.getModifiers());
+            // an initialization error is thrown as is, not wrapped in an
+            // InvocationTargetException
+            if (isStatic)
+                unsafe.ensureClassInitialized(c);
+            Method m = method.copy();
+            m.override = true;
+            try {
+                MethodHandle mh = MethodHandles.publicLookup().unreflect(m);
+                return new HandleMethodAccessor(c, method.getParameterTypes(),
+                                                isStatic, mh.asFixedArity());
+            } catch (IllegalAccessException | IllegalArgumentException e) {
+                // caller-sensitive, or too many parameters to spread
+            }
+        }
+        return AccessibleObject.reflectionFactory.newMethodAccessor(method);
+    }
+
+    static ConstructorAccessor newConstructorAccessor(Constructor<?> ctor) {
+        Class<?> c = ctor.getDeclaringClass();
+        if (useMethodHandles(c) && !Modifier.isAbstract(c.getModifiers())) {
+            unsafe.ensureClassInitialized(c);
+            Constructor<?> k = ctor.copy();
+            k.override = true;
+            try {
+                MethodHandle mh = MethodHandles.publicLookup().unreflectConstructor(k);
+                return new HandleConstructorAccessor(ctor.getParameterTypes(),
+                                                     mh.asFixedArity());
+            } catch (IllegalAccessException | IllegalArgumentException e) {
+                // too many parameters to spread
+            }
+        }
+        return AccessibleObject.reflectionFactory.newConstructorAccessor(ctor);
+    }
+
+    static FieldAccessor newFieldAccessor(Field field, boolean overrideFinalCheck) {
+        Class<?> c = field.getDeclaringClass();
+        if (useMethodHandles(c)) {
+            if (Modifier.isStatic(field.getModifiers()))
+                unsafe.ensureClassInitialized(c);
+            Field f = field.copy();
+            f.override = true;
+            try {
+                return new HandleFieldAccessor(field, overrideFinalCheck, f);
+            } catch (IllegalAccessException e) {
+                // fall back
+            }
+        }
+        return AccessibleObject.reflectionFactory.newFieldAccessor(field,
+                                                                   overrideFinalCheck);
+    }
+
+    // primitive kinds in widening order, see widens
+    private static final int BOOLEAN = 0;
+    private static final int BYTE    = 1;
+    private static final int SHORT   = 2;
+    private static final int CHAR    = 3;
+    private static final int INT     = 4;
+    private static final int LONG    = 5;
+    private static final int FLOAT   = 6;
+    private static final int DOUBLE  = 7;
+    private static final int OBJECT  = 8;
+
+    private static int kindOf(Class<?> type) {
+        if (type == int.class)     return INT;
+        if (type == long.class)    return LONG;
+        if (type == boolean.class) return BOOLEAN;
+        if (type == double.class)  return DOUBLE;
+        if (type == float.class)   return FLOAT;
+        if (type == char.class)    return CHAR;
+        if (type == byte.class)    return BYTE;
+        if (type == short.class)   return SHORT;
+        return OBJECT;
+    }
+
+    private static int kindOfWrapper(Class<?> c) {
+        if (c == Integer.class)   return INT;
+        if (c == Long.class)      return LONG;
+        if (c == Boolean.class)   return BOOLEAN;
+        if (c == Double.class)    return DOUBLE;
+        if (c == Float.class)     return FLOAT;
+        if (c == Character.class) return CHAR;
+        if (c == Byte.class)      return BYTE;
+        if (c == Short.class)     return SHORT;
+        return OBJECT;
+    }
+
+    /*
+     * Returns true if a value of kind from can be assigned to kind to by
+     * an identity or widening primitive conversion (JLS 5.1.2).
+     */
+    private static boolean widens(int from, int to) {
+        if (from == to)
+            return true;
+        switch (from) {
+        case BYTE:
+            return to == SHORT || (to >= INT && to <= DOUBLE);
+        case SHORT: case CHAR: case INT: case LONG: case FLOAT:
+            return to > Math.max(from, CHAR) && to <= DOUBLE;
+        default:
+            return false;
+        }
+    }
+
+    private static long longValue(int kind, Object w) {
+        return (kind == CHAR) ? ((Character) w).charValue() : ((Number) w).longValue();
+    }
+
+    private static double doubleValue(int kind, Object w) {
+        return (kind == CHAR) ? ((Character) w).charValue() : ((Number) w).doubleValue();
+    }
+
+    /*
+     * Converts the arguments to exactly the wrappers of the primitive
+     * parameter types, applying the widening conversions reflection allows,
+     * and checks the reference arguments. The array is copied only if an
+     * argument is converted, so the common case does not allocate.
+     */
+    private static Object[] checkArguments(Class<?>[] ptypes, Object[] args) {
+        int n = ptypes.length;
+        if ((args == null) ? n != 0 : args.length != n)
+            throw new IllegalArgumentException("wrong number of arguments");
+        Object[] checked = args;
+        for (int i = 0; i < n; i++) {
+            Class<?> t = ptypes[i];
+            Object a = args[i];
+            if (t.isPrimitive()) {
+                int from = (a == null) ? OBJECT : kindOfWrapper(a.getClass());
+                int to = kindOf(t);
+                if (from == to)
+                    continue;
+                if (from == OBJECT || !widens(from, to))
+                    throw new IllegalArgumentException("argument type mismatch");
+                if (checked == args)
+                    checked = args.clone();
+                switch (to) {
+                case SHORT:  checked[i] = Short.valueOf((short) longValue(from, a)); break;
+                case INT:    checked[i] = Integer.valueOf((int) longValue(from, a)); break;
+                case LONG:   checked[i] = Long.valueOf(longValue(from, a)); break;
+                case FLOAT:  checked[i] = Float.valueOf((float) longValue(from, a)); break;
+                default:     checked[i] = Double.valueOf(doubleValue(from, a));
+                }
+            } else if (a != null && !t.isInstance(a)) {
+                throw new IllegalArgumentException("argument type mismatch");
+            }
+        }
+        return checked;
+    }
+
+    private static Error unchecked(Throwable t) {
+        if (t instanceof RuntimeException)
+            throw (RuntimeException) t;
+        if (t instanceof Error)
+            return (Error) t;
+        return new InternalError(t.toString());
+    }
+
+    // the largest number of parameters passed to a handle one by one
+    private static final int MAX_EXACT_ARITY = 6;
+
+    /*
+     * Adapts a handle taking the receiver, or an ignored leading argument,
+     * and n parameters to (Object,Object...)Object, with the parameters
+     * spread from an array if there are more than MAX_EXACT_ARITY.
+     */
+    private static MethodHandle invoker(MethodHandle mh, int n) {
+        MethodHandle h = mh.asType(MethodType.genericMethodType(n + 1));
+        return (n <= MAX_EXACT_ARITY) ? h : h.asSpreader(Object[].class, n);
+    }
+
+    /*
+     * Invokes an invoker made by invoker(mh, n) with the given receiver
+     * and arguments, which have been checked.
+     */
+    private static Object invoke(MethodHandle target, int n, Object obj,
+                                 Object[] a)
+        throws Throwable
+    {
+        switch (n) {
+        case 0: return target.invokeExact(obj);
+        case 1: return target.invokeExact(obj, a[0]);
+        case 2: return target.invokeExact(obj, a[0], a[1]);
+        case 3: return target.invokeExact(obj, a[0], a[1], a[2]);
+        case 4: return target.invokeExact(obj, a[0], a[1], a[2], a[3]);
+        case 5: return target.invokeExact(obj, a[0], a[1], a[2], a[3], a[4]);
+        case 6: return target.invokeExact(obj, a[0], a[1], a[2], a[3], a[4], a[5]);
+        default: return target.invokeExact(obj, a);
+        }
+    }
+
+    private static final class HandleMethodAccessor implements MethodAccessor {
+        private final Class<?> declaringClass;
+        private final Class<?>[] ptypes;
+        private final boolean isStatic;
+        private final int arity;
+        // see invoker; the receiver is ignored for static methods
+        private final MethodHandle target;
+
+        HandleMethodAccessor(Class<?> declaringClass, Class<?>[] ptypes,
+                             boolean isStatic, MethodHandle mh) {
+            this.declaringClass = declaringClass;
+            this.ptypes = ptypes;
+            this.isStatic = isStatic;
+            this.arity = ptypes.length;
+            if (isStatic)
+                mh = MethodHandles.dropArguments(mh, 0, Object.class);
+            this.target = invoker(mh, arity);
+        }
+
+        public Object invoke(Object obj, Object[] args)
+            throws IllegalArgumentException, InvocationTargetException
+        {
+            if (!isStatic) {
+                if (obj == null)
+                    throw new NullPointerException();
+                if (!declaringClass.isInstance(obj))
+                    throw new IllegalArgumentException(
+                        "object is not an instance of declaring class");
+            }
+            Object[] a = checkArguments(ptypes, args);
+            try {
+                return MethodHandleAccessors.invoke(target, arity, obj, a);
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+    }
+
+    private static final class HandleConstructorAccessor implements ConstructorAccessor {
+        private final Class<?>[] ptypes;
+        private final int arity;
+        // see invoker, with an ignored leading argument
+        private final MethodHandle target;
+
+        HandleConstructorAccessor(Class<?>[] ptypes, MethodHandle mh) {
+            this.ptypes = ptypes;
+            this.arity = ptypes.length;
+            this.target = invoker(MethodHandles.dropArguments(mh, 0, Object.class),
+                                  arity);
+        }
+
+        public Object newInstance(Object[] args)
+            throws InstantiationException, IllegalArgumentException,
+                   InvocationTargetException
+        {
+            Object[] a = checkArguments(ptypes, args);
+            try {
+                return MethodHandleAccessors.invoke(target, arity, null, a);
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+    }
+
+    /*
+     * The conversions and exception messages follow the Unsafe based
+     * field accessors of sun.reflect. Writes to final fields, which no
+     * method handle can perform, are delegated to one of those.
+     */
+    private static final class HandleFieldAccessor implements FieldAccessor {
+        private final Field field;
+        private final boolean overrideFinalCheck;
+        private final boolean isStatic;
+        private final boolean isFinal;
+        private final int kind;
+        // (Object)T and (Object,T)void, with T the field type if it is
+        // primitive and Object otherwise; the receiver is ignored for
+        // static fields. There is no setter for final fields.
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private FieldAccessor finalFieldAccessor;
+
+        HandleFieldAccessor(Field field, boolean overrideFinalCheck, Field f)
+            throws IllegalAccessException
+        {
+            int mods = field.getModifiers();
+            Class<?> type = field.getType();
+            Class<?> t = type.isPrimitive() ? type : Object.class;
+            this.field = field;
+            this.overrideFinalCheck = overrideFinalCheck;
+            this.isStatic = Modifier.isStatic(mods);
+            this.isFinal = Modifier.isFinal(mods);
+            this.kind = kindOf(type);
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            MethodHandle g = lookup.unreflectGetter(f);
+            if (isStatic)
+                g = MethodHandles.dropArguments(g, 0, Object.class);
+            this.getter = g.asType(MethodType.methodType(t, Object.class));
+            if (isFinal) {
+                this.setter = null;
+            } else {
+                MethodHandle s = lookup.unreflectSetter(f);
+                if (isStatic)
+                    s = MethodHandles.dropArguments(s, 0, Object.class);
+                this.setter = s.asType(MethodType.methodType(void.class, Object.class, t));
+            }
+        }
+
+        private FieldAccessor finalFieldAccessor() {
+            FieldAccessor a = finalFieldAccessor;
+            if (a == null) {
+                a = AccessibleObject.reflectionFactory.newFieldAccessor(field,
+                                                                        overrideFinalCheck);
+                finalFieldAccessor = a;
+            }
+            return a;
+        }
+
+        private void ensureObj(Object o) {
+            // NOTE: will throw NullPointerException, as specified, if o is null
+            if (!isStatic && !field.getDeclaringClass().isAssignableFrom(o.getClass())) {
+                throwSetIllegalArgumentException(o);
+            }
+        }
+
+        private String getQualifiedFieldName() {
+            return field.getDeclaringClass().getName() + "." + field.getName();
+        }
+
+        private IllegalArgumentException newGetIllegalArgumentException(String type) {
+            return new IllegalArgumentException(
+                "Attempt to get " + field.getType().getName() + " field \"" +
+                getQualifiedFieldName() + "\" with illegal data type conversion to " + type);
+        }
+
+        private void throwSetIllegalArgumentException(String attemptedType,
+                                                      String attemptedValue) {
+            String err = "Can not set";
+            if (isStatic)
+                err += " static";
+            if (isFinal)
+                err += " final";
+            err += " " + field.getType().getName() + " field " +
+                getQualifiedFieldName() + " to ";
+            if (attemptedValue.length() > 0) {
+                err += "(" + attemptedType + ")" + attemptedValue;
+            } else {
+                if (attemptedType.length() > 0)
+                    err += attemptedType;
+                else
+                    err += "null value";
+            }
+            throw new IllegalArgumentException(err);
+        }
+
+        private void throwSetIllegalArgumentException(Object o) {
+            throwSetIllegalArgumentException(o != null ? o.getClass().getName() : "", "");
+        }
+
+        // Exactly typed reads and writes; obj has been checked.
+
+        private Object readObject(Object obj) {
+            try {
+                return (Object) getter.invokeExact(obj);
+            } catch (Throwable t) {
+                throw unchecked(t);
+            }
+        }
+
+        private boolean readBoolean(Object obj) {
+            try {
+                return (boolean) getter.invokeExact(obj);
+            } catch (Throwable t) {
+                throw unchecked(t);
+            }
+        }
+
+        private byte readByte(Object obj) {
+            try {
+                return (byte) getter.invokeExact(obj);
+            } catch (Throwable t) {
+                throw unchecked(t);
+            }
+        }
+
+        private char readChar(Object obj) {
+            try {
+                return (char) getter.invokeExact(obj);
+            } catch (Throwable t) {
+                throw unchecked(t);
+            }
+        }
+
+        private short readShort(Object obj) {
+            try {
+                return (short) getter.invokeExact(obj);
+            } catch (Throwable t) {
+                throw unchecked(t);
+            }
+        }
+
+        private int readInt(Object obj) {
+            try {
+                return (int) getter.invokeExact(obj);
+            } catch (Throwable t) {
+                throw unchecked(t);
+            }
+        }
+
+        private long readLong(Object obj) {
+            try {
+                return (long) getter.invokeExact(obj);
+            } catch (Throwable t) {
+                throw unchecked(t);
+            }
+        }
+
+        private float readFloat(Object obj) {
+            try {
+                return (float) getter.invokeExact(obj);
+            } catch (Throwable t) {
+                throw unchecked(t);
+            }
+        }
+
+        private double readDouble(Object obj) {
+            try {
+                return (double) getter.invokeExact(obj);
+            } catch (Throwable t) {
+                throw unchecked(t);
+            }
+        }
+
+        private void writeObject(Object obj, Object value) {
+            try {
+                setter.invokeExact(obj, value);
+            } catch (Throwable t) {
+                throw unchecked(t);
+            }
+        }
+
+        private void writeBoolean(Object obj, boolean value) {
+            try {
+                setter.invokeExact(obj, value);
+            } catch (Throwable t) {
+                throw unchecked(t);
+            }
+        }
+
+        private void writeByte(Object obj, byte value) {
+            try {
+                setter.invokeExact(obj, value);
+            } catch (Throwable t) {
+                throw unchecked(t);
+            }
+        }
+
+        private void writeChar(Object obj, char value) {
+            try {
+                setter.invokeExact(obj, value);
+            } catch (Throwable t) {
+                throw unchecked(t);
+            }
+        }
+
+        private void writeShort(Object obj, short value) {
+            try {
+                setter.invokeExact(obj, value);
+            } catch (Throwable t) {
+                throw unchecked(t);
+            }
+        }
+
+        private void writeInt(Object obj, int value) {
+            try {
+                setter.invokeExact(obj, value);
+            } catch (Throwable t) {
+                throw unchecked(t);
+            }
+        }
+
+        private void writeLong(Object obj, long value) {
+            try {
+                setter.invokeExact(obj, value);
+            } catch (Throwable t) {
+                throw unchecked(t);
+            }
+        }
+
+        private void writeFloat(Object obj, float value) {
+            try {
+                setter.invokeExact(obj, value);
+            } catch (Throwable t) {
+                throw unchecked(t);
+            }
+        }
+
+        private void writeDouble(Object obj, double value) {
+            try {
+                setter.invokeExact(obj, value);
+            } catch (Throwable t) {
+                throw unchecked(t);
+            }
+        }
+
+        // Widened reads and writes of the integral and floating kinds;
+        // only called once widens has approved the conversion.
+
+        private long readLongValue(Object obj) {
+            switch (kind) {
+            case BYTE:  return readByte(obj);
+            case SHORT: return readShort(obj);
+            case CHAR:  return readChar(obj);
+            case INT:   return readInt(obj);
+            default:    return readLong(obj);
+            }
+        }
+
+        private double readDoubleValue(Object obj) {
+            switch (kind) {
+            case LONG:  return readLong(obj);
+            case FLOAT: return readFloat(obj);
+            case DOUBLE: return readDouble(obj);
+            default:    return readLongValue(obj);
+            }
+        }
+
+        private void writeLongValue(Object obj, long value) {
+            switch (kind) {
+            case BYTE:  writeByte(obj, (byte) value); break;
+            case SHORT: writeShort(obj, (short) value); break;
+            case CHAR:  writeChar(obj, (char) value); break;
+            case INT:   writeInt(obj, (int) value); break;
+            case LONG:  writeLong(obj, value); break;
+            case FLOAT: writeFloat(obj, (float) value); break;
+            default:    writeDouble(obj, (double) value);
+            }
+        }
+
+        private void writeDoubleValue(Object obj, double value) {
+            if (kind == FLOAT)
+                writeFloat(obj, (float) value);
+            else
+                writeDouble(obj, value);
+        }
+
+        public Object get(Object obj) throws IllegalArgumentException {
+            ensureObj(obj);
+            switch (kind) {
+            case BOOLEAN: return Boolean.valueOf(readBoolean(obj));
+            case BYTE:    return Byte.valueOf(readByte(obj));
+            case SHORT:   return Short.valueOf(readShort(obj));
+            case CHAR:    return Character.valueOf(readChar(obj));
+            case INT:     return Integer.valueOf(readInt(obj));
+            case LONG:    return Long.valueOf(readLong(obj));
+            case FLOAT:   return Float.valueOf(readFloat(obj));
+            case DOUBLE:  return Double.valueOf(readDouble(obj));
+            default:      return readObject(obj);
+            }
+        }
+
+        public boolean getBoolean(Object obj) throws IllegalArgumentException {
+            if (kind != BOOLEAN)
+                throw newGetIllegalArgumentException("boolean");
+            ensureObj(obj);
+            return readBoolean(obj);
+        }
+
+        public byte getByte(Object obj) throws IllegalArgumentException {
+            if (kind != BYTE)
+                throw newGetIllegalArgumentException("byte");
+            ensureObj(obj);
+            return readByte(obj);
+        }
+
+        public char getChar(Object obj) throws IllegalArgumentException {
+            if (kind != CHAR)
+                throw newGetIllegalArgumentException("char");
+            ensureObj(obj);
+            return readChar(obj);
+        }
+
+        public short getShort(Object obj) throws IllegalArgumentException {
+            if (!widens(kind, SHORT))
+                throw newGetIllegalArgumentException("short");
+            ensureObj(obj);
+            return (kind == SHORT) ? readShort(obj) : readByte(obj);
+        }
+
+        public int getInt(Object obj) throws IllegalArgumentException {
+            if (kind == INT) {
+                ensureObj(obj);
+                return readInt(obj);
+            }
+            if (!widens(kind, INT))
+                throw newGetIllegalArgumentException("int");
+            ensureObj(obj);
+            return (int) readLongValue(obj);
+        }
+
+        public long getLong(Object obj) throws IllegalArgumentException {
+            if (kind == LONG) {
+                ensureObj(obj);
+                return readLong(obj);
+            }
+            if (!widens(kind, LONG))
+                throw newGetIllegalArgumentException("long");
+            ensureObj(obj);
+            return readLongValue(obj);
+        }
+
+        public float getFloat(Object obj) throws IllegalArgumentException {
+            if (kind == FLOAT) {
+                ensureObj(obj);
+                return readFloat(obj);
+            }
+            if (!widens(kind, FLOAT))
+                throw newGetIllegalArgumentException("float");
+            ensureObj(obj);
+            return (float) readLongValue(obj);
+        }
+
+        public double getDouble(Object obj) throws IllegalArgumentException {
+            if (kind == DOUBLE) {
+                ensureObj(obj);
+                return readDouble(obj);
+            }
+            if (!widens(kind, DOUBLE))
+                throw newGetIllegalArgumentException("double");
+            ensureObj(obj);
+            return readDoubleValue(obj);
+        }
+
+        public void set(Object obj, Object value)
+            throws IllegalArgumentException, IllegalAccessException
+        {
+            if (isFinal) {
+                finalFieldAccessor().set(obj, value);
+                return;
+            }
+            ensureObj(obj);
+            if (kind == OBJECT) {
+                if (value != null && !field.getType().isInstance(value))
+                    throwSetIllegalArgumentException(value);
+                writeObject(obj, value);
+                return;
+            }
+            int from = (value == null) ? OBJECT : kindOfWrapper(value.getClass());
+            if (from == OBJECT || !widens(from, kind))
+                throwSetIllegalArgumentException(value);
+            switch (from) {
+            case BOOLEAN:
+                writeBoolean(obj, ((Boolean) value).booleanValue());
+                break;
+            case FLOAT: case DOUBLE:
+                writeDoubleValue(obj, ((Number) value).doubleValue());
+                break;
+            default:
+                writeLongValue(obj, longValue(from, value));
+            }
+        }
+
+        public void setBoolean(Object obj, boolean z)
+            throws IllegalArgumentException, IllegalAccessException
+        {
+            if (isFinal) {
+                finalFieldAccessor().setBoolean(obj, z);
+                return;
+            }
+            if (kind != BOOLEAN)
+                throwSetIllegalArgumentException("boolean", Boolean.toString(z));
+            ensureObj(obj);
+            writeBoolean(obj, z);
+        }
+
+        public void setByte(Object obj, byte b)
+            throws IllegalArgumentException, IllegalAccessException
+        {
+            if (isFinal) {
+                finalFieldAccessor().setByte(obj, b);
+                return;
+            }
+            if (!widens(BYTE, kind))
+                throwSetIllegalArgumentException("byte", Byte.toString(b));
+            ensureObj(obj);
+            writeLongValue(obj, b);
+        }
+
+        public void setChar(Object obj, char c)
+            throws IllegalArgumentException, IllegalAccessException
+        {
+            if (isFinal) {
+                finalFieldAccessor().setChar(obj, c);
+                return;
+            }
+            if (!widens(CHAR, kind))
+                throwSetIllegalArgumentException("char", Character.toString(c));
+            ensureObj(obj);
+            writeLongValue(obj, c);
+        }
+
+        public void setShort(Object obj, short s)
+            throws IllegalArgumentException, IllegalAccessException
+        {
+            if (isFinal) {
+                finalFieldAccessor().setShort(obj, s);
+                return;
+            }
+            if (!widens(SHORT, kind))
+                throwSetIllegalArgumentException("short", Short.toString(s));
+            ensureObj(obj);
+            writeLongValue(obj, s);
+        }
+
+        public void setInt(Object obj, int i)
+            throws IllegalArgumentException, IllegalAccessException
+        {
+            if (isFinal) {
+                finalFieldAccessor().setInt(obj, i);
+                return;
+            }
+            if (kind == INT) {
+                ensureObj(obj);
+                writeInt(obj, i);
+                return;
+            }
+            if (!widens(INT, kind))
+                throwSetIllegalArgumentException("int", Integer.toString(i));
+            ensureObj(obj);
+            writeLongValue(obj, i);
+        }
+
+        public void setLong(Object obj, long l)
+            throws IllegalArgumentException, IllegalAccessException
+        {
+            if (isFinal) {
+                finalFieldAccessor().setLong(obj, l);
+                return;
+            }
+            if (!widens(LONG, kind))
+                throwSetIllegalArgumentException("long", Long.toString(l));
+            ensureObj(obj);
+            writeLongValue(obj, l);
+        }
+
+        public void setFloat(Object obj, float f)
+            throws IllegalArgumentException, IllegalAccessException
+        {
+            if (isFinal) {
+                finalFieldAccessor().setFloat(obj, f);
+                return;
+            }
+            if (!widens(FLOAT, kind))
+                throwSetIllegalArgumentException("float", Float.toString(f));
+            ensureObj(obj);
+            writeDoubleValue(obj, f);
+        }
+
+        public void setDouble(Object obj, double d)
+            throws IllegalArgumentException, IllegalAccessException
+        {
+            if (isFinal) {
+                finalFieldAccessor().setDouble(obj, d);
+                return;
+            }
+            if (kind != DOUBLE)
+                throwSetIllegalArgumentException("double", Double.toString(d));
+            ensureObj(obj);
+            writeDouble(obj, d);
+        }
+    }
+}
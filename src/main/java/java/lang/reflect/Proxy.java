@@ -25,6 +25,9 @@
 
 package java.lang.reflect;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.ref.WeakReference;
 import java.lang.reflect.WeakCache.BiFunction;
 import java.security.AccessController;
@@ -236,6 +239,39 @@ public class Proxy implements java.io.Serializable {
     private static final WeakCache<ClassLoader, Class<?>[], Class<?>>
         proxyClassCache = new WeakCache<>(new KeyFactory(), new ProxyClassFactory());
 
+    /**
+     * the {@code (InvocationHandler)Object} constructor handles of proxy
+     * classes, so that creating an instance neither looks up nor
+     * reflectively invokes the constructor
+     */
+    private static final ClassValue<MethodHandle> proxyConstructors =
+        new ClassValue<MethodHandle>() {
+            @Override
+            protected MethodHandle computeValue(Class<?> cl) {
+                final Constructor<?> cons;
+                try {
+                    cons = cl.getConstructor(constructorParams);
+                } catch (NoSuchMethodException e) {
+                    throw new InternalError(e.toString());
+                }
+                // proxy classes implementing non-public interfaces are
+                // not public themselves
+                AccessController.doPrivileged(new PrivilegedAction<Void>() {
+                    public Void run() {
+                        cons.setAccessible(true);
+                        return null;
+                    }
+                });
+                try {
+                    return MethodHandles.publicLookup().unreflectConstructor(cons)
+                        .asType(MethodType.methodType(Object.class,
+                                                      InvocationHandler.class));
+                } catch (IllegalAccessException e) {
+                    throw new InternalError(e.toString());
+                }
+            }
+        };
+
     /**
      * the invocation handler for this proxy instance.
      * @serial
@@ -740,37 +776,28 @@ public class Proxy implements java.io.Serializable {
         /*
          * Invoke its constructor with the designated invocation handler.
          */
-        try {
-            final Constructor<?> cons = cl.getConstructor(constructorParams);
-            final InvocationHandler ih = h;
-            if (sm != null && ProxyAccessHelper.needsNewInstanceCheck(cl)) {
-                // create proxy instance with doPrivilege as the proxy class may
-                // implement non-public interfaces that requires a special permission
-                return AccessController.doPrivileged(new PrivilegedAction<Object>() {
-                    public Object run() {
-                        return newInstance(cons, ih);
-                    }
-                });
-            } else {
-                return newInstance(cons, ih);
-            }
-        } catch (NoSuchMethodException e) {
-            throw new InternalError(e.toString());
+        final MethodHandle cons = proxyConstructors.get(cl);
+        final InvocationHandler ih = h;
+        if (sm != null && ProxyAccessHelper.needsNewInstanceCheck(cl)) {
+            // create proxy instance with doPrivilege as the proxy class may
+            // implement non-public interfaces that requires a special permission
+            return AccessController.doPrivileged(new PrivilegedAction<Object>() {
+                public Object run() {
+                    return newInstance(cons, ih);
+                }
+            });
+        } else {
+            return newInstance(cons, ih);
         }
     }
 
-    private static Object newInstance(Constructor<?> cons, InvocationHandler h) {
+    private static Object newInstance(MethodHandle cons, InvocationHandler h) {
         try {
-            return cons.newInstance(new Object[] {h} );
-        } catch (IllegalAccessException | InstantiationException e) {
-            throw new InternalError(e.toString());
-        } catch (InvocationTargetException e) {
-            Throwable t = e.getCause();
-            if (t instanceof RuntimeException) {
-                throw (RuntimeException) t;
-            } else {
-                throw new InternalError(t.toString());
-            }
+            return cons.invokeExact(h);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new InternalError(t.toString());
         }
     }
 
@@ -0,0 +1,428 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.net;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.ObjectName;
+import sun.net.InetAddressCachePolicy;
+
+/**
+ * The cache of the host name lookups of {@link InetAddress}.
+ *
+ * <p> The entries are kept in a concurrent map by lower case host name,
+ * so hits on different threads do not contend, and expire after the time
+ * of the cache policy.  A successful lookup whose entry has expired is
+ * still returned for the stale time after, while one thread looks the
+ * name up again in the background.  The threads that miss on a name
+ * already being looked up wait for that lookup rather than start their
+ * own.  When the cache grows past its maximum size, the expired entries
+ * and then the least recently used ones are evicted.
+ *
+ * <p> The lookups are made by a {@link Resolver}, the name services of
+ * <tt>InetAddress</tt> or any stand-in for them.
+ */
+final class AddressCache implements AddressCacheMXBean {
+
+    /**
+     * Looks up the addresses of a host name.
+     */
+    interface Resolver {
+        /**
+         * Returns the addresses of the host, with reqAddr first if it is
+         * one of them.
+         */
+        InetAddress[] resolve(String host, InetAddress reqAddr)
+            throws UnknownHostException;
+    }
+
+    /**
+     * Returned by get for a host name whose lookup failed.
+     */
+    static final InetAddress[] UNKNOWN = new InetAddress[0];
+
+    private static final int DEFAULT_MAX_SIZE = 8192;
+    private static final int REFRESH_THREADS = 2;
+
+    private final Resolver resolver;
+    private final int maxSize;
+    private final long staleNanos;
+
+    private final ConcurrentHashMap<String, Entry> entries =
+        new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Lookup> lookups =
+        new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private volatile Executor refresher;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong lookupCount = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a cache of the given resolver, with the maximum size and
+     * stale time of the security properties.
+     */
+    AddressCache(Resolver resolver) {
+        this(resolver,
+             intProperty("networkaddress.cache.size", DEFAULT_MAX_SIZE),
+             intProperty("networkaddress.cache.stale.ttl", 0));
+    }
+
+    /**
+     * Creates a cache of the given resolver, of up to maxSize entries,
+     * which returns expired addresses for up to staleTtl seconds.
+     */
+    AddressCache(Resolver resolver, int maxSize, int staleTtl) {
+        this.resolver = resolver;
+        this.maxSize = (maxSize > 0) ? maxSize : DEFAULT_MAX_SIZE;
+        this.staleNanos = TimeUnit.SECONDS.toNanos(Math.max(staleTtl, 0));
+    }
+
+    private static int intProperty(final String name, int defaultValue) {
+        String value = AccessController.doPrivileged(
+            new PrivilegedAction<String>() {
+                public String run() {
+                    return Security.getProperty(name);
+                }
+            });
+        if (value != null) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Returns the cached addresses of the host, UNKNOWN if its lookup
+     * failed, or null if it is not cached. Stale addresses are returned
+     * and looked up again in the background.
+     */
+    InetAddress[] get(String host) {
+        String key = host.toLowerCase();
+        Entry e = entries.get(key);
+        long now = System.nanoTime();
+        if (e != null) {
+            if (e.fresh(now)) {
+                e.used = now;
+                hits.incrementAndGet();
+                return (e.addresses != null) ? e.addresses : UNKNOWN;
+            }
+            if (e.usable(now)) {
+                e.used = now;
+                hits.incrementAndGet();
+                staleHits.incrementAndGet();
+                refresh(host, key);
+                return e.addresses;
+            }
+            entries.remove(key, e);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Looks up the addresses of the host and caches them, or waits for
+     * the lookup of the host in progress.
+     */
+    InetAddress[] lookup(String host, InetAddress reqAddr)
+        throws UnknownHostException
+    {
+        String key = host.toLowerCase();
+        Lookup lookup = new Lookup();
+        Lookup other = lookups.putIfAbsent(key, lookup);
+        if (other != null) {
+            coalesced.incrementAndGet();
+            return other.await(host);
+        }
+        return run(host, reqAddr, key, lookup);
+    }
+
+    /**
+     * Adds the addresses of the host to the cache, as if looked up.
+     */
+    void put(String host, InetAddress[] addresses) {
+        put(host.toLowerCase(), addresses, System.nanoTime());
+    }
+
+    // Makes the lookup registered for the key, caches its result and
+    // hands it to the threads waiting for it.
+    private InetAddress[] run(String host, InetAddress reqAddr, String key,
+                              Lookup lookup)
+        throws UnknownHostException
+    {
+        InetAddress[] addresses = null;
+        try {
+            lookupCount.incrementAndGet();
+            addresses = resolver.resolve(host, reqAddr);
+            put(key, addresses, System.nanoTime());
+        } catch (UnknownHostException uhe) {
+            // Stale addresses are kept for as long as they may be used
+            long now = System.nanoTime();
+            Entry e = entries.get(key);
+            if (e == null || !e.usable(now))
+                put(key, null, now);
+            throw uhe;
+        } finally {
+            lookups.remove(key, lookup);
+            lookup.complete(addresses);
+        }
+        return addresses;
+    }
+
+    private void refresh(final String host, final String key) {
+        final Lookup lookup = new Lookup();
+        if (lookups.putIfAbsent(key, lookup) != null)
+            return;
+        refresher().execute(new Runnable() {
+            public void run() {
+                refreshes.incrementAndGet();
+                try {
+                    AddressCache.this.run(host, null, key, lookup);
+                } catch (UnknownHostException e) {
+                }
+            }
+        });
+    }
+
+    private Executor refresher() {
+        Executor executor = refresher;
+        if (executor == null) {
+            synchronized (this) {
+                executor = refresher;
+                if (executor == null) {
+                    ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                        REFRESH_THREADS, REFRESH_THREADS,
+                        60, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<Runnable>(),
+                        new ThreadFactory() {
+                            public Thread newThread(final Runnable r) {
+                                return AccessController.doPrivileged(
+                                    new PrivilegedAction<Thread>() {
+                                        public Thread run() {
+                                            Thread t = new Thread(r,
+                                                "InetAddress refresher");
+                                            t.setDaemon(true);
+                                            t.setContextClassLoader(null);
+                                            return t;
+                                        }
+                                    });
+                            }
+                        });
+                    pool.allowCoreThreadTimeOut(true);
+                    refresher = executor = pool;
+                }
+            }
+        }
+        return executor;
+    }
+
+    // Caches the addresses, or the failure of the lookup if null, as the
+    // cache policy says.
+    private void put(String key, InetAddress[] addresses, long now) {
+        int policy = (addresses != null) ? InetAddressCachePolicy.get()
+                                         : InetAddressCachePolicy.getNegative();
+        if (policy == InetAddressCachePolicy.NEVER)
+            return;
+        Entry e;
+        if (policy == InetAddressCachePolicy.FOREVER) {
+            e = new Entry(addresses, true, now, now);
+        } else {
+            long expires = now + TimeUnit.SECONDS.toNanos(policy);
+            long staleUntil = (addresses != null) ? expires + staleNanos
+                                                  : expires;
+            e = new Entry(addresses, false, expires, staleUntil);
+        }
+        e.used = now;
+        entries.put(key, e);
+        if (entries.size() > maxSize)
+            evict(now);
+    }
+
+    // Drops the entries which cannot be used any more, then the least
+    // recently used ones, down to 7/8 of the maximum size so that the
+    // entries are not sorted again at the next put.
+    private void evict(final long now) {
+        if (!evicting.compareAndSet(false, true))
+            return;
+        try {
+            List<Map.Entry<String, Entry>> live = new ArrayList<>();
+            for (Map.Entry<String, Entry> me : entries.entrySet()) {
+                if (me.getValue().usable(now))
+                    live.add(me);
+                else
+                    entries.remove(me.getKey(), me.getValue());
+            }
+            int excess = live.size() - (maxSize - maxSize / 8);
+            if (excess <= 0)
+                return;
+            Collections.sort(live, new Comparator<Map.Entry<String, Entry>>() {
+                public int compare(Map.Entry<String, Entry> a,
+                                   Map.Entry<String, Entry> b) {
+                    return Long.compare(a.getValue().used - now,
+                                        b.getValue().used - now);
+                }
+            });
+            for (int i = 0; i < excess; i++) {
+                Map.Entry<String, Entry> me = live.get(i);
+                if (entries.remove(me.getKey(), me.getValue()))
+                    evictions.incrementAndGet();
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    // -- AddressCacheMXBean --
+
+    public ObjectName getObjectName() {
+        try {
+            return ObjectName.getInstance("java.net:type=AddressCache");
+        } catch (javax.management.MalformedObjectNameException x) {
+            throw new AssertionError(x);
+        }
+    }
+
+    public int getSize() {
+        return entries.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getStaleHitCount() {
+        return staleHits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    public long getLookupCount() {
+        return lookupCount.get();
+    }
+
+    public long getRefreshCount() {
+        return refreshes.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * A cached lookup.
+     */
+    private static final class Entry {
+        // null if the lookup failed
+        final InetAddress[] addresses;
+        final boolean forever;
+        final long expires;
+        final long staleUntil;
+
+        // When the entry was last used. Not volatile, since a lost update
+        // only makes the eviction order less exact.
+        long used;
+
+        Entry(InetAddress[] addresses, boolean forever, long expires,
+              long staleUntil) {
+            this.addresses = addresses;
+            this.forever = forever;
+            this.expires = expires;
+            this.staleUntil = staleUntil;
+        }
+
+        boolean fresh(long now) {
+            return forever || now - expires < 0;
+        }
+
+        boolean usable(long now) {
+            return forever || now - staleUntil < 0;
+        }
+    }
+
+    /**
+     * A lookup in progress, which the threads that miss on its host name
+     * wait for.
+     */
+    private static final class Lookup {
+        private boolean done;
+        private InetAddress[] addresses;
+
+        synchronized void complete(InetAddress[] addresses) {
+            this.addresses = addresses;
+            done = true;
+            notifyAll();
+        }
+
+        synchronized InetAddress[] await(String host)
+            throws UnknownHostException
+        {
+            boolean interrupted = false;
+            while (!done) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+            if (addresses == null)
+                throw new UnknownHostException(host);
+            return addresses;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.net;
+
+import java.lang.management.PlatformManagedObject;
+
+/**
+ * The management interface of the cache of host name lookups kept by
+ * {@link InetAddress}.
+ *
+ * <p> Successful lookups are cached for the time set by the
+ * <tt>networkaddress.cache.ttl</tt> security property, and unsuccessful
+ * ones for the time set by <tt>networkaddress.cache.negative.ttl</tt>.  If
+ * the <tt>networkaddress.cache.stale.ttl</tt> security property is set to
+ * a number of seconds, the addresses of a successful lookup are still
+ * returned for that long after they expired, while they are looked up
+ * again in the background.  The number of host names cached is bounded by
+ * the <tt>networkaddress.cache.size</tt> security property, and the names
+ * used least recently are evicted first.
+ *
+ * <p> The cache is obtained by calling {@link
+ * InetAddress#getAddressCacheMXBean InetAddress.getAddressCacheMXBean}.
+ * Its {@link #getObjectName ObjectName} is
+ * <tt>java.net:type=AddressCache</tt>.
+ *
+ * @see InetAddress
+ * @since 1.7
+ */
+public interface AddressCacheMXBean extends PlatformManagedObject {
+
+    /**
+     * Returns the number of host names in the cache.
+     *
+     * @return  the number of cached host names
+     */
+    int getSize();
+
+    /**
+     * Returns the maximum number of host names in the cache.
+     *
+     * @return  the maximum number of cached host names
+     */
+    int getMaxSize();
+
+    /**
+     * Returns the number of lookups answered from the cache, stale
+     * addresses included.
+     *
+     * @return  the number of cache hits
+     */
+    long getHitCount();
+
+    /**
+     * Returns the number of lookups answered with stale addresses, while
+     * the host name was looked up again in the background.
+     *
+     * @return  the number of stale cache hits
+     */
+    long getStaleHitCount();
+
+    /**
+     * Returns the number of lookups not found in the cache.
+     *
+     * @return  the number of cache misses
+     */
+    long getMissCount();
+
+    /**
+     * Returns the number of lookups of a host name that waited for a
+     * lookup of the same name already in progress, rather than starting
+     * one of their own.
+     *
+     * @return  the number of coalesced lookups
+     */
+    long getCoalescedCount();
+
+    /**
+     * Returns the number of lookups made by the name service.
+     *
+     * @return  the number of name service lookups
+     */
+    long getLookupCount();
+
+    /**
+     * Returns the number of name service lookups made in the background
+     * to refresh stale addresses.
+     *
+     * @return  the number of refreshes
+     */
+    long getRefreshCount();
+
+    /**
+     * Returns the number of host names evicted to keep the cache within
+     * its maximum size.
+     *
+     * @return  the number of evictions
+     */
+    long getEvictionCount();
+}
@@ -0,0 +1,445 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.net;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.security.AccessController;
+import java.security.CodeSigner;
+import java.security.CodeSource;
+import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import sun.security.action.GetBooleanAction;
+import sun.security.action.GetPropertyAction;
+
+/**
+ * An archive of the classes that URLClassLoaders defined from jar files
+ * in an earlier run, so that a later run defines them from the memory
+ * mapped archive without opening the jar files.
+ *
+ * The system property "java.net.URLClassLoader.archive" names the archive
+ * file. If the system property "java.net.URLClassLoader.archiveDump" is
+ * "true", the run is a training run: the classes the loaders define from
+ * unsigned jar files are recorded, and written to the archive when the
+ * VM exits. Otherwise the archive, if it exists, is read.
+ *
+ * The classes are archived by the search path of the loader that defined
+ * them, as it was when the loader was created. A loader only uses the
+ * classes archived for its path, and only if its path holds nothing but
+ * local jar files which have the same last modification time and length
+ * as when they were archived, so that the jar file a class is defined
+ * from is the one the search would have found it in. The manifests of
+ * the jar files are archived with the classes, to define their packages,
+ * and the loader uses one code source by jar file.
+ */
+final class ClassArchive {
+
+    private static final int MAGIC = 0x4a434c41;   // "JCLA"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+
+    private static final String fileName;
+    private static final boolean dump;
+
+    static {
+        fileName = AccessController.doPrivileged(
+            new GetPropertyAction("java.net.URLClassLoader.archive"));
+        dump = (fileName != null) && AccessController.doPrivileged(
+            new GetBooleanAction("java.net.URLClassLoader.archiveDump"));
+    }
+
+    // The archived paths of a read archive, or the recorded paths of a
+    // training run, by key
+    private static Map<String, Path> paths;
+
+    /**
+     * Returns the classes archived for the search path, or recorded for it
+     * in a training run, or null if the path has none or cannot have any.
+     */
+    static Path forURLs(final URL[] urls) {
+        if (fileName == null || urls.length == 0)
+            return null;
+        for (URL url : urls) {
+            if (ClassPathIndex.jarFile(url) == null)
+                return null;
+        }
+        final String key = key(urls);
+        return AccessController.doPrivileged(new PrivilegedAction<Path>() {
+            public Path run() {
+                return path(key, urls);
+            }
+        });
+    }
+
+    private static synchronized Path path(String key, URL[] urls) {
+        if (paths == null) {
+            paths = new HashMap<>();
+            if (dump)
+                addShutdownHook();
+            else
+                read();
+        }
+        Path path = paths.get(key);
+        if (dump) {
+            if (path == null) {
+                path = new Path(urls);
+                paths.put(key, path);
+            }
+            return path;
+        }
+        return (path != null && path.isCurrent()) ? path : null;
+    }
+
+    private static String key(URL[] urls) {
+        StringBuilder sb = new StringBuilder();
+        for (URL url : urls)
+            sb.append(url.toExternalForm()).append('\n');
+        return sb.toString();
+    }
+
+    /**
+     * A class read from the archive, with its jar file.
+     */
+    static final class ArchivedClass {
+        final Jar jar;
+        private final ByteBuffer bytes;
+
+        ArchivedClass(Jar jar, ByteBuffer bytes) {
+            this.jar = jar;
+            this.bytes = bytes;
+        }
+
+        // The bytes of the class, in a buffer of their own
+        ByteBuffer bytes() {
+            return bytes.duplicate();
+        }
+    }
+
+    /**
+     * A jar file of an archived path, with its code source and manifest.
+     */
+    static final class Jar {
+        final URL url;
+        final File file;
+        final long lastModified;
+        final long length;
+        final CodeSource codeSource;
+        private final byte[] manifestBytes;
+        private volatile Manifest manifest;
+
+        Jar(URL url, long lastModified, long length, byte[] manifestBytes) {
+            this.url = url;
+            this.file = ClassPathIndex.jarFile(url);
+            this.lastModified = lastModified;
+            this.length = length;
+            this.codeSource = new CodeSource(url, (CodeSigner[])null);
+            this.manifestBytes = manifestBytes;
+        }
+
+        boolean isCurrent() {
+            return file != null
+                && file.lastModified() == lastModified
+                && file.length() == length;
+        }
+
+        Manifest manifest() throws IOException {
+            if (manifestBytes == null)
+                return null;
+            Manifest man = manifest;
+            if (man == null) {
+                man = new Manifest(new ByteArrayInputStream(manifestBytes));
+                manifest = man;
+            }
+            return man;
+        }
+    }
+
+    /**
+     * The classes of a search path: those archived for it, or those
+     * recorded for it in a training run.
+     */
+    static final class Path {
+        private final URL[] urls;
+        private final Jar[] jars;
+        private final Map<String, ArchivedClass> classes;
+
+        // the jar files of the recorded classes, by URL index
+        private final ConcurrentHashMap<String, Integer> recorded;
+
+        // Whether the jar files are unchanged: null until checked
+        private Boolean current;
+
+        private Path(URL[] urls) {
+            this.urls = urls;
+            this.jars = null;
+            this.classes = null;
+            this.recorded = new ConcurrentHashMap<>();
+        }
+
+        private Path(URL[] urls, Jar[] jars, Map<String, ArchivedClass> classes) {
+            this.urls = urls;
+            this.jars = jars;
+            this.classes = classes;
+            this.recorded = null;
+        }
+
+        // Called with the class lock held
+        private boolean isCurrent() {
+            if (current == null) {
+                boolean b = true;
+                for (Jar jar : jars)
+                    b &= jar.isCurrent();
+                current = b;
+            }
+            return current;
+        }
+
+        /**
+         * Returns the archived class of the given name, or null.
+         */
+        ArchivedClass get(String name) {
+            return (classes == null) ? null : classes.get(name);
+        }
+
+        /**
+         * Records, in a training run, that the class of the given name was
+         * defined from the jar file of the given URL without signers.
+         */
+        void record(String name, URL url) {
+            if (recorded == null)
+                return;
+            for (int i = 0; i < urls.length; i++) {
+                if (urls[i].equals(url)) {
+                    recorded.putIfAbsent(name, i);
+                    return;
+                }
+            }
+        }
+    }
+
+    /* ---------------- Reading -------------- */
+
+    // Reads the archive, mapping its classes. A damaged or unreadable
+    // archive is ignored.
+    private static void read() {
+        File file = new File(fileName);
+        if (!file.isFile())
+            return;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel fc = raf.getChannel();
+            MappedByteBuffer map = fc.map(FileChannel.MapMode.READ_ONLY,
+                                          0, fc.size());
+            if (map.getInt() != MAGIC || map.getInt() != VERSION)
+                return;
+            map.position((int)map.getLong());
+            byte[] index = new byte[map.remaining()];
+            map.get(index);
+            int data = HEADER_SIZE;
+            DataInputStream in =
+                new DataInputStream(new ByteArrayInputStream(index));
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                URL[] urls = new URL[in.readInt()];
+                Jar[] jars = new Jar[urls.length];
+                for (int j = 0; j < urls.length; j++) {
+                    urls[j] = new URL(in.readUTF());
+                    long lastModified = in.readLong();
+                    long length = in.readLong();
+                    int len = in.readInt();
+                    byte[] man = null;
+                    if (len >= 0) {
+                        man = new byte[len];
+                        in.readFully(man);
+                    }
+                    jars[j] = new Jar(urls[j], lastModified, length, man);
+                }
+                int count = in.readInt();
+                Map<String, ArchivedClass> classes = new HashMap<>(count * 4 / 3 + 1);
+                for (int k = 0; k < count; k++) {
+                    String name = in.readUTF();
+                    int jar = in.readInt();
+                    int off = in.readInt();
+                    int len = in.readInt();
+                    ByteBuffer bb = map.duplicate();
+                    bb.position(data + off);
+                    bb.limit(data + off + len);
+                    classes.put(name, new ArchivedClass(jars[jar], bb.slice()));
+                }
+                paths.put(key(urls), new Path(urls, jars, classes));
+            }
+        } catch (IOException | RuntimeException x) {
+            paths.clear();
+        }
+    }
+
+    /* ---------------- Writing -------------- */
+
+    private static void addShutdownHook() {
+        Runtime.getRuntime().addShutdownHook(
+            new Thread("URLClassLoader archive writer") {
+                public void run() {
+                    synchronized (ClassArchive.class) {
+                        write();
+                    }
+                }
+            });
+    }
+
+    // Writes the recorded classes, reading them from their jar files,
+    // to a temporary file which then replaces the archive: the header, the
+    // class bytes, and the index of the paths and their classes, whose
+    // offset is in the header
+    private static void write() {
+        File file = new File(fileName);
+        File tmp = new File(fileName + ".tmp");
+        try {
+            try (RandomAccessFile raf = new RandomAccessFile(tmp, "rw")) {
+                raf.setLength(0);
+                DataOutputStream data = new DataOutputStream(
+                    new BufferedOutputStream(
+                        Channels.newOutputStream(raf.getChannel())));
+                data.writeInt(MAGIC);
+                data.writeInt(VERSION);
+                data.writeLong(0);
+                ByteArrayOutputStream index = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(index);
+                List<Path> recorded = new ArrayList<>();
+                for (Path path : paths.values()) {
+                    if (!path.recorded.isEmpty())
+                        recorded.add(path);
+                }
+                out.writeInt(recorded.size());
+                long off = 0;
+                for (Path path : recorded)
+                    off = writePath(path, out, data, off);
+                out.flush();
+                index.writeTo(data);
+                data.flush();
+                raf.seek(8);
+                raf.writeLong(HEADER_SIZE + off);
+            }
+            if (!tmp.renameTo(file)) {
+                file.delete();
+                tmp.renameTo(file);
+            }
+        } catch (IOException x) {
+            tmp.delete();
+        }
+    }
+
+    private static long writePath(Path path, DataOutputStream out,
+                                  OutputStream data, long off)
+        throws IOException
+    {
+        URL[] urls = path.urls;
+        JarFile[] jarFiles = new JarFile[urls.length];
+        try {
+            out.writeInt(urls.length);
+            for (int i = 0; i < urls.length; i++) {
+                File f = ClassPathIndex.jarFile(urls[i]);
+                if (f == null)
+                    throw new IOException("Not a jar file: " + urls[i]);
+                // The time and length before reading, so that a change
+                // while writing invalidates the archived classes
+                long lastModified = f.lastModified();
+                long length = f.length();
+                jarFiles[i] = new JarFile(f, false);
+                out.writeUTF(urls[i].toExternalForm());
+                out.writeLong(lastModified);
+                out.writeLong(length);
+                Manifest man = jarFiles[i].getManifest();
+                if (man == null) {
+                    out.writeInt(-1);
+                } else {
+                    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                    man.write(bos);
+                    out.writeInt(bos.size());
+                    bos.writeTo(out);
+                }
+            }
+            ByteArrayOutputStream classes = new ByteArrayOutputStream();
+            DataOutputStream cout = new DataOutputStream(classes);
+            int count = 0;
+            for (Map.Entry<String, Integer> e : path.recorded.entrySet()) {
+                String name = e.getKey();
+                int jar = e.getValue();
+                JarEntry entry = jarFiles[jar].getJarEntry(
+                    name.replace('.', '/').concat(".class"));
+                if (entry == null)
+                    continue;
+                byte[] b;
+                try (InputStream in = jarFiles[jar].getInputStream(entry)) {
+                    b = readAll(in);
+                }
+                if (HEADER_SIZE + off + b.length > Integer.MAX_VALUE)
+                    break;
+                data.write(b);
+                cout.writeUTF(name);
+                cout.writeInt(jar);
+                cout.writeInt((int)off);
+                cout.writeInt(b.length);
+                off += b.length;
+                count++;
+            }
+            out.writeInt(count);
+            classes.writeTo(out);
+            return off;
+        } finally {
+            for (JarFile jf : jarFiles) {
+                if (jf != null)
+                    jf.close();
+            }
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = in.read(buf)) > 0)
+            out.write(buf, 0, n);
+        return out.toByteArray();
+    }
+}
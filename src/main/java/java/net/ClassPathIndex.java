@@ -0,0 +1,565 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.net;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import sun.misc.Resource;
+import sun.misc.URLClassPath;
+import sun.net.www.ParseUtil;
+import sun.security.action.GetPropertyAction;
+
+/**
+ * The search path of a URLClassLoader, with an index of the packages of
+ * its jar files, so that a lookup only searches the jar files which have
+ * entries in the package of the resource, and the other URLs of the path.
+ *
+ * The index is built at the first lookup, if the path has enough local
+ * jar files, by listing the entries of the jar files in parallel. A jar
+ * file with a Class-Path attribute or an INDEX.LIST adds other jar files to
+ * the search, in which case the path is not indexed and the lookups are
+ * made by the URLClassPath of the loader, as are those of a path with few
+ * jar files, or of a closed loader.
+ *
+ * The system property "java.net.URLClassLoader.index" set to "false"
+ * turns the index off. The system property
+ * "java.net.URLClassLoader.indexCache" names a file in which the packages
+ * of the jar files are kept, by path, last modification time and length,
+ * so that a jar file is not listed again by a later run.
+ */
+final class ClassPathIndex {
+
+    // The least number of local jar files for which a path is indexed
+    private static final int MIN_JARS = 8;
+
+    private static final boolean enabled;
+    private static final String cacheName;
+
+    static {
+        enabled = !"false".equalsIgnoreCase(AccessController.doPrivileged(
+            new GetPropertyAction("java.net.URLClassLoader.index")));
+        cacheName = AccessController.doPrivileged(
+            new GetPropertyAction("java.net.URLClassLoader.indexCache"));
+    }
+
+    private static final int[] NO_INDEXES = new int[0];
+
+    private final URLClassPath ucp;
+    private final URLStreamHandlerFactory factory;
+
+    // The URLs of the path, the loaders of the URLs, the indexes of the
+    // URLs that are not indexed, and the indexes of the jar files of each
+    // package. Written with the lock of this index held, in this order.
+    private volatile URL[] urls;
+    private volatile URLClassPath[] loaders;
+    private volatile int[] unindexed;
+    private final ConcurrentHashMap<String, int[]> packages =
+        new ConcurrentHashMap<>();
+
+    // Whether the index is to be built at the next lookup, whether it is
+    // in use, and whether a jar file of the path adds others to the search
+    private volatile boolean pending = enabled;
+    private volatile boolean active;
+    private volatile boolean extended;
+    private volatile boolean closed;
+
+    ClassPathIndex(URLClassPath ucp, URLStreamHandlerFactory factory) {
+        this.ucp = ucp;
+        this.factory = factory;
+    }
+
+    /**
+     * Finds the resource of the given name, as URLClassPath.getResource.
+     */
+    Resource getResource(String name, boolean check) {
+        if (!use())
+            return ucp.getResource(name, check);
+        URLClassPath[] loaders = this.loaders;
+        for (int i : candidates(name, loaders.length)) {
+            Resource res = loader(i).getResource(name, check);
+            if (res != null)
+                return res;
+        }
+        return null;
+    }
+
+    /**
+     * Finds the resource of the given name, as URLClassPath.findResource.
+     */
+    URL findResource(String name, boolean check) {
+        if (!use())
+            return ucp.findResource(name, check);
+        URLClassPath[] loaders = this.loaders;
+        for (int i : candidates(name, loaders.length)) {
+            URL url = loader(i).findResource(name, check);
+            if (url != null)
+                return url;
+        }
+        return null;
+    }
+
+    /**
+     * Finds the resources of the given name, as
+     * URLClassPath.findResources.
+     */
+    Enumeration<URL> findResources(final String name, final boolean check) {
+        if (!use())
+            return ucp.findResources(name, check);
+        final int[] candidates = candidates(name, loaders.length);
+        return new Enumeration<URL>() {
+            private int index;
+            private Enumeration<URL> e = Collections.emptyEnumeration();
+
+            public boolean hasMoreElements() {
+                while (!e.hasMoreElements()) {
+                    if (index == candidates.length || closed)
+                        return false;
+                    e = loader(candidates[index++]).findResources(name, check);
+                }
+                return true;
+            }
+
+            public URL nextElement() {
+                if (!hasMoreElements())
+                    throw new NoSuchElementException();
+                return e.nextElement();
+            }
+        };
+    }
+
+    /**
+     * Indexes the URLs added to the path of the loader, if it is indexed.
+     */
+    synchronized void addURL(URL url) {
+        if (closed || extended || !enabled)
+            return;
+        if (!active) {
+            // Check again whether the path is to be indexed
+            pending = true;
+            return;
+        }
+        URL[] all = ucp.getURLs();
+        if (all.length > urls.length)
+            index(Arrays.copyOfRange(all, urls.length, all.length));
+    }
+
+    /**
+     * Closes the loaders of the URLs, and stops using the index.
+     */
+    synchronized List<IOException> close() {
+        closed = true;
+        active = false;
+        pending = false;
+        List<IOException> errors = new ArrayList<>();
+        if (loaders != null) {
+            for (URLClassPath loader : loaders) {
+                if (loader != null)
+                    errors.addAll(loader.closeLoaders());
+            }
+        }
+        return errors;
+    }
+
+    /* ---------------- Lookups -------------- */
+
+    // Builds the index if it is pending, and tells whether it is in use
+    private boolean use() {
+        if (pending) {
+            synchronized (this) {
+                if (pending) {
+                    pending = false;
+                    AccessController.doPrivileged(
+                        new PrivilegedAction<Void>() {
+                            public Void run() {
+                                build();
+                                return null;
+                            }
+                        });
+                }
+            }
+        }
+        return active;
+    }
+
+    // The indexes of the URLs to search for the resource, in order: the
+    // jar files with entries in its package, and the URLs not indexed
+    private int[] candidates(String name, int n) {
+        int[] jars = packages.get(packageOf(name));
+        int[] other = unindexed;
+        if (jars == null)
+            jars = NO_INDEXES;
+        int[] a = new int[jars.length + other.length];
+        int i = 0, j = 0, k = 0;
+        while (i < jars.length || j < other.length) {
+            int x;
+            if (j == other.length || (i < jars.length && jars[i] < other[j]))
+                x = jars[i++];
+            else
+                x = other[j++];
+            // A URL being added may be indexed before it is a loader
+            if (x < n)
+                a[k++] = x;
+        }
+        return (k == a.length) ? a : Arrays.copyOf(a, k);
+    }
+
+    private URLClassPath loader(int i) {
+        URLClassPath[] loaders = this.loaders;
+        URLClassPath loader = loaders[i];
+        if (loader == null) {
+            synchronized (this) {
+                loader = this.loaders[i];
+                if (loader == null) {
+                    loader = new URLClassPath(new URL[] { urls[i] }, factory);
+                    this.loaders[i] = loader;
+                }
+            }
+        }
+        return loader;
+    }
+
+    // The package of a resource or of a jar entry: the name up to its last
+    // '/' but a trailing one, as ZipFile.getEntry finds the entry of a
+    // directory by its name with or without a trailing '/'
+    static String packageOf(String name) {
+        int i = name.lastIndexOf('/', name.length() - 2);
+        return (i < 0) ? "" : name.substring(0, i);
+    }
+
+    /* ---------------- Building -------------- */
+
+    private void build() {
+        URL[] all = ucp.getURLs();
+        int jars = 0;
+        for (URL url : all) {
+            if (jarFile(url) != null)
+                jars++;
+        }
+        if (jars < MIN_JARS)
+            return;
+        urls = new URL[0];
+        loaders = new URLClassPath[0];
+        unindexed = NO_INDEXES;
+        packages.clear();
+        index(all);
+        // Lookups use the path until the index is complete
+        active = !extended;
+    }
+
+    // Appends the URLs to the index, or stops using it if one of them
+    // adds other jar files to the search
+    private void index(URL[] added) {
+        int base = urls.length;
+        final JarInfo[] infos = new JarInfo[added.length];
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < added.length; i++) {
+            final File file = jarFile(added[i]);
+            if (file == null)
+                continue;
+            final JarInfo cached = Cache.get(file);
+            if (cached != null) {
+                infos[i] = cached;
+                continue;
+            }
+            final int index = i;
+            tasks.add(new Callable<Void>() {
+                public Void call() throws IOException {
+                    infos[index] = JarInfo.read(file);
+                    return null;
+                }
+            });
+        }
+        if (!tasks.isEmpty()) {
+            list(tasks);
+            Cache.put(infos);
+        }
+
+        int[] other = unindexed;
+        Map<String, List<Integer>> addedPackages = new HashMap<>();
+        for (int i = 0; i < added.length; i++) {
+            JarInfo info = infos[i];
+            if (info == null) {
+                other = Arrays.copyOf(other, other.length + 1);
+                other[other.length - 1] = base + i;
+                continue;
+            }
+            if (info.extendsPath) {
+                active = false;
+                extended = true;
+                return;
+            }
+            for (String pkg : info.packages) {
+                List<Integer> l = addedPackages.get(pkg);
+                if (l == null)
+                    addedPackages.put(pkg, l = new ArrayList<>(1));
+                l.add(base + i);
+            }
+        }
+
+        URL[] u = Arrays.copyOf(urls, base + added.length);
+        System.arraycopy(added, 0, u, base, added.length);
+        urls = u;
+        loaders = Arrays.copyOf(loaders, u.length);
+        unindexed = other;
+        for (Map.Entry<String, List<Integer>> e : addedPackages.entrySet()) {
+            int[] a = packages.get(e.getKey());
+            int n = (a == null) ? 0 : a.length;
+            a = (a == null) ? new int[e.getValue().size()]
+                            : Arrays.copyOf(a, n + e.getValue().size());
+            for (int i : e.getValue())
+                a[n++] = i;
+            packages.put(e.getKey(), a);
+        }
+    }
+
+    // Runs the tasks listing jar files on a few threads. A jar file that
+    // cannot be listed is left to its loader, as a URL not indexed.
+    private static void list(List<Callable<Void>> tasks) {
+        int threads = Math.min(tasks.size(),
+            Math.min(8, Runtime.getRuntime().availableProcessors()));
+        if (threads <= 1) {
+            for (Callable<Void> task : tasks) {
+                try {
+                    task.call();
+                } catch (Exception ignored) {
+                }
+            }
+            return;
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "URLClassLoader indexer");
+                    t.setDaemon(true);
+                    t.setContextClassLoader(null);
+                    return t;
+                }
+            });
+        try {
+            List<Future<Void>> futures = new ArrayList<>(tasks.size());
+            for (Callable<Void> task : tasks)
+                futures.add(executor.submit(task));
+            for (Future<Void> f : futures) {
+                try {
+                    f.get();
+                } catch (ExecutionException ignored) {
+                } catch (InterruptedException x) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // The local jar file of the URL, or null if it is not one
+    static File jarFile(URL url) {
+        if (!"file".equals(url.getProtocol()))
+            return null;
+        String host = url.getHost();
+        if (host != null && !host.isEmpty() && !host.equals("localhost"))
+            return null;
+        String path = url.getFile();
+        if (path.endsWith("/"))
+            return null;
+        File file = new File(ParseUtil.decode(path));
+        return file.isFile() ? file : null;
+    }
+
+    /**
+     * The packages of the entries of a jar file, and whether it adds other
+     * jar files to the search, as of the last modification time and length
+     * of the file.
+     */
+    static final class JarInfo {
+        final String path;
+        final long lastModified;
+        final long length;
+        final boolean extendsPath;
+        final String[] packages;
+
+        JarInfo(String path, long lastModified, long length,
+                boolean extendsPath, String[] packages) {
+            this.path = path;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.extendsPath = extendsPath;
+            this.packages = packages;
+        }
+
+        boolean isCurrent(File file) {
+            return file.lastModified() == lastModified
+                && file.length() == length;
+        }
+
+        static JarInfo read(File file) throws IOException {
+            long lastModified = file.lastModified();
+            long length = file.length();
+            try (JarFile jar = new JarFile(file, false)) {
+                boolean extendsPath =
+                    (jar.getEntry("META-INF/INDEX.LIST") != null);
+                if (!extendsPath) {
+                    Manifest man = jar.getManifest();
+                    extendsPath = (man != null) && (man.getMainAttributes()
+                        .getValue(Attributes.Name.CLASS_PATH) != null);
+                }
+                Set<String> packages = new HashSet<>();
+                Enumeration<JarEntry> entries = jar.entries();
+                while (entries.hasMoreElements())
+                    packages.add(packageOf(entries.nextElement().getName()));
+                return new JarInfo(file.getAbsolutePath(), lastModified,
+                                   length, extendsPath,
+                                   packages.toArray(new String[packages.size()]));
+            }
+        }
+    }
+
+    /**
+     * The packages of the jar files listed by this and earlier runs, kept
+     * in the file named by the indexCache property.
+     */
+    private static final class Cache {
+        private static final int MAGIC = 0x4a504958;   // "JPIX"
+        private static final int VERSION = 1;
+
+        private static Map<String, JarInfo> infos;
+
+        static synchronized JarInfo get(File file) {
+            if (cacheName == null)
+                return null;
+            if (infos == null)
+                infos = load();
+            JarInfo info = infos.get(file.getAbsolutePath());
+            return (info != null && info.isCurrent(file)) ? info : null;
+        }
+
+        static synchronized void put(JarInfo[] added) {
+            if (cacheName == null)
+                return;
+            for (JarInfo info : added) {
+                if (info != null)
+                    infos.put(info.path, info);
+            }
+            save();
+        }
+
+        private static Map<String, JarInfo> load() {
+            Map<String, JarInfo> map = new HashMap<>();
+            File file = new File(cacheName);
+            if (!file.isFile())
+                return map;
+            try (DataInputStream in = new DataInputStream(
+                     new BufferedInputStream(new FileInputStream(file)))) {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                    return map;
+                int n = in.readInt();
+                for (int i = 0; i < n; i++) {
+                    String path = in.readUTF();
+                    long lastModified = in.readLong();
+                    long length = in.readLong();
+                    boolean extendsPath = in.readBoolean();
+                    String[] packages = new String[in.readInt()];
+                    for (int j = 0; j < packages.length; j++)
+                        packages[j] = in.readUTF();
+                    map.put(path, new JarInfo(path, lastModified, length,
+                                              extendsPath, packages));
+                }
+            } catch (IOException x) {
+                // A damaged cache is rebuilt
+                map.clear();
+            }
+            return map;
+        }
+
+        // Writes the cache to a temporary file of its own, which then
+        // replaces it, so that another run never reads a partial cache and
+        // runs saving at once do not write the same file
+        private static void save() {
+            File file = new File(cacheName);
+            File tmp = null;
+            try {
+                tmp = File.createTempFile("index", ".tmp",
+                                          file.getAbsoluteFile().getParentFile());
+                try (DataOutputStream out = new DataOutputStream(
+                         new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                    out.writeInt(infos.size());
+                    for (JarInfo info : infos.values()) {
+                        out.writeUTF(info.path);
+                        out.writeLong(info.lastModified);
+                        out.writeLong(info.length);
+                        out.writeBoolean(info.extendsPath);
+                        out.writeInt(info.packages.length);
+                        for (String pkg : info.packages)
+                            out.writeUTF(pkg);
+                    }
+                }
+                if (!tmp.renameTo(file)) {
+                    file.delete();
+                    if (!tmp.renameTo(file))
+                        tmp.delete();
+                }
+            } catch (IOException x) {
+                if (tmp != null)
+                    tmp.delete();
+            }
+        }
+    }
+}
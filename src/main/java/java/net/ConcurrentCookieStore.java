@@ -0,0 +1,751 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.net;
+
+import java.lang.ref.WeakReference;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link CookieStore} for clients that hold many cookies of many domains
+ * and use them from many threads.
+ *
+ * <p> This store returns the same cookies for a URI as the default store
+ * of {@link CookieManager} does, except that a cookie domain only matches
+ * a host on a label boundary: a cookie of <tt>ample.com</tt> is not sent
+ * to <tt>example.com</tt>.  Instead of scanning all of its cookies, it
+ * finds those of a host in a trie of domain names by their labels in
+ * reverse order, so the cost of {@link #get get} depends on the cookies
+ * of the host only.  Lookups take no lock.  Updates take one of a fixed
+ * number of locks, chosen by the domain of the cookie, so the updates of
+ * cookies of different domains seldom contend.
+ *
+ * <p> The cookies with a max age are also kept in order of expiry, and
+ * the expired ones are removed in the background about once a minute, as
+ * well as when {@code get} comes across them.
+ *
+ * <p> The number of cookies, in all and by domain, can be bounded.  When
+ * adding a cookie takes its domain over the bound, the cookie of the
+ * domain added first is removed.  When it takes the store over the bound,
+ * the expired cookies and then the cookies added first are removed, down
+ * to seven eighths of the bound, so that the cookies are not sorted again
+ * at the next addition.
+ *
+ * @see CookieManager
+ * @since 1.7
+ */
+public class ConcurrentCookieStore implements CookieStore {
+
+    private static final int STRIPES = 64;
+    private static final long PURGE_PERIOD = 60;
+
+    private static final Node[] NO_NODES = new Node[0];
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    private final int maxCookies;
+    private final int maxCookiesPerDomain;
+
+    // the cookies, by name, domain and path as HttpCookie.equals compares
+    // them
+    private final ConcurrentHashMap<Key, Entry> jar = new ConcurrentHashMap<>();
+
+    // the trie of domain names, and the cookies added with URIs without a
+    // host
+    private final Node root = new Node("", "");
+    private final ConcurrentHashMap<URI, Node> hostless = new ConcurrentHashMap<>();
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    /**
+     * Creates a cookie store without bounds.
+     */
+    public ConcurrentCookieStore() {
+        this(Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a cookie store with the given bounds.
+     *
+     * @param maxCookies the maximum number of cookies of the store
+     * @param maxCookiesPerDomain the maximum number of cookies of a
+     *        domain
+     * @throws IllegalArgumentException if a bound is less than one
+     */
+    public ConcurrentCookieStore(int maxCookies, int maxCookiesPerDomain) {
+        if (maxCookies < 1)
+            throw new IllegalArgumentException("maxCookies < 1");
+        if (maxCookiesPerDomain < 1)
+            throw new IllegalArgumentException("maxCookiesPerDomain < 1");
+        this.maxCookies = maxCookies;
+        this.maxCookiesPerDomain = maxCookiesPerDomain;
+        for (int i = 0; i < STRIPES; i++)
+            stripes[i] = new Stripe();
+        Purger.schedule(this);
+    }
+
+    /**
+     * Adds one cookie into this store.  A cookie equal to it is replaced,
+     * and if its max age is zero, it is only removed.
+     *
+     * @throws NullPointerException if <tt>cookie</tt> is <tt>null</tt>
+     */
+    public void add(URI uri, HttpCookie cookie) {
+        if (cookie == null) {
+            throw new NullPointerException("cookie is null");
+        }
+        Key key = new Key(cookie);
+        Stripe stripe = stripe(key);
+        Entry first = null;
+        stripe.lock();
+        try {
+            Entry old = jar.remove(key);
+            if (old != null)
+                unindex(old);
+            if (cookie.getMaxAge() != 0) {
+                // The nodes are found with the lock held, so that removeAll
+                // cannot detach them from the trie in the meantime
+                Node domainNode = (key.domain != null) ? node(key.domain) : null;
+                Entry e = new Entry(key, cookie, stripe, domainNode,
+                                    sequence.incrementAndGet());
+                jar.put(key, e);
+                if (domainNode != null) {
+                    synchronized (domainNode) {
+                        domainNode.cookies = add(domainNode.cookies, e);
+                        if (domainNode.cookies.length > maxCookiesPerDomain)
+                            first = first(domainNode.cookies);
+                    }
+                }
+                if (uri != null)
+                    associate(uri, e);
+                stripe.enqueue(e, jar);
+            }
+        } finally {
+            stripe.unlock();
+        }
+        // The cookie of the domain added first may be of another stripe,
+        // whose lock is only taken once this one is released
+        if (first != null)
+            expire(first);
+        if (jar.size() > maxCookies)
+            evict();
+    }
+
+    /**
+     * Returns the cookies that match the given URI and have not expired:
+     * those whose domain matches its host, and those added with a URI of
+     * the same host.  Secure cookies are only returned for
+     * <tt>https</tt> URIs.
+     *
+     * @throws NullPointerException if <tt>uri</tt> is <tt>null</tt>
+     */
+    public List<HttpCookie> get(URI uri) {
+        if (uri == null) {
+            throw new NullPointerException("uri is null");
+        }
+        List<HttpCookie> cookies = new ArrayList<HttpCookie>();
+        boolean secureLink = "https".equalsIgnoreCase(uri.getScheme());
+        String host = uri.getHost();
+        if (host == null) {
+            Node n = hostless.get(uri);
+            if (n != null)
+                collect(cookies, n.associated, null, secureLink);
+            return cookies;
+        }
+        host = host.toLowerCase(Locale.ROOT);
+
+        // The nodes of the domains of the host, from its top level domain
+        Node node = root;
+        int end = host.length();
+        while (node != null) {
+            int dot = host.lastIndexOf('.', end - 1);
+            node = node.child(host, dot + 1, end);
+            if (node == null)
+                break;
+            collect(cookies, node.cookies, host, secureLink);
+            if (dot < 0) {
+                collect(cookies, node.associated, null, secureLink);
+                break;
+            }
+            end = dot;
+        }
+        if (host.indexOf('.') < 0) {
+            // A cookie of .local matches a host name without a dot
+            node = root.child("local", 0, 5);
+            if (node != null)
+                collect(cookies, node.cookies, host, secureLink);
+        }
+        return cookies;
+    }
+
+    /**
+     * Returns all the cookies in this store which have not expired.
+     */
+    public List<HttpCookie> getCookies() {
+        List<HttpCookie> cookies = new ArrayList<HttpCookie>();
+        for (Entry e : jar.values()) {
+            if (e.cookie.hasExpired())
+                expire(e);
+            else
+                cookies.add(e.cookie);
+        }
+        return Collections.unmodifiableList(cookies);
+    }
+
+    /**
+     * Returns the URIs which at least one cookie of this store was added
+     * with, as <tt>http</tt> URIs of their host only.
+     */
+    public List<URI> getURIs() {
+        List<URI> uris = new ArrayList<URI>();
+        collectURIs(uris, root);
+        for (java.util.Map.Entry<URI, Node> e : hostless.entrySet()) {
+            if (e.getValue().associated.length > 0)
+                uris.add(e.getKey());
+        }
+        return uris;
+    }
+
+    /**
+     * Removes a cookie from this store.
+     *
+     * @throws NullPointerException if <tt>ck</tt> is <tt>null</tt>
+     */
+    public boolean remove(URI uri, HttpCookie ck) {
+        if (ck == null) {
+            throw new NullPointerException("cookie is null");
+        }
+        Key key = new Key(ck);
+        Stripe stripe = stripe(key);
+        stripe.lock();
+        try {
+            Entry e = jar.remove(key);
+            if (e == null)
+                return false;
+            unindex(e);
+            return true;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * Removes all the cookies of this store.
+     */
+    public boolean removeAll() {
+        for (Stripe stripe : stripes)
+            stripe.lock();
+        try {
+            jar.clear();
+            synchronized (root) {
+                root.children = NO_NODES;
+            }
+            hostless.clear();
+            for (Stripe stripe : stripes) {
+                stripe.expiry.clear();
+                stripe.queued = 0;
+            }
+        } finally {
+            for (Stripe stripe : stripes)
+                stripe.unlock();
+        }
+        return true;
+    }
+
+    /* ---------------- Private operations -------------- */
+
+    // Returns the node of the domain name, adding it and the nodes of its
+    // parent domains if needed.
+    private Node node(String domain) {
+        if (domain.length() > 0 && domain.charAt(0) == '.')
+            domain = domain.substring(1);
+        Node node = root;
+        int end = domain.length();
+        for (;;) {
+            int dot = domain.lastIndexOf('.', end - 1);
+            Node child = node.child(domain, dot + 1, end);
+            if (child == null)
+                child = node.addChild(domain, dot + 1, end);
+            node = child;
+            if (dot < 0)
+                return node;
+            end = dot;
+        }
+    }
+
+    // Adds the entry to the cookies added with the host of the URI, or
+    // with the URI if it has no host. Called with the lock of the stripe
+    // of the entry held.
+    private void associate(URI uri, Entry e) {
+        String host = uri.getHost();
+        if (host != null) {
+            Node n = node(host.toLowerCase(Locale.ROOT));
+            synchronized (n) {
+                n.associated = add(n.associated, e);
+            }
+            e.uriNode = n;
+            return;
+        }
+        for (;;) {
+            Node n = hostless.get(uri);
+            if (n == null) {
+                Node created = new Node(uri);
+                n = hostless.putIfAbsent(uri, created);
+                if (n == null)
+                    n = created;
+            }
+            synchronized (n) {
+                // A node emptied meanwhile is out of the map, and replaced
+                if (!n.removed) {
+                    n.associated = add(n.associated, e);
+                    e.uriNode = n;
+                    return;
+                }
+            }
+        }
+    }
+
+    private Stripe stripe(Key key) {
+        int h = (key.domain != null) ? key.domain.hashCode()
+                                     : key.name.hashCode();
+        h ^= (h >>> 16);
+        return stripes[h & (STRIPES - 1)];
+    }
+
+    // Adds the unexpired cookies of the entries which match the host, if
+    // not null, and are not there yet.
+    private void collect(List<HttpCookie> cookies, Entry[] entries,
+                         String host, boolean secureLink) {
+        for (Entry e : entries) {
+            HttpCookie c = e.cookie;
+            if (host != null) {
+                String domain = c.getDomain();
+                if (c.getVersion() == 0) {
+                    if (!InMemoryCookieStore.netscapeDomainMatches(domain, host))
+                        continue;
+                } else if (c.getVersion() != 1
+                           || !HttpCookie.domainMatches(domain, host)) {
+                    continue;
+                }
+            }
+            if (c.hasExpired()) {
+                expire(e);
+            } else if ((secureLink || !c.getSecure()) && !cookies.contains(c)) {
+                cookies.add(c);
+            }
+        }
+    }
+
+    private void collectURIs(List<URI> uris, Node node) {
+        if (node.associated.length > 0) {
+            try {
+                uris.add(new URI("http", node.name, null, null, null));
+            } catch (URISyntaxException ignored) {
+            }
+        }
+        for (Node child : node.children)
+            collectURIs(uris, child);
+    }
+
+    private void expire(Entry e) {
+        Stripe stripe = e.stripe;
+        stripe.lock();
+        try {
+            if (jar.remove(e.key, e))
+                unindex(e);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    // Removes the entry from the nodes, and the node of a URI without a
+    // host once it is empty. Called with the lock of its stripe held,
+    // after removing it from the jar.
+    private void unindex(Entry e) {
+        Node n = e.domainNode;
+        if (n != null) {
+            synchronized (n) {
+                n.cookies = remove(n.cookies, e);
+            }
+        }
+        n = e.uriNode;
+        if (n != null) {
+            synchronized (n) {
+                n.associated = remove(n.associated, e);
+                if (n.uri != null && n.associated.length == 0) {
+                    n.removed = true;
+                    hostless.remove(n.uri, n);
+                }
+            }
+        }
+        if (e.queued)
+            e.stripe.queued--;
+    }
+
+    // Returns the entry added first.
+    private static Entry first(Entry[] entries) {
+        Entry first = null;
+        for (Entry e : entries) {
+            if (first == null || e.sequence < first.sequence)
+                first = e;
+        }
+        return first;
+    }
+
+    // Removes the expired cookies and then the cookies added first, down
+    // to 7/8 of the bound.
+    private void evict() {
+        if (!evicting.compareAndSet(false, true))
+            return;
+        try {
+            List<Entry> live = new ArrayList<>(jar.size());
+            for (Entry e : jar.values()) {
+                if (e.cookie.hasExpired())
+                    expire(e);
+                else
+                    live.add(e);
+            }
+            int excess = live.size() - (maxCookies - maxCookies / 8);
+            if (excess <= 0)
+                return;
+            Collections.sort(live, new Comparator<Entry>() {
+                public int compare(Entry a, Entry b) {
+                    return Long.compare(a.sequence, b.sequence);
+                }
+            });
+            for (int i = 0; i < excess; i++)
+                expire(live.get(i));
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    // Removes the expired cookies in order of expiry.
+    void purge() {
+        long now = System.currentTimeMillis();
+        for (Stripe stripe : stripes) {
+            stripe.lock();
+            try {
+                PriorityQueue<Entry> expiry = stripe.expiry;
+                Entry e;
+                while ((e = expiry.peek()) != null && e.expires <= now) {
+                    expiry.poll();
+                    if (jar.get(e.key) != e)
+                        continue;
+                    e.queued = false;
+                    stripe.queued--;
+                    if (e.cookie.hasExpired()) {
+                        jar.remove(e.key, e);
+                        unindex(e);
+                    } else {
+                        // The max age was set after the cookie was added
+                        stripe.enqueue(e, jar);
+                    }
+                }
+            } finally {
+                stripe.unlock();
+            }
+        }
+    }
+
+    private static Entry[] add(Entry[] entries, Entry e) {
+        Entry[] a = Arrays.copyOf(entries, entries.length + 1);
+        a[entries.length] = e;
+        return a;
+    }
+
+    private static Entry[] remove(Entry[] entries, Entry e) {
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i] == e) {
+                if (entries.length == 1)
+                    return NO_ENTRIES;
+                Entry[] a = new Entry[entries.length - 1];
+                System.arraycopy(entries, 0, a, 0, i);
+                System.arraycopy(entries, i + 1, a, i, a.length - i);
+                return a;
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * The identity of a cookie: its name, domain and path, as
+     * HttpCookie.equals compares them.
+     */
+    private static final class Key {
+        final String name;
+        final String domain;
+        final String path;
+
+        Key(HttpCookie cookie) {
+            name = cookie.getName().toLowerCase(Locale.ROOT);
+            String d = cookie.getDomain();
+            domain = (d != null) ? d.toLowerCase(Locale.ROOT) : null;
+            path = cookie.getPath();
+        }
+
+        public int hashCode() {
+            int h = name.hashCode();
+            if (domain != null)
+                h = 31 * h + domain.hashCode();
+            if (path != null)
+                h = 31 * h + path.hashCode();
+            return h;
+        }
+
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key))
+                return false;
+            Key other = (Key)obj;
+            return name.equals(other.name)
+                && (domain == null ? other.domain == null
+                                   : domain.equals(other.domain))
+                && (path == null ? other.path == null
+                                 : path.equals(other.path));
+        }
+    }
+
+    /**
+     * A cookie of the store, and where it is indexed.
+     */
+    private static final class Entry {
+        final Key key;
+        final HttpCookie cookie;
+        final Stripe stripe;
+        final Node domainNode;
+        final long sequence;
+
+        // The node of the URI the cookie was added with, when the cookie
+        // expires and whether it is in the expiry queue of its stripe,
+        // guarded by the lock of the stripe
+        Node uriNode;
+        long expires;
+        boolean queued;
+
+        Entry(Key key, HttpCookie cookie, Stripe stripe, Node domainNode,
+              long sequence) {
+            this.key = key;
+            this.cookie = cookie;
+            this.stripe = stripe;
+            this.domainNode = domainNode;
+            this.sequence = sequence;
+        }
+    }
+
+    private static final Comparator<Entry> EXPIRY_ORDER =
+        new Comparator<Entry>() {
+            public int compare(Entry a, Entry b) {
+                return Long.compare(a.expires, b.expires);
+            }
+        };
+
+    /**
+     * A lock, which guards the updates of the cookies of the domains it
+     * is chosen for, and the queue of these cookies in order of expiry.
+     */
+    private static final class Stripe extends ReentrantLock {
+        private static final long serialVersionUID = 1L;
+
+        final PriorityQueue<Entry> expiry =
+            new PriorityQueue<Entry>(16, EXPIRY_ORDER);
+
+        // the number of entries of the queue still in the jar
+        int queued;
+
+        // Queues the entry if its cookie expires, dropping the entries no
+        // longer in the jar when they are most of the queue.
+        void enqueue(Entry e, ConcurrentHashMap<Key, Entry> jar) {
+            long expires = e.cookie.expiryTime();
+            if (expires == Long.MAX_VALUE)
+                return;
+            if (expiry.size() > 2 * queued + 16) {
+                List<Entry> live = new ArrayList<>(queued);
+                for (Entry q : expiry) {
+                    if (jar.get(q.key) == q)
+                        live.add(q);
+                }
+                expiry.clear();
+                expiry.addAll(live);
+            }
+            e.expires = expires;
+            e.queued = true;
+            queued++;
+            expiry.add(e);
+        }
+    }
+
+    /**
+     * A node of the trie of domain names, whose children are the domains
+     * of one more label, or the node of a URI without a host. The arrays
+     * are copied on write, so that they can be read without a lock.
+     * Cookies of different stripes share a node, as <tt>.example.com</tt>
+     * and <tt>example.com</tt> do, so the arrays are written with the lock
+     * of the node held.
+     */
+    private static final class Node {
+        final String label;
+        final String name;
+        final URI uri;                  // null but for a URI without a host
+
+        // sorted by label
+        volatile Node[] children = NO_NODES;
+
+        // the cookies of the domain, and those added with a URI of the host
+        volatile Entry[] cookies = NO_ENTRIES;
+        volatile Entry[] associated = NO_ENTRIES;
+
+        // whether the node of a URI was removed from the store when emptied
+        boolean removed;
+
+        Node(String label, String name) {
+            this.label = label;
+            this.name = name;
+            this.uri = null;
+        }
+
+        Node(URI uri) {
+            this.label = "";
+            this.name = "";
+            this.uri = uri;
+        }
+
+        // Returns the child of the label s[from, to), or null.
+        Node child(String s, int from, int to) {
+            Node[] a = children;
+            int i = search(a, s, from, to);
+            return (i >= 0) ? a[i] : null;
+        }
+
+        synchronized Node addChild(String s, int from, int to) {
+            Node[] a = children;
+            int i = search(a, s, from, to);
+            if (i >= 0)
+                return a[i];
+            i = -(i + 1);
+            Node n = new Node(s.substring(from, to), s.substring(from));
+            Node[] b = new Node[a.length + 1];
+            System.arraycopy(a, 0, b, 0, i);
+            b[i] = n;
+            System.arraycopy(a, i, b, i + 1, a.length - i);
+            children = b;
+            return n;
+        }
+
+        private static int search(Node[] a, String s, int from, int to) {
+            int lo = 0;
+            int hi = a.length - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = compare(a[mid].label, s, from, to);
+                if (c < 0)
+                    lo = mid + 1;
+                else if (c > 0)
+                    hi = mid - 1;
+                else
+                    return mid;
+            }
+            return -(lo + 1);
+        }
+
+        private static int compare(String label, String s, int from, int to) {
+            int n = Math.min(label.length(), to - from);
+            for (int i = 0; i < n; i++) {
+                int c = label.charAt(i) - s.charAt(from + i);
+                if (c != 0)
+                    return c;
+            }
+            return label.length() - (to - from);
+        }
+    }
+
+    /**
+     * Purges the expired cookies of the stores in the background, on one
+     * daemon thread shared by all of them.
+     */
+    private static final class Purger implements Runnable {
+        private static ScheduledThreadPoolExecutor executor;
+
+        private final WeakReference<ConcurrentCookieStore> store;
+        private volatile ScheduledFuture<?> future;
+
+        private Purger(ConcurrentCookieStore store) {
+            this.store = new WeakReference<>(store);
+        }
+
+        static void schedule(ConcurrentCookieStore store) {
+            Purger purger = new Purger(store);
+            purger.future = executor().scheduleWithFixedDelay(
+                purger, PURGE_PERIOD, PURGE_PERIOD, TimeUnit.SECONDS);
+        }
+
+        private static synchronized ScheduledThreadPoolExecutor executor() {
+            if (executor == null) {
+                executor = new ScheduledThreadPoolExecutor(1,
+                    new ThreadFactory() {
+                        public Thread newThread(final Runnable r) {
+                            return AccessController.doPrivileged(
+                                new PrivilegedAction<Thread>() {
+                                    public Thread run() {
+                                        Thread t = new Thread(r,
+                                            "Cookie store purger");
+                                        t.setDaemon(true);
+                                        t.setContextClassLoader(null);
+                                        return t;
+                                    }
+                                });
+                        }
+                    });
+                executor.setRemoveOnCancelPolicy(true);
+            }
+            return executor;
+        }
+
+        public void run() {
+            ConcurrentCookieStore s = store.get();
+            if (s != null) {
+                s.purge();
+            } else if (future != null) {
+                future.cancel(false);
+            }
+        }
+    }
+}
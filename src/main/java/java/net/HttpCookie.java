@@ -262,6 +262,21 @@ public final class HttpCookie implements Cloneable {
             return false;
     }
 
+    /*
+     * Returns the time in milliseconds from which hasExpired() returns
+     * true, or Long.MAX_VALUE if this cookie does not expire. The result
+     * changes if the max age is set.
+     */
+    long expiryTime() {
+        if (maxAge == MAX_AGE_UNSPECIFIED)
+            return Long.MAX_VALUE;
+        if (maxAge <= 0)
+            return whenCreated;
+        if (maxAge >= (Long.MAX_VALUE - whenCreated) / 1000 - 1)
+            return Long.MAX_VALUE;
+        return whenCreated + (maxAge + 1) * 1000;
+    }
+
     /**
      *
      * Specifies a comment that describes a cookie's purpose.
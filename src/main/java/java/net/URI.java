@@ -501,6 +501,11 @@ public final class URI
 
     private volatile transient String schemeSpecificPart;
     private volatile transient int hash;        // Zero ==> undefined
+    private volatile transient String asciiString;
+
+    // True if the components were parsed from the string field, which then
+    // holds the raw scheme-specific part of a hierarchical URI
+    private transient boolean parsed;
 
     private volatile transient String decodedUserInfo = null;
     private volatile transient String decodedAuthority = null;
@@ -1625,8 +1630,13 @@ public final class URI
      *          charset
      */
     public String toASCIIString() {
-        defineString();
-        return encode(string);
+        String s = asciiString;
+        if (s == null) {
+            defineString();
+            s = encode(string);
+            asciiString = s;
+        }
+        return s;
     }
 
 
@@ -1928,6 +1938,15 @@ public final class URI
 
     private void defineSchemeSpecificPart() {
         if (schemeSpecificPart != null) return;
+        if (parsed) {
+            // [<scheme>:]<scheme-specific-part>[#<fragment>]
+            int start = (scheme == null) ? 0 : scheme.length() + 1;
+            int end = string.length();
+            if (fragment != null)
+                end -= fragment.length() + 1;
+            schemeSpecificPart = string.substring(start, end);
+            return;
+        }
         StringBuffer sb = new StringBuffer();
         appendSchemeSpecificPart(sb, null, getAuthority(), getUserInfo(),
                                  host, port, getPath(), getQuery());
@@ -1996,10 +2015,10 @@ public final class URI
             if (i >= 0)
                 path = base.substring(0, i + 1);
         } else {
-            StringBuffer sb = new StringBuffer(base.length() + cn);
+            StringBuilder sb = new StringBuilder(base.length() + cn);
             // 5.2 (6a)
             if (i >= 0)
-                sb.append(base.substring(0, i + 1));
+                sb.append(base, 0, i + 1);
             // 5.2 (6b)
             sb.append(child);
             path = sb.toString();
@@ -2809,6 +2828,10 @@ public final class URI
     // following internal class.  This saves always having to pass the input
     // string as an argument to each internal scan/parse method.
 
+    private static final String[] COMMON_SCHEMES = {
+        "http", "https", "file", "jar", "ftp", "mailto"
+    };
+
     private class Parser {
 
         private String input;           // URI input string
@@ -2817,6 +2840,7 @@ public final class URI
         Parser(String s) {
             input = s;
             string = s;
+            parsed = true;
         }
 
         // -- Methods for throwing URISyntaxException in various ways --
@@ -2850,6 +2874,16 @@ public final class URI
             return input.substring(start, end);
         }
 
+        // Return the scheme [0, end), sharing the string of a common scheme
+        //
+        private String scheme(int end) {
+            for (String s : COMMON_SCHEMES) {
+                if ((s.length() == end) && input.startsWith(s))
+                    return s;
+            }
+            return input.substring(0, end);
+        }
+
         // Return the char at position p,
         // assuming that p < input.length()
         //
@@ -3019,7 +3053,6 @@ public final class URI
         //
         void parse(boolean rsa) throws URISyntaxException {
             requireServerAuthority = rsa;
-            int ssp;                    // Start of scheme-specific part
             int n = input.length();
             int p = scan(0, n, "/?#", ":");
             if ((p >= 0) && at(p, n, ':')) {
@@ -3027,23 +3060,25 @@ public final class URI
                     failExpecting("scheme name", 0);
                 checkChar(0, L_ALPHA, H_ALPHA, "scheme name");
                 checkChars(1, p, L_SCHEME, H_SCHEME, "scheme name");
-                scheme = substring(0, p);
+                scheme = scheme(p);
                 p++;                    // Skip ':'
-                ssp = p;
                 if (at(p, n, '/')) {
                     p = parseHierarchical(p, n);
                 } else {
-                    int q = scan(p, n, "", "#");
-                    if (q <= p)
+                    if ((p == n) || (charAt(p) == '#'))
                         failExpecting("scheme-specific part", p);
-                    checkChars(p, q, L_URIC, H_URIC, "opaque part");
+                    int q = scan(p, n, L_URIC, H_URIC);
+                    if ((q < n) && (charAt(q) != '#'))
+                        fail("Illegal character in opaque part", q);
+                    // Only opaque URIs keep their scheme-specific part, that
+                    // of a hierarchical URI is taken from the string when
+                    // needed
+                    schemeSpecificPart = substring(p, q);
                     p = q;
                 }
             } else {
-                ssp = 0;
                 p = parseHierarchical(0, n);
             }
-            schemeSpecificPart = substring(ssp, p);
             if (at(p, n, '#')) {
                 checkChars(p + 1, n, L_URIC, H_URIC, "fragment");
                 fragment = substring(p + 1, n);
@@ -3082,14 +3117,16 @@ public final class URI
                 } else
                     failExpecting("authority", p);
             }
-            int q = scan(p, n, "", "?#"); // DEVIATION: May be empty
-            checkChars(p, q, L_PATH, H_PATH, "path");
+            int q = scan(p, n, L_PATH, H_PATH); // DEVIATION: May be empty
+            if ((q < n) && (charAt(q) != '?') && (charAt(q) != '#'))
+                fail("Illegal character in path", q);
             path = substring(p, q);
             p = q;
             if (at(p, n, '?')) {
                 p++;
-                q = scan(p, n, "", "#");
-                checkChars(p, q, L_URIC, H_URIC, "query");
+                q = scan(p, n, L_URIC, H_URIC);
+                if ((q < n) && (charAt(q) != '#'))
+                    fail("Illegal character in query", q);
                 query = substring(p, q);
                 p = q;
             }
@@ -3136,7 +3173,11 @@ public final class URI
                     q = parseServer(p, n);
                     if (q < n)
                         failExpecting("end of authority", q);
-                    authority = substring(p, n);
+                    // Share the string of a host that is all the authority
+                    if ((host != null) && (host.length() == n - p))
+                        authority = host;
+                    else
+                        authority = substring(p, n);
                 } catch (URISyntaxException x) {
                     // Undo results of failed parse
                     userInfo = null;
@@ -3224,11 +3265,14 @@ public final class URI
                 q = scan(p, n, "", "/");
                 if (q > p) {
                     checkChars(p, q, L_DIGIT, H_DIGIT, "port number");
-                    try {
-                        port = Integer.parseInt(substring(p, q));
-                    } catch (NumberFormatException x) {
-                        fail("Malformed port number", p);
+                    int v = 0;
+                    for (int i = p; i < q; i++) {
+                        int d = charAt(i) - '0';
+                        if (v > (Integer.MAX_VALUE - d) / 10)
+                            fail("Malformed port number", p);
+                        v = v * 10 + d;
                     }
+                    port = v;
                     p = q;
                 }
             }
@@ -3246,7 +3290,15 @@ public final class URI
             int p = start;
             int q = scan(p, n, L_DIGIT, H_DIGIT);
             if (q <= p) return q;
-            if (Integer.parseInt(substring(p, q)) > 255) return p;
+            if (q - p > 9) {
+                // Let an overflowing value fail as it always did
+                if (Integer.parseInt(substring(p, q)) > 255) return p;
+                return q;
+            }
+            int v = 0;
+            for (int i = p; i < q; i++)
+                v = v * 10 + (charAt(i) - '0');
+            if (v > 255) return p;
             return q;
         }
 
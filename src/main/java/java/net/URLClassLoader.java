@@ -72,6 +72,12 @@ public class URLClassLoader extends SecureClassLoader implements Closeable {
     /* The search path for classes and resources */
     private final URLClassPath ucp;
 
+    /* The index of the packages of the jar files of the search path */
+    private final ClassPathIndex index;
+
+    /* The classes of the search path in the class archive, if any */
+    private final ClassArchive.Path archive;
+
     /* The context to be used when loading classes and resources */
     private final AccessControlContext acc;
 
@@ -101,6 +107,8 @@ public class URLClassLoader extends SecureClassLoader implements Closeable {
             security.checkCreateClassLoader();
         }
         ucp = new URLClassPath(urls);
+        index = new ClassPathIndex(ucp, null);
+        archive = ClassArchive.forURLs(ucp.getURLs());
         this.acc = AccessController.getContext();
     }
 
@@ -113,6 +121,8 @@ public class URLClassLoader extends SecureClassLoader implements Closeable {
             security.checkCreateClassLoader();
         }
         ucp = new URLClassPath(urls);
+        index = new ClassPathIndex(ucp, null);
+        archive = ClassArchive.forURLs(ucp.getURLs());
         this.acc = acc;
     }
 
@@ -144,6 +154,8 @@ public class URLClassLoader extends SecureClassLoader implements Closeable {
             security.checkCreateClassLoader();
         }
         ucp = new URLClassPath(urls);
+        index = new ClassPathIndex(ucp, null);
+        archive = ClassArchive.forURLs(ucp.getURLs());
         this.acc = AccessController.getContext();
     }
 
@@ -155,6 +167,8 @@ public class URLClassLoader extends SecureClassLoader implements Closeable {
             security.checkCreateClassLoader();
         }
         ucp = new URLClassPath(urls);
+        index = new ClassPathIndex(ucp, null);
+        archive = ClassArchive.forURLs(ucp.getURLs());
         this.acc = acc;
     }
 
@@ -187,6 +201,8 @@ public class URLClassLoader extends SecureClassLoader implements Closeable {
             security.checkCreateClassLoader();
         }
         ucp = new URLClassPath(urls, factory);
+        index = new ClassPathIndex(ucp, factory);
+        archive = ClassArchive.forURLs(ucp.getURLs());
         acc = AccessController.getContext();
     }
 
@@ -284,6 +300,7 @@ public class URLClassLoader extends SecureClassLoader implements Closeable {
             security.checkPermission(new RuntimePermission("closeClassLoader"));
         }
         List<IOException> errors = ucp.closeLoaders();
+        errors.addAll(index.close());
 
         // now close any remaining streams.
 
@@ -325,6 +342,7 @@ public class URLClassLoader extends SecureClassLoader implements Closeable {
      */
     protected void addURL(URL url) {
         ucp.addURL(url);
+        index.addURL(url);
     }
 
     /**
@@ -354,8 +372,18 @@ public class URLClassLoader extends SecureClassLoader implements Closeable {
             return AccessController.doPrivileged(
                 new PrivilegedExceptionAction<Class>() {
                     public Class run() throws ClassNotFoundException {
+                        if (archive != null) {
+                            ClassArchive.ArchivedClass ac = archive.get(name);
+                            if (ac != null) {
+                                try {
+                                    return defineClass(name, ac);
+                                } catch (IOException e) {
+                                    throw new ClassNotFoundException(name, e);
+                                }
+                            }
+                        }
                         String path = name.replace('.', '/').concat(".class");
-                        Resource res = ucp.getResource(path, false);
+                        Resource res = index.getResource(path, false);
                         if (res != null) {
                             try {
                                 return defineClass(name, res);
@@ -412,41 +440,72 @@ public class URLClassLoader extends SecureClassLoader implements Closeable {
         URL url = res.getCodeSourceURL();
         if (i != -1) {
             String pkgname = name.substring(0, i);
-            // Check if package already loaded.
-            Manifest man = res.getManifest();
-            if (getAndVerifyPackage(pkgname, man, url) == null) {
-                try {
-                    if (man != null) {
-                        definePackage(pkgname, man, url);
-                    } else {
-                        definePackage(pkgname, null, null, null, null, null, null, null);
-                    }
-                } catch (IllegalArgumentException iae) {
-                    // parallel-capable class loaders: re-verify in case of a
-                    // race condition
-                    if (getAndVerifyPackage(pkgname, man, url) == null) {
-                        // Should never happen
-                        throw new AssertionError("Cannot find package " +
-                                                 pkgname);
-                    }
-                }
-            }
+            getOrDefinePackage(pkgname, res.getManifest(), url);
         }
         // Now read the class bytes and define the class
+        Class c;
+        CodeSigner[] signers;
         java.nio.ByteBuffer bb = res.getByteBuffer();
         if (bb != null) {
             // Use (direct) ByteBuffer:
-            CodeSigner[] signers = res.getCodeSigners();
+            signers = res.getCodeSigners();
             CodeSource cs = new CodeSource(url, signers);
             sun.misc.PerfCounter.getReadClassBytesTime().addElapsedTimeFrom(t0);
-            return defineClass(name, bb, cs);
+            c = defineClass(name, bb, cs);
         } else {
             byte[] b = res.getBytes();
             // must read certificates AFTER reading bytes.
-            CodeSigner[] signers = res.getCodeSigners();
+            signers = res.getCodeSigners();
             CodeSource cs = new CodeSource(url, signers);
             sun.misc.PerfCounter.getReadClassBytesTime().addElapsedTimeFrom(t0);
-            return defineClass(name, b, 0, b.length, cs);
+            c = defineClass(name, b, 0, b.length, cs);
+        }
+        if (archive != null && signers == null) {
+            archive.record(name, url);
+        }
+        return c;
+    }
+
+    /*
+     * Defines a Class from the class archive, with the code source and
+     * the manifest of its jar file.
+     */
+    private Class defineClass(String name, ClassArchive.ArchivedClass ac)
+        throws IOException
+    {
+        long t0 = System.nanoTime();
+        int i = name.lastIndexOf('.');
+        URL url = ac.jar.url;
+        if (i != -1) {
+            String pkgname = name.substring(0, i);
+            getOrDefinePackage(pkgname, ac.jar.manifest(), url);
+        }
+        sun.misc.PerfCounter.getReadClassBytesTime().addElapsedTimeFrom(t0);
+        return defineClass(name, ac.bytes(), ac.jar.codeSource);
+    }
+
+    /*
+     * Retrieves and verifies the package of a class being defined, as
+     * getAndVerifyPackage, or defines it if it is not loaded yet.
+     */
+    private void getOrDefinePackage(String pkgname, Manifest man, URL url) {
+        // Check if package already loaded.
+        if (getAndVerifyPackage(pkgname, man, url) != null)
+            return;
+        try {
+            if (man != null) {
+                definePackage(pkgname, man, url);
+            } else {
+                definePackage(pkgname, null, null, null, null, null, null, null);
+            }
+        } catch (IllegalArgumentException iae) {
+            // parallel-capable class loaders: re-verify in case of a
+            // race condition
+            if (getAndVerifyPackage(pkgname, man, url) == null) {
+                // Should never happen
+                throw new AssertionError("Cannot find package " +
+                                         pkgname);
+            }
         }
     }
 
@@ -548,7 +607,7 @@ public class URLClassLoader extends SecureClassLoader implements Closeable {
         URL url = AccessController.doPrivileged(
             new PrivilegedAction<URL>() {
                 public URL run() {
-                    return ucp.findResource(name, true);
+                    return index.findResource(name, true);
                 }
             }, acc);
 
@@ -567,7 +626,7 @@ public class URLClassLoader extends SecureClassLoader implements Closeable {
     public Enumeration<URL> findResources(final String name)
         throws IOException
     {
-        final Enumeration<URL> e = ucp.findResources(name, true);
+        final Enumeration<URL> e = index.findResources(name, true);
 
         return new Enumeration<URL>() {
             private URL url = null;
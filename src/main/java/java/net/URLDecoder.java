@@ -26,6 +26,13 @@
 package java.net;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
 
 /**
  * Utility class for HTML form decoding. This class contains static methods
@@ -132,76 +139,299 @@ public class URLDecoder {
     public static String decode(String s, String enc)
         throws UnsupportedEncodingException{
 
-        boolean needToChange = false;
         int numChars = s.length();
-        StringBuffer sb = new StringBuffer(numChars > 500 ? numChars / 2 : numChars);
-        int i = 0;
-
         if (enc.length() == 0) {
             throw new UnsupportedEncodingException ("URLDecoder: empty string enc parameter");
         }
 
-        char c;
-        byte[] bytes = null;
+        // Return the string itself if there is nothing to decode
+        int i = 0;
         while (i < numChars) {
-            c = s.charAt(i);
-            switch (c) {
-            case '+':
-                sb.append(' ');
-                i++;
-                needToChange = true;
+            char c = s.charAt(i);
+            if (c == '+' || c == '%')
                 break;
-            case '%':
-                /*
-                 * Starting with this instance of %, process all
-                 * consecutive substrings of the form %xy. Each
-                 * substring %xy will yield a byte. Convert all
-                 * consecutive  bytes obtained this way to whatever
-                 * character(s) they represent in the provided
-                 * encoding.
-                 */
-
-                try {
-
-                    // (numChars-i)/3 is an upper bound for the number
-                    // of remaining bytes
-                    if (bytes == null)
-                        bytes = new byte[(numChars-i)/3];
-                    int pos = 0;
-
-                    while ( ((i+2) < numChars) &&
-                            (c=='%')) {
-                        int v = Integer.parseInt(s.substring(i+1,i+3),16);
-                        if (v < 0)
-                            throw new IllegalArgumentException("URLDecoder: Illegal hex characters in escape (%) pattern - negative value");
-                        bytes[pos++] = (byte) v;
-                        i+= 3;
-                        if (i < numChars)
-                            c = s.charAt(i);
-                    }
-
-                    // A trailing, incomplete byte encoding such as
-                    // "%x" will cause an exception to be thrown
-
-                    if ((i < numChars) && (c=='%'))
-                        throw new IllegalArgumentException(
-                         "URLDecoder: Incomplete trailing escape (%) pattern");
-
-                    sb.append(new String(bytes, 0, pos, enc));
-                } catch (NumberFormatException e) {
+            i++;
+        }
+        if (i == numChars)
+            return s;
+
+        StringBuilder sb = new StringBuilder(numChars > 500 ? numChars / 2 : numChars);
+        sb.append(s, 0, i);
+        try {
+            decode(s, i, null, enc, sb);
+        } catch (UnsupportedEncodingException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new InternalError();
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Decodes an <code>application/x-www-form-urlencoded</code> character
+     * sequence using the given charset, and appends the result to the
+     * given <code>Appendable</code>.  The characters are decoded as by
+     * {@link #decode(String, String)}, and the characters that remain the
+     * same are appended as they are, without copying the sequence.  If an
+     * exception is thrown, the part of the result before the illegal
+     * characters may have been appended.
+     *
+     * @param s the character sequence to decode
+     * @param charset the charset of the escaped bytes
+     * @param out the <code>Appendable</code> the result is appended to
+     * @throws IllegalArgumentException
+     *         If the sequence contains an illegal or incomplete escape
+     * @throws IOException
+     *         If an I/O error occurs while appending
+     * @since 1.7
+     */
+    public static void decode(CharSequence s, Charset charset, Appendable out)
+        throws IOException
+    {
+        if (charset == null)
+            throw new NullPointerException("charset");
+        decode(s, 0, charset, null, out);
+    }
+
+    /**
+     * Decodes the remaining bytes of the given buffer, which hold
+     * <code>application/x-www-form-urlencoded</code> content such as an
+     * HTML form submitted in a request body, and appends the result to the
+     * given <code>Appendable</code>.  A plus sign is decoded into a space,
+     * and every other byte, given as such or as an escape
+     * "<code>%<i>xy</i></code>", is decoded using the given charset.  The
+     * position of the buffer is advanced to its limit, or to the illegal
+     * escape if an <code>IllegalArgumentException</code> is thrown.
+     *
+     * @param src the buffer to decode
+     * @param charset the charset of the content
+     * @param out the <code>Appendable</code> the result is appended to
+     * @throws IllegalArgumentException
+     *         If the content contains an illegal or incomplete escape
+     * @throws IOException
+     *         If an I/O error occurs while appending
+     * @since 1.7
+     */
+    public static void decode(ByteBuffer src, Charset charset, Appendable out)
+        throws IOException
+    {
+        if (charset == null)
+            throw new NullPointerException("charset");
+        Coder coder = Coder.get();
+        while (src.hasRemaining()) {
+            if (coder.isFull())
+                coder.decode(charset, out, false);
+            byte b = src.get();
+            if (b == '+') {
+                coder.flush(charset, out);
+                out.append(' ');
+            } else if (b == '%') {
+                if (src.remaining() < 2) {
+                    src.position(src.position() - 1);
+                    coder.flush(charset, out);
                     throw new IllegalArgumentException(
-                    "URLDecoder: Illegal hex characters in escape (%) pattern - "
-                    + e.getMessage());
+                        "URLDecoder: Incomplete trailing escape (%) pattern");
                 }
-                needToChange = true;
+                int p = src.position();
+                int hi = Character.digit((char)(src.get(p) & 0xff), 16);
+                int lo = Character.digit((char)(src.get(p + 1) & 0xff), 16);
+                if (hi < 0 || lo < 0) {
+                    src.position(p - 1);
+                    coder.flush(charset, out);
+                    throw new IllegalArgumentException(
+                        "URLDecoder: Illegal hex characters in escape (%) pattern");
+                }
+                src.position(p + 2);
+                coder.put((byte)((hi << 4) | lo));
+            } else {
+                coder.put(b);
+            }
+        }
+        coder.flush(charset, out);
+    }
+
+    // Appends the decoded form of s, from position i, to out.  Each run of
+    // escapes is decoded at once by the decoder cached for the thread, for
+    // the charset or, if it is null, the named charset, which is only
+    // looked up once a run of escapes has been parsed.
+    private static void decode(CharSequence s, int i, Charset charset,
+                               String enc, Appendable out)
+        throws IOException
+    {
+        int numChars = s.length();
+        Coder coder = null;
+        while (i < numChars) {
+            int start = i;
+            char c = s.charAt(i);
+            while (c != '+' && c != '%') {
+                if (++i == numChars)
+                    break;
+                c = s.charAt(i);
+            }
+            if (i > start)
+                out.append(s, start, i);
+            if (i == numChars)
                 break;
-            default:
-                sb.append(c);
+            if (c == '+') {
+                out.append(' ');
                 i++;
-                break;
+                continue;
+            }
+
+            /*
+             * Starting with this instance of %, process all
+             * consecutive substrings of the form %xy. Each
+             * substring %xy will yield a byte. Convert all
+             * consecutive  bytes obtained this way to whatever
+             * character(s) they represent in the provided
+             * encoding.
+             */
+            if (coder == null)
+                coder = Coder.get();
+            while (((i+2) < numChars) &&
+                   (c=='%')) {
+                int v = hexValue(s, i + 1);
+                if (coder.isFull()) {
+                    if (charset == null)
+                        charset = lookup(enc);
+                    coder.decode(charset, out, false);
+                }
+                coder.put((byte) v);
+                i+= 3;
+                if (i < numChars)
+                    c = s.charAt(i);
             }
+
+            // A trailing, incomplete byte encoding such as
+            // "%x" will cause an exception to be thrown
+
+            if ((i < numChars) && (c=='%')) {
+                coder.clear();
+                throw new IllegalArgumentException(
+                 "URLDecoder: Incomplete trailing escape (%) pattern");
+            }
+
+            if (charset == null)
+                charset = lookup(enc);
+            coder.flush(charset, out);
         }
+    }
 
-        return (needToChange? sb.toString() : s);
+    // Returns the value of the hex digits s[i, i + 2), failing as
+    // Integer.parseInt(s.substring(i, i + 2), 16) does
+    private static int hexValue(CharSequence s, int i) {
+        int hi = Character.digit(s.charAt(i), 16);
+        int lo = Character.digit(s.charAt(i + 1), 16);
+        if (hi >= 0 && lo >= 0)
+            return (hi << 4) | lo;
+        int v;
+        try {
+            v = Integer.parseInt(s.subSequence(i, i + 2).toString(), 16);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(
+            "URLDecoder: Illegal hex characters in escape (%) pattern - "
+            + e.getMessage());
+        }
+        if (v < 0)
+            throw new IllegalArgumentException("URLDecoder: Illegal hex characters in escape (%) pattern - negative value");
+        return v;
+    }
+
+    private static Charset lookup(String enc)
+        throws UnsupportedEncodingException
+    {
+        try {
+            return Charset.forName(enc);
+        } catch (IllegalCharsetNameException e) {
+            throw new UnsupportedEncodingException(enc);
+        } catch (UnsupportedCharsetException e) {
+            throw new UnsupportedEncodingException(enc);
+        }
+    }
+
+    /**
+     * The buffers of the bytes to decode and of the decoded characters,
+     * with the decoder of the charset last used, cached for a thread. The
+     * buffers have a fixed size: a run of bytes longer than the byte
+     * buffer is decoded in parts, and the characters are appended to the
+     * output whenever the character buffer fills.
+     */
+    private static final class Coder {
+        private static final ThreadLocal<Coder> cache = new ThreadLocal<>();
+
+        private static final int BUFFER_SIZE = 256;
+
+        private CharsetDecoder decoder;
+        // whether part of the current run has been decoded
+        private boolean decoding;
+        private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+        private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+
+        static Coder get() {
+            Coder coder = cache.get();
+            if (coder == null) {
+                coder = new Coder();
+                cache.set(coder);
+            }
+            coder.clear();
+            return coder;
+        }
+
+        void clear() {
+            bytes.clear();
+            chars.clear();
+            decoding = false;
+        }
+
+        boolean isFull() {
+            return !bytes.hasRemaining();
+        }
+
+        void put(byte b) {
+            bytes.put(b);
+        }
+
+        // Decodes the bytes of the current run put since the last flush,
+        // and appends the characters to out
+        void flush(Charset charset, Appendable out) throws IOException {
+            decode(charset, out, true);
+        }
+
+        // Decodes the bytes put, and appends the characters to out. The
+        // bytes of an incomplete character are kept for the next call,
+        // unless the run ends here.
+        void decode(Charset charset, Appendable out, boolean endOfRun)
+            throws IOException
+        {
+            if (bytes.position() == 0 && !decoding)
+                return;
+            if (!decoding) {
+                if (decoder == null || !decoder.charset().equals(charset)) {
+                    // As new String(byte[], Charset)
+                    decoder = charset.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+                }
+                decoder.reset();
+                decoding = true;
+            }
+            bytes.flip();
+            while (decoder.decode(bytes, chars, endOfRun).isOverflow())
+                append(out);
+            if (endOfRun) {
+                while (decoder.flush(chars).isOverflow())
+                    append(out);
+                decoding = false;
+            }
+            append(out);
+            bytes.compact();
+        }
+
+        private void append(Appendable out) throws IOException {
+            chars.flip();
+            if (chars.hasRemaining())
+                out.append(chars);
+            chars.clear();
+        }
     }
 }
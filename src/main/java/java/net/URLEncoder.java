@@ -31,7 +31,13 @@ import java.io.OutputStreamWriter;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.io.CharArrayWriter;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.ReadOnlyBufferException;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.IllegalCharsetNameException;
 import java.nio.charset.UnsupportedCharsetException ;
 import java.util.BitSet;
@@ -201,14 +207,11 @@ public class URLEncoder {
     public static String encode(String s, String enc)
         throws UnsupportedEncodingException {
 
-        boolean needToChange = false;
-        StringBuffer out = new StringBuffer(s.length());
-        Charset charset;
-        CharArrayWriter charArrayWriter = new CharArrayWriter();
-
+        int n = s.length();
         if (enc == null)
             throw new NullPointerException("charsetName");
 
+        Charset charset;
         try {
             charset = Charset.forName(enc);
         } catch (IllegalCharsetNameException e) {
@@ -217,77 +220,197 @@ public class URLEncoder {
             throw new UnsupportedEncodingException(enc);
         }
 
-        for (int i = 0; i < s.length();) {
-            int c = (int) s.charAt(i);
-            //System.out.println("Examining character: " + c);
-            if (dontNeedEncoding.get(c)) {
-                if (c == ' ') {
-                    c = '+';
-                    needToChange = true;
-                }
-                //System.out.println("Storing: " + c);
-                out.append((char)c);
+        // Return the string itself if no character needs to change
+        int i = 0;
+        while (i < n && isUnchanged(s.charAt(i)))
+            i++;
+        if (i == n)
+            return s;
+
+        StringBuilder out = new StringBuilder(n + 16);
+        out.append(s, 0, i);
+        try {
+            encode(s, i, charset, out);
+        } catch (IOException e) {
+            throw new InternalError();
+        }
+        return out.toString();
+    }
+
+    /**
+     * Translates a character sequence into
+     * <code>application/x-www-form-urlencoded</code> format using the
+     * given charset, and appends the result to the given
+     * <code>Appendable</code>.  The characters are translated as by
+     * {@link #encode(String, String)}, and the characters that remain
+     * the same are appended as they are, without copying the sequence.
+     *
+     * @param   s   the character sequence to be translated
+     * @param   charset   the charset used to obtain the bytes of unsafe
+     *          characters
+     * @param   out   the <code>Appendable</code> the result is appended to
+     * @throws  IOException
+     *          If an I/O error occurs while appending
+     * @since 1.7
+     */
+    public static void encode(CharSequence s, Charset charset, Appendable out)
+        throws IOException
+    {
+        if (charset == null)
+            throw new NullPointerException("charset");
+        encode(s, 0, charset, out);
+    }
+
+    /**
+     * Translates a character sequence into
+     * <code>application/x-www-form-urlencoded</code> format using the
+     * given charset, and puts the US-ASCII bytes of the result into the
+     * given buffer, starting at its current position.  The characters are
+     * translated as by {@link #encode(String, String)}.
+     *
+     * @param   s   the character sequence to be translated
+     * @param   charset   the charset used to obtain the bytes of unsafe
+     *          characters
+     * @param   dst   the buffer the result is put into
+     * @throws  BufferOverflowException
+     *          If there is not enough room in the buffer for the result,
+     *          in which case it holds the part of the result which fits
+     * @throws  ReadOnlyBufferException
+     *          If the buffer is read-only
+     * @since 1.7
+     */
+    public static void encode(CharSequence s, Charset charset, ByteBuffer dst) {
+        if (charset == null)
+            throw new NullPointerException("charset");
+        try {
+            encode(s, 0, charset, new ByteBufferAppendable(dst));
+        } catch (IOException x) {
+            throw new InternalError();
+        }
+    }
+
+    // Whether the character is the same in the encoded form
+    private static boolean isUnchanged(char c) {
+        return c != ' ' && dontNeedEncoding.get(c);
+    }
+
+    // Appends the encoded form of s, from position i, to out.  Each run of
+    // unsafe characters is encoded at once, so that a surrogate pair is
+    // not split, by the encoder cached for the thread.
+    private static void encode(CharSequence s, int i, Charset charset,
+                               Appendable out)
+        throws IOException
+    {
+        int n = s.length();
+        Coder coder = null;
+        while (i < n) {
+            int start = i;
+            while (i < n && isUnchanged(s.charAt(i)))
+                i++;
+            if (i > start)
+                out.append(s, start, i);
+            if (i == n)
+                break;
+            char c = s.charAt(i);
+            if (c == ' ') {
+                out.append('+');
                 i++;
-            } else {
-                // convert to external encoding before hex conversion
-                do {
-                    charArrayWriter.write(c);
-                    /*
-                     * If this character represents the start of a Unicode
-                     * surrogate pair, then pass in two characters. It's not
-                     * clear what should be done if a bytes reserved in the
-                     * surrogate pairs range occurs outside of a legal
-                     * surrogate pair. For now, just treat it as if it were
-                     * any other character.
-                     */
-                    if (c >= 0xD800 && c <= 0xDBFF) {
-                        /*
-                          System.out.println(Integer.toHexString(c)
-                          + " is high surrogate");
-                        */
-                        if ( (i+1) < s.length()) {
-                            int d = (int) s.charAt(i+1);
-                            /*
-                              System.out.println("\tExamining "
-                              + Integer.toHexString(d));
-                            */
-                            if (d >= 0xDC00 && d <= 0xDFFF) {
-                                /*
-                                  System.out.println("\t"
-                                  + Integer.toHexString(d)
-                                  + " is low surrogate");
-                                */
-                                charArrayWriter.write(d);
-                                i++;
-                            }
-                        }
-                    }
-                    i++;
-                } while (i < s.length() && !dontNeedEncoding.get((c = (int) s.charAt(i))));
-
-                charArrayWriter.flush();
-                String str = new String(charArrayWriter.toCharArray());
-                byte[] ba = str.getBytes(charset);
-                for (int j = 0; j < ba.length; j++) {
-                    out.append('%');
-                    char ch = Character.forDigit((ba[j] >> 4) & 0xF, 16);
-                    // converting to use uppercase letter as part of
-                    // the hex value if ch is a letter.
-                    if (Character.isLetter(ch)) {
-                        ch -= caseDiff;
-                    }
-                    out.append(ch);
-                    ch = Character.forDigit(ba[j] & 0xF, 16);
-                    if (Character.isLetter(ch)) {
-                        ch -= caseDiff;
-                    }
-                    out.append(ch);
-                }
-                charArrayWriter.reset();
-                needToChange = true;
+                continue;
+            }
+            start = i;
+            do {
+                i++;
+            } while (i < n && !dontNeedEncoding.get(s.charAt(i)));
+            if (coder == null)
+                coder = Coder.forCharset(charset);
+            coder.encode(s, start, i, out);
+        }
+    }
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * An encoder for a charset, with the buffer used to encode runs of
+     * unsafe characters, cached for the thread that last used it. A run
+     * that does not fit in the buffer is encoded in parts.
+     */
+    private static final class Coder {
+        private static final ThreadLocal<Coder> cache = new ThreadLocal<>();
+
+        private static final int BUFFER_SIZE = 256;
+
+        private final Charset charset;
+        private final CharsetEncoder encoder;
+        private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+
+        private Coder(Charset charset) {
+            this.charset = charset;
+            // As String.getBytes(Charset)
+            this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+
+        static Coder forCharset(Charset charset) {
+            Coder coder = cache.get();
+            if (coder == null || !coder.charset.equals(charset)) {
+                coder = new Coder(charset);
+                cache.set(coder);
+            }
+            return coder;
+        }
+
+        // Appends the escaped bytes of s[start, end)
+        void encode(CharSequence s, int start, int end, Appendable out)
+            throws IOException
+        {
+            CharBuffer in = CharBuffer.wrap(s, start, end);
+            bytes.clear();
+            encoder.reset();
+            while (encoder.encode(in, bytes, true).isOverflow())
+                append(out);
+            while (encoder.flush(bytes).isOverflow())
+                append(out);
+            append(out);
+        }
+
+        // Appends the escapes of the bytes encoded, and empties the buffer
+        private void append(Appendable out) throws IOException {
+            ByteBuffer bb = bytes;
+            bb.flip();
+            while (bb.hasRemaining()) {
+                int b = bb.get();
+                out.append('%');
+                out.append(HEX_DIGITS[(b >> 4) & 0xF]);
+                out.append(HEX_DIGITS[b & 0xF]);
             }
+            bb.clear();
         }
+    }
 
-        return (needToChange? out.toString() : s);
+    /**
+     * Puts the US-ASCII bytes of the appended characters into a buffer.
+     */
+    static final class ByteBufferAppendable implements Appendable {
+        private final ByteBuffer dst;
+
+        ByteBufferAppendable(ByteBuffer dst) {
+            this.dst = dst;
+        }
+
+        public Appendable append(CharSequence csq) {
+            return append(csq, 0, csq.length());
+        }
+
+        public Appendable append(CharSequence csq, int start, int end) {
+            for (int i = start; i < end; i++)
+                dst.put((byte)csq.charAt(i));
+            return this;
+        }
+
+        public Appendable append(char c) {
+            dst.put((byte)c);
+            return this;
+        }
     }
 }
@@ -781,6 +781,157 @@ class Bits {                            // package-private
         }
     }
 
+    // Cached array base offsets
+    static final long BYTE_ARRAY_BASE_OFFSET   = unsafe.arrayBaseOffset(byte[].class);
+    static final long CHAR_ARRAY_BASE_OFFSET   = unsafe.arrayBaseOffset(char[].class);
+    static final long SHORT_ARRAY_BASE_OFFSET  = unsafe.arrayBaseOffset(short[].class);
+    static final long INT_ARRAY_BASE_OFFSET    = unsafe.arrayBaseOffset(int[].class);
+    static final long LONG_ARRAY_BASE_OFFSET   = unsafe.arrayBaseOffset(long[].class);
+    static final long FLOAT_ARRAY_BASE_OFFSET  = unsafe.arrayBaseOffset(float[].class);
+    static final long DOUBLE_ARRAY_BASE_OFFSET = unsafe.arrayBaseOffset(double[].class);
+
+    /**
+     * Copy from the storage of a byte buffer into given destination array of
+     * primitive elements, swapping the bytes of each element if required.
+     *
+     * @param   srcBase
+     *          the byte array of a heap buffer, or null for a direct buffer
+     * @param   srcOffset
+     *          offset within the byte array, including its base offset, or
+     *          address of the first byte to read
+     * @param   dst
+     *          destination array
+     * @param   dstBaseOffset
+     *          offset of first element of storage in destination array
+     * @param   dstPos
+     *          offset within destination array of the first element to write
+     * @param   length
+     *          number of bytes to copy
+     * @param   shift
+     *          log2 of the size of an element of the destination array
+     * @param   swap
+     *          true if the bytes of each element are to be swapped
+     */
+    static void copyToPrimitiveArray(Object srcBase, long srcOffset,
+                                     Object dst, long dstBaseOffset, long dstPos,
+                                     long length, int shift, boolean swap)
+    {
+        if (swap && srcBase == null) {
+            switch (shift) {
+                case 1 : copyToShortArray(srcOffset, dst, dstPos, length); break;
+                case 2 : copyToIntArray(srcOffset, dst, dstPos, length); break;
+                case 3 : copyToLongArray(srcOffset, dst, dstPos, length); break;
+                default : throw new AssertionError("Should not get here");
+            }
+            return;
+        }
+        copyMemory(srcBase, srcOffset, dst, dstBaseOffset + dstPos, length);
+        if (swap) {
+            // elements of the destination array are always aligned
+            swap(dst, dstBaseOffset + dstPos, length, shift, true);
+        }
+    }
+
+    /**
+     * Copy from given source array of primitive elements into the storage of
+     * a byte buffer, swapping the bytes of each element if required.
+     *
+     * @param   src
+     *          source array
+     * @param   srcBaseOffset
+     *          offset of first element of storage in source array
+     * @param   srcPos
+     *          offset within source array of the first element to read
+     * @param   dstBase
+     *          the byte array of a heap buffer, or null for a direct buffer
+     * @param   dstOffset
+     *          offset within the byte array, including its base offset, or
+     *          address of the first byte to write
+     * @param   length
+     *          number of bytes to copy
+     * @param   shift
+     *          log2 of the size of an element of the source array
+     * @param   swap
+     *          true if the bytes of each element are to be swapped
+     */
+    static void copyFromPrimitiveArray(Object src, long srcBaseOffset, long srcPos,
+                                       Object dstBase, long dstOffset,
+                                       long length, int shift, boolean swap)
+    {
+        if (swap && dstBase == null) {
+            switch (shift) {
+                case 1 : copyFromShortArray(src, srcPos, dstOffset, length); break;
+                case 2 : copyFromIntArray(src, srcPos, dstOffset, length); break;
+                case 3 : copyFromLongArray(src, srcPos, dstOffset, length); break;
+                default : throw new AssertionError("Should not get here");
+            }
+            return;
+        }
+        copyMemory(src, srcBaseOffset + srcPos, dstBase, dstOffset, length);
+        if (swap) {
+            // the elements in a byte array may not be aligned
+            swap(dstBase, dstOffset, length, shift, false);
+        }
+    }
+
+    /**
+     * Copy between arrays or memory, limiting the number of bytes copied per
+     * call to Unsafe's copyMemory method.
+     */
+    private static void copyMemory(Object srcBase, long srcOffset,
+                                   Object dstBase, long dstOffset,
+                                   long length)
+    {
+        while (length > 0) {
+            long size = (length > UNSAFE_COPY_THRESHOLD) ? UNSAFE_COPY_THRESHOLD : length;
+            unsafe.copyMemory(srcBase, srcOffset, dstBase, dstOffset, size);
+            length -= size;
+            srcOffset += size;
+            dstOffset += size;
+        }
+    }
+
+    /**
+     * Swaps, in place, the bytes of each element of {@code 1 << shift} bytes.
+     * Elements are swapped with a single load and store each when they are
+     * known to be aligned or the platform supports unaligned access.
+     */
+    private static void swap(Object base, long offset, long length,
+                             int shift, boolean aligned)
+    {
+        long end = offset + length;
+        if (aligned || unaligned()) {
+            switch (shift) {
+                case 1 :
+                    for (; offset < end; offset += 2)
+                        unsafe.putShort(base, offset,
+                                        Short.reverseBytes(unsafe.getShort(base, offset)));
+                    break;
+                case 2 :
+                    for (; offset < end; offset += 4)
+                        unsafe.putInt(base, offset,
+                                      Integer.reverseBytes(unsafe.getInt(base, offset)));
+                    break;
+                case 3 :
+                    for (; offset < end; offset += 8)
+                        unsafe.putLong(base, offset,
+                                       Long.reverseBytes(unsafe.getLong(base, offset)));
+                    break;
+                default :
+                    throw new AssertionError("Should not get here");
+            }
+        } else {
+            int width = 1 << shift;
+            for (; offset < end; offset += width) {
+                for (int i = 0, j = width - 1; i < j; i++, j--) {
+                    byte b = unsafe.getByte(base, offset + i);
+                    unsafe.putByte(base, offset + i, unsafe.getByte(base, offset + j));
+                    unsafe.putByte(base, offset + j, b);
+                }
+            }
+        }
+    }
+
     static void copyFromCharArray(Object src, long srcPos, long dstAddr,
                                   long length)
     {
@@ -2035,4 +2035,1284 @@ public abstract class ByteBuffer
      */
     public abstract DoubleBuffer asDoubleBuffer();
 
+    // -- Bulk access to binary data --
+
+    /**
+     * Returns the array that contains this buffer's content, or {@code null}
+     * if this is a direct buffer.
+     */
+    private Object base() {
+        return hb;
+    }
+
+    /**
+     * Returns the offset within the {@link #base} array, including its base
+     * offset, or the address of the byte at the given index.
+     */
+    private long baseOffset(int index) {
+        return (hb != null)
+            ? Bits.BYTE_ARRAY_BASE_OFFSET + offset + index
+            : address + index;
+    }
+
+    /**
+     * Checks that there are at least {@code bytes} bytes in this buffer
+     * starting at the given index.
+     */
+    private void checkBulkIndex(int index, long bytes) {
+        if (index < 0 || bytes > limit() - index)
+            throw new IndexOutOfBoundsException();
+    }
+
+    /**
+     * Transfers {@code length} elements of {@code 1 << shift} bytes each,
+     * composed according to the current byte order, from this buffer
+     * starting at the given index into the given array. Bytes are copied
+     * as they are, whatever the byte order. No bounds checks are done.
+     */
+    private void getArray(int index, Object dst, long dstBaseOffset,
+                          int offset, int length, int shift)
+    {
+        if (length > 0) {
+            Bits.copyToPrimitiveArray(base(), baseOffset(index),
+                                      dst, dstBaseOffset, (long)offset << shift,
+                                      (long)length << shift, shift,
+                                      shift != 0 && !nativeByteOrder);
+        }
+    }
+
+    /**
+     * Transfers {@code length} elements of {@code 1 << shift} bytes each
+     * from the given array into this buffer, in the current byte order,
+     * starting at the given index. Bytes are copied as they are, whatever
+     * the byte order. No bounds checks are done.
+     */
+    private void putArray(int index, Object src, long srcBaseOffset,
+                          int offset, int length, int shift)
+    {
+        if (isReadOnly())
+            throw new ReadOnlyBufferException();
+        if (length > 0) {
+            Bits.copyFromPrimitiveArray(src, srcBaseOffset, (long)offset << shift,
+                                        base(), baseOffset(index),
+                                        (long)length << shift, shift,
+                                        shift != 0 && !nativeByteOrder);
+        }
+    }
+
+    /**
+     * Absolute bulk <i>get</i> method.
+     *
+     * <p> This method transfers <tt>length</tt> bytes from this buffer,
+     * starting at the given index, into the given array, starting at the
+     * given offset. The position of this buffer is unchanged.
+     *
+     * <p> An invocation of this method of the form
+     * <tt>src.get(index,&nbsp;dst,&nbsp;off,&nbsp;len)</tt> has exactly the
+     * same effect as the loop
+     *
+     * <pre>
+     *     for (int i = off, j = index; i < off + len; i++, j++)
+     *         dst[i] = src.get(j); </pre>
+     *
+     * except that it first checks the consistency of the supplied parameters
+     * and it is potentially much more efficient. </p>
+     *
+     * @param  index
+     *         The index in this buffer from which the first byte will be
+     *         read
+     *
+     * @param  dst
+     *         The array into which bytes are to be written
+     *
+     * @param  offset
+     *         The offset within the array of the first byte to be written
+     *
+     * @param  length
+     *         The number of bytes to be written to the given array
+     *
+     * @return  This buffer
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>index</tt>, <tt>offset</tt>, and
+     *          <tt>length</tt> parameters do not hold
+     *
+     * @since 1.7
+     */
+    public ByteBuffer get(int index, byte[] dst, int offset, int length) {
+        checkBounds(offset, length, dst.length);
+        checkBulkIndex(index, length);
+        if (hb != null) {
+            System.arraycopy(hb, this.offset + index, dst, offset, length);
+        } else {
+            getArray(index, dst, Bits.BYTE_ARRAY_BASE_OFFSET, offset, length, 0);
+        }
+        return this;
+    }
+
+    /**
+     * Absolute bulk <i>put</i> method&nbsp;&nbsp;<i>(optional operation)</i>.
+     *
+     * <p> This method transfers <tt>length</tt> bytes from the given array,
+     * starting at the given offset, into this buffer, starting at the given
+     * index. The position of this buffer is unchanged.
+     *
+     * <p> An invocation of this method of the form
+     * <tt>dst.put(index,&nbsp;src,&nbsp;off,&nbsp;len)</tt> has exactly the
+     * same effect as the loop
+     *
+     * <pre>
+     *     for (int i = off, j = index; i < off + len; i++, j++)
+     *         dst.put(j, src[i]); </pre>
+     *
+     * except that it first checks the consistency of the supplied parameters
+     * and it is potentially much more efficient. </p>
+     *
+     * @param  index
+     *         The index in this buffer at which the first byte will be
+     *         written
+     *
+     * @param  src
+     *         The array from which bytes are to be read
+     *
+     * @param  offset
+     *         The offset within the array of the first byte to be read
+     *
+     * @param  length
+     *         The number of bytes to be read from the given array
+     *
+     * @return  This buffer
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>index</tt>, <tt>offset</tt>, and
+     *          <tt>length</tt> parameters do not hold
+     *
+     * @throws  ReadOnlyBufferException
+     *          If this buffer is read-only
+     *
+     * @since 1.7
+     */
+    public ByteBuffer put(int index, byte[] src, int offset, int length) {
+        checkBounds(offset, length, src.length);
+        checkBulkIndex(index, length);
+        if (isReadOnly())
+            throw new ReadOnlyBufferException();
+        if (hb != null) {
+            System.arraycopy(src, offset, hb, this.offset + index, length);
+        } else {
+            putArray(index, src, Bits.BYTE_ARRAY_BASE_OFFSET, offset, length, 0);
+        }
+        return this;
+    }
+
+    /**
+     * Relative bulk <i>get</i> method for reading char values.
+     *
+     * <p> This method reads <tt>length</tt> char values, of two bytes each,
+     * from this buffer, composing each according to the current byte order,
+     * and writes them into the given array starting at the given offset. If
+     * there are fewer bytes remaining in the buffer than are required to
+     * satisfy the request then no values are transferred and a {@link
+     * BufferUnderflowException} is thrown. Otherwise the position of this
+     * buffer is incremented by <tt>length</tt> times two.
+     *
+     * <p> An invocation of this method of the form
+     * <tt>src.get(dst,&nbsp;off,&nbsp;len)</tt> has exactly the same effect
+     * as the loop
+     *
+     * <pre>
+     *     for (int i = off; i < off + len; i++)
+     *         dst[i] = src.getChar(); </pre>
+     *
+     * except that it first checks that there are sufficient bytes in this
+     * buffer and it is potentially much more efficient than the loop or
+     * a transfer through a {@link #asCharBuffer view} buffer, as values are
+     * copied, and their bytes swapped if required, in bulk. </p>
+     *
+     * @param  dst
+     *         The array into which values are to be written
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be written
+     *
+     * @param  length
+     *         The number of values to be written to the given array
+     *
+     * @return  This buffer
+     *
+     * @throws  BufferUnderflowException
+     *          If there are fewer than <tt>length</tt> times two bytes
+     *          remaining in this buffer
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>offset</tt> and <tt>length</tt>
+     *          parameters do not hold
+     *
+     * @since 1.7
+     */
+    public ByteBuffer get(char[] dst, int offset, int length) {
+        checkBounds(offset, length, dst.length);
+        int pos = position();
+        if (((long)length << 1) > limit() - pos)
+            throw new BufferUnderflowException();
+        getArray(pos, dst, Bits.CHAR_ARRAY_BASE_OFFSET, offset, length, 1);
+        position(pos + (length << 1));
+        return this;
+    }
+
+    /**
+     * Absolute bulk <i>get</i> method for reading char values.
+     *
+     * <p> This method behaves as the {@link #get(char[],int,int) relative}
+     * bulk <i>get</i> method, except that the values are read starting at
+     * the given index and the position of this buffer is unchanged.
+     *
+     * @param  index
+     *         The index in this buffer from which the first byte will be
+     *         read
+     *
+     * @param  dst
+     *         The array into which values are to be written
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be written
+     *
+     * @param  length
+     *         The number of values to be written to the given array
+     *
+     * @return  This buffer
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>index</tt>, <tt>offset</tt>, and
+     *          <tt>length</tt> parameters do not hold
+     *
+     * @since 1.7
+     */
+    public ByteBuffer get(int index, char[] dst, int offset, int length) {
+        checkBounds(offset, length, dst.length);
+        checkBulkIndex(index, (long)length << 1);
+        getArray(index, dst, Bits.CHAR_ARRAY_BASE_OFFSET, offset, length, 1);
+        return this;
+    }
+
+    /**
+     * Relative bulk <i>put</i> method for writing char
+     * values&nbsp;&nbsp;<i>(optional operation)</i>.
+     *
+     * <p> This method writes <tt>length</tt> char values from the given
+     * array, starting at the given offset, into this buffer in the current
+     * byte order, two bytes each. If there are fewer bytes remaining in the
+     * buffer than are required to satisfy the request then no values are
+     * transferred and a {@link BufferOverflowException} is thrown.
+     * Otherwise the position of this buffer is incremented by
+     * <tt>length</tt> times two.
+     *
+     * <p> An invocation of this method of the form
+     * <tt>dst.put(src,&nbsp;off,&nbsp;len)</tt> has exactly the same effect
+     * as the loop
+     *
+     * <pre>
+     *     for (int i = off; i < off + len; i++)
+     *         dst.putChar(src[i]); </pre>
+     *
+     * except that it first checks that there is sufficient space in this
+     * buffer and it is potentially much more efficient. </p>
+     *
+     * @param  src
+     *         The array from which values are to be read
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be read
+     *
+     * @param  length
+     *         The number of values to be read from the given array
+     *
+     * @return  This buffer
+     *
+     * @throws  BufferOverflowException
+     *          If there is insufficient space in this buffer
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>offset</tt> and <tt>length</tt>
+     *          parameters do not hold
+     *
+     * @throws  ReadOnlyBufferException
+     *          If this buffer is read-only
+     *
+     * @since 1.7
+     */
+    public ByteBuffer put(char[] src, int offset, int length) {
+        checkBounds(offset, length, src.length);
+        int pos = position();
+        if (((long)length << 1) > limit() - pos)
+            throw new BufferOverflowException();
+        putArray(pos, src, Bits.CHAR_ARRAY_BASE_OFFSET, offset, length, 1);
+        position(pos + (length << 1));
+        return this;
+    }
+
+    /**
+     * Absolute bulk <i>put</i> method for writing char
+     * values&nbsp;&nbsp;<i>(optional operation)</i>.
+     *
+     * <p> This method behaves as the {@link #put(char[],int,int) relative}
+     * bulk <i>put</i> method, except that the values are written starting at
+     * the given index and the position of this buffer is unchanged.
+     *
+     * @param  index
+     *         The index in this buffer at which the first byte will be
+     *         written
+     *
+     * @param  src
+     *         The array from which values are to be read
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be read
+     *
+     * @param  length
+     *         The number of values to be read from the given array
+     *
+     * @return  This buffer
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>index</tt>, <tt>offset</tt>, and
+     *          <tt>length</tt> parameters do not hold
+     *
+     * @throws  ReadOnlyBufferException
+     *          If this buffer is read-only
+     *
+     * @since 1.7
+     */
+    public ByteBuffer put(int index, char[] src, int offset, int length) {
+        checkBounds(offset, length, src.length);
+        checkBulkIndex(index, (long)length << 1);
+        putArray(index, src, Bits.CHAR_ARRAY_BASE_OFFSET, offset, length, 1);
+        return this;
+    }
+
+    /**
+     * Relative bulk <i>get</i> method for reading short values.
+     *
+     * <p> This method reads <tt>length</tt> short values, of two bytes each,
+     * from this buffer, composing each according to the current byte order,
+     * and writes them into the given array starting at the given offset. If
+     * there are fewer bytes remaining in the buffer than are required to
+     * satisfy the request then no values are transferred and a {@link
+     * BufferUnderflowException} is thrown. Otherwise the position of this
+     * buffer is incremented by <tt>length</tt> times two.
+     *
+     * <p> An invocation of this method of the form
+     * <tt>src.get(dst,&nbsp;off,&nbsp;len)</tt> has exactly the same effect
+     * as the loop
+     *
+     * <pre>
+     *     for (int i = off; i < off + len; i++)
+     *         dst[i] = src.getShort(); </pre>
+     *
+     * except that it first checks that there are sufficient bytes in this
+     * buffer and it is potentially much more efficient than the loop or
+     * a transfer through a {@link #asShortBuffer view} buffer, as values are
+     * copied, and their bytes swapped if required, in bulk. </p>
+     *
+     * @param  dst
+     *         The array into which values are to be written
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be written
+     *
+     * @param  length
+     *         The number of values to be written to the given array
+     *
+     * @return  This buffer
+     *
+     * @throws  BufferUnderflowException
+     *          If there are fewer than <tt>length</tt> times two bytes
+     *          remaining in this buffer
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>offset</tt> and <tt>length</tt>
+     *          parameters do not hold
+     *
+     * @since 1.7
+     */
+    public ByteBuffer get(short[] dst, int offset, int length) {
+        checkBounds(offset, length, dst.length);
+        int pos = position();
+        if (((long)length << 1) > limit() - pos)
+            throw new BufferUnderflowException();
+        getArray(pos, dst, Bits.SHORT_ARRAY_BASE_OFFSET, offset, length, 1);
+        position(pos + (length << 1));
+        return this;
+    }
+
+    /**
+     * Absolute bulk <i>get</i> method for reading short values.
+     *
+     * <p> This method behaves as the {@link #get(short[],int,int) relative}
+     * bulk <i>get</i> method, except that the values are read starting at
+     * the given index and the position of this buffer is unchanged.
+     *
+     * @param  index
+     *         The index in this buffer from which the first byte will be
+     *         read
+     *
+     * @param  dst
+     *         The array into which values are to be written
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be written
+     *
+     * @param  length
+     *         The number of values to be written to the given array
+     *
+     * @return  This buffer
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>index</tt>, <tt>offset</tt>, and
+     *          <tt>length</tt> parameters do not hold
+     *
+     * @since 1.7
+     */
+    public ByteBuffer get(int index, short[] dst, int offset, int length) {
+        checkBounds(offset, length, dst.length);
+        checkBulkIndex(index, (long)length << 1);
+        getArray(index, dst, Bits.SHORT_ARRAY_BASE_OFFSET, offset, length, 1);
+        return this;
+    }
+
+    /**
+     * Relative bulk <i>put</i> method for writing short
+     * values&nbsp;&nbsp;<i>(optional operation)</i>.
+     *
+     * <p> This method writes <tt>length</tt> short values from the given
+     * array, starting at the given offset, into this buffer in the current
+     * byte order, two bytes each. If there are fewer bytes remaining in the
+     * buffer than are required to satisfy the request then no values are
+     * transferred and a {@link BufferOverflowException} is thrown.
+     * Otherwise the position of this buffer is incremented by
+     * <tt>length</tt> times two.
+     *
+     * <p> An invocation of this method of the form
+     * <tt>dst.put(src,&nbsp;off,&nbsp;len)</tt> has exactly the same effect
+     * as the loop
+     *
+     * <pre>
+     *     for (int i = off; i < off + len; i++)
+     *         dst.putShort(src[i]); </pre>
+     *
+     * except that it first checks that there is sufficient space in this
+     * buffer and it is potentially much more efficient. </p>
+     *
+     * @param  src
+     *         The array from which values are to be read
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be read
+     *
+     * @param  length
+     *         The number of values to be read from the given array
+     *
+     * @return  This buffer
+     *
+     * @throws  BufferOverflowException
+     *          If there is insufficient space in this buffer
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>offset</tt> and <tt>length</tt>
+     *          parameters do not hold
+     *
+     * @throws  ReadOnlyBufferException
+     *          If this buffer is read-only
+     *
+     * @since 1.7
+     */
+    public ByteBuffer put(short[] src, int offset, int length) {
+        checkBounds(offset, length, src.length);
+        int pos = position();
+        if (((long)length << 1) > limit() - pos)
+            throw new BufferOverflowException();
+        putArray(pos, src, Bits.SHORT_ARRAY_BASE_OFFSET, offset, length, 1);
+        position(pos + (length << 1));
+        return this;
+    }
+
+    /**
+     * Absolute bulk <i>put</i> method for writing short
+     * values&nbsp;&nbsp;<i>(optional operation)</i>.
+     *
+     * <p> This method behaves as the {@link #put(short[],int,int) relative}
+     * bulk <i>put</i> method, except that the values are written starting at
+     * the given index and the position of this buffer is unchanged.
+     *
+     * @param  index
+     *         The index in this buffer at which the first byte will be
+     *         written
+     *
+     * @param  src
+     *         The array from which values are to be read
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be read
+     *
+     * @param  length
+     *         The number of values to be read from the given array
+     *
+     * @return  This buffer
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>index</tt>, <tt>offset</tt>, and
+     *          <tt>length</tt> parameters do not hold
+     *
+     * @throws  ReadOnlyBufferException
+     *          If this buffer is read-only
+     *
+     * @since 1.7
+     */
+    public ByteBuffer put(int index, short[] src, int offset, int length) {
+        checkBounds(offset, length, src.length);
+        checkBulkIndex(index, (long)length << 1);
+        putArray(index, src, Bits.SHORT_ARRAY_BASE_OFFSET, offset, length, 1);
+        return this;
+    }
+
+    /**
+     * Relative bulk <i>get</i> method for reading int values.
+     *
+     * <p> This method reads <tt>length</tt> int values, of four bytes each,
+     * from this buffer, composing each according to the current byte order,
+     * and writes them into the given array starting at the given offset. If
+     * there are fewer bytes remaining in the buffer than are required to
+     * satisfy the request then no values are transferred and a {@link
+     * BufferUnderflowException} is thrown. Otherwise the position of this
+     * buffer is incremented by <tt>length</tt> times four.
+     *
+     * <p> An invocation of this method of the form
+     * <tt>src.get(dst,&nbsp;off,&nbsp;len)</tt> has exactly the same effect
+     * as the loop
+     *
+     * <pre>
+     *     for (int i = off; i < off + len; i++)
+     *         dst[i] = src.getInt(); </pre>
+     *
+     * except that it first checks that there are sufficient bytes in this
+     * buffer and it is potentially much more efficient than the loop or
+     * a transfer through a {@link #asIntBuffer view} buffer, as values are
+     * copied, and their bytes swapped if required, in bulk. </p>
+     *
+     * @param  dst
+     *         The array into which values are to be written
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be written
+     *
+     * @param  length
+     *         The number of values to be written to the given array
+     *
+     * @return  This buffer
+     *
+     * @throws  BufferUnderflowException
+     *          If there are fewer than <tt>length</tt> times four bytes
+     *          remaining in this buffer
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>offset</tt> and <tt>length</tt>
+     *          parameters do not hold
+     *
+     * @since 1.7
+     */
+    public ByteBuffer get(int[] dst, int offset, int length) {
+        checkBounds(offset, length, dst.length);
+        int pos = position();
+        if (((long)length << 2) > limit() - pos)
+            throw new BufferUnderflowException();
+        getArray(pos, dst, Bits.INT_ARRAY_BASE_OFFSET, offset, length, 2);
+        position(pos + (length << 2));
+        return this;
+    }
+
+    /**
+     * Absolute bulk <i>get</i> method for reading int values.
+     *
+     * <p> This method behaves as the {@link #get(int[],int,int) relative}
+     * bulk <i>get</i> method, except that the values are read starting at
+     * the given index and the position of this buffer is unchanged.
+     *
+     * @param  index
+     *         The index in this buffer from which the first byte will be
+     *         read
+     *
+     * @param  dst
+     *         The array into which values are to be written
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be written
+     *
+     * @param  length
+     *         The number of values to be written to the given array
+     *
+     * @return  This buffer
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>index</tt>, <tt>offset</tt>, and
+     *          <tt>length</tt> parameters do not hold
+     *
+     * @since 1.7
+     */
+    public ByteBuffer get(int index, int[] dst, int offset, int length) {
+        checkBounds(offset, length, dst.length);
+        checkBulkIndex(index, (long)length << 2);
+        getArray(index, dst, Bits.INT_ARRAY_BASE_OFFSET, offset, length, 2);
+        return this;
+    }
+
+    /**
+     * Relative bulk <i>put</i> method for writing int
+     * values&nbsp;&nbsp;<i>(optional operation)</i>.
+     *
+     * <p> This method writes <tt>length</tt> int values from the given
+     * array, starting at the given offset, into this buffer in the current
+     * byte order, four bytes each. If there are fewer bytes remaining in the
+     * buffer than are required to satisfy the request then no values are
+     * transferred and a {@link BufferOverflowException} is thrown.
+     * Otherwise the position of this buffer is incremented by
+     * <tt>length</tt> times four.
+     *
+     * <p> An invocation of this method of the form
+     * <tt>dst.put(src,&nbsp;off,&nbsp;len)</tt> has exactly the same effect
+     * as the loop
+     *
+     * <pre>
+     *     for (int i = off; i < off + len; i++)
+     *         dst.putInt(src[i]); </pre>
+     *
+     * except that it first checks that there is sufficient space in this
+     * buffer and it is potentially much more efficient. </p>
+     *
+     * @param  src
+     *         The array from which values are to be read
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be read
+     *
+     * @param  length
+     *         The number of values to be read from the given array
+     *
+     * @return  This buffer
+     *
+     * @throws  BufferOverflowException
+     *          If there is insufficient space in this buffer
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>offset</tt> and <tt>length</tt>
+     *          parameters do not hold
+     *
+     * @throws  ReadOnlyBufferException
+     *          If this buffer is read-only
+     *
+     * @since 1.7
+     */
+    public ByteBuffer put(int[] src, int offset, int length) {
+        checkBounds(offset, length, src.length);
+        int pos = position();
+        if (((long)length << 2) > limit() - pos)
+            throw new BufferOverflowException();
+        putArray(pos, src, Bits.INT_ARRAY_BASE_OFFSET, offset, length, 2);
+        position(pos + (length << 2));
+        return this;
+    }
+
+    /**
+     * Absolute bulk <i>put</i> method for writing int
+     * values&nbsp;&nbsp;<i>(optional operation)</i>.
+     *
+     * <p> This method behaves as the {@link #put(int[],int,int) relative}
+     * bulk <i>put</i> method, except that the values are written starting at
+     * the given index and the position of this buffer is unchanged.
+     *
+     * @param  index
+     *         The index in this buffer at which the first byte will be
+     *         written
+     *
+     * @param  src
+     *         The array from which values are to be read
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be read
+     *
+     * @param  length
+     *         The number of values to be read from the given array
+     *
+     * @return  This buffer
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>index</tt>, <tt>offset</tt>, and
+     *          <tt>length</tt> parameters do not hold
+     *
+     * @throws  ReadOnlyBufferException
+     *          If this buffer is read-only
+     *
+     * @since 1.7
+     */
+    public ByteBuffer put(int index, int[] src, int offset, int length) {
+        checkBounds(offset, length, src.length);
+        checkBulkIndex(index, (long)length << 2);
+        putArray(index, src, Bits.INT_ARRAY_BASE_OFFSET, offset, length, 2);
+        return this;
+    }
+
+    /**
+     * Relative bulk <i>get</i> method for reading long values.
+     *
+     * <p> This method reads <tt>length</tt> long values, of eight bytes each,
+     * from this buffer, composing each according to the current byte order,
+     * and writes them into the given array starting at the given offset. If
+     * there are fewer bytes remaining in the buffer than are required to
+     * satisfy the request then no values are transferred and a {@link
+     * BufferUnderflowException} is thrown. Otherwise the position of this
+     * buffer is incremented by <tt>length</tt> times eight.
+     *
+     * <p> An invocation of this method of the form
+     * <tt>src.get(dst,&nbsp;off,&nbsp;len)</tt> has exactly the same effect
+     * as the loop
+     *
+     * <pre>
+     *     for (int i = off; i < off + len; i++)
+     *         dst[i] = src.getLong(); </pre>
+     *
+     * except that it first checks that there are sufficient bytes in this
+     * buffer and it is potentially much more efficient than the loop or
+     * a transfer through a {@link #asLongBuffer view} buffer, as values are
+     * copied, and their bytes swapped if required, in bulk. </p>
+     *
+     * @param  dst
+     *         The array into which values are to be written
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be written
+     *
+     * @param  length
+     *         The number of values to be written to the given array
+     *
+     * @return  This buffer
+     *
+     * @throws  BufferUnderflowException
+     *          If there are fewer than <tt>length</tt> times eight bytes
+     *          remaining in this buffer
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>offset</tt> and <tt>length</tt>
+     *          parameters do not hold
+     *
+     * @since 1.7
+     */
+    public ByteBuffer get(long[] dst, int offset, int length) {
+        checkBounds(offset, length, dst.length);
+        int pos = position();
+        if (((long)length << 3) > limit() - pos)
+            throw new BufferUnderflowException();
+        getArray(pos, dst, Bits.LONG_ARRAY_BASE_OFFSET, offset, length, 3);
+        position(pos + (length << 3));
+        return this;
+    }
+
+    /**
+     * Absolute bulk <i>get</i> method for reading long values.
+     *
+     * <p> This method behaves as the {@link #get(long[],int,int) relative}
+     * bulk <i>get</i> method, except that the values are read starting at
+     * the given index and the position of this buffer is unchanged.
+     *
+     * @param  index
+     *         The index in this buffer from which the first byte will be
+     *         read
+     *
+     * @param  dst
+     *         The array into which values are to be written
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be written
+     *
+     * @param  length
+     *         The number of values to be written to the given array
+     *
+     * @return  This buffer
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>index</tt>, <tt>offset</tt>, and
+     *          <tt>length</tt> parameters do not hold
+     *
+     * @since 1.7
+     */
+    public ByteBuffer get(int index, long[] dst, int offset, int length) {
+        checkBounds(offset, length, dst.length);
+        checkBulkIndex(index, (long)length << 3);
+        getArray(index, dst, Bits.LONG_ARRAY_BASE_OFFSET, offset, length, 3);
+        return this;
+    }
+
+    /**
+     * Relative bulk <i>put</i> method for writing long
+     * values&nbsp;&nbsp;<i>(optional operation)</i>.
+     *
+     * <p> This method writes <tt>length</tt> long values from the given
+     * array, starting at the given offset, into this buffer in the current
+     * byte order, eight bytes each. If there are fewer bytes remaining in the
+     * buffer than are required to satisfy the request then no values are
+     * transferred and a {@link BufferOverflowException} is thrown.
+     * Otherwise the position of this buffer is incremented by
+     * <tt>length</tt> times eight.
+     *
+     * <p> An invocation of this method of the form
+     * <tt>dst.put(src,&nbsp;off,&nbsp;len)</tt> has exactly the same effect
+     * as the loop
+     *
+     * <pre>
+     *     for (int i = off; i < off + len; i++)
+     *         dst.putLong(src[i]); </pre>
+     *
+     * except that it first checks that there is sufficient space in this
+     * buffer and it is potentially much more efficient. </p>
+     *
+     * @param  src
+     *         The array from which values are to be read
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be read
+     *
+     * @param  length
+     *         The number of values to be read from the given array
+     *
+     * @return  This buffer
+     *
+     * @throws  BufferOverflowException
+     *          If there is insufficient space in this buffer
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>offset</tt> and <tt>length</tt>
+     *          parameters do not hold
+     *
+     * @throws  ReadOnlyBufferException
+     *          If this buffer is read-only
+     *
+     * @since 1.7
+     */
+    public ByteBuffer put(long[] src, int offset, int length) {
+        checkBounds(offset, length, src.length);
+        int pos = position();
+        if (((long)length << 3) > limit() - pos)
+            throw new BufferOverflowException();
+        putArray(pos, src, Bits.LONG_ARRAY_BASE_OFFSET, offset, length, 3);
+        position(pos + (length << 3));
+        return this;
+    }
+
+    /**
+     * Absolute bulk <i>put</i> method for writing long
+     * values&nbsp;&nbsp;<i>(optional operation)</i>.
+     *
+     * <p> This method behaves as the {@link #put(long[],int,int) relative}
+     * bulk <i>put</i> method, except that the values are written starting at
+     * the given index and the position of this buffer is unchanged.
+     *
+     * @param  index
+     *         The index in this buffer at which the first byte will be
+     *         written
+     *
+     * @param  src
+     *         The array from which values are to be read
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be read
+     *
+     * @param  length
+     *         The number of values to be read from the given array
+     *
+     * @return  This buffer
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>index</tt>, <tt>offset</tt>, and
+     *          <tt>length</tt> parameters do not hold
+     *
+     * @throws  ReadOnlyBufferException
+     *          If this buffer is read-only
+     *
+     * @since 1.7
+     */
+    public ByteBuffer put(int index, long[] src, int offset, int length) {
+        checkBounds(offset, length, src.length);
+        checkBulkIndex(index, (long)length << 3);
+        putArray(index, src, Bits.LONG_ARRAY_BASE_OFFSET, offset, length, 3);
+        return this;
+    }
+
+    /**
+     * Relative bulk <i>get</i> method for reading float values.
+     *
+     * <p> This method reads <tt>length</tt> float values, of four bytes each,
+     * from this buffer, composing each according to the current byte order,
+     * and writes them into the given array starting at the given offset. If
+     * there are fewer bytes remaining in the buffer than are required to
+     * satisfy the request then no values are transferred and a {@link
+     * BufferUnderflowException} is thrown. Otherwise the position of this
+     * buffer is incremented by <tt>length</tt> times four.
+     *
+     * <p> An invocation of this method of the form
+     * <tt>src.get(dst,&nbsp;off,&nbsp;len)</tt> has exactly the same effect
+     * as the loop
+     *
+     * <pre>
+     *     for (int i = off; i < off + len; i++)
+     *         dst[i] = src.getFloat(); </pre>
+     *
+     * except that it first checks that there are sufficient bytes in this
+     * buffer and it is potentially much more efficient than the loop or
+     * a transfer through a {@link #asFloatBuffer view} buffer, as values are
+     * copied, and their bytes swapped if required, in bulk. </p>
+     *
+     * @param  dst
+     *         The array into which values are to be written
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be written
+     *
+     * @param  length
+     *         The number of values to be written to the given array
+     *
+     * @return  This buffer
+     *
+     * @throws  BufferUnderflowException
+     *          If there are fewer than <tt>length</tt> times four bytes
+     *          remaining in this buffer
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>offset</tt> and <tt>length</tt>
+     *          parameters do not hold
+     *
+     * @since 1.7
+     */
+    public ByteBuffer get(float[] dst, int offset, int length) {
+        checkBounds(offset, length, dst.length);
+        int pos = position();
+        if (((long)length << 2) > limit() - pos)
+            throw new BufferUnderflowException();
+        getArray(pos, dst, Bits.FLOAT_ARRAY_BASE_OFFSET, offset, length, 2);
+        position(pos + (length << 2));
+        return this;
+    }
+
+    /**
+     * Absolute bulk <i>get</i> method for reading float values.
+     *
+     * <p> This method behaves as the {@link #get(float[],int,int) relative}
+     * bulk <i>get</i> method, except that the values are read starting at
+     * the given index and the position of this buffer is unchanged.
+     *
+     * @param  index
+     *         The index in this buffer from which the first byte will be
+     *         read
+     *
+     * @param  dst
+     *         The array into which values are to be written
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be written
+     *
+     * @param  length
+     *         The number of values to be written to the given array
+     *
+     * @return  This buffer
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>index</tt>, <tt>offset</tt>, and
+     *          <tt>length</tt> parameters do not hold
+     *
+     * @since 1.7
+     */
+    public ByteBuffer get(int index, float[] dst, int offset, int length) {
+        checkBounds(offset, length, dst.length);
+        checkBulkIndex(index, (long)length << 2);
+        getArray(index, dst, Bits.FLOAT_ARRAY_BASE_OFFSET, offset, length, 2);
+        return this;
+    }
+
+    /**
+     * Relative bulk <i>put</i> method for writing float
+     * values&nbsp;&nbsp;<i>(optional operation)</i>.
+     *
+     * <p> This method writes <tt>length</tt> float values from the given
+     * array, starting at the given offset, into this buffer in the current
+     * byte order, four bytes each. If there are fewer bytes remaining in the
+     * buffer than are required to satisfy the request then no values are
+     * transferred and a {@link BufferOverflowException} is thrown.
+     * Otherwise the position of this buffer is incremented by
+     * <tt>length</tt> times four.
+     *
+     * <p> An invocation of this method of the form
+     * <tt>dst.put(src,&nbsp;off,&nbsp;len)</tt> has exactly the same effect
+     * as the loop
+     *
+     * <pre>
+     *     for (int i = off; i < off + len; i++)
+     *         dst.putFloat(src[i]); </pre>
+     *
+     * except that it first checks that there is sufficient space in this
+     * buffer and it is potentially much more efficient. </p>
+     *
+     * @param  src
+     *         The array from which values are to be read
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be read
+     *
+     * @param  length
+     *         The number of values to be read from the given array
+     *
+     * @return  This buffer
+     *
+     * @throws  BufferOverflowException
+     *          If there is insufficient space in this buffer
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>offset</tt> and <tt>length</tt>
+     *          parameters do not hold
+     *
+     * @throws  ReadOnlyBufferException
+     *          If this buffer is read-only
+     *
+     * @since 1.7
+     */
+    public ByteBuffer put(float[] src, int offset, int length) {
+        checkBounds(offset, length, src.length);
+        int pos = position();
+        if (((long)length << 2) > limit() - pos)
+            throw new BufferOverflowException();
+        putArray(pos, src, Bits.FLOAT_ARRAY_BASE_OFFSET, offset, length, 2);
+        position(pos + (length << 2));
+        return this;
+    }
+
+    /**
+     * Absolute bulk <i>put</i> method for writing float
+     * values&nbsp;&nbsp;<i>(optional operation)</i>.
+     *
+     * <p> This method behaves as the {@link #put(float[],int,int) relative}
+     * bulk <i>put</i> method, except that the values are written starting at
+     * the given index and the position of this buffer is unchanged.
+     *
+     * @param  index
+     *         The index in this buffer at which the first byte will be
+     *         written
+     *
+     * @param  src
+     *         The array from which values are to be read
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be read
+     *
+     * @param  length
+     *         The number of values to be read from the given array
+     *
+     * @return  This buffer
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>index</tt>, <tt>offset</tt>, and
+     *          <tt>length</tt> parameters do not hold
+     *
+     * @throws  ReadOnlyBufferException
+     *          If this buffer is read-only
+     *
+     * @since 1.7
+     */
+    public ByteBuffer put(int index, float[] src, int offset, int length) {
+        checkBounds(offset, length, src.length);
+        checkBulkIndex(index, (long)length << 2);
+        putArray(index, src, Bits.FLOAT_ARRAY_BASE_OFFSET, offset, length, 2);
+        return this;
+    }
+
+    /**
+     * Relative bulk <i>get</i> method for reading double values.
+     *
+     * <p> This method reads <tt>length</tt> double values, of eight bytes each,
+     * from this buffer, composing each according to the current byte order,
+     * and writes them into the given array starting at the given offset. If
+     * there are fewer bytes remaining in the buffer than are required to
+     * satisfy the request then no values are transferred and a {@link
+     * BufferUnderflowException} is thrown. Otherwise the position of this
+     * buffer is incremented by <tt>length</tt> times eight.
+     *
+     * <p> An invocation of this method of the form
+     * <tt>src.get(dst,&nbsp;off,&nbsp;len)</tt> has exactly the same effect
+     * as the loop
+     *
+     * <pre>
+     *     for (int i = off; i < off + len; i++)
+     *         dst[i] = src.getDouble(); </pre>
+     *
+     * except that it first checks that there are sufficient bytes in this
+     * buffer and it is potentially much more efficient than the loop or
+     * a transfer through a {@link #asDoubleBuffer view} buffer, as values are
+     * copied, and their bytes swapped if required, in bulk. </p>
+     *
+     * @param  dst
+     *         The array into which values are to be written
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be written
+     *
+     * @param  length
+     *         The number of values to be written to the given array
+     *
+     * @return  This buffer
+     *
+     * @throws  BufferUnderflowException
+     *          If there are fewer than <tt>length</tt> times eight bytes
+     *          remaining in this buffer
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>offset</tt> and <tt>length</tt>
+     *          parameters do not hold
+     *
+     * @since 1.7
+     */
+    public ByteBuffer get(double[] dst, int offset, int length) {
+        checkBounds(offset, length, dst.length);
+        int pos = position();
+        if (((long)length << 3) > limit() - pos)
+            throw new BufferUnderflowException();
+        getArray(pos, dst, Bits.DOUBLE_ARRAY_BASE_OFFSET, offset, length, 3);
+        position(pos + (length << 3));
+        return this;
+    }
+
+    /**
+     * Absolute bulk <i>get</i> method for reading double values.
+     *
+     * <p> This method behaves as the {@link #get(double[],int,int) relative}
+     * bulk <i>get</i> method, except that the values are read starting at
+     * the given index and the position of this buffer is unchanged.
+     *
+     * @param  index
+     *         The index in this buffer from which the first byte will be
+     *         read
+     *
+     * @param  dst
+     *         The array into which values are to be written
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be written
+     *
+     * @param  length
+     *         The number of values to be written to the given array
+     *
+     * @return  This buffer
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>index</tt>, <tt>offset</tt>, and
+     *          <tt>length</tt> parameters do not hold
+     *
+     * @since 1.7
+     */
+    public ByteBuffer get(int index, double[] dst, int offset, int length) {
+        checkBounds(offset, length, dst.length);
+        checkBulkIndex(index, (long)length << 3);
+        getArray(index, dst, Bits.DOUBLE_ARRAY_BASE_OFFSET, offset, length, 3);
+        return this;
+    }
+
+    /**
+     * Relative bulk <i>put</i> method for writing double
+     * values&nbsp;&nbsp;<i>(optional operation)</i>.
+     *
+     * <p> This method writes <tt>length</tt> double values from the given
+     * array, starting at the given offset, into this buffer in the current
+     * byte order, eight bytes each. If there are fewer bytes remaining in the
+     * buffer than are required to satisfy the request then no values are
+     * transferred and a {@link BufferOverflowException} is thrown.
+     * Otherwise the position of this buffer is incremented by
+     * <tt>length</tt> times eight.
+     *
+     * <p> An invocation of this method of the form
+     * <tt>dst.put(src,&nbsp;off,&nbsp;len)</tt> has exactly the same effect
+     * as the loop
+     *
+     * <pre>
+     *     for (int i = off; i < off + len; i++)
+     *         dst.putDouble(src[i]); </pre>
+     *
+     * except that it first checks that there is sufficient space in this
+     * buffer and it is potentially much more efficient. </p>
+     *
+     * @param  src
+     *         The array from which values are to be read
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be read
+     *
+     * @param  length
+     *         The number of values to be read from the given array
+     *
+     * @return  This buffer
+     *
+     * @throws  BufferOverflowException
+     *          If there is insufficient space in this buffer
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>offset</tt> and <tt>length</tt>
+     *          parameters do not hold
+     *
+     * @throws  ReadOnlyBufferException
+     *          If this buffer is read-only
+     *
+     * @since 1.7
+     */
+    public ByteBuffer put(double[] src, int offset, int length) {
+        checkBounds(offset, length, src.length);
+        int pos = position();
+        if (((long)length << 3) > limit() - pos)
+            throw new BufferOverflowException();
+        putArray(pos, src, Bits.DOUBLE_ARRAY_BASE_OFFSET, offset, length, 3);
+        position(pos + (length << 3));
+        return this;
+    }
+
+    /**
+     * Absolute bulk <i>put</i> method for writing double
+     * values&nbsp;&nbsp;<i>(optional operation)</i>.
+     *
+     * <p> This method behaves as the {@link #put(double[],int,int) relative}
+     * bulk <i>put</i> method, except that the values are written starting at
+     * the given index and the position of this buffer is unchanged.
+     *
+     * @param  index
+     *         The index in this buffer at which the first byte will be
+     *         written
+     *
+     * @param  src
+     *         The array from which values are to be read
+     *
+     * @param  offset
+     *         The offset within the array of the first value to be read
+     *
+     * @param  length
+     *         The number of values to be read from the given array
+     *
+     * @return  This buffer
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>index</tt>, <tt>offset</tt>, and
+     *          <tt>length</tt> parameters do not hold
+     *
+     * @throws  ReadOnlyBufferException
+     *          If this buffer is read-only
+     *
+     * @since 1.7
+     */
+    public ByteBuffer put(int index, double[] src, int offset, int length) {
+        checkBounds(offset, length, src.length);
+        checkBulkIndex(index, (long)length << 3);
+        putArray(index, src, Bits.DOUBLE_ARRAY_BASE_OFFSET, offset, length, 3);
+        return this;
+    }
+
 }
@@ -0,0 +1,437 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.nio;
+
+import java.lang.management.BufferPoolMXBean;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * A pool of direct byte buffers that are allocated and explicitly released
+ * by the application.
+ *
+ * <p> Allocating a direct buffer with {@link ByteBuffer#allocateDirect
+ * allocateDirect} reserves memory against the limit on the total capacity of
+ * direct buffers; when the limit is near, the allocating thread requests a
+ * garbage collection and sleeps so that the memory of unreachable buffers can
+ * be freed. A buffer pool instead allocates memory in large <i>slabs</i>, and
+ * divides each slab into buffers of a single <i>size class</i>. The size
+ * classes are the powers of two from {@value #MIN_POOLED_CAPACITY} bytes up to
+ * the slab size. A buffer that is {@link #release released} is returned to
+ * the pool and is reused by a later allocation of the same size class, so
+ * that a steady-state workload does not allocate direct memory at all.
+ *
+ * <p> Each thread has a small cache of released buffers for each size class,
+ * from which it allocates without contention; the cache overflows to, and is
+ * refilled from, lock-free free lists that are shared by all threads. A
+ * request for a buffer larger than the slab size is satisfied by allocating a
+ * dedicated direct buffer, whose memory is freed immediately when the
+ * buffer is released rather than when it is garbage-collected.
+ *
+ * <p> A buffer allocated from a pool has a position of zero, a limit of the
+ * requested capacity, and a byte order of {@link ByteOrder#BIG_ENDIAN
+ * BIG_ENDIAN}. Its capacity is the size of its size class, and so may be
+ * larger than the requested capacity. The content of a buffer is not
+ * initialized and may contain the data of a buffer that was previously
+ * released. <b>Once released, a buffer, and any buffer created from it by
+ * the {@link ByteBuffer#slice slice}, {@link ByteBuffer#duplicate duplicate}
+ * or view methods, must no longer be used, as its memory may be in use by
+ * another buffer.</b>
+ *
+ * <p> Memory allocated for slabs is retained by the pool for reuse; it is
+ * freed only when the pool and all buffers allocated from it are
+ * garbage-collected. Buffers in the cache of a thread are reused by other
+ * threads once the thread {@link #flushThreadCache flushes} its cache; the
+ * cache of a thread that has terminated is returned to the shared free lists
+ * before the pool allocates another slab. The memory held by the pool, and
+ * the capacity of the
+ * buffers that are in use, are reported by the {@link BufferPoolMXBean}
+ * returned by {@link #getBufferPoolMXBean getBufferPoolMXBean}.
+ *
+ * <p> This class is safe for use by multiple concurrent threads.
+ *
+ * @since 1.7
+ */
+
+public final class DirectBufferPool {
+
+    /**
+     * The capacity of the smallest size class.
+     */
+    public static final int MIN_POOLED_CAPACITY = 64;
+
+    // log2(MIN_POOLED_CAPACITY)
+    private static final int MIN_CLASS_SHIFT = 6;
+
+    // default slab size
+    private static final int DEFAULT_SLAB_SIZE = 1024 * 1024;
+
+    // the number of bytes of each size class to cache per thread, the
+    // number of buffers cached per size class is at least 1 and at most
+    // MAX_THREAD_CACHE_COUNT
+    private static final int THREAD_CACHE_BYTES = 64 * 1024;
+    private static final int MAX_THREAD_CACHE_COUNT = 64;
+
+    private final String name;
+    private final int slabSize;
+    private final int slabShift;
+
+    // shared free lists, one for each size class
+    private final ConcurrentLinkedQueue<PooledDirectByteBuffer>[] freeLists;
+
+    // per-thread caches
+    private final ThreadLocal<ThreadCache> threadCache =
+        new ThreadLocal<ThreadCache>() {
+            @Override
+            protected ThreadCache initialValue() {
+                ThreadCache cache = new ThreadCache(Thread.currentThread());
+                threadCaches.add(cache);
+                return cache;
+            }
+        };
+
+    // all per-thread caches, so that the buffers cached by threads that
+    // have terminated can be reclaimed
+    private final Set<ThreadCache> threadCaches =
+        Collections.newSetFromMap(new ConcurrentHashMap<ThreadCache,Boolean>());
+
+    // statistics
+    private final AtomicLong slabMemory = new AtomicLong();
+    private final AtomicLong dedicatedMemory = new AtomicLong();
+    private final AtomicLong inUseCount = new AtomicLong();
+    private final AtomicLong inUseCapacity = new AtomicLong();
+
+    // the management interface, created lazily
+    private volatile BufferPoolMXBean mxbean;
+
+    /**
+     * Creates a new pool with the given name and a default slab size.
+     *
+     * @param  name
+     *         The name of the pool, used by the management interface
+     */
+    public DirectBufferPool(String name) {
+        this(name, DEFAULT_SLAB_SIZE);
+    }
+
+    /**
+     * Creates a new pool with the given name and slab size.
+     *
+     * @param  name
+     *         The name of the pool, used by the management interface
+     *
+     * @param  slabSize
+     *         The size of the slabs in which memory is allocated; this is
+     *         also the capacity of the largest size class. The slab size is
+     *         rounded up to a power of two.
+     *
+     * @throws  IllegalArgumentException
+     *          If <tt>slabSize</tt> is less than {@link #MIN_POOLED_CAPACITY}
+     *          or greater than 2<sup>30</sup>
+     */
+    public DirectBufferPool(String name, int slabSize) {
+        if (name == null)
+            throw new NullPointerException();
+        if (slabSize < MIN_POOLED_CAPACITY || slabSize > (1 << 30))
+            throw new IllegalArgumentException("Illegal slab size: " + slabSize);
+        this.name = name;
+        this.slabShift = 32 - Integer.numberOfLeadingZeros(slabSize - 1);
+        this.slabSize = 1 << slabShift;
+        int classes = slabShift - MIN_CLASS_SHIFT + 1;
+        this.freeLists = newFreeLists(classes);
+        for (int i = 0; i < classes; i++)
+            freeLists[i] = new ConcurrentLinkedQueue<>();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ConcurrentLinkedQueue<PooledDirectByteBuffer>[] newFreeLists(int n) {
+        return (ConcurrentLinkedQueue<PooledDirectByteBuffer>[])new ConcurrentLinkedQueue<?>[n];
+    }
+
+    /**
+     * Returns the name of this pool.
+     *
+     * @return  The name of this pool
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Returns the size class for a buffer of the given capacity, or -1 if
+     * the capacity is larger than the largest size class.
+     */
+    private int sizeClass(int capacity) {
+        if (capacity <= MIN_POOLED_CAPACITY)
+            return 0;
+        if (capacity > slabSize)
+            return -1;
+        int shift = 32 - Integer.numberOfLeadingZeros(capacity - 1);
+        return shift - MIN_CLASS_SHIFT;
+    }
+
+    /**
+     * Allocates a buffer from this pool.
+     *
+     * @param  capacity
+     *         The minimum capacity of the buffer, in bytes
+     *
+     * @return  A direct byte buffer with a position of zero and a limit of
+     *          <tt>capacity</tt>
+     *
+     * @throws  IllegalArgumentException
+     *          If <tt>capacity</tt> is negative
+     *
+     * @throws  OutOfMemoryError
+     *          If a slab of direct memory cannot be allocated
+     */
+    public ByteBuffer allocate(int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException();
+        int sc = sizeClass(capacity);
+        PooledDirectByteBuffer buf;
+        if (sc < 0) {
+            DirectByteBuffer slab = new DirectByteBuffer(capacity);
+            buf = new PooledDirectByteBuffer(slab, 0, capacity, this, -1);
+            dedicatedMemory.addAndGet(capacity);
+        } else {
+            ThreadCache cache = threadCache.get();
+            buf = cache.poll(sc);
+            if (buf == null)
+                buf = freeLists[sc].poll();
+            if (buf == null && reclaimThreadCaches())
+                buf = freeLists[sc].poll();
+            if (buf == null)
+                buf = allocateSlab(sc, cache);
+        }
+        buf.acquire();
+        buf.clear();
+        buf.limit(capacity);
+        buf.order(ByteOrder.BIG_ENDIAN);
+        inUseCount.incrementAndGet();
+        inUseCapacity.addAndGet(buf.capacity());
+        return buf;
+    }
+
+    /**
+     * Returns the buffers cached by threads that have terminated to the
+     * shared free lists, returning {@code true} if there were any.
+     */
+    private boolean reclaimThreadCaches() {
+        boolean reclaimed = false;
+        for (ThreadCache cache : threadCaches) {
+            // A terminated thread no longer uses its cache; removing the
+            // cache from the set decides which thread flushes it.
+            if (!cache.owner.isAlive() && threadCaches.remove(cache))
+                reclaimed |= cache.flush();
+        }
+        return reclaimed;
+    }
+
+    /**
+     * Allocates a slab for the given size class, returning the first buffer
+     * in the slab. The remaining buffers are added to the thread's cache
+     * and, when it is full, to the shared free list.
+     */
+    private PooledDirectByteBuffer allocateSlab(int sc, ThreadCache cache) {
+        int cap = 1 << (sc + MIN_CLASS_SHIFT);
+        DirectByteBuffer slab = new DirectByteBuffer(slabSize);
+        slabMemory.addAndGet(slabSize);
+        ConcurrentLinkedQueue<PooledDirectByteBuffer> freeList = freeLists[sc];
+        PooledDirectByteBuffer first = null;
+        for (int off = 0; off < slabSize; off += cap) {
+            PooledDirectByteBuffer buf =
+                new PooledDirectByteBuffer(slab, off, cap, this, sc);
+            if (first == null) {
+                first = buf;
+            } else if (!cache.offer(buf)) {
+                freeList.offer(buf);
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Releases a buffer, returning it to this pool.
+     *
+     * <p> A buffer larger than the slab size is freed immediately. Once
+     * released, the buffer and any buffers derived from it must no longer be
+     * used.
+     *
+     * @param  buffer
+     *         A buffer allocated by this pool
+     *
+     * @throws  IllegalArgumentException
+     *          If the buffer was not allocated by this pool, or is a slice,
+     *          duplicate or view of a buffer allocated by this pool
+     *
+     * @throws  IllegalStateException
+     *          If the buffer has already been released
+     */
+    public void release(ByteBuffer buffer) {
+        if (!(buffer instanceof PooledDirectByteBuffer) ||
+            ((PooledDirectByteBuffer)buffer).pool != this)
+            throw new IllegalArgumentException("Buffer not allocated by this pool");
+        PooledDirectByteBuffer buf = (PooledDirectByteBuffer)buffer;
+        if (!buf.release())
+            throw new IllegalStateException("Buffer already released");
+        inUseCount.decrementAndGet();
+        inUseCapacity.addAndGet(-buf.capacity());
+        int sc = buf.sizeClass;
+        if (sc < 0) {
+            buf.free();
+            dedicatedMemory.addAndGet(-buf.capacity());
+        } else if (!threadCache.get().offer(buf)) {
+            freeLists[sc].offer(buf);
+        }
+    }
+
+    /**
+     * Returns the buffers in the current thread's cache to the free lists
+     * shared by all threads. A thread that has released buffers, and that
+     * will not allocate buffers from this pool again, should invoke this
+     * method so that the buffers can be reused by other threads.
+     */
+    public void flushThreadCache() {
+        threadCache.get().flush();
+    }
+
+    /**
+     * A per-thread stack of free buffers for each size class.
+     */
+    private class ThreadCache {
+        final Thread owner;
+        private final PooledDirectByteBuffer[][] stacks;
+        private final int[] sizes;
+
+        ThreadCache(Thread owner) {
+            this.owner = owner;
+            int classes = freeLists.length;
+            stacks = new PooledDirectByteBuffer[classes][];
+            sizes = new int[classes];
+            for (int sc = 0; sc < classes; sc++) {
+                int n = THREAD_CACHE_BYTES >>> (sc + MIN_CLASS_SHIFT);
+                n = Math.max(1, Math.min(n, MAX_THREAD_CACHE_COUNT));
+                stacks[sc] = new PooledDirectByteBuffer[n];
+            }
+        }
+
+        PooledDirectByteBuffer poll(int sc) {
+            int n = sizes[sc];
+            if (n == 0)
+                return null;
+            PooledDirectByteBuffer[] stack = stacks[sc];
+            PooledDirectByteBuffer buf = stack[--n];
+            stack[n] = null;
+            sizes[sc] = n;
+            return buf;
+        }
+
+        boolean offer(PooledDirectByteBuffer buf) {
+            int sc = buf.sizeClass;
+            PooledDirectByteBuffer[] stack = stacks[sc];
+            int n = sizes[sc];
+            if (n == stack.length)
+                return false;
+            stack[n] = buf;
+            sizes[sc] = n + 1;
+            return true;
+        }
+
+        boolean flush() {
+            boolean flushed = false;
+            for (int sc = 0; sc < stacks.length; sc++) {
+                PooledDirectByteBuffer buf;
+                while ((buf = poll(sc)) != null) {
+                    freeLists[sc].offer(buf);
+                    flushed = true;
+                }
+            }
+            return flushed;
+        }
+    }
+
+    // -- Monitoring --
+
+    /**
+     * Returns the management interface for this pool.
+     *
+     * <p> The {@link BufferPoolMXBean#getCount count} and {@link
+     * BufferPoolMXBean#getTotalCapacity total capacity} reported by the
+     * management interface are those of the buffers that are in use, that
+     * is, allocated and not yet released. The {@link
+     * BufferPoolMXBean#getMemoryUsed memory used} is the direct memory held
+     * by the pool, including the memory of buffers that are free in the pool
+     * and of buffers larger than the slab size that are in use. The
+     * management interface is not registered with the platform {@code
+     * MBeanServer}; its {@link BufferPoolMXBean#getObjectName ObjectName} has
+     * the form:
+     * <pre>
+     *     java.nio:type=BufferPool,name=pooled.<i>pool name</i>
+     * </pre>
+     *
+     * @return  The management interface for this pool
+     */
+    public BufferPoolMXBean getBufferPoolMXBean() {
+        BufferPoolMXBean bean = mxbean;
+        if (bean == null) {
+            bean = new BufferPoolMXBean() {
+                @Override
+                public ObjectName getObjectName() {
+                    try {
+                        return ObjectName.getInstance("java.nio:type=BufferPool,name=" +
+                                                      "pooled." + name);
+                    } catch (MalformedObjectNameException x) {
+                        throw new IllegalArgumentException(x);
+                    }
+                }
+                @Override
+                public String getName() {
+                    return "pooled." + name;
+                }
+                @Override
+                public long getCount() {
+                    return inUseCount.get();
+                }
+                @Override
+                public long getTotalCapacity() {
+                    return inUseCapacity.get();
+                }
+                @Override
+                public long getMemoryUsed() {
+                    return slabMemory.get() + dedicatedMemory.get();
+                }
+            };
+            mxbean = bean;
+        }
+        return bean;
+    }
+}
@@ -205,6 +205,52 @@ public abstract class MappedByteBuffer
         return this;
     }
 
+    /**
+     * Forces any changes made to a region of this buffer's content to be
+     * written to the storage device containing the mapped file.
+     *
+     * <p> This method behaves in the same way as the {@link #force()} method
+     * except that only the pages that contain the bytes from {@code index}
+     * to {@code index + length - 1}, inclusive, are written. This allows a
+     * large mapping to be made durable incrementally, without writing pages
+     * that were not modified since the last invocation of this method.
+     *
+     * <p> If this buffer was not mapped in read/write mode ({@link
+     * java.nio.channels.FileChannel.MapMode#READ_WRITE}) then invoking this
+     * method has no effect. </p>
+     *
+     * @param  index
+     *         The index of the first byte in the buffer region that is to be
+     *         written back to storage; must be non-negative and less than or
+     *         equal to {@code capacity()}
+     *
+     * @param  length
+     *         The length of the region in bytes; must be non-negative and no
+     *         larger than {@code capacity() - index}
+     *
+     * @return  This buffer
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the index and length do not hold
+     *
+     * @since 1.7
+     */
+    public final MappedByteBuffer force(int index, int length) {
+        checkMapped();
+        if (index < 0 || length < 0 || index > capacity() - length)
+            throw new IndexOutOfBoundsException();
+        if ((address != 0) && (length != 0)) {
+            // page align the start of the region
+            int ps = Bits.pageSize();
+            long a = address + index;
+            long offset = a % ps;
+            if (offset < 0)
+                offset += ps;
+            force0(fd, a - offset, (long)length + offset);
+        }
+        return this;
+    }
+
     private native boolean isLoaded0(long address, long length, int pageCount);
     private native void load0(long address, long length);
     private native void force0(FileDescriptor fd, long address, long length);
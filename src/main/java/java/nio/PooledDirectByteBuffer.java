@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.nio;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import sun.misc.Cleaner;
+
+/**
+ * A direct byte buffer allocated by a {@link DirectBufferPool}. A pooled
+ * buffer is a slice of a larger direct buffer, the <i>slab</i>, that is
+ * shared with other buffers of the same size class. Buffers larger than the
+ * largest size class have a slab of their own, which is freed when the
+ * buffer is released.
+ */
+
+class PooledDirectByteBuffer
+    extends DirectByteBuffer
+{
+    // the pool that allocated this buffer
+    final DirectBufferPool pool;
+
+    // the size class, or -1 if this buffer has a slab of its own
+    final int sizeClass;
+
+    // 1 when allocated, 0 when free in the pool
+    private volatile int inUse;
+    private static final AtomicIntegerFieldUpdater<PooledDirectByteBuffer> inUseUpdater =
+        AtomicIntegerFieldUpdater.newUpdater(PooledDirectByteBuffer.class, "inUse");
+
+    PooledDirectByteBuffer(DirectByteBuffer slab, int off, int cap,
+                           DirectBufferPool pool, int sizeClass)
+    {
+        super(slab, -1, 0, cap, cap, off);
+        this.pool = pool;
+        this.sizeClass = sizeClass;
+    }
+
+    /**
+     * Marks this buffer as allocated.
+     */
+    void acquire() {
+        boolean acquired = inUseUpdater.compareAndSet(this, 0, 1);
+        assert acquired;
+    }
+
+    /**
+     * Marks this buffer as free, returning {@code false} if it was already
+     * free.
+     */
+    boolean release() {
+        return inUseUpdater.compareAndSet(this, 1, 0);
+    }
+
+    /**
+     * Frees the memory of a buffer that has a slab of its own.
+     */
+    void free() {
+        assert sizeClass < 0;
+        Cleaner cl = ((DirectByteBuffer)attachment()).cleaner();
+        if (cl != null)
+            cl.clean();
+    }
+}
@@ -915,6 +915,61 @@ public abstract class FileChannel
                                          long position, long size)
         throws IOException;
 
+    /**
+     * Maps a region of this channel's file, of any size, directly into memory.
+     *
+     * <p> This method maps the region as if by invoking the {@link #map map}
+     * method for each consecutive segment of 2<sup>30</sup> bytes of the
+     * region, so that regions larger than {@link java.lang.Integer#MAX_VALUE}
+     * bytes may be mapped, and returns a {@link MappedRegion} to access the
+     * region using {@code long} indexes. The modes, preconditions and
+     * unspecified behaviors are as for the {@code map} method.
+     *
+     * <p> Unlike a mapped byte buffer, the mapping is released when the
+     * returned region is {@link MappedRegion#close closed}, rather than when it
+     * is garbage-collected, so that an application mapping many or large
+     * regions in turn does not retain the mappings until a garbage collection
+     * occurs. A mapping, once established, is not dependent upon the file
+     * channel that was used to create it.
+     *
+     * @param  mode
+     *         One of the constants {@link MapMode#READ_ONLY READ_ONLY}, {@link
+     *         MapMode#READ_WRITE READ_WRITE}, or {@link MapMode#PRIVATE
+     *         PRIVATE} defined in the {@link MapMode} class
+     *
+     * @param  position
+     *         The position within the file at which the mapped region
+     *         is to start; must be non-negative
+     *
+     * @param  size
+     *         The size of the region to be mapped; must be non-negative
+     *
+     * @return  The mapped region
+     *
+     * @throws NonReadableChannelException
+     *         If the <tt>mode</tt> is {@link MapMode#READ_ONLY READ_ONLY} but
+     *         this channel was not opened for reading
+     *
+     * @throws NonWritableChannelException
+     *         If the <tt>mode</tt> is {@link MapMode#READ_WRITE READ_WRITE} or
+     *         {@link MapMode#PRIVATE PRIVATE} but this channel was not opened
+     *         for both reading and writing
+     *
+     * @throws IllegalArgumentException
+     *         If the preconditions on the parameters do not hold
+     *
+     * @throws IOException
+     *         If some other I/O error occurs
+     *
+     * @see java.nio.channels.MappedRegion
+     * @since 1.7
+     */
+    public MappedRegion mapRegion(MapMode mode, long position, long size)
+        throws IOException
+    {
+        return new MappedRegion(this, mode, position, size);
+    }
+
 
     // -- Locks --
 
@@ -0,0 +1,1114 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.nio.channels;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import sun.misc.Cleaner;
+import sun.nio.ch.DirectBuffer;
+
+/**
+ * A memory-mapped region of a file that may be larger than {@link
+ * Integer#MAX_VALUE} bytes.
+ *
+ * <p> A mapped region is created by the {@link FileChannel#mapRegion
+ * FileChannel.mapRegion} method. The region is mapped as a sequence of
+ * {@link MappedByteBuffer}s, each mapping a <i>segment</i> of {@code
+ * 2<sup>30</sup>} bytes of the file (the last segment may be smaller), and
+ * is accessed using {@code long} indexes relative to the start of the
+ * region. Values that span two segments are transparently assembled from, or
+ * split across, both segments.
+ *
+ * <p> Unlike a mapped byte buffer, which remains valid until it is garbage
+ * collected, the mapping is released deterministically when the region is
+ * {@link #close closed}. Once closed, any attempt to access the region
+ * throws {@code IllegalStateException}. <b>Closing a region while another
+ * thread is accessing it may cause that thread to access memory that is no
+ * longer mapped; it is the responsibility of the application to ensure that
+ * no thread accesses a region while, or after, it is closed.</b>
+ *
+ * <p> The get and put methods of this class do not update any position, and
+ * so may be invoked by multiple concurrent threads; the visibility of values
+ * written by one thread to other threads is as for a direct buffer. Multi-byte
+ * values are read and written in the byte order of the region, which is
+ * initially {@link ByteOrder#BIG_ENDIAN BIG_ENDIAN}. The {@link #order(ByteOrder)
+ * order} method should not be invoked while other threads are accessing the
+ * region.
+ *
+ * <p> The details of memory-mapped files, and the conditions under which an
+ * access to a region throws an unspecified exception, are as specified for
+ * {@link MappedByteBuffer}.
+ *
+ * @see FileChannel#mapRegion
+ * @since 1.7
+ */
+
+public final class MappedRegion implements AutoCloseable {
+
+    // segments are 2^SEGMENT_SHIFT bytes, except the last
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private final FileChannel.MapMode mode;
+    private final long position;
+    private final long size;
+    private ByteOrder order = ByteOrder.BIG_ENDIAN;
+
+    // the mapped segments; null when the region is closed
+    private volatile MappedByteBuffer[] segments;
+
+    /**
+     * Maps the given region of the file, one segment at a time. Segments
+     * that have already been mapped are unmapped if a subsequent segment
+     * cannot be mapped.
+     */
+    MappedRegion(FileChannel fc, FileChannel.MapMode mode,
+                 long position, long size)
+        throws IOException
+    {
+        if (position < 0L)
+            throw new IllegalArgumentException("Negative position");
+        if (size < 0L)
+            throw new IllegalArgumentException("Negative size");
+        if (position + size < 0)
+            throw new IllegalArgumentException("Position + size overflow");
+
+        int count = (int)((size + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        MappedByteBuffer[] segs = new MappedByteBuffer[Math.max(count, 1)];
+        boolean mapped = false;
+        try {
+            for (int i = 0; i < segs.length; i++) {
+                long offset = (long)i << SEGMENT_SHIFT;
+                long len = Math.min(SEGMENT_SIZE, size - offset);
+                segs[i] = fc.map(mode, position + offset, len);
+                segs[i].order(order);
+            }
+            mapped = true;
+        } finally {
+            if (!mapped)
+                unmap(segs);
+        }
+
+        this.mode = mode;
+        this.position = position;
+        this.size = size;
+        this.segments = segs;
+    }
+
+    private static void unmap(MappedByteBuffer[] segs) {
+        for (int i = 0; i < segs.length; i++) {
+            MappedByteBuffer seg = segs[i];
+            segs[i] = null;
+            if (seg instanceof DirectBuffer) {
+                Cleaner cl = ((DirectBuffer)seg).cleaner();
+                if (cl != null)
+                    cl.clean();
+            }
+        }
+    }
+
+    /**
+     * Returns the mapping mode of this region.
+     *
+     * @return  The mapping mode
+     */
+    public FileChannel.MapMode mode() {
+        return mode;
+    }
+
+    /**
+     * Returns the position within the file at which this region starts.
+     *
+     * @return  The position of this region within the file
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * Returns the size of this region.
+     *
+     * @return  The size of this region, in bytes
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Tells whether or not this region is open.
+     *
+     * @return  <tt>true</tt> if, and only if, this region has not been closed
+     */
+    public boolean isOpen() {
+        return segments != null;
+    }
+
+    /**
+     * Retrieves this region's byte order.
+     *
+     * @return  This region's byte order
+     */
+    public ByteOrder order() {
+        return order;
+    }
+
+    /**
+     * Modifies this region's byte order.
+     *
+     * @param  bo
+     *         The new byte order
+     *
+     * @return  This region
+     */
+    public MappedRegion order(ByteOrder bo) {
+        MappedByteBuffer[] segs = segments();
+        for (MappedByteBuffer seg: segs)
+            seg.order(bo);
+        order = bo;
+        return this;
+    }
+
+    private MappedByteBuffer[] segments() {
+        MappedByteBuffer[] segs = segments;
+        if (segs == null)
+            throw new IllegalStateException("Region is closed");
+        return segs;
+    }
+
+    private void checkIndex(long index, long length) {
+        if (index < 0L || length > size - index)
+            throw new IndexOutOfBoundsException();
+    }
+
+    private static int segmentOffset(long index) {
+        return (int)(index & SEGMENT_MASK);
+    }
+
+    private static int segmentIndex(long index) {
+        return (int)(index >>> SEGMENT_SHIFT);
+    }
+
+    // -- Values that span two segments --
+
+    private long getSpanning(long index, int width) {
+        long x = 0L;
+        if (order == ByteOrder.BIG_ENDIAN) {
+            for (int i = 0; i < width; i++)
+                x = (x << 8) | (get(index + i) & 0xffL);
+        } else {
+            for (int i = width - 1; i >= 0; i--)
+                x = (x << 8) | (get(index + i) & 0xffL);
+        }
+        return x;
+    }
+
+    private void putSpanning(long index, int width, long x) {
+        if (order == ByteOrder.BIG_ENDIAN) {
+            for (int i = width - 1; i >= 0; i--) {
+                put(index + i, (byte)x);
+                x >>>= 8;
+            }
+        } else {
+            for (int i = 0; i < width; i++) {
+                put(index + i, (byte)x);
+                x >>>= 8;
+            }
+        }
+    }
+
+    // -- Single value access --
+
+    /**
+     * Reads the byte at the given index.
+     *
+     * @param  index
+     *         The index from which the byte will be read
+     *
+     * @return  The byte at the given index
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>index</tt> is negative or not smaller than the region's
+     *          size
+     * @throws  IllegalStateException
+     *          If this region is closed
+     */
+    public byte get(long index) {
+        checkIndex(index, 1);
+        return segments()[segmentIndex(index)].get(segmentOffset(index));
+    }
+
+    /**
+     * Writes the given byte into this region at the given index.
+     *
+     * @param  index
+     *         The index at which the byte will be written
+     *
+     * @param  b
+     *         The byte value to be written
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>index</tt> is negative or not smaller than the region's
+     *          size
+     * @throws  java.nio.ReadOnlyBufferException
+     *          If this region was mapped read-only
+     * @throws  IllegalStateException
+     *          If this region is closed
+     */
+    public MappedRegion put(long index, byte b) {
+        checkIndex(index, 1);
+        segments()[segmentIndex(index)].put(segmentOffset(index), b);
+        return this;
+    }
+
+    /**
+     * Reads the short value at the given index, composing two bytes according
+     * to the region's byte order.
+     *
+     * @param  index
+     *         The index from which the bytes will be read
+     *
+     * @return  The short value at the given index
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>index</tt> is negative or not smaller than the region's
+     *          size, minus one
+     * @throws  IllegalStateException
+     *          If this region is closed
+     */
+    public short getShort(long index) {
+        checkIndex(index, 2);
+        MappedByteBuffer seg = segments()[segmentIndex(index)];
+        int off = segmentOffset(index);
+        if (off <= seg.limit() - 2)
+            return seg.getShort(off);
+        return (short)getSpanning(index, 2);
+    }
+
+    /**
+     * Writes two bytes containing the given short value, in the region's byte
+     * order, into this region at the given index.
+     *
+     * @param  index
+     *         The index at which the bytes will be written
+     *
+     * @param  value
+     *         The short value to be written
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>index</tt> is negative or not smaller than the region's
+     *          size, minus one
+     * @throws  java.nio.ReadOnlyBufferException
+     *          If this region was mapped read-only
+     * @throws  IllegalStateException
+     *          If this region is closed
+     */
+    public MappedRegion putShort(long index, short value) {
+        checkIndex(index, 2);
+        MappedByteBuffer seg = segments()[segmentIndex(index)];
+        int off = segmentOffset(index);
+        if (off <= seg.limit() - 2) {
+            seg.putShort(off, value);
+        } else {
+            putSpanning(index, 2, value);
+        }
+        return this;
+    }
+
+    /**
+     * Reads the char value at the given index, composing two bytes according
+     * to the region's byte order.
+     *
+     * @param  index
+     *         The index from which the bytes will be read
+     *
+     * @return  The char value at the given index
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>index</tt> is negative or not smaller than the region's
+     *          size, minus one
+     * @throws  IllegalStateException
+     *          If this region is closed
+     */
+    public char getChar(long index) {
+        return (char)getShort(index);
+    }
+
+    /**
+     * Writes two bytes containing the given char value, in the region's byte
+     * order, into this region at the given index.
+     *
+     * @param  index
+     *         The index at which the bytes will be written
+     *
+     * @param  value
+     *         The char value to be written
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>index</tt> is negative or not smaller than the region's
+     *          size, minus one
+     * @throws  java.nio.ReadOnlyBufferException
+     *          If this region was mapped read-only
+     * @throws  IllegalStateException
+     *          If this region is closed
+     */
+    public MappedRegion putChar(long index, char value) {
+        return putShort(index, (short)value);
+    }
+
+    /**
+     * Reads the int value at the given index, composing four bytes according
+     * to the region's byte order.
+     *
+     * @param  index
+     *         The index from which the bytes will be read
+     *
+     * @return  The int value at the given index
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>index</tt> is negative or not smaller than the region's
+     *          size, minus three
+     * @throws  IllegalStateException
+     *          If this region is closed
+     */
+    public int getInt(long index) {
+        checkIndex(index, 4);
+        MappedByteBuffer seg = segments()[segmentIndex(index)];
+        int off = segmentOffset(index);
+        if (off <= seg.limit() - 4)
+            return seg.getInt(off);
+        return (int)getSpanning(index, 4);
+    }
+
+    /**
+     * Writes four bytes containing the given int value, in the region's byte
+     * order, into this region at the given index.
+     *
+     * @param  index
+     *         The index at which the bytes will be written
+     *
+     * @param  value
+     *         The int value to be written
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>index</tt> is negative or not smaller than the region's
+     *          size, minus three
+     * @throws  java.nio.ReadOnlyBufferException
+     *          If this region was mapped read-only
+     * @throws  IllegalStateException
+     *          If this region is closed
+     */
+    public MappedRegion putInt(long index, int value) {
+        checkIndex(index, 4);
+        MappedByteBuffer seg = segments()[segmentIndex(index)];
+        int off = segmentOffset(index);
+        if (off <= seg.limit() - 4) {
+            seg.putInt(off, value);
+        } else {
+            putSpanning(index, 4, value);
+        }
+        return this;
+    }
+
+    /**
+     * Reads the float value at the given index, composing four bytes according
+     * to the region's byte order.
+     *
+     * @param  index
+     *         The index from which the bytes will be read
+     *
+     * @return  The float value at the given index
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>index</tt> is negative or not smaller than the region's
+     *          size, minus three
+     * @throws  IllegalStateException
+     *          If this region is closed
+     */
+    public float getFloat(long index) {
+        return Float.intBitsToFloat(getInt(index));
+    }
+
+    /**
+     * Writes four bytes containing the given float value, in the region's byte
+     * order, into this region at the given index.
+     *
+     * @param  index
+     *         The index at which the bytes will be written
+     *
+     * @param  value
+     *         The float value to be written
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>index</tt> is negative or not smaller than the region's
+     *          size, minus three
+     * @throws  java.nio.ReadOnlyBufferException
+     *          If this region was mapped read-only
+     * @throws  IllegalStateException
+     *          If this region is closed
+     */
+    public MappedRegion putFloat(long index, float value) {
+        return putInt(index, Float.floatToRawIntBits(value));
+    }
+
+    /**
+     * Reads the long value at the given index, composing eight bytes according
+     * to the region's byte order.
+     *
+     * @param  index
+     *         The index from which the bytes will be read
+     *
+     * @return  The long value at the given index
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>index</tt> is negative or not smaller than the region's
+     *          size, minus seven
+     * @throws  IllegalStateException
+     *          If this region is closed
+     */
+    public long getLong(long index) {
+        checkIndex(index, 8);
+        MappedByteBuffer seg = segments()[segmentIndex(index)];
+        int off = segmentOffset(index);
+        if (off <= seg.limit() - 8)
+            return seg.getLong(off);
+        return getSpanning(index, 8);
+    }
+
+    /**
+     * Writes eight bytes containing the given long value, in the region's byte
+     * order, into this region at the given index.
+     *
+     * @param  index
+     *         The index at which the bytes will be written
+     *
+     * @param  value
+     *         The long value to be written
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>index</tt> is negative or not smaller than the region's
+     *          size, minus seven
+     * @throws  java.nio.ReadOnlyBufferException
+     *          If this region was mapped read-only
+     * @throws  IllegalStateException
+     *          If this region is closed
+     */
+    public MappedRegion putLong(long index, long value) {
+        checkIndex(index, 8);
+        MappedByteBuffer seg = segments()[segmentIndex(index)];
+        int off = segmentOffset(index);
+        if (off <= seg.limit() - 8) {
+            seg.putLong(off, value);
+        } else {
+            putSpanning(index, 8, value);
+        }
+        return this;
+    }
+
+    /**
+     * Reads the double value at the given index, composing eight bytes
+     * according to the region's byte order.
+     *
+     * @param  index
+     *         The index from which the bytes will be read
+     *
+     * @return  The double value at the given index
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>index</tt> is negative or not smaller than the region's
+     *          size, minus seven
+     * @throws  IllegalStateException
+     *          If this region is closed
+     */
+    public double getDouble(long index) {
+        return Double.longBitsToDouble(getLong(index));
+    }
+
+    /**
+     * Writes eight bytes containing the given double value, in the region's
+     * byte order, into this region at the given index.
+     *
+     * @param  index
+     *         The index at which the bytes will be written
+     *
+     * @param  value
+     *         The double value to be written
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>index</tt> is negative or not smaller than the region's
+     *          size, minus seven
+     * @throws  java.nio.ReadOnlyBufferException
+     *          If this region was mapped read-only
+     * @throws  IllegalStateException
+     *          If this region is closed
+     */
+    public MappedRegion putDouble(long index, double value) {
+        return putLong(index, Double.doubleToRawLongBits(value));
+    }
+
+    // -- Bulk access --
+
+    /**
+     * Transfers elements between this region, starting at the given index,
+     * and the given array. Each run of whole elements within a segment is
+     * transferred by the absolute bulk methods of the segment; an element
+     * that spans two segments is transferred by a single value access.
+     * Bytes are copied as they are; only wider elements are composed in the
+     * region's byte order.
+     *
+     * @param  array
+     *         A primitive array
+     * @param  width
+     *         The size in bytes of an element of the array
+     * @param  put
+     *         true to transfer from the array to this region
+     */
+    private void transfer(long index, Object array, int offset, int length,
+                          int arrayLength, int width, boolean put)
+    {
+        if ((offset | length | (offset + length) | (arrayLength - (offset + length))) < 0)
+            throw new IndexOutOfBoundsException();
+        checkIndex(index, (long)length * width);
+        MappedByteBuffer[] segs = segments();
+        while (length > 0) {
+            MappedByteBuffer seg = segs[segmentIndex(index)];
+            int off = segmentOffset(index);
+            int n = Math.min(length, (seg.limit() - off) / width);
+            if (n == 0) {
+                // element spans two segments
+                transferOne(index, array, offset, put);
+                n = 1;
+            } else {
+                transferRun(seg, off, array, offset, n, put);
+            }
+            index += (long)n * width;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    private static void transferRun(ByteBuffer bb, int index, Object array,
+                                    int offset, int n, boolean put)
+    {
+        if (array instanceof byte[]) {
+            if (put) bb.put(index, (byte[])array, offset, n);
+            else bb.get(index, (byte[])array, offset, n);
+        } else if (array instanceof short[]) {
+            if (put) bb.put(index, (short[])array, offset, n);
+            else bb.get(index, (short[])array, offset, n);
+        } else if (array instanceof char[]) {
+            if (put) bb.put(index, (char[])array, offset, n);
+            else bb.get(index, (char[])array, offset, n);
+        } else if (array instanceof int[]) {
+            if (put) bb.put(index, (int[])array, offset, n);
+            else bb.get(index, (int[])array, offset, n);
+        } else if (array instanceof float[]) {
+            if (put) bb.put(index, (float[])array, offset, n);
+            else bb.get(index, (float[])array, offset, n);
+        } else if (array instanceof long[]) {
+            if (put) bb.put(index, (long[])array, offset, n);
+            else bb.get(index, (long[])array, offset, n);
+        } else if (array instanceof double[]) {
+            if (put) bb.put(index, (double[])array, offset, n);
+            else bb.get(index, (double[])array, offset, n);
+        } else {
+            throw new AssertionError("Should not get here");
+        }
+    }
+
+    private void transferOne(long index, Object array, int i, boolean put) {
+        if (array instanceof short[]) {
+            if (put) putShort(index, ((short[])array)[i]);
+            else ((short[])array)[i] = getShort(index);
+        } else if (array instanceof char[]) {
+            if (put) putChar(index, ((char[])array)[i]);
+            else ((char[])array)[i] = getChar(index);
+        } else if (array instanceof int[]) {
+            if (put) putInt(index, ((int[])array)[i]);
+            else ((int[])array)[i] = getInt(index);
+        } else if (array instanceof float[]) {
+            if (put) putFloat(index, ((float[])array)[i]);
+            else ((float[])array)[i] = getFloat(index);
+        } else if (array instanceof long[]) {
+            if (put) putLong(index, ((long[])array)[i]);
+            else ((long[])array)[i] = getLong(index);
+        } else if (array instanceof double[]) {
+            if (put) putDouble(index, ((double[])array)[i]);
+            else ((double[])array)[i] = getDouble(index);
+        } else {
+            throw new AssertionError("Should not get here");
+        }
+    }
+
+    /**
+     * Transfers bytes from this region, starting at the given index, into the
+     * given array.
+     *
+     * @param  index
+     *         The index in this region of the first byte to be read
+     *
+     * @param  dst
+     *         The array into which bytes are to be written
+     *
+     * @param  offset
+     *         The offset within the array of the first byte to be written
+     *
+     * @param  length
+     *         The number of bytes to be transferred
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>offset</tt> and <tt>length</tt>
+     *          parameters do not hold, or there are fewer than <tt>length</tt>
+     *          bytes in this region starting at <tt>index</tt>
+     * @throws  IllegalStateException
+     *          If this region is closed
+     */
+    public MappedRegion get(long index, byte[] dst, int offset, int length) {
+        transfer(index, dst, offset, length, dst.length, 1, false);
+        return this;
+    }
+
+    /**
+     * Transfers bytes from the given array into this region, starting at the
+     * given index.
+     *
+     * @param  index
+     *         The index in this region at which the first byte is to be
+     *         written
+     *
+     * @param  src
+     *         The array from which bytes are to be read
+     *
+     * @param  offset
+     *         The offset within the array of the first byte to be read
+     *
+     * @param  length
+     *         The number of bytes to be transferred
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the preconditions on the <tt>offset</tt> and <tt>length</tt>
+     *          parameters do not hold, or there are fewer than <tt>length</tt>
+     *          bytes in this region starting at <tt>index</tt>
+     * @throws  java.nio.ReadOnlyBufferException
+     *          If this region was mapped read-only
+     * @throws  IllegalStateException
+     *          If this region is closed
+     */
+    public MappedRegion put(long index, byte[] src, int offset, int length) {
+        transfer(index, src, offset, length, src.length, 1, true);
+        return this;
+    }
+
+    /**
+     * Transfers short values from this region, starting at the given index,
+     * into the given array, composing each value according to the region's
+     * byte order. This method behaves as if by the {@link
+     * #get(long,byte[],int,int) get} method except that each element is two
+     * bytes.
+     *
+     * @param  index
+     *         The index in this region of the first byte to be read
+     * @param  dst
+     *         The array into which values are to be written
+     * @param  offset
+     *         The offset within the array of the first value to be written
+     * @param  length
+     *         The number of values to be transferred
+     *
+     * @return  This region
+     */
+    public MappedRegion get(long index, short[] dst, int offset, int length) {
+        transfer(index, dst, offset, length, dst.length, 2, false);
+        return this;
+    }
+
+    /**
+     * Transfers short values from the given array into this region, starting
+     * at the given index, writing each value in the region's byte order. This
+     * method behaves as if by the {@link #put(long,byte[],int,int) put} method
+     * except that each element is two bytes.
+     *
+     * @param  index
+     *         The index in this region at which the first byte is to be
+     *         written
+     * @param  src
+     *         The array from which values are to be read
+     * @param  offset
+     *         The offset within the array of the first value to be read
+     * @param  length
+     *         The number of values to be transferred
+     *
+     * @return  This region
+     */
+    public MappedRegion put(long index, short[] src, int offset, int length) {
+        transfer(index, src, offset, length, src.length, 2, true);
+        return this;
+    }
+
+    /**
+     * Transfers char values from this region, starting at the given index,
+     * into the given array, composing each value according to the region's
+     * byte order. This method behaves as if by the {@link
+     * #get(long,byte[],int,int) get} method except that each element is two
+     * bytes.
+     *
+     * @param  index
+     *         The index in this region of the first byte to be read
+     * @param  dst
+     *         The array into which values are to be written
+     * @param  offset
+     *         The offset within the array of the first value to be written
+     * @param  length
+     *         The number of values to be transferred
+     *
+     * @return  This region
+     */
+    public MappedRegion get(long index, char[] dst, int offset, int length) {
+        transfer(index, dst, offset, length, dst.length, 2, false);
+        return this;
+    }
+
+    /**
+     * Transfers char values from the given array into this region, starting
+     * at the given index, writing each value in the region's byte order. This
+     * method behaves as if by the {@link #put(long,byte[],int,int) put} method
+     * except that each element is two bytes.
+     *
+     * @param  index
+     *         The index in this region at which the first byte is to be
+     *         written
+     * @param  src
+     *         The array from which values are to be read
+     * @param  offset
+     *         The offset within the array of the first value to be read
+     * @param  length
+     *         The number of values to be transferred
+     *
+     * @return  This region
+     */
+    public MappedRegion put(long index, char[] src, int offset, int length) {
+        transfer(index, src, offset, length, src.length, 2, true);
+        return this;
+    }
+
+    /**
+     * Transfers int values from this region, starting at the given index,
+     * into the given array, composing each value according to the region's
+     * byte order. This method behaves as if by the {@link
+     * #get(long,byte[],int,int) get} method except that each element is four
+     * bytes.
+     *
+     * @param  index
+     *         The index in this region of the first byte to be read
+     * @param  dst
+     *         The array into which values are to be written
+     * @param  offset
+     *         The offset within the array of the first value to be written
+     * @param  length
+     *         The number of values to be transferred
+     *
+     * @return  This region
+     */
+    public MappedRegion get(long index, int[] dst, int offset, int length) {
+        transfer(index, dst, offset, length, dst.length, 4, false);
+        return this;
+    }
+
+    /**
+     * Transfers int values from the given array into this region, starting
+     * at the given index, writing each value in the region's byte order. This
+     * method behaves as if by the {@link #put(long,byte[],int,int) put} method
+     * except that each element is four bytes.
+     *
+     * @param  index
+     *         The index in this region at which the first byte is to be
+     *         written
+     * @param  src
+     *         The array from which values are to be read
+     * @param  offset
+     *         The offset within the array of the first value to be read
+     * @param  length
+     *         The number of values to be transferred
+     *
+     * @return  This region
+     */
+    public MappedRegion put(long index, int[] src, int offset, int length) {
+        transfer(index, src, offset, length, src.length, 4, true);
+        return this;
+    }
+
+    /**
+     * Transfers float values from this region, starting at the given index,
+     * into the given array, composing each value according to the region's
+     * byte order. This method behaves as if by the {@link
+     * #get(long,byte[],int,int) get} method except that each element is four
+     * bytes.
+     *
+     * @param  index
+     *         The index in this region of the first byte to be read
+     * @param  dst
+     *         The array into which values are to be written
+     * @param  offset
+     *         The offset within the array of the first value to be written
+     * @param  length
+     *         The number of values to be transferred
+     *
+     * @return  This region
+     */
+    public MappedRegion get(long index, float[] dst, int offset, int length) {
+        transfer(index, dst, offset, length, dst.length, 4, false);
+        return this;
+    }
+
+    /**
+     * Transfers float values from the given array into this region, starting
+     * at the given index, writing each value in the region's byte order. This
+     * method behaves as if by the {@link #put(long,byte[],int,int) put} method
+     * except that each element is four bytes.
+     *
+     * @param  index
+     *         The index in this region at which the first byte is to be
+     *         written
+     * @param  src
+     *         The array from which values are to be read
+     * @param  offset
+     *         The offset within the array of the first value to be read
+     * @param  length
+     *         The number of values to be transferred
+     *
+     * @return  This region
+     */
+    public MappedRegion put(long index, float[] src, int offset, int length) {
+        transfer(index, src, offset, length, src.length, 4, true);
+        return this;
+    }
+
+    /**
+     * Transfers long values from this region, starting at the given index,
+     * into the given array, composing each value according to the region's
+     * byte order. This method behaves as if by the {@link
+     * #get(long,byte[],int,int) get} method except that each element is
+     * eight bytes.
+     *
+     * @param  index
+     *         The index in this region of the first byte to be read
+     * @param  dst
+     *         The array into which values are to be written
+     * @param  offset
+     *         The offset within the array of the first value to be written
+     * @param  length
+     *         The number of values to be transferred
+     *
+     * @return  This region
+     */
+    public MappedRegion get(long index, long[] dst, int offset, int length) {
+        transfer(index, dst, offset, length, dst.length, 8, false);
+        return this;
+    }
+
+    /**
+     * Transfers long values from the given array into this region, starting
+     * at the given index, writing each value in the region's byte order. This
+     * method behaves as if by the {@link #put(long,byte[],int,int) put} method
+     * except that each element is eight bytes.
+     *
+     * @param  index
+     *         The index in this region at which the first byte is to be
+     *         written
+     * @param  src
+     *         The array from which values are to be read
+     * @param  offset
+     *         The offset within the array of the first value to be read
+     * @param  length
+     *         The number of values to be transferred
+     *
+     * @return  This region
+     */
+    public MappedRegion put(long index, long[] src, int offset, int length) {
+        transfer(index, src, offset, length, src.length, 8, true);
+        return this;
+    }
+
+    /**
+     * Transfers double values from this region, starting at the given index,
+     * into the given array, composing each value according to the region's
+     * byte order. This method behaves as if by the {@link
+     * #get(long,byte[],int,int) get} method except that each element is
+     * eight bytes.
+     *
+     * @param  index
+     *         The index in this region of the first byte to be read
+     * @param  dst
+     *         The array into which values are to be written
+     * @param  offset
+     *         The offset within the array of the first value to be written
+     * @param  length
+     *         The number of values to be transferred
+     *
+     * @return  This region
+     */
+    public MappedRegion get(long index, double[] dst, int offset, int length) {
+        transfer(index, dst, offset, length, dst.length, 8, false);
+        return this;
+    }
+
+    /**
+     * Transfers double values from the given array into this region, starting
+     * at the given index, writing each value in the region's byte order. This
+     * method behaves as if by the {@link #put(long,byte[],int,int) put} method
+     * except that each element is eight bytes.
+     *
+     * @param  index
+     *         The index in this region at which the first byte is to be
+     *         written
+     * @param  src
+     *         The array from which values are to be read
+     * @param  offset
+     *         The offset within the array of the first value to be read
+     * @param  length
+     *         The number of values to be transferred
+     *
+     * @return  This region
+     */
+    public MappedRegion put(long index, double[] src, int offset, int length) {
+        transfer(index, src, offset, length, src.length, 8, true);
+        return this;
+    }
+
+    // -- Mapping operations --
+
+    /**
+     * Loads this region's content into physical memory.
+     *
+     * @return  This region
+     *
+     * @throws  IllegalStateException
+     *          If this region is closed
+     *
+     * @see MappedByteBuffer#load
+     */
+    public MappedRegion load() {
+        for (MappedByteBuffer seg: segments())
+            seg.load();
+        return this;
+    }
+
+    /**
+     * Forces any changes made to this region's content to be written to the
+     * storage device containing the mapped file.
+     *
+     * @return  This region
+     *
+     * @throws  IllegalStateException
+     *          If this region is closed
+     *
+     * @see MappedByteBuffer#force()
+     */
+    public MappedRegion force() {
+        return force(0L, size);
+    }
+
+    /**
+     * Forces any changes made to a range of this region's content to be
+     * written to the storage device containing the mapped file. Only the
+     * pages containing the bytes in the range are written.
+     *
+     * @param  index
+     *         The index of the first byte of the range
+     *
+     * @param  length
+     *         The length of the range in bytes
+     *
+     * @return  This region
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>index</tt> or <tt>length</tt> is negative, or there are
+     *          fewer than <tt>length</tt> bytes in this region starting at
+     *          <tt>index</tt>
+     * @throws  IllegalStateException
+     *          If this region is closed
+     *
+     * @see MappedByteBuffer#force(int,int)
+     */
+    public MappedRegion force(long index, long length) {
+        if (length < 0L)
+            throw new IndexOutOfBoundsException();
+        checkIndex(index, length);
+        MappedByteBuffer[] segs = segments();
+        while (length > 0L) {
+            MappedByteBuffer seg = segs[segmentIndex(index)];
+            int off = segmentOffset(index);
+            int n = (int)Math.min(length, seg.limit() - off);
+            seg.force(off, n);
+            index += n;
+            length -= n;
+        }
+        return this;
+    }
+
+    /**
+     * Closes this region, unmapping the file.
+     *
+     * <p> Changes made to a region mapped in read/write mode are not lost
+     * when the region is closed but, as with a mapped byte buffer, the time
+     * at which they are written to the file is unspecified unless the {@link
+     * #force() force} method is invoked first.
+     *
+     * <p> If this region is already closed then invoking this method has no
+     * effect.
+     */
+    @Override
+    public void close() {
+        MappedByteBuffer[] segs;
+        synchronized (this) {
+            segs = segments;
+            if (segs == null)
+                return;
+            segments = null;
+        }
+        unmap(segs);
+    }
+}
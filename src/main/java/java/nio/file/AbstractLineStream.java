@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.nio.file;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Base implementation of {@link LineStream}. Subclasses implement the
+ * {@link #readLine} and {@link #implClose} methods.
+ */
+
+abstract class AbstractLineStream implements LineStream {
+    private boolean closed;
+    private boolean iteratorReturned;
+
+    AbstractLineStream() { }
+
+    /**
+     * Reads the next line, returning {@code null} at the end of the stream.
+     */
+    abstract String readLine() throws IOException;
+
+    /**
+     * Releases the resources associated with this stream. Invoked at most
+     * once.
+     */
+    abstract void implClose() throws IOException;
+
+    final boolean isOpen() {
+        return !closed;
+    }
+
+    @Override
+    public final void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            implClose();
+        }
+    }
+
+    @Override
+    public final Iterator<String> iterator() {
+        if (closed)
+            throw new IllegalStateException("Line stream is closed");
+        if (iteratorReturned)
+            throw new IllegalStateException("Iterator already obtained");
+        iteratorReturned = true;
+        return new Iterator<String>() {
+            private String nextLine;
+            private boolean atEof;
+
+            @Override
+            public boolean hasNext() {
+                if (nextLine == null && !atEof) {
+                    if (closed) {
+                        atEof = true;
+                    } else {
+                        try {
+                            nextLine = readLine();
+                        } catch (IOException x) {
+                            throw new UncheckedIOException(x);
+                        }
+                        if (nextLine == null)
+                            atEof = true;
+                    }
+                }
+                return nextLine != null;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                String line = nextLine;
+                nextLine = null;
+                return line;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * A {@code LineStream} that reads lines from a {@code BufferedReader}.
+     */
+    static class ReaderLineStream extends AbstractLineStream {
+        private final BufferedReader reader;
+
+        ReaderLineStream(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        String readLine() throws IOException {
+            return reader.readLine();
+        }
+
+        @Override
+        void implClose() throws IOException {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.nio.file;
+
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * A file encountered during a file tree walk by the {@link Files#walk walk}
+ * or {@link Files#find find} methods.
+ *
+ * <p> The basic file attributes of the file are read once, when the file is
+ * encountered, and are retained by the entry. Where the file system provider
+ * caches attributes when iterating over a directory then the cached
+ * attributes are used so that no additional I/O is required to read them.
+ * The attributes are therefore a snapshot and may not reflect the current
+ * state of the file.
+ *
+ * @since 1.7
+ */
+
+public interface FileTreeEntry {
+    /**
+     * Returns the file.
+     *
+     * @return  the file, resolved against the starting file of the walk
+     */
+    Path file();
+
+    /**
+     * Returns the basic file attributes of the file.
+     *
+     * <p> If symbolic links are followed, and the attributes of the target
+     * of a link cannot be read, then the attributes of the link are returned.
+     *
+     * @return  the basic file attributes
+     */
+    BasicFileAttributes attributes();
+
+    /**
+     * Returns the depth of the file relative to the starting file. The
+     * starting file has a depth of {@code 0}.
+     *
+     * @return  the depth of the file
+     */
+    int depth();
+}
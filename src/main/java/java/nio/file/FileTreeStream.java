@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.nio.file;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.nio.file.FileTreeWalker.Event;
+
+/**
+ * A {@code DirectoryStream} over the files in a file tree. The tree is walked
+ * lazily, in depth-first order, as the stream's iterator is consumed; at
+ * most one directory is open per level of the walk at any given time.
+ *
+ * @see Files#walk
+ * @see Files#find
+ */
+
+class FileTreeStream implements DirectoryStream<FileTreeEntry> {
+    private final FileTreeWalker walker;
+    private final DirectoryStream.Filter<? super FileTreeEntry> filter;
+    private final Object closeLock = new Object();
+    private final Event start;
+    private boolean iteratorReturned;
+
+    /**
+     * Creates a new stream to walk the file tree rooted at the given file.
+     * The starting file is visited by this constructor so that an I/O error
+     * reading the attributes of the starting file is thrown here, rather than
+     * by the iterator.
+     *
+     * @throws  IllegalArgumentException
+     *          if {@code maxDepth} is negative
+     * @throws  IOException
+     *          if an I/O error occurs when visiting the starting file
+     * @throws  SecurityException
+     *          if the security manager denies access to the starting file
+     * @throws  NullPointerException
+     *          if {@code start} or {@code options} is {@code null} or
+     *          the options array contains a {@code null} element
+     */
+    FileTreeStream(Path start,
+                   int maxDepth,
+                   Set<FileVisitOption> options,
+                   DirectoryStream.Filter<? super FileTreeEntry> filter)
+        throws IOException
+    {
+        this.walker = new FileTreeWalker(options, maxDepth);
+        this.filter = filter;
+        Event ev = walker.walk(start);
+        IOException ioe = ev.ioeException();
+        if (ioe != null) {
+            walker.close();
+            throw ioe;
+        }
+        this.start = ev;
+    }
+
+    @Override
+    public void close() {
+        synchronized (closeLock) {
+            walker.close();
+        }
+    }
+
+    @Override
+    public Iterator<FileTreeEntry> iterator() {
+        synchronized (closeLock) {
+            if (!walker.isOpen())
+                throw new IllegalStateException("Directory stream is closed");
+            if (iteratorReturned)
+                throw new IllegalStateException("Iterator already obtained");
+            iteratorReturned = true;
+            return new WalkIterator();
+        }
+    }
+
+    /**
+     * Returns {@code true} if the given entry is accepted by the filter.
+     */
+    private boolean accept(Event ev) {
+        if (filter == null)
+            return true;
+        try {
+            return filter.accept(ev);
+        } catch (IOException ioe) {
+            throw new DirectoryIteratorException(ioe);
+        }
+    }
+
+    /**
+     * Iterator implementation that reads ahead by one entry, so that the
+     * {@code next} method will not fail after {@code hasNext} has returned
+     * {@code true}.
+     */
+    private class WalkIterator implements Iterator<FileTreeEntry> {
+        // the entry to return from the next invocation of next, or null
+        private Event nextEvent;
+        // true when the starting file is still to be returned
+        private boolean atStart = true;
+        // true when the walk is done
+        private boolean atEof;
+
+        WalkIterator() { }
+
+        private Event fetchNextEvent() {
+            Event ev;
+            synchronized (closeLock) {
+                if (!walker.isOpen())
+                    return null;
+                if (atStart) {
+                    atStart = false;
+                    ev = start;
+                } else {
+                    ev = walker.next();
+                }
+            }
+            while (ev != null) {
+                IOException ioe = ev.ioeException();
+                if (ioe != null)
+                    throw new DirectoryIteratorException(ioe);
+
+                // END_DIRECTORY events are not entries
+                if (ev.type() != FileTreeWalker.EventType.END_DIRECTORY &&
+                    accept(ev))
+                    return ev;
+
+                synchronized (closeLock) {
+                    if (!walker.isOpen())
+                        return null;
+                    ev = walker.next();
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public synchronized boolean hasNext() {
+            if (nextEvent == null && !atEof) {
+                nextEvent = fetchNextEvent();
+                if (nextEvent == null)
+                    atEof = true;
+            }
+            return nextEvent != null;
+        }
+
+        @Override
+        public synchronized FileTreeEntry next() {
+            if (nextEvent == null && !atEof)
+                hasNext();
+            if (nextEvent == null)
+                throw new NoSuchElementException();
+            Event result = nextEvent;
+            nextEvent = null;
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -41,6 +41,7 @@ import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.nio.charset.Charset;
@@ -2597,9 +2598,59 @@ public final class Files {
                                     FileVisitor<? super Path> visitor)
         throws IOException
     {
-        if (maxDepth < 0)
-            throw new IllegalArgumentException("'maxDepth' is negative");
-        new FileTreeWalker(options, visitor, maxDepth).walk(start);
+        /**
+         * Create a FileTreeWalker to walk the file tree, invoking the visitor
+         * for each event.
+         */
+        try (FileTreeWalker walker = new FileTreeWalker(options, maxDepth)) {
+            FileTreeWalker.Event ev = walker.walk(start);
+            do {
+                FileVisitResult result;
+                switch (ev.type()) {
+                    case ENTRY :
+                        IOException ioe = ev.ioeException();
+                        if (ioe == null) {
+                            assert ev.attributes() != null;
+                            result = visitor.visitFile(ev.file(), ev.attributes());
+                        } else {
+                            result = visitor.visitFileFailed(ev.file(), ioe);
+                        }
+                        break;
+
+                    case START_DIRECTORY :
+                        result = visitor.preVisitDirectory(ev.file(), ev.attributes());
+
+                        // if SKIP_SIBLINGS and SKIP_SUBTREE is returned then
+                        // there shouldn't be any more events for the current
+                        // directory.
+                        if (result == FileVisitResult.SKIP_SUBTREE ||
+                            result == FileVisitResult.SKIP_SIBLINGS)
+                            walker.pop();
+                        break;
+
+                    case END_DIRECTORY :
+                        // the directory has been popped, so SKIP_SIBLINGS
+                        // skips the remaining entries of its parent
+                        result = visitor.postVisitDirectory(ev.file(), ev.ioeException());
+                        break;
+
+                    default :
+                        throw new AssertionError("Should not get here");
+                }
+
+                if (result == null)
+                    throw new NullPointerException("FileVisitor returned null");
+                if (result != FileVisitResult.CONTINUE) {
+                    if (result == FileVisitResult.TERMINATE) {
+                        break;
+                    } else if (result == FileVisitResult.SKIP_SIBLINGS) {
+                        walker.skipRemainingSiblings();
+                    }
+                }
+                ev = walker.next();
+            } while (ev != null);
+        }
+
         return start;
     }
 
@@ -2639,6 +2690,218 @@ public final class Files {
     }
 
 
+    /**
+     * Walks a file tree, visiting the subdirectories of each directory
+     * concurrently.
+     *
+     * <p> This method works in a similar manner to the {@link
+     * #walkFileTree(Path,Set,int,FileVisitor) walkFileTree} method, except
+     * that the file tree is walked by tasks executed by the given {@link
+     * ForkJoinPool}: the entries of each
+     * directory are read, the files in the directory are visited, and a task
+     * is forked for each subdirectory. The given {@link FileVisitor} may
+     * therefore be invoked by several threads concurrently and must be
+     * thread-safe. The {@link FileVisitor#preVisitDirectory preVisitDirectory}
+     * method is invoked for a directory before any of its entries are visited,
+     * and the {@link FileVisitor#postVisitDirectory postVisitDirectory} method
+     * is invoked after all of its entries, and their descendants, have been
+     * visited. No other ordering between visits is defined.
+     *
+     * <p> A directory is opened, its entries are read, and it is closed again
+     * before {@code preVisitDirectory} is invoked for it and its entries are
+     * visited. If the directory cannot be opened then {@code visitFileFailed}
+     * is invoked with the I/O exception, as by {@code walkFileTree}; if a
+     * security manager denies access to the directory then {@code
+     * visitFileFailed} is invoked with an {@link AccessDeniedException}
+     * whose cause is the {@code SecurityException}. The {@code
+     * maxOpenDirectories} parameter is the maximum number of directories that
+     * this method has open at any time, and may be used to bound the number
+     * of file handles consumed by the walk independently of the parallelism
+     * of the pool.
+     *
+     * <p> Cycle detection when following links, the handling of other I/O
+     * errors and of security exceptions reading file attributes, and the
+     * {@code maxDepth} parameter are as specified by {@code walkFileTree}.
+     * When a visit method returns {@link FileVisitResult#TERMINATE
+     * TERMINATE}, or throws, then no further visits are started, but visits
+     * that are in progress in other threads are allowed to complete.
+     * When a visit method returns {@link FileVisitResult#SKIP_SIBLINGS
+     * SKIP_SIBLINGS} then the visits to siblings that have not yet started are
+     * skipped; siblings that are directories may already have been visited
+     * concurrently.
+     *
+     * @param   start
+     *          the starting file
+     * @param   options
+     *          options to configure the traversal
+     * @param   maxDepth
+     *          the maximum number of directory levels to visit
+     * @param   visitor
+     *          the file visitor to invoke for each file
+     * @param   pool
+     *          the pool to execute the walk
+     * @param   maxOpenDirectories
+     *          the maximum number of directories open at any time
+     *
+     * @return  the starting file
+     *
+     * @throws  IllegalArgumentException
+     *          if the {@code maxDepth} parameter is negative, or the
+     *          {@code maxOpenDirectories} parameter is less than {@code 1}
+     * @throws  SecurityException
+     *          If the security manager denies access to the starting file.
+     *          In the case of the default provider, the {@link
+     *          SecurityManager#checkRead(String) checkRead} method is invoked
+     *          to check read access to the directory.
+     * @throws  IOException
+     *          if an I/O error is thrown by a visitor method, or the walk is
+     *          interrupted while waiting to open a directory
+     *
+     * @since 1.7
+     */
+    public static Path walkFileTree(Path start,
+                                    Set<FileVisitOption> options,
+                                    int maxDepth,
+                                    FileVisitor<? super Path> visitor,
+                                    ForkJoinPool pool,
+                                    int maxOpenDirectories)
+        throws IOException
+    {
+        Objects.requireNonNull(start);
+        Objects.requireNonNull(visitor);
+        Objects.requireNonNull(pool);
+        new ParallelFileTreeWalker(options, visitor, maxDepth, pool,
+                                   maxOpenDirectories).walk(start);
+        return start;
+    }
+
+    /**
+     * Opens a file tree for lazy, depth-first iteration. The elements
+     * returned by the stream's iterator are of type {@link FileTreeEntry},
+     * each representing a file in the tree and its basic file attributes.
+     * The first element is the starting file.
+     *
+     * <p> The file tree is walked lazily as the iterator is consumed, so that
+     * walking a large tree does not require the files in the tree to be
+     * accumulated in memory. Where the file system provider caches the
+     * attributes of files when iterating over a directory then the attributes
+     * are obtained without additional I/O. The returned stream has at most one
+     * directory open for each level of the tree being walked; closing the
+     * stream closes all open directories. Failure to close the stream may
+     * result in a resource leak. The iteration order of entries in a
+     * directory is not specified.
+     *
+     * <p> Symbolic links, cycle detection, and the {@code maxDepth} parameter
+     * are as specified by the {@link #walkFileTree(Path,Set,int,FileVisitor)
+     * walkFileTree} method. If an I/O error occurs when opening or iterating
+     * over a directory in the tree, or when reading the attributes of a file
+     * in the tree, then the iterator's {@code hasNext} or {@code next} method
+     * throws {@link DirectoryIteratorException} with the {@code IOException}
+     * as the cause. When a security manager is installed and it denies access
+     * to a file (or directory) other than the starting file then it is
+     * ignored.
+     *
+     * <p> <b>Usage Example:</b>
+     * Suppose we want to compute the total size of the regular files in a
+     * file tree:
+     * <pre>
+     *     long total = 0L;
+     *     try (DirectoryStream&lt;FileTreeEntry&gt; stream = Files.walk(top, Integer.MAX_VALUE)) {
+     *         for (FileTreeEntry entry: stream) {
+     *             if (entry.attributes().isRegularFile())
+     *                 total += entry.attributes().size();
+     *         }
+     *     }
+     * </pre>
+     *
+     * @param   start
+     *          the starting file
+     * @param   maxDepth
+     *          the maximum number of directory levels to visit
+     * @param   options
+     *          options to configure the traversal
+     *
+     * @return  a new and open {@code DirectoryStream} over the file tree
+     *
+     * @throws  IllegalArgumentException
+     *          if the {@code maxDepth} parameter is negative
+     * @throws  SecurityException
+     *          If the security manager denies access to the starting file.
+     *          In the case of the default provider, the {@link
+     *          SecurityManager#checkRead(String) checkRead} method is invoked
+     *          to check read access to the directory.
+     * @throws  IOException
+     *          if an I/O error is thrown when accessing the starting file
+     *
+     * @since 1.7
+     */
+    public static DirectoryStream<FileTreeEntry> walk(Path start,
+                                                      int maxDepth,
+                                                      FileVisitOption... options)
+        throws IOException
+    {
+        return new FileTreeStream(start, maxDepth, toSet(options), null);
+    }
+
+    /**
+     * Opens a file tree for lazy iteration over the files that are accepted
+     * by the given filter.
+     *
+     * <p> This method walks the file tree in exactly the manner specified by
+     * the {@link #walk walk} method. For each file encountered, the given
+     * filter is invoked with the {@link FileTreeEntry} for the file, and its
+     * basic file attributes, so that the filter can select files by their
+     * attributes without additional I/O. If the filter throws an {@code
+     * IOException} then the iterator's {@code hasNext} or {@code next} method
+     * throws {@link DirectoryIteratorException} with the {@code IOException}
+     * as the cause.
+     *
+     * @param   start
+     *          the starting file
+     * @param   maxDepth
+     *          the maximum number of directory levels to search
+     * @param   filter
+     *          the filter to select the files to return
+     * @param   options
+     *          options to configure the traversal
+     *
+     * @return  a new and open {@code DirectoryStream} over the accepted files
+     *
+     * @throws  IllegalArgumentException
+     *          if the {@code maxDepth} parameter is negative
+     * @throws  SecurityException
+     *          If the security manager denies access to the starting file.
+     *          In the case of the default provider, the {@link
+     *          SecurityManager#checkRead(String) checkRead} method is invoked
+     *          to check read access to the directory.
+     * @throws  IOException
+     *          if an I/O error is thrown when accessing the starting file
+     *
+     * @see #walk
+     * @since 1.7
+     */
+    public static DirectoryStream<FileTreeEntry> find(Path start,
+                                                      int maxDepth,
+                                                      DirectoryStream.Filter<? super FileTreeEntry> filter,
+                                                      FileVisitOption... options)
+        throws IOException
+    {
+        Objects.requireNonNull(filter);
+        return new FileTreeStream(start, maxDepth, toSet(options), filter);
+    }
+
+    /**
+     * Returns the given options as a set.
+     */
+    private static Set<FileVisitOption> toSet(FileVisitOption... options) {
+        Set<FileVisitOption> set = EnumSet.noneOf(FileVisitOption.class);
+        for (FileVisitOption option: options) {
+            set.add(Objects.requireNonNull(option));
+        }
+        return set;
+    }
+
+
     // -- Utility methods for simple usages --
 
     // buffer size used for reading and writing
@@ -3042,6 +3305,103 @@ public final class Files {
         }
     }
 
+    /**
+     * Opens a file for reading line by line. Bytes from the file are decoded
+     * into characters using the specified charset. Unlike {@link
+     * #readAllLines readAllLines}, the lines are read lazily as the stream's
+     * iterator is consumed, so that this method may be used to read files of
+     * any size. Line terminators are as specified by {@link LineStream}.
+     *
+     * <p> When the charset is UTF-8, US-ASCII or ISO-8859-1, and the file is
+     * large enough for it to be worthwhile, then the file may be
+     * memory-mapped and line terminators located directly in the mapped
+     * bytes, avoiding the copying and decoding of the file through a {@code
+     * Reader}. The file is mapped in windows so files larger than {@code
+     * Integer.MAX_VALUE} bytes are supported.
+     *
+     * <p> If a malformed or unmappable byte sequence is read then the
+     * iterator's {@code hasNext} or {@code next} method throws {@link
+     * java.io.UncheckedIOException} with the {@link
+     * java.nio.charset.CharacterCodingException CharacterCodingException} as
+     * the cause.
+     *
+     * @param   path
+     *          the path to the file
+     * @param   cs
+     *          the charset to use for decoding
+     *
+     * @return  a new and open line stream
+     *
+     * @throws  IOException
+     *          if an I/O error occurs opening the file
+     * @throws  SecurityException
+     *          In the case of the default provider, and a security manager is
+     *          installed, the {@link SecurityManager#checkRead(String) checkRead}
+     *          method is invoked to check read access to the file.
+     *
+     * @see #readAllLines
+     * @since 1.7
+     */
+    public static LineStream lines(Path path, Charset cs) throws IOException {
+        if (MappedLineStream.isSupported(cs)) {
+            LineStream stream = MappedLineStream.open(path, cs);
+            if (stream != null)
+                return stream;
+        }
+        return new AbstractLineStream.ReaderLineStream(newBufferedReader(path, cs));
+    }
+
+    /**
+     * Opens a file for reading line by line from several threads. This
+     * method splits the file into at most {@code parts} ranges of
+     * approximately equal size, each of which starts at the start of a line
+     * and ends at the end of a line, and returns a line stream to read the
+     * lines in each range. The line streams are independent, and may be
+     * read and closed by different threads. The returned list is in file
+     * order so that concatenating the lines from each stream gives the lines
+     * of the file. The list has fewer than {@code parts} elements if the file
+     * does not have enough lines to split it into {@code parts} ranges.
+     *
+     * <p> The ranges are located by examining only the bytes near each
+     * boundary, and the lines are read from memory-mapped windows of the
+     * file as specified by the {@link #lines(Path,Charset) lines} method.
+     * This is only possible for charsets where line terminators can be
+     * located without decoding, namely UTF-8, US-ASCII and ISO-8859-1.
+     *
+     * @param   path
+     *          the path to the file
+     * @param   cs
+     *          the charset to use for decoding
+     * @param   parts
+     *          the maximum number of line streams to return
+     *
+     * @return  a list of new and open line streams, in file order
+     *
+     * @throws  IllegalArgumentException
+     *          if {@code parts} is less than {@code 1}, or the charset is not
+     *          UTF-8, US-ASCII or ISO-8859-1
+     * @throws  IOException
+     *          if an I/O error occurs opening or reading the file
+     * @throws  UnsupportedOperationException
+     *          if the file system provider does not support memory-mapping
+     *          the file
+     * @throws  SecurityException
+     *          In the case of the default provider, and a security manager is
+     *          installed, the {@link SecurityManager#checkRead(String) checkRead}
+     *          method is invoked to check read access to the file.
+     *
+     * @since 1.7
+     */
+    public static List<LineStream> lines(Path path, Charset cs, int parts)
+        throws IOException
+    {
+        if (parts < 1)
+            throw new IllegalArgumentException("'parts' < 1");
+        if (!MappedLineStream.isSupported(cs))
+            throw new IllegalArgumentException("Charset not supported: " + cs.name());
+        return MappedLineStream.split(path, cs, parts);
+    }
+
     /**
      * Writes bytes to a file. The {@code options} parameter specifies how the
      * the file is created or opened. If no options are present then this method
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.nio.file;
+
+import java.util.Iterator;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * An object to iterate over the lines of text in a file. A line stream allows
+ * for the convenient use of the for-each construct to read a file line by
+ * line without reading the whole file into memory.
+ *
+ * <p> A line is considered to be terminated by any one of a line feed ('\n'),
+ * a carriage return ('\r'), or a carriage return followed immediately by a
+ * line feed. The strings returned by the iterator do not include the line
+ * terminator. The last line of a file need not be terminated.
+ *
+ * <p> <b> While {@code LineStream} extends {@code Iterable}, it is not a
+ * general-purpose {@code Iterable} as it supports only a single {@code
+ * Iterator}; invoking the {@link #iterator iterator} method to obtain a second
+ * or subsequent iterator throws {@code IllegalStateException}. </b> The
+ * {@code Iterator} does not support the {@link Iterator#remove remove}
+ * operation.
+ *
+ * <p> A {@code LineStream} is opened upon creation and is closed by invoking
+ * the {@code close} method. Closing a line stream releases any resources
+ * associated with the stream. Failure to close the stream may result in a
+ * resource leak. Once a line stream is closed, then further access to the
+ * file, using the {@code Iterator}, behaves as if the end of stream has been
+ * reached.
+ *
+ * <p> If an I/O error is encountered when reading from the file, or a
+ * malformed or unmappable byte sequence is read, then it causes the {@code
+ * Iterator}'s {@code hasNext} or {@code next} methods to throw {@link
+ * java.io.UncheckedIOException} with the {@link IOException} as the cause.
+ *
+ * <p> A {@code LineStream} is not safe for use by multiple concurrent
+ * threads. To process a file in parallel, the {@link Files#lines(Path,
+ * java.nio.charset.Charset,int) Files.lines} method may be used to obtain
+ * several line streams, each over a line-aligned range of the file, for use
+ * by different threads.
+ *
+ * <p> <b>Usage Example:</b>
+ * <pre>
+ *   Path file = ...
+ *   try (LineStream lines = Files.lines(file, StandardCharsets.UTF_8)) {
+ *       for (String line: lines) {
+ *           ...
+ *       }
+ *   }
+ * </pre>
+ *
+ * @since 1.7
+ *
+ * @see Files#lines
+ */
+
+public interface LineStream
+    extends Closeable, Iterable<String>
+{
+    /**
+     * Returns the iterator associated with this {@code LineStream}.
+     *
+     * @return  the iterator associated with this {@code LineStream}
+     *
+     * @throws  IllegalStateException
+     *          if this line stream is closed or the iterator has already
+     *          been returned
+     */
+    @Override
+    Iterator<String> iterator();
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.nio.file;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import sun.misc.Cleaner;
+import sun.nio.ch.DirectBuffer;
+
+/**
+ * A {@link LineStream} that scans for line terminators directly in a
+ * memory-mapped view of a range of a file.
+ *
+ * <p> This implementation is only used with charsets where the bytes for
+ * '\n' and '\r' cannot occur as part of the encoding of any other character,
+ * namely US-ASCII, ISO-8859-1 and UTF-8, so that lines can be located without
+ * decoding. The file is mapped in windows of at most {@link #MAX_WINDOW_SIZE}
+ * bytes so that files larger than {@code Integer.MAX_VALUE} bytes can be
+ * read; a line that spans two windows causes the next window to be mapped
+ * at the start of the line. A window is unmapped when it is replaced and
+ * when the stream is closed, rather than when it is garbage-collected.
+ */
+
+class MappedLineStream extends AbstractLineStream {
+    // maximum size of a mapped window, a line cannot be longer than this
+    static final int MAX_WINDOW_SIZE = 1 << 30;
+
+    // files smaller than this are read with a BufferedReader instead
+    static final long MAPPING_THRESHOLD = 64 * 1024;
+
+    // size of buffer used when searching for line boundaries
+    private static final int BOUNDARY_BUFFER_SIZE = 8192;
+
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+
+    private final FileChannel fc;
+    private final long end;
+    private final boolean isLatin1;
+    private final CharsetDecoder decoder;
+
+    // file position of the start of the next line
+    private long position;
+
+    // the current window and its position in the file
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    // buffer for the bytes of a line, grown as needed
+    private byte[] lineBuffer = new byte[128];
+
+    /**
+     * Creates a stream over the lines in the given range of a file. The
+     * {@code start} position must be the start of a line.
+     */
+    MappedLineStream(FileChannel fc, Charset cs, long start, long end) {
+        this.fc = fc;
+        this.end = end;
+        this.isLatin1 = cs.equals(StandardCharsets.ISO_8859_1);
+        this.decoder = (isLatin1) ? null : cs.newDecoder();
+        this.position = start;
+    }
+
+    /**
+     * Returns {@code true} if lines encoded in the given charset can be
+     * located by this implementation.
+     */
+    static boolean isSupported(Charset cs) {
+        return cs.equals(StandardCharsets.UTF_8) ||
+               cs.equals(StandardCharsets.ISO_8859_1) ||
+               cs.equals(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Maps a window of the file starting at the given position.
+     */
+    private void map(long pos) throws IOException {
+        long size = Math.min(end - pos, MAX_WINDOW_SIZE);
+        MappedByteBuffer mbb = fc.map(FileChannel.MapMode.READ_ONLY, pos, size);
+        unmap();
+        window = mbb;
+        windowStart = pos;
+    }
+
+    /**
+     * Unmaps the current window, if any.
+     */
+    private void unmap() {
+        MappedByteBuffer mbb = window;
+        window = null;
+        if (mbb instanceof DirectBuffer) {
+            Cleaner cl = ((DirectBuffer)mbb).cleaner();
+            if (cl != null)
+                cl.clean();
+        }
+    }
+
+    @Override
+    String readLine() throws IOException {
+        if (!isOpen() || position >= end)
+            return null;
+
+        for (;;) {
+            if (window == null || position < windowStart ||
+                position >= windowStart + window.limit())
+                map(position);
+
+            // unless this is the last window the last byte is not scanned so
+            // that a CR can always be checked for a following LF
+            int limit = window.limit();
+            boolean lastWindow = (windowStart + limit >= end);
+            int scanLimit = (lastWindow) ? limit : limit - 1;
+
+            int from = (int)(position - windowStart);
+            int i = from;
+            while (i < scanLimit) {
+                byte b = window.get(i);
+                if (b == LF || b == CR)
+                    break;
+                i++;
+            }
+
+            if (i == scanLimit && !lastWindow) {
+                // line continues beyond this window
+                if (from == 0)
+                    throw new IOException("Line exceeds maximum length of " +
+                                          MAX_WINDOW_SIZE + " bytes");
+                map(position);
+                continue;
+            }
+
+            String line = decode(from, i - from);
+
+            // skip the line terminator
+            int next = i;
+            if (i < limit) {
+                next++;
+                if (window.get(i) == CR && next < limit && window.get(next) == LF)
+                    next++;
+            }
+            position = windowStart + next;
+            return line;
+        }
+    }
+
+    /**
+     * Decodes the bytes of a line in the current window.
+     */
+    @SuppressWarnings("deprecation")
+    private String decode(int offset, int len) throws IOException {
+        byte[] buf = lineBuffer;
+        if (buf.length < len)
+            lineBuffer = buf = new byte[Math.max(len, buf.length << 1)];
+
+        // bulk copy the bytes for the line
+        ByteBuffer bb = window.duplicate();
+        bb.position(offset);
+        bb.get(buf, 0, len);
+
+        // ISO-8859-1 maps each byte to the char with the same value, and
+        // US-ASCII and UTF-8 do so for bytes in the range 0-127
+        boolean ascii = isLatin1;
+        if (!ascii) {
+            ascii = true;
+            for (int i = 0; i < len; i++) {
+                if (buf[i] < 0) {
+                    ascii = false;
+                    break;
+                }
+            }
+        }
+        if (ascii)
+            return new String(buf, 0, 0, len);
+
+        // malformed or unmappable input is reported as an IOException
+        CharBuffer cb = decoder.reset().decode(ByteBuffer.wrap(buf, 0, len));
+        return cb.toString();
+    }
+
+    @Override
+    void implClose() throws IOException {
+        unmap();
+        fc.close();
+    }
+
+    /**
+     * Opens a line stream over a file, returning {@code null} if the file
+     * is too small to be worth mapping, or cannot be mapped.
+     */
+    static LineStream open(Path path, Charset cs) throws IOException {
+        FileChannel fc = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = fc.size();
+            if (size >= MAPPING_THRESHOLD) {
+                MappedLineStream stream = new MappedLineStream(fc, cs, 0L, size);
+                stream.map(0L);
+                fc = null;
+                return stream;
+            }
+        } catch (UnsupportedOperationException x) {
+            // mapping not supported by the file system provider
+        } finally {
+            if (fc != null)
+                fc.close();
+        }
+        return null;
+    }
+
+    /**
+     * Splits a file into at most {@code parts} ranges of approximately equal
+     * size with each range starting at the start of a line, and returns a
+     * line stream for each range.
+     */
+    static List<LineStream> split(Path path, Charset cs, int parts)
+        throws IOException
+    {
+        List<LineStream> result = new ArrayList<>(parts);
+        try {
+            long[] bounds;
+            try (FileChannel fc = FileChannel.open(path, StandardOpenOption.READ)) {
+                bounds = boundaries(fc, fc.size(), parts);
+            }
+            for (int i = 0; i < bounds.length - 1; i++) {
+                FileChannel fc = FileChannel.open(path, StandardOpenOption.READ);
+                result.add(new MappedLineStream(fc, cs, bounds[i], bounds[i+1]));
+            }
+            return result;
+        } catch (IOException | RuntimeException | Error x) {
+            for (LineStream stream: result) {
+                try {
+                    stream.close();
+                } catch (IOException suppressed) {
+                    x.addSuppressed(suppressed);
+                }
+            }
+            throw x;
+        }
+    }
+
+    /**
+     * Returns the boundaries of the line-aligned ranges of a file. Ranges
+     * that would be empty are coalesced so the result may have fewer than
+     * {@code parts+1} elements.
+     */
+    private static long[] boundaries(FileChannel fc, long size, int parts)
+        throws IOException
+    {
+        long[] bounds = new long[parts + 1];
+        int count = 0;
+        bounds[count++] = 0L;
+        ByteBuffer buf = ByteBuffer.allocate(BOUNDARY_BUFFER_SIZE);
+        long previous = 0L;
+        for (int i = 1; i < parts; i++) {
+            long target = Math.max(size / parts * i, previous);
+            long bound = nextLineStart(fc, buf, target, size);
+            if (bound >= size)
+                break;
+            if (bound > previous) {
+                bounds[count++] = bound;
+                previous = bound;
+            }
+        }
+        bounds[count++] = size;
+        if (count == bounds.length)
+            return bounds;
+        long[] result = new long[count];
+        System.arraycopy(bounds, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * Returns the position of the first line that starts at or after the
+     * given position, or {@code size} if there is no such line.
+     */
+    private static long nextLineStart(FileChannel fc, ByteBuffer buf,
+                                      long pos, long size)
+        throws IOException
+    {
+        if (pos == 0L)
+            return 0L;
+
+        // read from the byte before pos to examine the preceding terminator
+        long bufStart = pos - 1;
+        boolean afterCR = false;
+        while (bufStart < size) {
+            buf.clear();
+            int n = fc.read(buf, bufStart);
+            if (n <= 0)
+                break;
+            for (int i = 0; i < n; i++) {
+                byte b = buf.get(i);
+                long p = bufStart + i;
+                if (afterCR) {
+                    // a line starts after a CR unless the CR is followed by LF
+                    return (b == LF) ? p + 1 : p;
+                } else if (b == LF) {
+                    return p + 1;
+                } else if (b == CR) {
+                    afterCR = true;
+                }
+            }
+            bufStart += n;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,389 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.nio.file;
+
+import java.nio.file.attribute.BasicFileAttributes;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+
+/**
+ * File tree walker that visits the subdirectories of a directory concurrently
+ * using a {@link ForkJoinPool}.
+ *
+ * <p> Each directory is visited by a task that opens the directory, reads all
+ * of its entries, and closes it again before any of the entries are visited.
+ * The number of directories that are open at any time is bounded by a
+ * semaphore; as a permit is never held while waiting for other tasks the walk
+ * cannot deadlock, whatever the parallelism of the pool. Files are visited by
+ * the task for their directory, subdirectories are forked as new tasks.
+ *
+ * <p> The {@code preVisitDirectory} method for a directory is invoked after
+ * its entries are read, with no permit held, and the {@code
+ * postVisitDirectory} method after all visits to its entries, but no ordering
+ * is defined between visits to entries of different directories. A directory
+ * that cannot be opened, because of an I/O error or because access is
+ * denied, is reported to {@code visitFileFailed}. A visitor method that
+ * throws terminates the walk.
+ *
+ * @see Files#walkFileTree(Path,Set,int,FileVisitor,ForkJoinPool,int)
+ */
+
+class ParallelFileTreeWalker {
+    private final boolean followLinks;
+    private final LinkOption[] linkOptions;
+    private final FileVisitor<? super Path> visitor;
+    private final int maxDepth;
+    private final ForkJoinPool pool;
+    private final Semaphore openDirectories;
+
+    // set when a visitor method returns TERMINATE
+    private volatile boolean terminated;
+
+    ParallelFileTreeWalker(Set<FileVisitOption> options,
+                           FileVisitor<? super Path> visitor,
+                           int maxDepth,
+                           ForkJoinPool pool,
+                           int maxOpenDirectories)
+    {
+        boolean fl = false;
+        for (FileVisitOption option: options) {
+            // will throw NPE if options contains null
+            switch (option) {
+                case FOLLOW_LINKS : fl = true; break;
+                default:
+                    throw new AssertionError("Should not get here");
+            }
+        }
+        if (maxDepth < 0)
+            throw new IllegalArgumentException("'maxDepth' is negative");
+        if (maxOpenDirectories < 1)
+            throw new IllegalArgumentException("'maxOpenDirectories' < 1");
+
+        this.followLinks = fl;
+        this.linkOptions = (fl) ? new LinkOption[0] :
+            new LinkOption[] { LinkOption.NOFOLLOW_LINKS };
+        this.visitor = visitor;
+        this.maxDepth = maxDepth;
+        this.pool = pool;
+        this.openDirectories = new Semaphore(maxOpenDirectories);
+    }
+
+    /**
+     * Walk file tree starting at the given file
+     */
+    void walk(Path start) throws IOException {
+        // attributes of the starting file are never cached; SecurityException
+        // is thrown to the caller if access to the starting file is denied
+        BasicFileAttributes attrs = null;
+        IOException exc = null;
+        try {
+            attrs = FileTreeWalker.readAttributes(start, false, followLinks, linkOptions);
+        } catch (IOException x) {
+            exc = x;
+        }
+
+        FileVisitResult result;
+        if (exc != null) {
+            result = visitor.visitFileFailed(start, exc);
+        } else if (maxDepth == 0 || !attrs.isDirectory()) {
+            result = visitor.visitFile(start, attrs);
+        } else {
+            DirectoryTask task = new DirectoryTask(start, attrs, 0, null, null);
+            try {
+                result = pool.invoke(task);
+            } catch (VisitorException x) {
+                throw x.ioException();
+            }
+        }
+        if (result == null)
+            throw new NullPointerException("FileVisitor returned null");
+    }
+
+    /**
+     * A directory that is an ancestor of the directory being visited, used
+     * for cycle detection when following links. Ancestors form an immutable
+     * chain so that it can be shared by tasks visiting sibling directories
+     * concurrently.
+     */
+    private static class AncestorDirectory {
+        private final Path dir;
+        private final Object key;
+        private final AncestorDirectory parent;
+        AncestorDirectory(Path dir, Object key, AncestorDirectory parent) {
+            this.dir = dir;
+            this.key = key;
+            this.parent = parent;
+        }
+        Path file() {
+            return dir;
+        }
+        Object fileKey() {
+            return key;
+        }
+        AncestorDirectory parent() {
+            return parent;
+        }
+    }
+
+    /**
+     * Unchecked exception used to propagate an IOException thrown by a
+     * visitor method through the fork/join framework.
+     */
+    private static class VisitorException extends RuntimeException {
+        static final long serialVersionUID = 4046219620620407431L;
+        VisitorException(IOException cause) {
+            super(cause);
+        }
+        IOException ioException() {
+            // the fork/join framework may have re-created this exception to
+            // record the stack trace of the joining thread
+            Throwable t = getCause();
+            while (t != null && !(t instanceof IOException))
+                t = t.getCause();
+            return (IOException)t;
+        }
+    }
+
+    /**
+     * Waits for a permit to open a directory, informing the pool that the
+     * worker thread may block so that it can compensate.
+     */
+    private class OpenPermit implements ForkJoinPool.ManagedBlocker {
+        private boolean acquired;
+
+        public boolean block() throws InterruptedException {
+            if (!acquired) {
+                openDirectories.acquire();
+                acquired = true;
+            }
+            return true;
+        }
+
+        public boolean isReleasable() {
+            return acquired || (acquired = openDirectories.tryAcquire());
+        }
+    }
+
+    private void acquireOpenPermit() throws InterruptedIOException {
+        try {
+            ForkJoinPool.managedBlock(new OpenPermit());
+        } catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    /**
+     * Checks the result of a visitor method, recording that the walk is to
+     * terminate when the result is {@code TERMINATE}.
+     */
+    private FileVisitResult checkResult(FileVisitResult result) {
+        // returning null will cause NPE to be thrown
+        if (result == null)
+            throw new NullPointerException("FileVisitor returned null");
+        if (result == FileVisitResult.TERMINATE)
+            terminated = true;
+        return result;
+    }
+
+    /**
+     * Task to visit a directory and its descendants.
+     */
+    private class DirectoryTask extends RecursiveTask<FileVisitResult> {
+        static final long serialVersionUID = -2961732431234467221L;
+
+        private final Path dir;
+        private final BasicFileAttributes attrs;
+        private final int depth;
+        private final AncestorDirectory ancestors;
+        private final DirectoryTask parent;
+
+        // set when an entry of this directory returns SKIP_SIBLINGS
+        private volatile boolean skipRemaining;
+
+        DirectoryTask(Path dir,
+                      BasicFileAttributes attrs,
+                      int depth,
+                      AncestorDirectory ancestors,
+                      DirectoryTask parent)
+        {
+            this.dir = dir;
+            this.attrs = attrs;
+            this.depth = depth;
+            this.ancestors = ancestors;
+            this.parent = parent;
+        }
+
+        /**
+         * Returns true if this task should not visit the directory as the
+         * walk was terminated, or a sibling returned SKIP_SIBLINGS.
+         */
+        private boolean cancelled() {
+            return terminated || (parent != null && parent.skipRemaining);
+        }
+
+        @Override
+        protected FileVisitResult compute() {
+            if (cancelled())
+                return FileVisitResult.CONTINUE;
+            // a visitor method that throws terminates the walk, so that the
+            // tasks still running start no further visits
+            try {
+                return visitDirectory();
+            } catch (IOException x) {
+                terminated = true;
+                throw new VisitorException(x);
+            } catch (RuntimeException | Error x) {
+                terminated = true;
+                throw x;
+            }
+        }
+
+        private FileVisitResult visitDirectory() throws IOException {
+            // check for cycles when following links
+            Object key = attrs.fileKey();
+            if (followLinks) {
+                for (AncestorDirectory ancestor = ancestors;
+                     ancestor != null;
+                     ancestor = ancestor.parent())
+                {
+                    if (FileTreeWalker.isSameDirectory(dir, key,
+                                                       ancestor.file(),
+                                                       ancestor.fileKey()))
+                    {
+                        // cycle detected
+                        return checkResult(visitor.visitFileFailed(dir,
+                            new FileSystemLoopException(dir.toString())));
+                    }
+                }
+            }
+
+            // open the directory, and read all entries, while holding a permit
+            List<Path> entries = new ArrayList<>();
+            IOException ioe = null;
+            acquireOpenPermit();
+            try {
+                DirectoryStream<Path> stream;
+                try {
+                    stream = Files.newDirectoryStream(dir);
+                } catch (IOException x) {
+                    return checkResult(visitor.visitFileFailed(dir, x));
+                } catch (SecurityException x) {
+                    AccessDeniedException ade =
+                        new AccessDeniedException(dir.toString(), null,
+                                                  x.getMessage());
+                    ade.initCause(x);
+                    return checkResult(visitor.visitFileFailed(dir, ade));
+                }
+                try {
+                    for (Path entry: stream) {
+                        entries.add(entry);
+                    }
+                } catch (DirectoryIteratorException e) {
+                    // IOException will be notified to postVisitDirectory
+                    ioe = e.getCause();
+                } finally {
+                    try {
+                        stream.close();
+                    } catch (IOException e) {
+                        if (ioe == null)
+                            ioe = e;
+                    }
+                }
+            } finally {
+                openDirectories.release();
+            }
+
+            // invoke preVisitDirectory once the permit is released, so that
+            // no permit is held while the visitor runs
+            FileVisitResult preResult =
+                checkResult(visitor.preVisitDirectory(dir, attrs));
+            if (preResult != FileVisitResult.CONTINUE)
+                return preResult;
+
+            // visit files in this task, fork tasks for subdirectories
+            AncestorDirectory trail = (followLinks) ?
+                new AncestorDirectory(dir, key, ancestors) : null;
+            List<DirectoryTask> subtasks = new ArrayList<>();
+            int childDepth = depth + 1;
+            for (Path entry: entries) {
+                if (terminated || skipRemaining)
+                    break;
+
+                BasicFileAttributes childAttrs;
+                FileVisitResult result;
+                try {
+                    childAttrs = FileTreeWalker.readAttributes(entry,
+                                                               true,
+                                                               followLinks,
+                                                               linkOptions);
+                } catch (IOException x) {
+                    result = checkResult(visitor.visitFileFailed(entry, x));
+                    if (result == FileVisitResult.SKIP_SIBLINGS)
+                        skipRemaining = true;
+                    continue;
+                } catch (SecurityException x) {
+                    // file is ignored
+                    continue;
+                }
+
+                if (childDepth >= maxDepth || !childAttrs.isDirectory()) {
+                    result = checkResult(visitor.visitFile(entry, childAttrs));
+                    if (result == FileVisitResult.SKIP_SIBLINGS)
+                        skipRemaining = true;
+                } else {
+                    DirectoryTask task = new DirectoryTask(entry,
+                                                           childAttrs,
+                                                           childDepth,
+                                                           trail,
+                                                           this);
+                    task.fork();
+                    subtasks.add(task);
+                }
+            }
+
+            // wait for subdirectories, joining in reverse order of forking
+            // so that tasks still in the local queue are executed directly
+            for (int i = subtasks.size() - 1; i >= 0; i--) {
+                FileVisitResult result = subtasks.get(i).join();
+                if (result == FileVisitResult.SKIP_SIBLINGS)
+                    skipRemaining = true;
+            }
+
+            if (terminated)
+                return FileVisitResult.TERMINATE;
+
+            // invoke postVisitDirectory last
+            return checkResult(visitor.postVisitDirectory(dir, ioe));
+        }
+    }
+}
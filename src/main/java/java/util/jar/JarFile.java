@@ -27,6 +27,8 @@ package java.util.jar;
 
 import java.io.*;
 import java.lang.ref.SoftReference;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.net.URL;
 import java.util.*;
 import java.util.zip.*;
@@ -34,6 +36,7 @@ import java.security.CodeSigner;
 import java.security.cert.Certificate;
 import java.security.AccessController;
 import java.security.CodeSource;
+import java.security.PrivilegedAction;
 import sun.misc.IOUtils;
 import sun.security.action.GetPropertyAction;
 import sun.security.util.ManifestEntryVerifier;
@@ -67,6 +70,7 @@ class JarFile extends ZipFile {
     private boolean verify;
     private boolean computedHasClassPathAttribute;
     private boolean hasClassPathAttribute;
+    private volatile String[] metaInfNames;     // null until computed
 
     // Set up JavaUtilJarAccess in SharedSecrets
     static {
@@ -191,7 +195,53 @@ class JarFile extends ZipFile {
         return man;
     }
 
-    private native String[] getMetaInfEntryNames();
+    /*
+     * Returns the names of the "META-INF/" entries, the directory name
+     * compared ignoring case, or null if there are none. ZipFile records
+     * the positions of these entries while it reads the central directory,
+     * so only their names are decoded; they are cached here.
+     */
+    private String[] getMetaInfEntryNames() {
+        String[] names = metaInfNames;
+        if (names == null) {
+            try {
+                names = (String[])MetaInfNames.method.invoke(this);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException)
+                    throw (RuntimeException)cause;
+                if (cause instanceof Error)
+                    throw (Error)cause;
+                throw new InternalError(cause.toString());
+            } catch (IllegalAccessException e) {
+                throw new InternalError(e.toString());
+            }
+            if (names == null)
+                names = new String[0];
+            metaInfNames = names;
+        }
+        return (names.length != 0) ? names : null;
+    }
+
+    /*
+     * Holds ZipFile's private getMetaInfEntryNames method, the index of
+     * META-INF/ entries not being part of the public ZipFile API.
+     */
+    private static class MetaInfNames {
+        static final Method method = AccessController.doPrivileged(
+            new PrivilegedAction<Method>() {
+                public Method run() {
+                    try {
+                        Method m = ZipFile.class.getDeclaredMethod(
+                            "getMetaInfEntryNames");
+                        m.setAccessible(true);
+                        return m;
+                    } catch (NoSuchMethodException e) {
+                        throw new InternalError(e.toString());
+                    }
+                }
+            });
+    }
 
     /**
      * Returns the <code>JarEntry</code> for the given entry name or
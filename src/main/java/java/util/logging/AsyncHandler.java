@@ -0,0 +1,559 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.logging;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <tt>Handler</tt> that queues requests in a bounded buffer in memory and
+ * publishes them to a target <tt>Handler</tt> from a background thread.
+ * <p>
+ * Publishing a <tt>LogRecord</tt> only checks its level and filter and
+ * adds it to a lock-free circular buffer, so logging threads do not wait
+ * for each other, nor for the formatting and output of the target
+ * <tt>Handler</tt>. A single writer thread takes the records from the
+ * buffer in order and publishes them to the target, flushing it once per
+ * batch rather than once per record.
+ * <p>
+ * When the buffer is full the <i>overflow policy</i> decides what happens
+ * to a new record: the logging thread may wait for space ({@link
+ * OverflowPolicy#BLOCK BLOCK}), the record may be discarded ({@link
+ * OverflowPolicy#DROP DROP}), or records below the <i>overflow level</i>
+ * may be discarded while the others wait ({@link
+ * OverflowPolicy#DROP_BELOW_LEVEL DROP_BELOW_LEVEL}). Discarded records
+ * are counted, see {@link #getDroppedCount}.
+ * <p>
+ * Because records are formatted by the writer thread, after
+ * <tt>publish</tt> has returned, the parameters of a record should not be
+ * modified once it has been logged. Where the source class and method of a
+ * record may need to be inferred, the stack of the logging thread is
+ * captured before the record is queued.
+ * <p>
+ * <b>Configuration:</b>
+ * By default each <tt>AsyncHandler</tt> is initialized using the following
+ * LogManager configuration properties.  If properties are not defined
+ * (or have invalid values) then the specified default values are used.
+ * <ul>
+ * <li>   java.util.logging.AsyncHandler.level
+ *        specifies the level for the <tt>Handler</tt>
+ *        (defaults to <tt>Level.ALL</tt>).
+ * <li>   java.util.logging.AsyncHandler.filter
+ *        specifies the name of a <tt>Filter</tt> class to use
+ *        (defaults to no <tt>Filter</tt>).
+ * <li>   java.util.logging.AsyncHandler.capacity
+ *        defines the buffer size in records, rounded up to a power of two
+ *        (defaults to 8192).
+ * <li>   java.util.logging.AsyncHandler.overflow
+ *        defines the overflow policy, one of <tt>block</tt>, <tt>drop</tt>
+ *        and <tt>drop-below-level</tt> (defaults to <tt>block</tt>).
+ * <li>   java.util.logging.AsyncHandler.overflowLevel
+ *        defines the overflow level (defaults to <tt>Level.WARNING</tt>).
+ * <li>   java.util.logging.AsyncHandler.batchSize
+ *        defines the maximum number of records published to the target
+ *        between flushes (defaults to 256).
+ * <li>   java.util.logging.AsyncHandler.target
+ *        specifies the name of the target <tt>Handler</tt> class
+ *        (defaults to <tt>java.util.logging.ConsoleHandler</tt>).
+ * </ul>
+ *
+ * @since 1.7
+ */
+
+public class AsyncHandler extends Handler {
+    private final static int DEFAULT_CAPACITY = 8192;
+    private final static int DEFAULT_BATCH_SIZE = 256;
+    private final static int MAX_CAPACITY = 1 << 30;
+
+    /**
+     * The policies for records published while the buffer is full.
+     */
+    public static enum OverflowPolicy {
+        /**
+         * The logging thread waits until there is space in the buffer.
+         */
+        BLOCK,
+        /**
+         * The record is discarded.
+         */
+        DROP,
+        /**
+         * The record is discarded if its level is below the overflow level,
+         * otherwise the logging thread waits until there is space.
+         */
+        DROP_BELOW_LEVEL
+    }
+
+    private Handler target;
+    private volatile OverflowPolicy policy;
+    private volatile Level overflowLevel;
+    private int batchSize;
+
+    // The buffer: a bounded multi-producer, single-consumer queue. Slot i
+    // holds the record of ticket t, where i = t & mask, once its sequence
+    // is t + 1, and is free for ticket t when its sequence is t.
+    private int mask;
+    private AtomicReferenceArray<LogRecord> slots;
+    private AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();   // next ticket
+    private volatile long head;                         // next to take
+    private volatile long completed;    // tickets published to the target
+
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long published;
+
+    private Thread writer;
+    private volatile boolean waiting;   // writer is parked, or about to
+    private volatile boolean closing;
+    private volatile boolean stopped;   // writer takes no more records
+
+    // Held to take records once the writer has stopped
+    private final Object drainLock = new Object();
+
+    // Private method to configure an AsyncHandler from LogManager
+    // properties and/or default values as specified in the class
+    // javadoc.
+    private void configure() {
+        LogManager manager = LogManager.getLogManager();
+        String cname = getClass().getName();
+
+        setLevel(manager.getLevelProperty(cname +".level", Level.ALL));
+        setFilter(manager.getFilterProperty(cname +".filter", null));
+        policy = parsePolicy(manager.getStringProperty(cname + ".overflow", null));
+        overflowLevel = manager.getLevelProperty(cname + ".overflowLevel", Level.WARNING);
+        batchSize = manager.getIntProperty(cname + ".batchSize", DEFAULT_BATCH_SIZE);
+        if (batchSize <= 0) {
+            batchSize = DEFAULT_BATCH_SIZE;
+        }
+    }
+
+    private static OverflowPolicy parsePolicy(String val) {
+        if (val != null) {
+            val = val.trim().replace('-', '_').toUpperCase(java.util.Locale.ROOT);
+            for (OverflowPolicy p : OverflowPolicy.values()) {
+                if (p.name().equals(val)) {
+                    return p;
+                }
+            }
+        }
+        return OverflowPolicy.BLOCK;
+    }
+
+    /**
+     * Create an <tt>AsyncHandler</tt> and configure it based on
+     * <tt>LogManager</tt> configuration properties.
+     */
+    public AsyncHandler() {
+        sealed = false;
+        configure();
+        sealed = true;
+
+        LogManager manager = LogManager.getLogManager();
+        String cname = getClass().getName();
+        int capacity = manager.getIntProperty(cname + ".capacity", DEFAULT_CAPACITY);
+        if (capacity <= 0) {
+            capacity = DEFAULT_CAPACITY;
+        }
+        String name = manager.getStringProperty(cname + ".target",
+                                                "java.util.logging.ConsoleHandler");
+        Handler h;
+        try {
+            Class clz = ClassLoader.getSystemClassLoader().loadClass(name);
+            h = (Handler) clz.newInstance();
+        } catch (Exception ex) {
+            throw new RuntimeException("AsyncHandler can't load handler \"" + name + "\"" , ex);
+        }
+        init(h, capacity);
+    }
+
+    /**
+     * Create an <tt>AsyncHandler</tt>.
+     * <p>
+     * The <tt>AsyncHandler</tt> is configured based on <tt>LogManager</tt>
+     * properties (or their default values) except that the given target,
+     * buffer capacity and overflow policy are used.
+     *
+     * @param target  the Handler to which to publish output.
+     * @param capacity  the number of log records to buffer (must be greater
+     *                  than zero), rounded up to a power of two
+     * @param policy  what to do with records published while the buffer
+     *                is full
+     *
+     * @throws IllegalArgumentException if capacity is <= 0
+     */
+    public AsyncHandler(Handler target, int capacity, OverflowPolicy policy) {
+        if (target == null || policy == null) {
+            throw new NullPointerException();
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        sealed = false;
+        configure();
+        sealed = true;
+        this.policy = policy;
+        init(target, capacity);
+    }
+
+    // Initialize the buffer and start the writer thread.
+    private void init(Handler target, int capacity) {
+        this.target = target;
+        int n = 1;
+        while (n < capacity && n < MAX_CAPACITY) {
+            n <<= 1;
+        }
+        mask = n - 1;
+        slots = new AtomicReferenceArray<>(n);
+        sequences = new AtomicLongArray(n);
+        for (int i = 0; i < n; i++) {
+            sequences.set(i, i);
+        }
+        writer = AccessController.doPrivileged(new PrivilegedAction<Thread>() {
+            public Thread run() {
+                Thread t = new Thread(new Runnable() {
+                    public void run() {
+                        drain();
+                    }
+                }, "AsyncHandler writer");
+                t.setDaemon(true);
+                t.setContextClassLoader(null);
+                return t;
+            }
+        });
+        if (target instanceof StreamHandler) {
+            ((StreamHandler)target).flushDeferrer = writer;
+        }
+        writer.start();
+    }
+
+    /**
+     * Queue a <tt>LogRecord</tt> for publication to the target
+     * <tt>Handler</tt>.
+     * <p>
+     * If there is a <tt>Filter</tt>, its <tt>isLoggable</tt>
+     * method is called to check if the given log record is loggable.
+     * If not we return.  Otherwise the record is added to the buffer, or,
+     * if the buffer is full, waited for or discarded according to the
+     * overflow policy.
+     *
+     * @param  record  description of the log event. A null record is
+     *                 silently ignored and is not published
+     */
+    public void publish(LogRecord record) {
+        if (!isLoggable(record) || closing) {
+            return;
+        }
+        // the source can only be inferred from the logging thread's stack
+        record.captureCaller();
+
+        if (!offer(record)) {
+            OverflowPolicy p = policy;
+            if (p == OverflowPolicy.DROP ||
+                (p == OverflowPolicy.DROP_BELOW_LEVEL &&
+                 record.getLevel().intValue() < overflowLevel.intValue()) ||
+                Thread.currentThread() == writer) {
+                // the writer thread cannot wait for itself
+                dropped.incrementAndGet();
+                return;
+            }
+            while (!offer(record)) {
+                if (closing) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                if (!writer.isAlive()) {
+                    // an Error thrown by the target ended the writer, so
+                    // the buffer will never have room again
+                    dropped.incrementAndGet();
+                    reportError("AsyncHandler writer thread has died", null,
+                                ErrorManager.WRITE_FAILURE);
+                    return;
+                }
+                LockSupport.parkNanos(this, TimeUnit.MICROSECONDS.toNanos(100));
+            }
+        }
+        // The writer may have stopped since closing was checked, leaving
+        // the record to be published here
+        if (stopped) {
+            drainStopped();
+        }
+    }
+
+    // Adds a record to the buffer, returning false if the buffer is full.
+    private boolean offer(LogRecord record) {
+        long t;
+        int i;
+        for (;;) {
+            t = tail.get();
+            i = (int)t & mask;
+            long d = sequences.get(i) - t;
+            if (d == 0) {
+                if (tail.compareAndSet(t, t + 1)) {
+                    break;
+                }
+            } else if (d < 0) {
+                return false;
+            }
+        }
+        slots.set(i, record);
+        sequences.set(i, t + 1);
+        if (waiting) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    // Takes the next record from the buffer, or null if it is empty.
+    // Only called by the writer thread.
+    private LogRecord poll() {
+        long h = head;
+        int i = (int)h & mask;
+        if (sequences.get(i) != h + 1) {
+            return null;
+        }
+        LogRecord r = slots.get(i);
+        slots.set(i, null);
+        sequences.set(i, h + mask + 1);
+        head = h + 1;
+        return r;
+    }
+
+    // The writer thread: publishes records in batches, flushing the target
+    // after each batch, until closed.
+    private void drain() {
+        for (;;) {
+            if (publishRecords(batchSize) > 0) {
+                flushTarget();
+                continue;
+            }
+            if (closing) {
+                // Set before the buffer is checked a last time, so that a
+                // record added after that check is seen by its publisher
+                stopped = true;
+                drainStopped();
+                return;
+            }
+            waiting = true;
+            if (isEmpty() && !closing) {
+                LockSupport.park(this);
+            }
+            waiting = false;
+        }
+    }
+
+    // Publishes up to max records from the buffer to the target, returning
+    // how many. Only called by the writer thread, or with drainLock held
+    // once it has stopped.
+    private int publishRecords(int max) {
+        int n = 0;
+        LogRecord r;
+        while (n < max && (r = poll()) != null) {
+            try {
+                target.publish(r);
+            } catch (RuntimeException ex) {
+                reportError(null, ex, ErrorManager.WRITE_FAILURE);
+            }
+            completed = head;
+            n++;
+        }
+        if (n > 0) {
+            published += n;
+        }
+        return n;
+    }
+
+    // Publishes the records left in the buffer once the writer has stopped.
+    private void drainStopped() {
+        synchronized (drainLock) {
+            if (publishRecords(Integer.MAX_VALUE) > 0) {
+                flushTarget();
+            }
+        }
+    }
+
+    private boolean isEmpty() {
+        long h = head;
+        return sequences.get((int)h & mask) != h + 1;
+    }
+
+    private void flushTarget() {
+        try {
+            target.flush();
+        } catch (RuntimeException ex) {
+            reportError(null, ex, ErrorManager.FLUSH_FAILURE);
+        }
+    }
+
+    /**
+     * Waits until the records queued before this call have been published
+     * to the target <tt>Handler</tt>, then flushes the target.
+     */
+    public void flush() {
+        long t = tail.get();
+        Thread w = writer;
+        if (Thread.currentThread() != w) {
+            // records are taken from the buffer before they are published,
+            // so wait for their publication to complete
+            while (completed < t && w.isAlive()) {
+                LockSupport.unpark(w);
+                LockSupport.parkNanos(this, TimeUnit.MICROSECONDS.toNanos(100));
+            }
+            if (stopped) {
+                drainStopped();
+            }
+        }
+        flushTarget();
+    }
+
+    /**
+     * Close the <tt>Handler</tt> and free all associated resources.
+     * The records in the buffer are published to the target
+     * <tt>Handler</tt>, which is then closed.
+     *
+     * @exception  SecurityException  if a security manager exists and if
+     *             the caller does not have <tt>LoggingPermission("control")</tt>.
+     */
+    public void close() throws SecurityException {
+        checkPermission();
+        closing = true;
+        Thread w = writer;
+        if (Thread.currentThread() != w) {
+            LockSupport.unpark(w);
+            boolean interrupted = false;
+            while (w.isAlive()) {
+                try {
+                    w.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (target instanceof StreamHandler) {
+            ((StreamHandler)target).flushDeferrer = null;
+        }
+        target.close();
+        setLevel(Level.OFF);
+    }
+
+    /**
+     * Set the overflow policy.
+     *
+     * @param policy the new overflow policy
+     * @exception  SecurityException  if a security manager exists and if
+     *             the caller does not have <tt>LoggingPermission("control")</tt>.
+     */
+    public void setOverflowPolicy(OverflowPolicy policy) throws SecurityException {
+        if (policy == null) {
+            throw new NullPointerException();
+        }
+        checkPermission();
+        this.policy = policy;
+    }
+
+    /**
+     * Get the overflow policy.
+     *
+     * @return the overflow policy
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return policy;
+    }
+
+    /**
+     * Set the overflow level. When the buffer is full and the overflow
+     * policy is <tt>DROP_BELOW_LEVEL</tt>, records below this level are
+     * discarded.
+     *
+     * @param newLevel the new value of the overflow level
+     * @exception  SecurityException  if a security manager exists and if
+     *             the caller does not have <tt>LoggingPermission("control")</tt>.
+     */
+    public void setOverflowLevel(Level newLevel) throws SecurityException {
+        if (newLevel == null) {
+            throw new NullPointerException();
+        }
+        checkPermission();
+        overflowLevel = newLevel;
+    }
+
+    /**
+     * Get the overflow level.
+     *
+     * @return the value of the overflow level
+     */
+    public Level getOverflowLevel() {
+        return overflowLevel;
+    }
+
+    /**
+     * Get the capacity of the buffer, in records.
+     *
+     * @return the capacity of the buffer
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Get the number of records in the buffer, waiting to be published to
+     * the target <tt>Handler</tt>. The value is a snapshot that may already
+     * be out of date.
+     *
+     * @return the number of queued records
+     */
+    public int getQueueSize() {
+        long n = tail.get() - head;
+        return (int)Math.max(0, Math.min(n, mask + 1));
+    }
+
+    /**
+     * Get the number of records that have been discarded because the buffer
+     * was full.
+     *
+     * @return the number of dropped records
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Get the number of records that have been published to the target
+     * <tt>Handler</tt>.
+     *
+     * @return the number of published records
+     */
+    public long getPublishedCount() {
+        return published;
+    }
+}
@@ -0,0 +1,513 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.logging;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * <tt>Handler</tt> that writes <tt>LogRecords</tt> to a stream or file in a
+ * compact binary form, to be read back with {@link BinaryLogReader}.
+ * <p>
+ * Records are not formatted when they are published.  The message of a
+ * record is stored as it was logged, usually a template such as "Opened
+ * {0} in {1} ms", and its parameters are stored separately, numbers and
+ * dates in binary form and other objects as their <tt>toString</tt>
+ * value.  The message is formatted when the log is read, by any
+ * <tt>Formatter</tt>.  Logger names, message templates, levels, source
+ * class and method names and the frames of stack traces are each written
+ * once per stream and then referred to by number; a message logged
+ * without parameters or a resource bundle may be text that was formatted
+ * by the caller, and is written inline.  So logging costs little more
+ * than copying the record, and the log is a fraction of the size of the
+ * same records formatted as text, let alone by the <tt>XMLFormatter</tt>.
+ * <p>
+ * The source class and method names of records are always written, so
+ * they are inferred for records that do not set them.  The formatter of
+ * this handler is not used.
+ * <p>
+ * Records are buffered.  The buffer is written out when a record at or
+ * above the <i>flush level</i> is published, and by {@link #flush flush}
+ * and {@link #close close}.  With the default flush level,
+ * <tt>Level.ALL</tt>, every record is written out as it is published, as
+ * with <tt>FileHandler</tt>; a higher flush level trades the records that
+ * may be lost if the virtual machine terminates abruptly for throughput.
+ * <p>
+ * <b>Configuration:</b>
+ * By default each <tt>BinaryLogHandler</tt> is initialized using the following
+ * <tt>LogManager</tt> configuration properties.  If properties are not defined
+ * (or have invalid values) then the specified default values are used.
+ * <ul>
+ * <li>   java.util.logging.BinaryLogHandler.level
+ *        specifies the default level for the <tt>Handler</tt>
+ *        (defaults to <tt>Level.ALL</tt>).
+ * <li>   java.util.logging.BinaryLogHandler.filter
+ *        specifies the name of a <tt>Filter</tt> class to use
+ *        (defaults to no <tt>Filter</tt>).
+ * <li>   java.util.logging.BinaryLogHandler.flushLevel
+ *        specifies the flush level (defaults to <tt>Level.ALL</tt>).
+ * <li>   java.util.logging.BinaryLogHandler.pattern
+ *        specifies a pattern for generating the output file name, as for
+ *        <tt>FileHandler</tt>. (Defaults to "%h/java%u.blog").
+ * <li>   java.util.logging.BinaryLogHandler.append
+ *        specifies whether the handler should append onto
+ *        any existing file (defaults to false).
+ * </ul>
+ *
+ * @see BinaryLogReader
+ * @since 1.7
+ */
+
+public class BinaryLogHandler extends Handler {
+
+    // -- the format, shared with BinaryLogReader --
+    //
+    // A stream is a sequence of entries.  A header entry is the magic
+    // number and the version, and starts a new string table; every other
+    // entry is a type byte, the length of its payload as a varint, and
+    // the payload.  A string entry holds a string in UTF-8, which gets
+    // the next number in the string table.  A record entry holds, in
+    // order: the level value and level name, the differences of the time
+    // and sequence number from those of the previous record, the thread
+    // ID, the logger name, then the message, resource bundle name, source
+    // class and method names, parameters and thrown.  Readers can filter
+    // on the fields before the message without decoding the others.
+
+    static final int MAGIC = 0x4a4c4f47;        // "JLOG"
+    static final int VERSION = 1;
+
+    static final int STRING_ENTRY = 1;
+    static final int RECORD_ENTRY = 2;
+
+    // string references: null, a string that follows inline, or
+    // FIRST_ID + the number of a string in the table
+    static final int NULL_REF = 0;
+    static final int INLINE_REF = 1;
+    static final int FIRST_ID = 2;
+
+    // parameter types
+    static final int P_NULL = 0;
+    static final int P_STRING = 1;
+    static final int P_INT = 2;
+    static final int P_LONG = 3;
+    static final int P_FLOAT = 4;
+    static final int P_DOUBLE = 5;
+    static final int P_BOOLEAN = 6;
+    static final int P_DATE = 7;
+
+    static final int MAX_STRINGS = 1 << 16;
+    static final int MAX_CAUSES = 16;
+
+    private OutputStream out;
+    private Level flushLevel;
+    private FileHandler.LockFile lock;
+    private final HashMap<String,Integer> strings = new HashMap<>();
+    private final Buffer defs = new Buffer();      // string entries
+    private final Buffer rec = new Buffer();       // record payload
+    private long lastMillis;
+    private long lastSequence;
+
+    // Private method to configure a BinaryLogHandler from LogManager
+    // properties and/or default values as specified in the class
+    // javadoc.
+    private void configure() {
+        LogManager manager = LogManager.getLogManager();
+        String cname = getClass().getName();
+
+        setLevel(manager.getLevelProperty(cname + ".level", Level.ALL));
+        setFilter(manager.getFilterProperty(cname + ".filter", null));
+        flushLevel = manager.getLevelProperty(cname + ".flushLevel", Level.ALL);
+    }
+
+    /**
+     * Construct a default <tt>BinaryLogHandler</tt>.  This will be configured
+     * entirely from <tt>LogManager</tt> properties (or their default values).
+     *
+     * @exception  IOException if there are IO problems opening the file.
+     * @exception  SecurityException  if a security manager exists and if
+     *             the caller does not have <tt>LoggingPermission("control"))</tt>.
+     */
+    public BinaryLogHandler() throws IOException, SecurityException {
+        checkPermission();
+        configure();
+        LogManager manager = LogManager.getLogManager();
+        String cname = getClass().getName();
+        open(manager.getStringProperty(cname + ".pattern", "%h/java%u.blog"),
+             manager.getBooleanProperty(cname + ".append", false));
+    }
+
+    /**
+     * Initialize a <tt>BinaryLogHandler</tt> to write to the given file.
+     * <p>
+     * The <tt>BinaryLogHandler</tt> is configured based on <tt>LogManager</tt>
+     * properties (or their default values) except that the given pattern
+     * argument is used as the filename pattern, and the append mode is
+     * set to the given <tt>append</tt> argument.
+     *
+     * @param pattern  the pattern for naming the output file
+     * @param append  specifies append mode
+     * @exception  IOException if there are IO problems opening the file.
+     * @exception  SecurityException  if a security manager exists and if
+     *             the caller does not have <tt>LoggingPermission("control")</tt>.
+     * @exception  IllegalArgumentException if pattern is an empty string
+     */
+    public BinaryLogHandler(String pattern, boolean append)
+                                        throws IOException, SecurityException {
+        if (pattern.length() < 1) {
+            throw new IllegalArgumentException();
+        }
+        checkPermission();
+        configure();
+        open(pattern, append);
+    }
+
+    /**
+     * Create a <tt>BinaryLogHandler</tt> writing to the given stream.
+     * <p>
+     * The <tt>BinaryLogHandler</tt> is configured based on <tt>LogManager</tt>
+     * properties (or their default values).  The stream is buffered by the
+     * handler, and closed when the handler is closed.
+     *
+     * @param out  the stream to write to
+     */
+    public BinaryLogHandler(OutputStream out) {
+        if (out == null) {
+            throw new NullPointerException();
+        }
+        sealed = false;
+        configure();
+        sealed = true;
+        this.out = new BufferedOutputStream(out, 64 * 1024);
+        writeHeader();
+    }
+
+    private void open(String pattern, boolean append) throws IOException {
+        LogManager.getLogManager().checkPermission();
+        lock = FileHandler.LockFile.acquire(pattern, 1);
+        try {
+            File file = FileHandler.generate(pattern, 1, 0, lock.unique);
+            out = new BufferedOutputStream(new FileOutputStream(file, append),
+                                           64 * 1024);
+        } catch (IOException | RuntimeException ex) {
+            lock.release();
+            throw ex;
+        }
+        writeHeader();
+    }
+
+    private void writeHeader() {
+        try {
+            DataOutputStream dos = new DataOutputStream(out);
+            dos.writeInt(MAGIC);
+            dos.writeByte(VERSION);
+        } catch (Exception ex) {
+            reportError(null, ex, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    /**
+     * Write a <tt>LogRecord</tt> to the stream.
+     *
+     * @param  record  description of the log event. A null record is
+     *                 silently ignored and is not published
+     */
+    public synchronized void publish(LogRecord record) {
+        if (!isLoggable(record) || out == null) {
+            return;
+        }
+        defs.reset();
+        rec.reset();
+        int nstrings = strings.size();
+        long millis = lastMillis;
+        long sequence = lastSequence;
+        try {
+            encode(record);
+        } catch (Exception ex) {
+            // Nothing of the record is written, so the strings it added to
+            // the table and the values its deltas are taken from are undone
+            rollback(nstrings);
+            lastMillis = millis;
+            lastSequence = sequence;
+            reportError(null, ex, ErrorManager.FORMAT_FAILURE);
+            return;
+        }
+        try {
+            defs.writeTo(out);
+            out.write(RECORD_ENTRY);
+            writeVarint(out, rec.count);
+            rec.writeTo(out);
+            if (record.getLevel().intValue() >= flushLevel.intValue()) {
+                out.flush();
+            }
+        } catch (Exception ex) {
+            reportError(null, ex, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    // Removes the strings added to the table since it had n of them.
+    private void rollback(int n) {
+        if (strings.size() == n) {
+            return;
+        }
+        Iterator<Integer> ids = strings.values().iterator();
+        while (ids.hasNext()) {
+            if (ids.next() >= n) {
+                ids.remove();
+            }
+        }
+    }
+
+    private void encode(LogRecord r) {
+        Level level = r.getLevel();
+        rec.writeZigzag(level.intValue());
+        writeString(level.getName(), true);
+        long millis = r.getMillis();
+        rec.writeZigzag(millis - lastMillis);
+        lastMillis = millis;
+        long seq = r.getSequenceNumber();
+        rec.writeZigzag(seq - lastSequence);
+        lastSequence = seq;
+        rec.writeZigzag(r.getThreadID());
+        writeString(r.getLoggerName(), true);
+        // Only templates and resource bundle keys recur; text formatted
+        // by the caller would fill the string table with one-off entries.
+        Object[] params = r.getParameters();
+        String bundle = r.getResourceBundleName();
+        boolean template = (params != null && params.length > 0) || bundle != null;
+        writeString(r.getMessage(), template);
+        writeString(bundle, true);
+        writeString(r.getSourceClassName(), true);
+        writeString(r.getSourceMethodName(), true);
+        if (params == null) {
+            rec.writeVarint(0);
+        } else {
+            rec.writeVarint(params.length + 1);
+            for (Object p : params) {
+                writeParameter(p);
+            }
+        }
+        writeThrown(r.getThrown(), 0);
+    }
+
+    private void writeParameter(Object p) {
+        if (p == null) {
+            rec.write(P_NULL);
+        } else if (p instanceof Integer || p instanceof Short || p instanceof Byte) {
+            rec.write(P_INT);
+            rec.writeZigzag(((Number)p).intValue());
+        } else if (p instanceof Long) {
+            rec.write(P_LONG);
+            rec.writeZigzag((Long)p);
+        } else if (p instanceof Float) {
+            rec.write(P_FLOAT);
+            rec.writeFixed(Float.floatToRawIntBits((Float)p), 4);
+        } else if (p instanceof Double) {
+            rec.write(P_DOUBLE);
+            rec.writeFixed(Double.doubleToRawLongBits((Double)p), 8);
+        } else if (p instanceof Boolean) {
+            rec.write(P_BOOLEAN);
+            rec.write(((Boolean)p) ? 1 : 0);
+        } else if (p instanceof Date) {
+            rec.write(P_DATE);
+            rec.writeZigzag(((Date)p).getTime());
+        } else {
+            // As with LogRecord serialization, other objects are kept
+            // as strings.
+            rec.write(P_STRING);
+            writeString(p.toString(), false);
+        }
+    }
+
+    private void writeThrown(Throwable t, int depth) {
+        if (t == null || depth > MAX_CAUSES) {
+            rec.write(0);
+            return;
+        }
+        rec.write(1);
+        writeString(t.getClass().getName(), true);
+        writeString(t.getMessage(), false);
+        StackTraceElement[] frames = t.getStackTrace();
+        rec.writeVarint(frames.length);
+        for (StackTraceElement f : frames) {
+            writeString(f.getClassName(), true);
+            writeString(f.getMethodName(), true);
+            writeString(f.getFileName(), true);
+            rec.writeZigzag(f.getLineNumber());
+        }
+        Throwable cause = t.getCause();
+        writeThrown(cause == t ? null : cause, depth + 1);
+    }
+
+    // Writes a reference to the given string, adding it to the string
+    // table first if it is to be interned and is not already there.
+    private void writeString(String s, boolean intern) {
+        if (s == null) {
+            rec.writeVarint(NULL_REF);
+            return;
+        }
+        if (intern) {
+            Integer id = strings.get(s);
+            if (id == null && strings.size() < MAX_STRINGS) {
+                id = strings.size();
+                strings.put(s, id);
+                byte[] b = s.getBytes(StandardCharsets.UTF_8);
+                defs.write(STRING_ENTRY);
+                defs.writeVarint(b.length);
+                defs.write(b, 0, b.length);
+            }
+            if (id != null) {
+                rec.writeVarint(FIRST_ID + id);
+                return;
+            }
+        }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        rec.writeVarint(INLINE_REF);
+        rec.writeVarint(b.length);
+        rec.write(b, 0, b.length);
+    }
+
+    private static void writeVarint(OutputStream out, long v) throws IOException {
+        while ((v & ~0x7fL) != 0) {
+            out.write((int)(v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        out.write((int)v);
+    }
+
+    /**
+     * Set the flush level.  The buffered records are written out when a
+     * record at or above this level is published.
+     *
+     * @param newLevel the new value of the flush level
+     * @exception  SecurityException  if a security manager exists and if
+     *             the caller does not have <tt>LoggingPermission("control")</tt>.
+     */
+    public synchronized void setFlushLevel(Level newLevel) throws SecurityException {
+        if (newLevel == null) {
+            throw new NullPointerException();
+        }
+        checkPermission();
+        flushLevel = newLevel;
+    }
+
+    /**
+     * Get the flush level.
+     *
+     * @return the value of the flush level
+     */
+    public synchronized Level getFlushLevel() {
+        return flushLevel;
+    }
+
+    /**
+     * Flush any buffered records.
+     */
+    public synchronized void flush() {
+        if (out != null) {
+            try {
+                out.flush();
+            } catch (Exception ex) {
+                reportError(null, ex, ErrorManager.FLUSH_FAILURE);
+            }
+        }
+    }
+
+    /**
+     * Close the stream or file.
+     *
+     * @exception  SecurityException  if a security manager exists and if
+     *             the caller does not have <tt>LoggingPermission("control")</tt>.
+     */
+    public synchronized void close() throws SecurityException {
+        checkPermission();
+        if (out != null) {
+            try {
+                out.close();
+            } catch (Exception ex) {
+                reportError(null, ex, ErrorManager.CLOSE_FAILURE);
+            }
+            out = null;
+        }
+        if (lock != null) {
+            lock.release();
+            lock = null;
+        }
+    }
+
+    // A growable byte array.
+    private static class Buffer {
+        byte[] buf = new byte[256];
+        int count;
+
+        void reset() {
+            count = 0;
+        }
+
+        private void ensure(int n) {
+            if (count + n > buf.length) {
+                buf = java.util.Arrays.copyOf(buf, Math.max(buf.length * 2, count + n));
+            }
+        }
+
+        void write(int b) {
+            ensure(1);
+            buf[count++] = (byte)b;
+        }
+
+        void write(byte[] b, int off, int len) {
+            ensure(len);
+            System.arraycopy(b, off, buf, count, len);
+            count += len;
+        }
+
+        void writeVarint(long v) {
+            ensure(10);
+            while ((v & ~0x7fL) != 0) {
+                buf[count++] = (byte)((v & 0x7f) | 0x80);
+                v >>>= 7;
+            }
+            buf[count++] = (byte)v;
+        }
+
+        void writeZigzag(long v) {
+            writeVarint((v << 1) ^ (v >> 63));
+        }
+
+        void writeFixed(long v, int n) {
+            ensure(n);
+            for (int i = 0; i < n; i++) {
+                buf[count++] = (byte)(v >>> (i * 8));
+            }
+        }
+
+        void writeTo(OutputStream out) throws IOException {
+            out.write(buf, 0, count);
+        }
+    }
+}
@@ -0,0 +1,441 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.logging;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import static java.util.logging.BinaryLogHandler.*;
+
+/**
+ * Reads the <tt>LogRecords</tt> written by a {@link BinaryLogHandler}.
+ * <p>
+ * The records are read in the order they were written.  A reader can be
+ * restricted to records at or above a level, from a logger and its
+ * descendants, or in a time range; records that are not wanted are
+ * skipped without decoding their messages, parameters or stack traces.
+ * Records can be rendered as text by any <tt>Formatter</tt>, which formats
+ * their messages from the stored templates and parameters.  For example
+ * <pre>
+ *     try (BinaryLogReader reader = new BinaryLogReader(new FileInputStream(file))) {
+ *         reader.setLevel(Level.WARNING);
+ *         reader.setLoggerName("com.wombat");
+ *         reader.render(new SimpleFormatter(), System.out);
+ *     }
+ * </pre>
+ * <p>
+ * The records that are read are equivalent to the records that were
+ * published, with these differences: parameters other than numbers,
+ * booleans and dates are strings, and a thrown exception is represented
+ * by a <tt>Throwable</tt> with the same message, stack trace and causes
+ * whose <tt>toString</tt> gives the name of the original class.  A resource
+ * bundle named by a record is looked up again when the record is read.
+ * <p>
+ * A log that ends in an incomplete record, as when the writing virtual
+ * machine terminated abruptly, is read up to that record.
+ * <p>
+ * A <tt>BinaryLogReader</tt> is not safe for use by multiple threads.
+ *
+ * @see BinaryLogHandler
+ * @since 1.7
+ */
+
+public class BinaryLogReader implements Closeable {
+
+    private final DataInputStream in;
+    private final ArrayList<String> strings = new ArrayList<>();
+    private final HashMap<String,Level> levels = new HashMap<>();
+    private final HashMap<String,ResourceBundle> bundles = new HashMap<>();
+    private byte[] buf = new byte[256];
+    private int pos;
+    private int end;
+    private long lastMillis;
+    private long lastSequence;
+
+    private int minLevel = Integer.MIN_VALUE;
+    private String loggerName;
+    private long fromMillis = Long.MIN_VALUE;
+    private long toMillis = Long.MAX_VALUE;
+    private Filter filter;
+
+    /**
+     * Create a <tt>BinaryLogReader</tt> reading from the given stream.
+     *
+     * @param in  the stream to read from
+     * @exception IOException if the stream does not start with a binary
+     *            log header, or if an I/O error occurs
+     */
+    public BinaryLogReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in, 64 * 1024));
+        if (this.in.readInt() != MAGIC) {
+            throw new IOException("Not a binary log");
+        }
+        readVersion();
+    }
+
+    private void readVersion() throws IOException {
+        int version = in.readUnsignedByte();
+        if (version > VERSION) {
+            throw new IOException("Unsupported binary log version " + version);
+        }
+        strings.clear();
+        lastMillis = 0;
+        lastSequence = 0;
+    }
+
+    /**
+     * Read only records at or above the given level.
+     *
+     * @param level  the minimum level, or null to read records of all levels
+     */
+    public void setLevel(Level level) {
+        minLevel = level == null ? Integer.MIN_VALUE : level.intValue();
+    }
+
+    /**
+     * Read only records from the named logger and its descendants.
+     *
+     * @param name  the logger name, or null to read records of all loggers
+     */
+    public void setLoggerName(String name) {
+        loggerName = name == null || name.isEmpty() ? null : name;
+    }
+
+    /**
+     * Read only records whose event time is in the given range.
+     *
+     * @param fromMillis  the start of the range in milliseconds since 1970,
+     *                    inclusive
+     * @param toMillis    the end of the range in milliseconds since 1970,
+     *                    exclusive
+     */
+    public void setTimeRange(long fromMillis, long toMillis) {
+        this.fromMillis = fromMillis;
+        this.toMillis = toMillis;
+    }
+
+    /**
+     * Read only records that the given filter finds loggable, in addition
+     * to the level, logger and time restrictions.
+     *
+     * @param filter  a <tt>Filter</tt> object (may be null)
+     */
+    public void setFilter(Filter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Read the next record.
+     *
+     * @return the next record that satisfies the restrictions of this
+     *         reader, or null at the end of the log
+     * @exception IOException if the log is malformed or an I/O error occurs
+     */
+    public LogRecord read() throws IOException {
+        for (;;) {
+            int type = in.read();
+            if (type < 0) {
+                return null;
+            }
+            try {
+                if (type == MAGIC >>> 24) {
+                    // Another header: the log was appended to.
+                    if (in.readUnsignedByte() != ((MAGIC >>> 16) & 0xff)
+                        || in.readUnsignedByte() != ((MAGIC >>> 8) & 0xff)
+                        || in.readUnsignedByte() != (MAGIC & 0xff)) {
+                        throw new IOException("Malformed binary log");
+                    }
+                    readVersion();
+                    continue;
+                }
+                long len = readVarint(in);
+                if (len < 0 || len > Integer.MAX_VALUE) {
+                    throw new IOException("Malformed binary log");
+                }
+                if (buf.length < len) {
+                    buf = new byte[Math.max((int)len, buf.length * 2)];
+                }
+                in.readFully(buf, 0, (int)len);
+                pos = 0;
+                end = (int)len;
+            } catch (EOFException ex) {
+                // An incomplete last entry.
+                return null;
+            }
+            if (type == STRING_ENTRY) {
+                strings.add(new String(buf, 0, end, StandardCharsets.UTF_8));
+            } else if (type == RECORD_ENTRY) {
+                LogRecord r = decode();
+                if (r != null && (filter == null || filter.isLoggable(r))) {
+                    return r;
+                }
+            }
+            // Entries of other types are ignored.
+        }
+    }
+
+    /**
+     * Format the remaining records with the given formatter and append
+     * them to the given destination.
+     *
+     * @param formatter  the formatter
+     * @param out  the destination
+     * @return the number of records rendered
+     * @exception IOException if the log is malformed or an I/O error occurs
+     */
+    public long render(Formatter formatter, Appendable out) throws IOException {
+        long n = 0;
+        LogRecord r;
+        while ((r = read()) != null) {
+            out.append(formatter.format(r));
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Close the reader and the underlying stream.
+     *
+     * @exception IOException if an I/O error occurs
+     */
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // Decodes the record in the buffer, or returns null if it is
+    // excluded by the level, logger or time restrictions.
+    private LogRecord decode() throws IOException {
+        int levelValue = (int)readZigzag();
+        String levelName = readString();
+        long millis = lastMillis + readZigzag();
+        lastMillis = millis;
+        long seq = lastSequence + readZigzag();
+        lastSequence = seq;
+        int threadID = (int)readZigzag();
+        String logger = readString();
+        if (levelValue < minLevel || millis < fromMillis || millis >= toMillis) {
+            return null;
+        }
+        if (loggerName != null
+            && (logger == null || !logger.startsWith(loggerName)
+                || (logger.length() > loggerName.length()
+                    && logger.charAt(loggerName.length()) != '.'))) {
+            return null;
+        }
+
+        LogRecord r = new LogRecord(level(levelName, levelValue), readString());
+        r.setMillis(millis);
+        r.setSequenceNumber(seq);
+        r.setThreadID(threadID);
+        r.setLoggerName(logger);
+        String bundleName = readString();
+        if (bundleName != null) {
+            r.setResourceBundleName(bundleName);
+            r.setResourceBundle(bundle(bundleName));
+        }
+        r.setSourceClassName(readString());
+        r.setSourceMethodName(readString());
+        long n = readVarint();
+        if (n < 0 || n - 1 > end - pos) {
+            throw new IOException("Malformed binary log");
+        }
+        if (n > 0) {
+            Object[] params = new Object[(int)n - 1];
+            for (int i = 0; i < params.length; i++) {
+                params[i] = readParameter();
+            }
+            r.setParameters(params);
+        }
+        r.setThrown(readThrown());
+        return r;
+    }
+
+    private Level level(String name, int value) {
+        Level level = levels.get(name);
+        if (level == null || level.intValue() != value) {
+            level = Level.findLevel(name);
+            if (level == null || level.intValue() != value) {
+                level = new Level(name, value);
+            }
+            levels.put(name, level);
+        }
+        return level;
+    }
+
+    private ResourceBundle bundle(String name) {
+        if (bundles.containsKey(name)) {
+            return bundles.get(name);
+        }
+        ResourceBundle bundle = null;
+        try {
+            bundle = ResourceBundle.getBundle(name);
+        } catch (MissingResourceException ex) {
+            // The message is formatted from its key.
+        }
+        bundles.put(name, bundle);
+        return bundle;
+    }
+
+    private Object readParameter() throws IOException {
+        switch (readByte()) {
+        case P_NULL:
+            return null;
+        case P_STRING:
+            return readString();
+        case P_INT:
+            return Integer.valueOf((int)readZigzag());
+        case P_LONG:
+            return Long.valueOf(readZigzag());
+        case P_FLOAT:
+            return Float.valueOf(Float.intBitsToFloat((int)readFixed(4)));
+        case P_DOUBLE:
+            return Double.valueOf(Double.longBitsToDouble(readFixed(8)));
+        case P_BOOLEAN:
+            return Boolean.valueOf(readByte() != 0);
+        case P_DATE:
+            return new Date(readZigzag());
+        default:
+            throw new IOException("Malformed binary log");
+        }
+    }
+
+    private Throwable readThrown() throws IOException {
+        if (readByte() == 0) {
+            return null;
+        }
+        String className = readString();
+        String message = readString();
+        int n = (int)readVarint();
+        if (n < 0 || n > end - pos) {
+            throw new IOException("Malformed binary log");
+        }
+        StackTraceElement[] frames = new StackTraceElement[n];
+        for (int i = 0; i < n; i++) {
+            String declaringClass = readString();
+            String methodName = readString();
+            String fileName = readString();
+            int line = (int)readZigzag();
+            frames[i] = new StackTraceElement(declaringClass, methodName,
+                                              fileName, line);
+        }
+        Throwable thrown = new LoggedThrowable(className, message, readThrown());
+        thrown.setStackTrace(frames);
+        return thrown;
+    }
+
+    // -- decoding the buffer --
+
+    private int readByte() throws IOException {
+        if (pos >= end) {
+            throw new IOException("Malformed binary log");
+        }
+        return buf[pos++] & 0xff;
+    }
+
+    private long readVarint() throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            v |= (long)(b & 0x7f) << shift;
+            if (b < 0x80) {
+                return v;
+            }
+        }
+        throw new IOException("Malformed binary log");
+    }
+
+    private long readZigzag() throws IOException {
+        long v = readVarint();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private long readFixed(int n) throws IOException {
+        long v = 0;
+        for (int i = 0; i < n; i++) {
+            v |= (long)readByte() << (i * 8);
+        }
+        return v;
+    }
+
+    private String readString() throws IOException {
+        long ref = readVarint();
+        if (ref == NULL_REF) {
+            return null;
+        }
+        if (ref == INLINE_REF) {
+            long len = readVarint();
+            if (len < 0 || len > end - pos) {
+                throw new IOException("Malformed binary log");
+            }
+            String s = new String(buf, pos, (int)len, StandardCharsets.UTF_8);
+            pos += (int)len;
+            return s;
+        }
+        long id = ref - FIRST_ID;
+        if (id < 0 || id >= strings.size()) {
+            throw new IOException("Malformed binary log");
+        }
+        return strings.get((int)id);
+    }
+
+    private static long readVarint(DataInputStream in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (long)(b & 0x7f) << shift;
+            if (b < 0x80) {
+                return v;
+            }
+        }
+        throw new IOException("Malformed binary log");
+    }
+
+    // Stands in for a logged exception, whose class may not be available
+    // to the reader.
+    private static class LoggedThrowable extends Throwable {
+        private static final long serialVersionUID = -1460432245315513146L;
+
+        private final String className;
+
+        LoggedThrowable(String className, String message, Throwable cause) {
+            super(message, cause, false, true);
+            this.className = className;
+        }
+
+        public Throwable fillInStackTrace() {
+            return this;
+        }
+
+        public String toString() {
+            String message = getLocalizedMessage();
+            return message != null ? className + ": " + message : className;
+        }
+    }
+}
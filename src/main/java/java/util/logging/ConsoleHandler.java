@@ -103,7 +103,9 @@ public class ConsoleHandler extends StreamHandler {
      */
     public void publish(LogRecord record) {
         super.publish(record);
-        flush();
+        if (!flushDeferred()) {
+            flush();
+        }
     }
 
     /**
@@ -382,58 +382,14 @@ public class FileHandler extends StreamHandler {
 
         // Create a lock file.  This grants us exclusive access
         // to our set of output files, as long as we are alive.
-        int unique = -1;
-        for (;;) {
-            unique++;
-            if (unique > MAX_LOCKS) {
-                throw new IOException("Couldn't get lock for " + pattern);
-            }
-            // Generate a lock file name from the "unique" int.
-            lockFileName = generate(pattern, 0, unique).toString() + ".lck";
-            // Now try to lock that filename.
-            // Because some systems (e.g., Solaris) can only do file locks
-            // between processes (and not within a process), we first check
-            // if we ourself already have the file locked.
-            synchronized(locks) {
-                if (locks.get(lockFileName) != null) {
-                    // We already own this lock, for a different FileHandler
-                    // object.  Try again.
-                    continue;
-                }
-                FileChannel fc;
-                try {
-                    lockStream = new FileOutputStream(lockFileName);
-                    fc = lockStream.getChannel();
-                } catch (IOException ix) {
-                    // We got an IOException while trying to open the file.
-                    // Try the next file.
-                    continue;
-                }
-                boolean available;
-                try {
-                    available = fc.tryLock() != null;
-                    // We got the lock OK.
-                } catch (IOException ix) {
-                    // We got an IOException while trying to get the lock.
-                    // This normally indicates that locking is not supported
-                    // on the target directory.  We have to proceed without
-                    // getting a lock.   Drop through.
-                    available = true;
-                }
-                if (available) {
-                    // We got the lock.  Remember it.
-                    locks.put(lockFileName, lockFileName);
-                    break;
-                }
-
-                // We failed to get the lock.  Try next file.
-                fc.close();
-            }
-        }
+        LockFile lock = LockFile.acquire(pattern, count);
+        lockFileName = lock.name;
+        lockStream = lock.stream;
+        int unique = lock.unique;
 
         files = new File[count];
         for (int i = 0; i < count; i++) {
-            files[i] = generate(pattern, i, unique);
+            files[i] = generate(pattern, count, i, unique);
         }
 
         // Create the initial log file.
@@ -459,8 +415,94 @@ public class FileHandler extends StreamHandler {
         setErrorManager(new ErrorManager());
     }
 
-    // Generate a filename from a pattern.
-    private File generate(String pattern, int generation, int unique) throws IOException {
+    // A lock file, granting exclusive access to the set of output files
+    // generated from a pattern with its unique number.  Also used by
+    // RollingFileHandler and BinaryLogHandler.
+    static final class LockFile {
+        final String name;
+        final FileOutputStream stream;
+        final int unique;
+
+        private LockFile(String name, FileOutputStream stream, int unique) {
+            this.name = name;
+            this.stream = stream;
+            this.unique = unique;
+        }
+
+        // Create and lock the lock file for the first unique number
+        // whose lock file is not already locked.
+        static LockFile acquire(String pattern, int count) throws IOException {
+            int unique = -1;
+            for (;;) {
+                unique++;
+                if (unique > MAX_LOCKS) {
+                    throw new IOException("Couldn't get lock for " + pattern);
+                }
+                // Generate a lock file name from the "unique" int.
+                String lockFileName = generate(pattern, count, 0, unique).toString() + ".lck";
+                // Now try to lock that filename.
+                // Because some systems (e.g., Solaris) can only do file locks
+                // between processes (and not within a process), we first check
+                // if we ourself already have the file locked.
+                synchronized(locks) {
+                    if (locks.get(lockFileName) != null) {
+                        // We already own this lock, for a different FileHandler
+                        // object.  Try again.
+                        continue;
+                    }
+                    FileOutputStream lockStream;
+                    FileChannel fc;
+                    try {
+                        lockStream = new FileOutputStream(lockFileName);
+                        fc = lockStream.getChannel();
+                    } catch (IOException ix) {
+                        // We got an IOException while trying to open the file.
+                        // Try the next file.
+                        continue;
+                    }
+                    boolean available;
+                    try {
+                        available = fc.tryLock() != null;
+                        // We got the lock OK.
+                    } catch (IOException ix) {
+                        // We got an IOException while trying to get the lock.
+                        // This normally indicates that locking is not supported
+                        // on the target directory.  We have to proceed without
+                        // getting a lock.   Drop through.
+                        available = true;
+                    }
+                    if (available) {
+                        // We got the lock.  Remember it.
+                        locks.put(lockFileName, lockFileName);
+                        return new LockFile(lockFileName, lockStream, unique);
+                    }
+
+                    // We failed to get the lock.  Try next file.
+                    fc.close();
+                }
+            }
+        }
+
+        // Unlock and delete the lock file.
+        void release() {
+            try {
+                // Closing the lock file's FileOutputStream will close
+                // the underlying channel and free any locks.
+                stream.close();
+            } catch (Exception ex) {
+                // Problems closing the stream.  Punt.
+            }
+            synchronized(locks) {
+                locks.remove(name);
+            }
+            new File(name).delete();
+        }
+    }
+
+    // Generate a filename from a pattern, for a set of count files.
+    // Also used by RollingFileHandler.
+    static File generate(String pattern, int count, int generation, int unique)
+            throws IOException {
         File file = null;
         String word = "";
         int ix = 0;
@@ -573,7 +615,9 @@ public class FileHandler extends StreamHandler {
             return;
         }
         super.publish(record);
-        flush();
+        if (!flushDeferred()) {
+            flush();
+        }
         if (limit > 0 && meter.written >= limit) {
             // We performed access checks in the "init" method to make sure
             // we are only initialized from trusted code.  So we assume
@@ -601,17 +645,7 @@ public class FileHandler extends StreamHandler {
         if (lockFileName == null) {
             return;
         }
-        try {
-            // Closing the lock file's FileOutputStream will close
-            // the underlying channel and free any locks.
-            lockStream.close();
-        } catch (Exception ex) {
-            // Problems closing the stream.  Punt.
-        }
-        synchronized(locks) {
-            locks.remove(lockFileName);
-        }
-        new File(lockFileName).delete();
+        new LockFile(lockFileName, lockStream, 0).release();
         lockFileName = null;
         lockStream = null;
     }
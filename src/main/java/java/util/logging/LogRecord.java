@@ -138,6 +138,7 @@ public class LogRecord implements java.io.Serializable {
     private String resourceBundleName;
 
     private transient boolean needToInferCaller;
+    private transient Throwable callerTrace;    // see captureCaller
     private transient Object parameters[];
     private transient ResourceBundle resourceBundle;
 
@@ -527,11 +528,30 @@ public class LogRecord implements java.io.Serializable {
         needToInferCaller = false;
     }
 
+    /*
+     * Records the stack of the current thread if the caller's class and
+     * method names will need to be inferred, so that they can be inferred
+     * later, on another thread, as by the writer thread of an AsyncHandler.
+     * Only the frames are captured here; finding the caller's frame and
+     * creating its StackTraceElement is left to the first call to
+     * getSourceClassName or getSourceMethodName, if there is one.
+     */
+    void captureCaller() {
+        if (needToInferCaller && callerTrace == null) {
+            callerTrace = new Throwable();
+        }
+    }
+
     // Private method to infer the caller's class and method names
     private void inferCaller() {
         needToInferCaller = false;
         JavaLangAccess access = SharedSecrets.getJavaLangAccess();
-        Throwable throwable = new Throwable();
+        Throwable throwable = callerTrace;
+        if (throwable == null) {
+            throwable = new Throwable();
+        } else {
+            callerTrace = null;
+        }
         int depth = access.getStackTraceDepth(throwable);
 
         boolean lookingForLogger = true;
@@ -120,6 +120,12 @@ import sun.reflect.Reflection;
  * Note that formatting need not occur synchronously.  It may be delayed
  * until a LogRecord is actually written to an external sink.
  * <p>
+ * Most of the "log", "logp" and level methods also have a form that takes
+ * a {@link MessageSupplier} instead of a message string.  The supplier is
+ * only called once the logger has found that the message level is
+ * enabled, so that the cost of building a message that will not be
+ * logged is avoided.
+ * <p>
  * The logging methods are grouped in five main categories:
  * <ul>
  * <li><p>
@@ -596,7 +602,7 @@ public class Logger {
      * @param record the LogRecord to be published
      */
     public void log(LogRecord record) {
-        if (record.getLevel().intValue() < levelValue || levelValue == offValue) {
+        if (!isLevelEnabled(record.getLevel().intValue())) {
             return;
         }
         Filter theFilter = filter;
@@ -657,13 +663,35 @@ public class Logger {
      * @param   msg     The string message (or a key in the message catalog)
      */
     public void log(Level level, String msg) {
-        if (level.intValue() < levelValue || levelValue == offValue) {
+        if (!isLevelEnabled(level.intValue())) {
             return;
         }
         LogRecord lr = new LogRecord(level, msg);
         doLog(lr);
     }
 
+    /**
+     * Log a message, which is only to be constructed if the logging level
+     * is such that the message will actually be logged.
+     * <p>
+     * If the logger is currently enabled for the given message
+     * level then the message is constructed by invoking the provided
+     * supplier function and forwarded to all the registered output
+     * Handler objects.
+     * <p>
+     * @param   level   One of the message level identifiers, e.g., SEVERE
+     * @param   msgSupplier   A function, which when called, produces the
+     *                        desired log message
+     * @since 1.7
+     */
+    public void log(Level level, MessageSupplier msgSupplier) {
+        if (!isLevelEnabled(level.intValue())) {
+            return;
+        }
+        LogRecord lr = new LogRecord(level, msgSupplier.get());
+        doLog(lr);
+    }
+
     /**
      * Log a message, with one object parameter.
      * <p>
@@ -676,7 +704,7 @@ public class Logger {
      * @param   param1  parameter to the message
      */
     public void log(Level level, String msg, Object param1) {
-        if (level.intValue() < levelValue || levelValue == offValue) {
+        if (!isLevelEnabled(level.intValue())) {
             return;
         }
         LogRecord lr = new LogRecord(level, msg);
@@ -697,7 +725,7 @@ public class Logger {
      * @param   params  array of parameters to the message
      */
     public void log(Level level, String msg, Object params[]) {
-        if (level.intValue() < levelValue || levelValue == offValue) {
+        if (!isLevelEnabled(level.intValue())) {
             return;
         }
         LogRecord lr = new LogRecord(level, msg);
@@ -722,7 +750,7 @@ public class Logger {
      * @param   thrown  Throwable associated with log message.
      */
     public void log(Level level, String msg, Throwable thrown) {
-        if (level.intValue() < levelValue || levelValue == offValue) {
+        if (!isLevelEnabled(level.intValue())) {
             return;
         }
         LogRecord lr = new LogRecord(level, msg);
@@ -730,6 +758,34 @@ public class Logger {
         doLog(lr);
     }
 
+    /**
+     * Log a lazily constructed message, with associated Throwable information.
+     * <p>
+     * If the logger is currently enabled for the given message level then the
+     * message is constructed by invoking the provided supplier function. The
+     * message and the given {@link Throwable} are then stored in a {@link
+     * LogRecord} which is forwarded to all registered output handlers.
+     * <p>
+     * Note that the thrown argument is stored in the LogRecord thrown
+     * property, rather than the LogRecord parameters property.  Thus is it
+     * processed specially by output Formatters and is not treated
+     * as a formatting parameter to the LogRecord message property.
+     * <p>
+     * @param   level   One of the message level identifiers, e.g., SEVERE
+     * @param   thrown  Throwable associated with log message.
+     * @param   msgSupplier   A function, which when called, produces the
+     *                        desired log message
+     * @since 1.7
+     */
+    public void log(Level level, Throwable thrown, MessageSupplier msgSupplier) {
+        if (!isLevelEnabled(level.intValue())) {
+            return;
+        }
+        LogRecord lr = new LogRecord(level, msgSupplier.get());
+        lr.setThrown(thrown);
+        doLog(lr);
+    }
+
     //================================================================
     // Start of convenience methods WITH className and methodName
     //================================================================
@@ -748,7 +804,7 @@ public class Logger {
      * @param   msg     The string message (or a key in the message catalog)
      */
     public void logp(Level level, String sourceClass, String sourceMethod, String msg) {
-        if (level.intValue() < levelValue || levelValue == offValue) {
+        if (!isLevelEnabled(level.intValue())) {
             return;
         }
         LogRecord lr = new LogRecord(level, msg);
@@ -757,6 +813,33 @@ public class Logger {
         doLog(lr);
     }
 
+    /**
+     * Log a lazily constructed message, specifying source class and method,
+     * with no arguments.
+     * <p>
+     * If the logger is currently enabled for the given message
+     * level then the message is constructed by invoking the provided
+     * supplier function and forwarded to all the registered output
+     * Handler objects.
+     * <p>
+     * @param   level   One of the message level identifiers, e.g., SEVERE
+     * @param   sourceClass    name of class that issued the logging request
+     * @param   sourceMethod   name of method that issued the logging request
+     * @param   msgSupplier   A function, which when called, produces the
+     *                        desired log message
+     * @since 1.7
+     */
+    public void logp(Level level, String sourceClass, String sourceMethod,
+                                                     MessageSupplier msgSupplier) {
+        if (!isLevelEnabled(level.intValue())) {
+            return;
+        }
+        LogRecord lr = new LogRecord(level, msgSupplier.get());
+        lr.setSourceClassName(sourceClass);
+        lr.setSourceMethodName(sourceMethod);
+        doLog(lr);
+    }
+
     /**
      * Log a message, specifying source class and method,
      * with a single object parameter to the log message.
@@ -773,7 +856,7 @@ public class Logger {
      */
     public void logp(Level level, String sourceClass, String sourceMethod,
                                                 String msg, Object param1) {
-        if (level.intValue() < levelValue || levelValue == offValue) {
+        if (!isLevelEnabled(level.intValue())) {
             return;
         }
         LogRecord lr = new LogRecord(level, msg);
@@ -800,7 +883,7 @@ public class Logger {
      */
     public void logp(Level level, String sourceClass, String sourceMethod,
                                                 String msg, Object params[]) {
-        if (level.intValue() < levelValue || levelValue == offValue) {
+        if (!isLevelEnabled(level.intValue())) {
             return;
         }
         LogRecord lr = new LogRecord(level, msg);
@@ -831,7 +914,7 @@ public class Logger {
      */
     public void logp(Level level, String sourceClass, String sourceMethod,
                                                         String msg, Throwable thrown) {
-        if (level.intValue() < levelValue || levelValue == offValue) {
+        if (!isLevelEnabled(level.intValue())) {
             return;
         }
         LogRecord lr = new LogRecord(level, msg);
@@ -841,6 +924,40 @@ public class Logger {
         doLog(lr);
     }
 
+    /**
+     * Log a lazily constructed message, specifying source class and method,
+     * with associated Throwable information.
+     * <p>
+     * If the logger is currently enabled for the given message level then the
+     * message is constructed by invoking the provided supplier function. The
+     * message and the given {@link Throwable} are then stored in a {@link
+     * LogRecord} which is forwarded to all registered output handlers.
+     * <p>
+     * Note that the thrown argument is stored in the LogRecord thrown
+     * property, rather than the LogRecord parameters property.  Thus is it
+     * processed specially by output Formatters and is not treated
+     * as a formatting parameter to the LogRecord message property.
+     * <p>
+     * @param   level   One of the message level identifiers, e.g., SEVERE
+     * @param   sourceClass    name of class that issued the logging request
+     * @param   sourceMethod   name of method that issued the logging request
+     * @param   thrown  Throwable associated with log message.
+     * @param   msgSupplier   A function, which when called, produces the
+     *                        desired log message
+     * @since 1.7
+     */
+    public void logp(Level level, String sourceClass, String sourceMethod,
+                     Throwable thrown, MessageSupplier msgSupplier) {
+        if (!isLevelEnabled(level.intValue())) {
+            return;
+        }
+        LogRecord lr = new LogRecord(level, msgSupplier.get());
+        lr.setSourceClassName(sourceClass);
+        lr.setSourceMethodName(sourceMethod);
+        lr.setThrown(thrown);
+        doLog(lr);
+    }
+
 
     //=========================================================================
     // Start of convenience methods WITH className, methodName and bundle name.
@@ -879,7 +996,7 @@ public class Logger {
      */
     public void logrb(Level level, String sourceClass, String sourceMethod,
                                 String bundleName, String msg) {
-        if (level.intValue() < levelValue || levelValue == offValue) {
+        if (!isLevelEnabled(level.intValue())) {
             return;
         }
         LogRecord lr = new LogRecord(level, msg);
@@ -910,7 +1027,7 @@ public class Logger {
      */
     public void logrb(Level level, String sourceClass, String sourceMethod,
                                 String bundleName, String msg, Object param1) {
-        if (level.intValue() < levelValue || levelValue == offValue) {
+        if (!isLevelEnabled(level.intValue())) {
             return;
         }
         LogRecord lr = new LogRecord(level, msg);
@@ -943,7 +1060,7 @@ public class Logger {
      */
     public void logrb(Level level, String sourceClass, String sourceMethod,
                                 String bundleName, String msg, Object params[]) {
-        if (level.intValue() < levelValue || levelValue == offValue) {
+        if (!isLevelEnabled(level.intValue())) {
             return;
         }
         LogRecord lr = new LogRecord(level, msg);
@@ -980,7 +1097,7 @@ public class Logger {
      */
     public void logrb(Level level, String sourceClass, String sourceMethod,
                                         String bundleName, String msg, Throwable thrown) {
-        if (level.intValue() < levelValue || levelValue == offValue) {
+        if (!isLevelEnabled(level.intValue())) {
             return;
         }
         LogRecord lr = new LogRecord(level, msg);
@@ -1120,7 +1237,7 @@ public class Logger {
      * @param   thrown  The Throwable that is being thrown.
      */
     public void throwing(String sourceClass, String sourceMethod, Throwable thrown) {
-        if (Level.FINER.intValue() < levelValue || levelValue == offValue ) {
+        if (!isLevelEnabled(Level.FINER.intValue())) {
             return;
         }
         LogRecord lr = new LogRecord(Level.FINER, "THROW");
@@ -1150,6 +1267,23 @@ public class Logger {
         log(Level.SEVERE, msg);
     }
 
+    /**
+     * Log a SEVERE message, which is only to be constructed if the logging
+     * level is such that the message will actually be logged.
+     * <p>
+     * If the logger is currently enabled for the SEVERE message
+     * level then the message is constructed by invoking the provided
+     * supplier function and forwarded to all the registered output
+     * Handler objects.
+     * <p>
+     * @param   msgSupplier   A function, which when called, produces the
+     *                        desired log message
+     * @since 1.7
+     */
+    public void severe(MessageSupplier msgSupplier) {
+        log(Level.SEVERE, msgSupplier);
+    }
+
     /**
      * Log a WARNING message.
      * <p>
@@ -1166,6 +1300,23 @@ public class Logger {
         log(Level.WARNING, msg);
     }
 
+    /**
+     * Log a WARNING message, which is only to be constructed if the logging
+     * level is such that the message will actually be logged.
+     * <p>
+     * If the logger is currently enabled for the WARNING message
+     * level then the message is constructed by invoking the provided
+     * supplier function and forwarded to all the registered output
+     * Handler objects.
+     * <p>
+     * @param   msgSupplier   A function, which when called, produces the
+     *                        desired log message
+     * @since 1.7
+     */
+    public void warning(MessageSupplier msgSupplier) {
+        log(Level.WARNING, msgSupplier);
+    }
+
     /**
      * Log an INFO message.
      * <p>
@@ -1182,6 +1333,23 @@ public class Logger {
         log(Level.INFO, msg);
     }
 
+    /**
+     * Log a INFO message, which is only to be constructed if the logging
+     * level is such that the message will actually be logged.
+     * <p>
+     * If the logger is currently enabled for the INFO message
+     * level then the message is constructed by invoking the provided
+     * supplier function and forwarded to all the registered output
+     * Handler objects.
+     * <p>
+     * @param   msgSupplier   A function, which when called, produces the
+     *                        desired log message
+     * @since 1.7
+     */
+    public void info(MessageSupplier msgSupplier) {
+        log(Level.INFO, msgSupplier);
+    }
+
     /**
      * Log a CONFIG message.
      * <p>
@@ -1198,6 +1366,23 @@ public class Logger {
         log(Level.CONFIG, msg);
     }
 
+    /**
+     * Log a CONFIG message, which is only to be constructed if the logging
+     * level is such that the message will actually be logged.
+     * <p>
+     * If the logger is currently enabled for the CONFIG message
+     * level then the message is constructed by invoking the provided
+     * supplier function and forwarded to all the registered output
+     * Handler objects.
+     * <p>
+     * @param   msgSupplier   A function, which when called, produces the
+     *                        desired log message
+     * @since 1.7
+     */
+    public void config(MessageSupplier msgSupplier) {
+        log(Level.CONFIG, msgSupplier);
+    }
+
     /**
      * Log a FINE message.
      * <p>
@@ -1214,6 +1399,23 @@ public class Logger {
         log(Level.FINE, msg);
     }
 
+    /**
+     * Log a FINE message, which is only to be constructed if the logging
+     * level is such that the message will actually be logged.
+     * <p>
+     * If the logger is currently enabled for the FINE message
+     * level then the message is constructed by invoking the provided
+     * supplier function and forwarded to all the registered output
+     * Handler objects.
+     * <p>
+     * @param   msgSupplier   A function, which when called, produces the
+     *                        desired log message
+     * @since 1.7
+     */
+    public void fine(MessageSupplier msgSupplier) {
+        log(Level.FINE, msgSupplier);
+    }
+
     /**
      * Log a FINER message.
      * <p>
@@ -1230,6 +1432,23 @@ public class Logger {
         log(Level.FINER, msg);
     }
 
+    /**
+     * Log a FINER message, which is only to be constructed if the logging
+     * level is such that the message will actually be logged.
+     * <p>
+     * If the logger is currently enabled for the FINER message
+     * level then the message is constructed by invoking the provided
+     * supplier function and forwarded to all the registered output
+     * Handler objects.
+     * <p>
+     * @param   msgSupplier   A function, which when called, produces the
+     *                        desired log message
+     * @since 1.7
+     */
+    public void finer(MessageSupplier msgSupplier) {
+        log(Level.FINER, msgSupplier);
+    }
+
     /**
      * Log a FINEST message.
      * <p>
@@ -1246,6 +1465,23 @@ public class Logger {
         log(Level.FINEST, msg);
     }
 
+    /**
+     * Log a FINEST message, which is only to be constructed if the logging
+     * level is such that the message will actually be logged.
+     * <p>
+     * If the logger is currently enabled for the FINEST message
+     * level then the message is constructed by invoking the provided
+     * supplier function and forwarded to all the registered output
+     * Handler objects.
+     * <p>
+     * @param   msgSupplier   A function, which when called, produces the
+     *                        desired log message
+     * @since 1.7
+     */
+    public void finest(MessageSupplier msgSupplier) {
+        log(Level.FINEST, msgSupplier);
+    }
+
     //================================================================
     // End of convenience methods
     //================================================================
@@ -1292,10 +1528,14 @@ public class Logger {
      * @return  true if the given message level is currently being logged.
      */
     public boolean isLoggable(Level level) {
-        if (level.intValue() < levelValue || levelValue == offValue) {
-            return false;
-        }
-        return true;
+        return isLevelEnabled(level.intValue());
+    }
+
+    // Private method to test a level value against the effective level,
+    // reading the volatile levelValue only once.
+    private boolean isLevelEnabled(int value) {
+        int lv = levelValue;
+        return value >= lv && lv != offValue;
     }
 
     /**
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.logging;
+
+/**
+ * A MessageSupplier produces the message of a log record on demand.
+ * <p>
+ * The logging methods of {@link Logger} that take a MessageSupplier
+ * call its get method only if the logger is enabled for the message
+ * level, so the cost of building a message that will not be logged,
+ * such as concatenating strings or formatting values, is not paid.
+ *
+ * @see Logger#log(Level, MessageSupplier)
+ * @since 1.7
+ */
+
+public interface MessageSupplier {
+
+    /**
+     * Get the message to log.
+     * @return the message (or a key in the message catalog)
+     */
+    public String get();
+
+}
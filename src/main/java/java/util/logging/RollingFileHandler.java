@@ -0,0 +1,815 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.logging;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.security.*;
+import java.util.TimeZone;
+import java.util.zip.GZIPOutputStream;
+import sun.nio.ch.DirectBuffer;
+
+/**
+ * File logging <tt>Handler</tt> for high volumes of log records.
+ * <p>
+ * Like {@link FileHandler}, the <tt>RollingFileHandler</tt> writes to a
+ * rotating set of files whose names are generated from a pattern, and by
+ * default uses the <tt>XMLFormatter</tt>.  Unlike <tt>FileHandler</tt> it
+ * does not publish records one at a time under a lock:
+ * <ul>
+ * <li> Records are formatted and encoded by the publishing threads
+ *      concurrently, and appended to an in-memory buffer.
+ * <li> A background writer thread writes the buffer to the current file
+ *      whenever it is half full, when a record has waited for the flush
+ *      interval, or when {@link #flush flush} is invoked, so that one
+ *      write covers all the records appended since the previous one.
+ *      Records are appended to a second buffer while the first is being
+ *      written; a publishing thread only waits if both are full.
+ * <li> The file is rotated by the writer thread, between writes, when it
+ *      reaches the size limit or when the rotation interval ends, so
+ *      publishing threads do not wait for rotation either.  Rotated files
+ *      may be compressed with gzip by another background thread.
+ * <li> The file may be written through a memory mapping of the file
+ *      rather than with write system calls.
+ * </ul>
+ * Records published but not yet written are lost if the virtual machine
+ * terminates abruptly.  The handler reports the number of bytes written,
+ * and the number and latency of the writes.
+ * <p>
+ * <b>Configuration:</b>
+ * By default each <tt>RollingFileHandler</tt> is initialized using the following
+ * <tt>LogManager</tt> configuration properties.  If properties are not defined
+ * (or have invalid values) then the specified default values are used.
+ * <ul>
+ * <li>   java.util.logging.RollingFileHandler.level
+ *        specifies the default level for the <tt>Handler</tt>
+ *        (defaults to <tt>Level.ALL</tt>).
+ * <li>   java.util.logging.RollingFileHandler.filter
+ *        specifies the name of a <tt>Filter</tt> class to use
+ *        (defaults to no <tt>Filter</tt>).
+ * <li>   java.util.logging.RollingFileHandler.formatter
+ *        specifies the name of a <tt>Formatter</tt> class to use
+ *        (defaults to <tt>java.util.logging.XMLFormatter</tt>)
+ * <li>   java.util.logging.RollingFileHandler.encoding
+ *        the name of the character set encoding to use (defaults to
+ *        the default platform encoding).
+ * <li>   java.util.logging.RollingFileHandler.limit
+ *        specifies an approximate maximum amount to write (in bytes)
+ *        to any one file; it may be exceeded by the records buffered
+ *        while the writer thread is busy.  If this is zero, then there
+ *        is no limit.  (Defaults to no limit).
+ * <li>   java.util.logging.RollingFileHandler.interval
+ *        specifies the number of seconds after which the file is
+ *        rotated, whatever its size, aligned on the local time of day
+ *        (so 86400 rotates at midnight).  If this is zero, then the
+ *        file is only rotated by size.  (Defaults to zero).
+ * <li>   java.util.logging.RollingFileHandler.count
+ *        specifies how many output files to cycle through (defaults to 1).
+ * <li>   java.util.logging.RollingFileHandler.pattern
+ *        specifies a pattern for generating the output file name, as for
+ *        <tt>FileHandler</tt>. (Defaults to "%h/java%u.log").
+ * <li>   java.util.logging.RollingFileHandler.append
+ *        specifies whether the handler should append onto
+ *        any existing files (defaults to false).
+ * <li>   java.util.logging.RollingFileHandler.compress
+ *        specifies whether rotated files are compressed with gzip, a
+ *        ".gz" suffix being added to their names (defaults to false).
+ * <li>   java.util.logging.RollingFileHandler.bufferSize
+ *        specifies the size in bytes of each of the two buffers
+ *        (defaults to 1048576).
+ * <li>   java.util.logging.RollingFileHandler.flushInterval
+ *        specifies the maximum number of milliseconds a record waits in
+ *        the buffer before it is written (defaults to 1000).
+ * <li>   java.util.logging.RollingFileHandler.mapped
+ *        specifies whether the file is written through a memory
+ *        mapping (defaults to false).
+ * </ul>
+ *
+ * @see FileHandler
+ * @since 1.7
+ */
+
+public class RollingFileHandler extends Handler {
+    private final static int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+    private final static int DEFAULT_FLUSH_INTERVAL = 1000;
+    private final static int MAP_SIZE = 8 * 1024 * 1024;
+
+    private LogManager manager = LogManager.getLogManager();
+    private String pattern;
+    private long limit;         // zero => no limit.
+    private long interval;      // milliseconds, zero => no time rotation.
+    private int count;
+    private boolean append;
+    private boolean compress;
+    private int bufferSize;
+    private long flushInterval;
+    private boolean mapped;
+    private File files[];
+    private FileHandler.LockFile lock;
+    private volatile Charset charset;
+
+    // Guarded by the buffer lock: records are appended to "active" while
+    // the writer thread writes "spare", then the two are swapped.
+    private final Object bufLock = new Object();
+    private byte[] active;
+    private int activeCount;
+    private byte[] spare;
+    private long appended;          // bytes appended since creation
+    private long committed;         // bytes written since creation
+    private long requested;         // bytes flush has asked to be written
+    private long oldest;            // time the oldest buffered record came
+    private int threshold;          // buffered bytes that wake the writer
+    private int waiting;            // publishers waiting for room
+    private boolean closing;
+
+    // Owned by the writer thread.
+    private Thread writer;
+    private Sink sink;
+    private long nextRotation;      // time of the next rotation, if any
+    private Thread compressor;      // compressing the last rotated file
+
+    // Statistics.
+    private volatile long bytesWritten;
+    private volatile long writeCount;
+    private volatile long writeNanos;
+    private volatile long maxWriteNanos;
+    private volatile long rotationCount;
+
+    // Private method to configure a RollingFileHandler from LogManager
+    // properties and/or default values as specified in the class
+    // javadoc.
+    private void configure() {
+        String cname = getClass().getName();
+
+        pattern = manager.getStringProperty(cname + ".pattern", "%h/java%u.log");
+        limit = getLongProperty(cname + ".limit", 0);
+        if (limit < 0) {
+            limit = 0;
+        }
+        interval = getLongProperty(cname + ".interval", 0) * 1000;
+        if (interval < 0) {
+            interval = 0;
+        }
+        count = manager.getIntProperty(cname + ".count", 1);
+        if (count <= 0) {
+            count = 1;
+        }
+        append = manager.getBooleanProperty(cname + ".append", false);
+        compress = manager.getBooleanProperty(cname + ".compress", false);
+        bufferSize = manager.getIntProperty(cname + ".bufferSize", DEFAULT_BUFFER_SIZE);
+        if (bufferSize <= 0) {
+            bufferSize = DEFAULT_BUFFER_SIZE;
+        }
+        flushInterval = manager.getIntProperty(cname + ".flushInterval", DEFAULT_FLUSH_INTERVAL);
+        if (flushInterval <= 0) {
+            flushInterval = DEFAULT_FLUSH_INTERVAL;
+        }
+        mapped = manager.getBooleanProperty(cname + ".mapped", false);
+        setLevel(manager.getLevelProperty(cname + ".level", Level.ALL));
+        setFilter(manager.getFilterProperty(cname + ".filter", null));
+        setFormatter(manager.getFormatterProperty(cname + ".formatter", new XMLFormatter()));
+        try {
+            setEncoding(manager.getStringProperty(cname +".encoding", null));
+        } catch (Exception ex) {
+            try {
+                setEncoding(null);
+            } catch (Exception ex2) {
+                // doing a setEncoding with null should always work.
+                // assert false;
+            }
+        }
+    }
+
+    private long getLongProperty(String name, long defaultValue) {
+        String val = manager.getProperty(name);
+        if (val == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(val.trim());
+        } catch (Exception ex) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Construct a default <tt>RollingFileHandler</tt>.  This will be configured
+     * entirely from <tt>LogManager</tt> properties (or their default values).
+     * <p>
+     * @exception  IOException if there are IO problems opening the files.
+     * @exception  SecurityException  if a security manager exists and if
+     *             the caller does not have <tt>LoggingPermission("control"))</tt>.
+     * @exception  NullPointerException if pattern property is an empty String.
+     */
+    public RollingFileHandler() throws IOException, SecurityException {
+        checkPermission();
+        configure();
+        openFiles();
+    }
+
+    /**
+     * Initialize a <tt>RollingFileHandler</tt> to write to a set of files,
+     * rotated by size and by time.
+     * <p>
+     * The <tt>RollingFileHandler</tt> is configured based on <tt>LogManager</tt>
+     * properties (or their default values) except that the given pattern
+     * argument is used as the filename pattern, the file limit, rotation
+     * interval and file count are set to the given arguments, and rotated
+     * files are compressed if <tt>compress</tt> is true.
+     *
+     * @param pattern  the pattern for naming the output file
+     * @param limit  the maximum number of bytes to write to any one file,
+     *               or zero for no limit
+     * @param interval  the number of seconds after which the file is
+     *               rotated, or zero to rotate by size only
+     * @param count  the number of files to use
+     * @param compress  whether to compress rotated files
+     * @exception  IOException if there are IO problems opening the files.
+     * @exception  SecurityException  if a security manager exists and if
+     *             the caller does not have <tt>LoggingPermission("control")</tt>.
+     * @exception IllegalArgumentException if limit < 0, interval < 0, or
+     *             count < 1.
+     * @exception  IllegalArgumentException if pattern is an empty string
+     */
+    public RollingFileHandler(String pattern, long limit, long interval,
+                              int count, boolean compress)
+                                        throws IOException, SecurityException {
+        if (limit < 0 || interval < 0 || count < 1 || pattern.length() < 1) {
+            throw new IllegalArgumentException();
+        }
+        checkPermission();
+        configure();
+        this.pattern = pattern;
+        this.limit = limit;
+        this.interval = interval * 1000;
+        this.count = count;
+        this.compress = compress;
+        openFiles();
+    }
+
+    // Private method to open the set of output files, based on the
+    // configured instance variables, and start the writer thread.
+    private void openFiles() throws IOException {
+        manager.checkPermission();
+        lock = FileHandler.LockFile.acquire(pattern, count);
+        files = new File[count];
+        for (int i = 0; i < count; i++) {
+            files[i] = FileHandler.generate(pattern, count, i, lock.unique);
+        }
+        try {
+            if (!append) {
+                shift();
+            }
+            open(append);
+        } catch (IOException | RuntimeException ex) {
+            lock.release();
+            throw ex;
+        }
+        active = new byte[bufferSize];
+        spare = new byte[bufferSize];
+        threshold = threshold();
+        writer = AccessController.doPrivileged(new PrivilegedAction<Thread>() {
+            public Thread run() {
+                Thread t = new Thread(new Runnable() {
+                    public void run() {
+                        writeLoop();
+                    }
+                }, "RollingFileHandler writer");
+                t.setDaemon(true);
+                t.setContextClassLoader(null);
+                t.start();
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Set (or change) the character encoding used by this <tt>Handler</tt>.
+     * <p>
+     * The encoding should be set before any <tt>LogRecords</tt> are written
+     * to the <tt>Handler</tt>.
+     *
+     * @param encoding  The name of a supported character encoding.
+     *        May be null, to indicate the default platform encoding.
+     * @exception  SecurityException  if a security manager exists and if
+     *             the caller does not have <tt>LoggingPermission("control")</tt>.
+     * @exception  UnsupportedEncodingException if the named encoding is
+     *          not supported.
+     */
+    public void setEncoding(String encoding)
+                        throws SecurityException, java.io.UnsupportedEncodingException {
+        super.setEncoding(encoding);
+        charset = (encoding == null) ? Charset.defaultCharset()
+                                     : Charset.forName(encoding);
+    }
+
+    /**
+     * Format and publish a <tt>LogRecord</tt>.
+     * <p>
+     * The record is formatted by the calling thread and appended to the
+     * buffer, to be written to the file by the writer thread.
+     *
+     * @param  record  description of the log event. A null record is
+     *                 silently ignored and is not published
+     */
+    public void publish(LogRecord record) {
+        if (!isLoggable(record)) {
+            return;
+        }
+        String msg;
+        try {
+            msg = getFormatter().format(record);
+        } catch (Exception ex) {
+            // We don't want to throw an exception here, but we
+            // report the exception to any registered ErrorManager.
+            reportError(null, ex, ErrorManager.FORMAT_FAILURE);
+            return;
+        }
+        byte[] b = msg.getBytes(charset);
+        boolean interrupted = false;
+        synchronized (bufLock) {
+            // wait while the record does not fit, unless the buffer is
+            // empty, in which case it grows to take the record; the writer
+            // writes the buffer at once while a publisher waits
+            while (!closing && activeCount > 0 &&
+                   b.length > active.length - activeCount) {
+                waiting++;
+                bufLock.notifyAll();
+                try {
+                    bufLock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } finally {
+                    waiting--;
+                }
+            }
+            if (closing) {
+                return;
+            }
+            if (b.length > active.length - activeCount) {
+                active = new byte[b.length];
+            }
+            if (activeCount == 0) {
+                oldest = System.currentTimeMillis();
+            }
+            System.arraycopy(b, 0, active, activeCount, b.length);
+            activeCount += b.length;
+            appended += b.length;
+            if (activeCount >= threshold) {
+                bufLock.notifyAll();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Flush any buffered messages: wait until the records published before
+     * this call have been written to the file.  Flushes requested at about
+     * the same time by several threads are served by a single write.
+     */
+    public void flush() {
+        if (Thread.currentThread() == writer) {
+            return;
+        }
+        boolean interrupted = false;
+        synchronized (bufLock) {
+            long target = appended;
+            if (target > requested) {
+                requested = target;
+                bufLock.notifyAll();
+            }
+            while (committed < target && writer.isAlive()) {
+                try {
+                    bufLock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Write any buffered records and close all the files.  This waits for
+     * the compression of the last rotated file, if any.
+     *
+     * @exception  SecurityException  if a security manager exists and if
+     *             the caller does not have <tt>LoggingPermission("control")</tt>.
+     */
+    public void close() throws SecurityException {
+        checkPermission();
+        synchronized (bufLock) {
+            if (closing) {
+                return;
+            }
+            closing = true;
+            bufLock.notifyAll();
+        }
+        join(writer);
+        join(compressor);
+        lock.release();
+        setLevel(Level.OFF);
+    }
+
+    private static void join(Thread t) {
+        if (t == null || t == Thread.currentThread()) {
+            return;
+        }
+        boolean interrupted = false;
+        while (t.isAlive()) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // The writer thread: writes the buffer when it is half full, a flush
+    // was requested, a publisher waits for room, or a record has waited
+    // for the flush interval, and rotates the file when needed, until
+    // closed.
+    private void writeLoop() {
+        for (;;) {
+            byte[] buf;
+            int len;
+            long end;
+            boolean done;
+            synchronized (bufLock) {
+                for (;;) {
+                    long now = System.currentTimeMillis();
+                    if (closing || activeCount >= threshold ||
+                        (activeCount > 0 && (requested > committed ||
+                                             waiting > 0 ||
+                                             now - oldest >= flushInterval)) ||
+                        (nextRotation > 0 && now >= nextRotation)) {
+                        break;
+                    }
+                    long wait = (activeCount > 0) ? oldest + flushInterval - now
+                                                  : flushInterval;
+                    if (nextRotation > 0) {
+                        wait = Math.min(wait, nextRotation - now);
+                    }
+                    try {
+                        bufLock.wait(Math.max(wait, 1));
+                    } catch (InterruptedException e) {
+                        // ignore
+                    }
+                }
+                buf = active;
+                len = activeCount;
+                end = appended;
+                done = closing;
+                active = (spare.length == bufferSize) ? spare : new byte[bufferSize];
+                activeCount = 0;
+                spare = buf;
+                if (waiting > 0) {
+                    // there is room now
+                    bufLock.notifyAll();
+                }
+            }
+            if (len > 0) {
+                write(buf, len);
+            }
+            synchronized (bufLock) {
+                committed = end;
+                bufLock.notifyAll();
+            }
+            if (done) {
+                closeFile();
+                return;
+            }
+            if ((limit > 0 && sink != null && sink.size >= limit) ||
+                (nextRotation > 0 && System.currentTimeMillis() >= nextRotation)) {
+                rotate();
+            }
+            int t = threshold();
+            synchronized (bufLock) {
+                threshold = t;
+            }
+        }
+    }
+
+    // The number of buffered bytes at which to write: half the buffer, or
+    // less as the file nears its size limit, so that it is not exceeded
+    // by much more than what is buffered while one write is done.
+    private int threshold() {
+        int t = bufferSize / 2;
+        if (limit > 0 && sink != null) {
+            t = (int)Math.max(1, Math.min(t, limit - sink.size));
+        }
+        return t;
+    }
+
+    // Writes to the current file, first opening it again if a rotation
+    // failed to; the records are reported lost if it cannot be opened.
+    private void write(byte[] buf, int len) {
+        if (sink == null) {
+            try {
+                open(true);
+            } catch (Exception ex) {
+                reportError("Lost " + len + " bytes of log records", ex,
+                            ErrorManager.OPEN_FAILURE);
+                return;
+            }
+        }
+        long t0 = System.nanoTime();
+        try {
+            sink.write(buf, 0, len);
+        } catch (Exception ex) {
+            // We don't want to throw an exception here, but we
+            // report the exception to any registered ErrorManager.
+            reportError(null, ex, ErrorManager.WRITE_FAILURE);
+            return;
+        }
+        long t = System.nanoTime() - t0;
+        bytesWritten += len;
+        writeCount++;
+        writeNanos += t;
+        if (t > maxWriteNanos) {
+            maxWriteNanos = t;
+        }
+    }
+
+    // Open the current file and write the formatter's head.
+    private void open(boolean append) throws IOException {
+        sink = mapped ? new MappedSink(files[0], append)
+                      : new ChannelSink(files[0], append);
+        if (interval > 0) {
+            long now = System.currentTimeMillis();
+            long offset = TimeZone.getDefault().getOffset(now);
+            nextRotation = ((now + offset) / interval + 1) * interval - offset;
+        }
+        String head = getFormatter().getHead(this);
+        if (head != null && head.length() > 0) {
+            byte[] b = head.getBytes(charset);
+            write(b, b.length);
+        }
+    }
+
+    // Write the formatter's tail and close the current file.
+    private void closeFile() {
+        if (sink == null) {
+            return;
+        }
+        try {
+            String tail = getFormatter().getTail(this);
+            if (tail != null && tail.length() > 0) {
+                byte[] b = tail.getBytes(charset);
+                write(b, b.length);
+            }
+        } catch (Exception ex) {
+            reportError(null, ex, ErrorManager.FORMAT_FAILURE);
+        }
+        try {
+            sink.close();
+        } catch (Exception ex) {
+            reportError(null, ex, ErrorManager.CLOSE_FAILURE);
+        }
+        sink = null;
+    }
+
+    // Rotate the set of output files.  Called by the writer thread only.
+    private void rotate() {
+        closeFile();
+        try {
+            shift();
+            open(false);
+            rotationCount++;
+        } catch (Exception ex) {
+            // We don't want to throw an exception here, but we
+            // report the exception to any registered ErrorManager.
+            // The next write tries to open the file again.
+            reportError(null, ex, ErrorManager.OPEN_FAILURE);
+            sink = null;
+            nextRotation = 0;
+        }
+    }
+
+    // Shift the generations of rotated files up by one, dropping the
+    // oldest, and start compressing the file that was current.
+    private void shift() {
+        // the previous compression must be done before its file moves
+        join(compressor);
+        compressor = null;
+        for (int i = count-2; i >= 0; i--) {
+            File f1 = (i == 0) ? files[0] : rotated(i);
+            File f2 = (i == 0 && compress) ? files[1] : rotated(i+1);
+            if (f1.exists()) {
+                if (f2.exists()) {
+                    f2.delete();
+                }
+                f1.renameTo(f2);
+            }
+        }
+        if (compress && count > 1 && files[1].exists()) {
+            final File src = files[1];
+            final File dst = rotated(1);
+            compressor = new Thread(new Runnable() {
+                public void run() {
+                    gzip(src, dst);
+                }
+            }, "RollingFileHandler compressor");
+            compressor.setDaemon(true);
+            compressor.start();
+        }
+    }
+
+    // Returns the name of the file of the given generation once rotated.
+    private File rotated(int i) {
+        return compress ? new File(files[i].getPath() + ".gz") : files[i];
+    }
+
+    // Compress the file src into dst and delete src.
+    private void gzip(File src, File dst) {
+        File tmp = new File(dst.getPath() + ".tmp");
+        try (InputStream in = new FileInputStream(src);
+             OutputStream out = new GZIPOutputStream(new FileOutputStream(tmp), 64 * 1024)) {
+            byte[] buf = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                out.write(buf, 0, n);
+            }
+        } catch (Exception ex) {
+            reportError(null, ex, ErrorManager.WRITE_FAILURE);
+            tmp.delete();
+            return;
+        }
+        dst.delete();
+        if (tmp.renameTo(dst)) {
+            src.delete();
+        }
+    }
+
+    /**
+     * Get the number of bytes written to files by this handler, including
+     * the head and tail written by the formatter.
+     *
+     * @return the number of bytes written
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Get the number of bytes published but not yet written.
+     *
+     * @return the number of buffered bytes
+     */
+    public long getBufferedBytes() {
+        synchronized (bufLock) {
+            return appended - committed;
+        }
+    }
+
+    /**
+     * Get the number of writes to files made by this handler.
+     *
+     * @return the number of writes
+     */
+    public long getWriteCount() {
+        return writeCount;
+    }
+
+    /**
+     * Get the total time spent writing to files, in nanoseconds.  Together
+     * with {@link #getWriteCount} this gives the mean write latency.
+     *
+     * @return the total write time in nanoseconds
+     */
+    public long getWriteTime() {
+        return writeNanos;
+    }
+
+    /**
+     * Get the longest time spent in one write, in nanoseconds.
+     *
+     * @return the maximum write latency in nanoseconds
+     */
+    public long getMaxWriteLatency() {
+        return maxWriteNanos;
+    }
+
+    /**
+     * Get the number of times the files have been rotated.
+     *
+     * @return the number of rotations
+     */
+    public long getRotationCount() {
+        return rotationCount;
+    }
+
+    // -- file output --
+
+    private static abstract class Sink {
+        long size;      // current size of the file
+
+        abstract void write(byte[] b, int off, int len) throws IOException;
+        abstract void close() throws IOException;
+    }
+
+    // Writes with FileChannel.write.
+    private static class ChannelSink extends Sink {
+        private final FileOutputStream out;
+        private final FileChannel ch;
+
+        ChannelSink(File file, boolean append) throws IOException {
+            out = new FileOutputStream(file, append);
+            ch = out.getChannel();
+            size = ch.size();
+        }
+
+        void write(byte[] b, int off, int len) throws IOException {
+            ByteBuffer bb = ByteBuffer.wrap(b, off, len);
+            while (bb.hasRemaining()) {
+                ch.write(bb);
+            }
+            size += len;
+        }
+
+        void close() throws IOException {
+            out.close();
+        }
+    }
+
+    // Writes by copying into a mapping of the file, extended by MAP_SIZE
+    // bytes at a time.  The file is truncated to the data written when
+    // closed.
+    private static class MappedSink extends Sink {
+        private final RandomAccessFile raf;
+        private final FileChannel ch;
+        private MappedByteBuffer map;
+
+        MappedSink(File file, boolean append) throws IOException {
+            raf = new RandomAccessFile(file, "rw");
+            if (!append) {
+                raf.setLength(0);
+            }
+            ch = raf.getChannel();
+            size = ch.size();
+        }
+
+        void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (map == null || !map.hasRemaining()) {
+                    unmap();
+                    map = ch.map(FileChannel.MapMode.READ_WRITE, size, MAP_SIZE);
+                }
+                int n = Math.min(len, map.remaining());
+                map.put(b, off, n);
+                off += n;
+                len -= n;
+                size += n;
+            }
+        }
+
+        private void unmap() {
+            if (map != null) {
+                ((DirectBuffer)map).cleaner().clean();
+                map = null;
+            }
+        }
+
+        void close() throws IOException {
+            try {
+                unmap();
+                ch.truncate(size);
+            } finally {
+                raf.close();
+            }
+        }
+    }
+}
@@ -186,6 +186,8 @@ public class SocketHandler extends StreamHandler {
             return;
         }
         super.publish(record);
-        flush();
+        if (!flushDeferred()) {
+            flush();
+        }
     }
 }
@@ -64,6 +64,18 @@ public class StreamHandler extends Handler {
     private boolean doneHeader;
     private Writer writer;
 
+    // The writer thread of an AsyncHandler publishing to this handler:
+    // subclasses that flush after each record leave it to the AsyncHandler
+    // for the records it publishes, as it flushes once per batch. Records
+    // published to this handler directly are still flushed.
+    volatile Thread flushDeferrer;
+
+    // Tells whether the flush after the record being published is left to
+    // an AsyncHandler.
+    boolean flushDeferred() {
+        return Thread.currentThread() == flushDeferrer;
+    }
+
     // Private method to configure a StreamHandler from LogManager
     // properties and/or default values as specified in the class
     // javadoc.
@@ -0,0 +1,1538 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.regex;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.regex.Pattern.Begin;
+import java.util.regex.Pattern.BmpCharProperty;
+import java.util.regex.Pattern.BnM;
+import java.util.regex.Pattern.BnMS;
+import java.util.regex.Pattern.Bound;
+import java.util.regex.Pattern.Branch;
+import java.util.regex.Pattern.Caret;
+import java.util.regex.Pattern.CharProperty;
+import java.util.regex.Pattern.Curly;
+import java.util.regex.Pattern.Dollar;
+import java.util.regex.Pattern.End;
+import java.util.regex.Pattern.GroupCurly;
+import java.util.regex.Pattern.GroupHead;
+import java.util.regex.Pattern.GroupTail;
+import java.util.regex.Pattern.LastMatch;
+import java.util.regex.Pattern.LazyLoop;
+import java.util.regex.Pattern.Loop;
+import java.util.regex.Pattern.Node;
+import java.util.regex.Pattern.Prolog;
+import java.util.regex.Pattern.Ques;
+import java.util.regex.Pattern.Single;
+import java.util.regex.Pattern.SliceI;
+import java.util.regex.Pattern.SliceIS;
+import java.util.regex.Pattern.SliceNode;
+import java.util.regex.Pattern.SliceS;
+import java.util.regex.Pattern.SliceU;
+import java.util.regex.Pattern.SliceUS;
+import java.util.regex.Pattern.Start;
+import java.util.regex.Pattern.UnixCaret;
+import java.util.regex.Pattern.UnixDollar;
+
+/**
+ * A Thompson automaton compiled from the node tree of a pattern, which
+ * runs the match operations of a matcher in time linear in the length of
+ * the input, where the nodes could take polynomial or exponential time.
+ * <p>
+ * A pattern can be compiled to an automaton if it has no back references,
+ * lookahead or lookbehind, independent groups or possessive quantifiers.
+ * The automaton is run as a Pike VM: all the paths through the pattern
+ * that the backtracking nodes would try are followed in a single pass over
+ * the input, in the order of their priority, so the match found and the
+ * groups captured are those the nodes would find. Anchors and word
+ * boundaries are tested by the nodes themselves. A repeated group keeps
+ * what the nodes captured in iterations they backed off from, which the
+ * automaton cannot follow; if a capturing group is repeated the nodes are
+ * run from the start of the match the automaton found to capture the
+ * groups.
+ * <p>
+ * A pattern without anchors and boundaries is first run on a DFA whose
+ * states are built from the automaton as they are reached and cached in
+ * the automaton, so that input without a match, the common case when
+ * lines are filtered, is rejected at the cost of a table lookup per
+ * character. The DFA stops caching states if there are too many of them.
+ * The Pike VM is then run from where the DFA found that all the earlier
+ * matches failed.
+ * <p>
+ * If the pattern is one-pass, that is at every choice the ways out can
+ * not consume the same char, the nodes give up a wrong way at its first
+ * char, and are faster than the Pike VM at finding the groups, so they
+ * are run from there instead.
+ */
+final class Automaton {
+
+    // Instructions. The consuming instructions come first.
+    private static final int MATCH      = 0;
+    private static final int CHAR       = 1;   // char equal to arg
+    private static final int CHAR_I     = 2;   // char, ASCII case insensitive
+    private static final int CHAR_U     = 3;   // char, Unicode case insensitive
+    private static final int CP         = 4;   // code point equal to arg
+    private static final int CP_I       = 5;   // code point, ASCII case insensitive
+    private static final int CP_U       = 6;   // code point, Unicode case insensitive
+    private static final int BMP_PROP   = 7;   // char with the property obj
+    private static final int PROP       = 8;   // code point with the property obj
+    private static final int SPLIT      = 9;   // to arg, or with lower priority to arg2
+    private static final int JMP        = 10;  // to arg
+    private static final int OPEN       = 11;  // save the position in slot arg
+    private static final int CLOSE      = 12;  // set group arg2 from slot arg
+    private static final int PROGRESS   = 13;  // to arg2 unless past slot arg
+    private static final int ASSERT     = 14;  // test the anchor obj
+    private static final int BOUND      = 15;  // test the boundary obj
+
+    /**
+     * The largest number of instructions compiled; counted repetitions
+     * are expanded, so a larger automaton is left to the nodes.
+     */
+    private static final int MAX_SIZE = 10000;
+
+    /**
+     * The largest number of states cached by a DFA.
+     */
+    private static final int MAX_STATES = 256;
+
+    /**
+     * The largest number of states cached by the DFA of a union, which
+     * then drops them all and starts again.
+     */
+    private static final int MAX_UNION_STATES = 4096;
+
+    /**
+     * The largest number of pairs of char properties tested over all chars
+     * to find whether a pattern is one-pass, which is then assumed not to
+     * be.
+     */
+    private static final int MAX_SCANS = 4;
+
+    private final int[] op;
+    private final int[] arg;
+    private final int[] arg2;
+    private final Object[] obj;
+    private final int size;
+
+    /**
+     * The number of capturing groups, and the length of the capture
+     * arrays of threads: the groups, then the saved group starts. Zero
+     * if nothing is captured but group 0.
+     */
+    private final int groupCount;
+    private final int slots;
+    private final int[] noCaptures;
+
+    /**
+     * Whether a capturing group is repeated, so that the groups are
+     * captured by the nodes rather than by the automaton.
+     */
+    private final boolean nodeGroups;
+
+    /** Whether the pattern starts with \A or ^ without MULTILINE. */
+    private final boolean anchored;
+
+    /** The minimum length of a match, past which no search starts. */
+    private final int minLength;
+
+    /** Whether matches start at code points rather than chars. */
+    private final boolean supplementary;
+
+    /** Whether some instructions consume code points. */
+    private final boolean codePoints;
+
+    /** Whether the DFA can be used: there are no anchors or boundaries. */
+    private final boolean dfaUsable;
+
+    /**
+     * Whether the DFA can be used and the pattern is one-pass, so that the
+     * nodes find the match once the DFA has passed the input that cannot
+     * be part of one.
+     */
+    private final boolean onePass;
+
+    /**
+     * Whether this is the union of the automata of several patterns, run
+     * only on its DFA; MATCH instructions have the index of their
+     * pattern as argument.
+     */
+    private final boolean union;
+
+    private volatile Dfa anchoredDfa;
+    private volatile Dfa floatingDfa;
+
+    private Automaton(Compiler c, Pattern p, boolean supplementary,
+                      boolean codePoints, boolean assertions, boolean onePass) {
+        size = c.size;
+        op = Arrays.copyOf(c.op, size);
+        arg = Arrays.copyOf(c.arg, size);
+        arg2 = Arrays.copyOf(c.arg2, size);
+        obj = Arrays.copyOf(c.obj, size);
+        groupCount = p.capturingGroupCount;
+        nodeGroups = c.nodeGroups;
+        slots = (groupCount > 1 && !nodeGroups || c.slotCount > 0)
+            ? groupCount * 2 + c.slotCount : 0;
+        if (slots > 0) {
+            noCaptures = new int[slots];
+            Arrays.fill(noCaptures, -1);
+        } else {
+            noCaptures = null;
+        }
+        anchored = p.matchRoot instanceof Begin;
+        if (p.root instanceof Start)
+            minLength = ((Start)p.root).minLength;
+        else if (p.root instanceof BnMS)
+            minLength = ((BnMS)p.root).lengthInChars;
+        else if (p.root instanceof BnM)
+            minLength = ((BnM)p.root).buffer.length;
+        else
+            minLength = 0;
+        this.supplementary = supplementary;
+        this.codePoints = codePoints;
+        dfaUsable = !assertions;
+        this.onePass = onePass;
+        union = false;
+    }
+
+    private Automaton(int[] op, int[] arg, int[] arg2, Object[] obj,
+                      boolean codePoints) {
+        size = op.length;
+        this.op = op;
+        this.arg = arg;
+        this.arg2 = arg2;
+        this.obj = obj;
+        groupCount = 0;
+        slots = 0;
+        noCaptures = null;
+        nodeGroups = false;
+        anchored = false;
+        minLength = 0;
+        supplementary = false;
+        this.codePoints = codePoints;
+        dfaUsable = true;
+        onePass = false;
+        union = true;
+    }
+
+    /**
+     * Compiles the node tree of the given pattern, or returns null if it
+     * has constructs the automaton cannot run.
+     */
+    static Automaton compile(Pattern p, boolean supplementary) {
+        return build(p, supplementary);
+    }
+
+    /**
+     * Compiles the node tree of the given pattern to be part of a union,
+     * or returns null if it has anchors or boundaries, or constructs the
+     * automaton cannot run.
+     */
+    static Automaton compileForUnion(Pattern p) {
+        Automaton a = build(p, p.hasSupplementary);
+        return (a != null && a.dfaUsable) ? a : null;
+    }
+
+    /**
+     * Returns the union of the given automata, which finds which of them
+     * match in a single pass over the input. The automata must have been
+     * compiled for a union.
+     */
+    static Automaton union(Automaton[] parts) {
+        int n = parts.length;
+        int header = n - 1;
+        int size = header;
+        boolean codePoints = false;
+        for (Automaton a : parts) {
+            size += a.size;
+            codePoints |= a.codePoints || a.supplementary;
+        }
+        int[] op = new int[size];
+        int[] arg = new int[size];
+        int[] arg2 = new int[size];
+        Object[] obj = new Object[size];
+        int base = header;
+        for (int k = 0; k < n; k++) {
+            Automaton a = parts[k];
+            if (k < header) {
+                op[k] = SPLIT;
+                arg[k] = base;
+                arg2[k] = (k + 1 < header) ? k + 1 : base + a.size;
+            }
+            for (int pc = 0; pc < a.size; pc++) {
+                int code = a.op[pc];
+                op[base + pc] = code;
+                arg[base + pc] = a.arg[pc];
+                arg2[base + pc] = a.arg2[pc];
+                obj[base + pc] = a.obj[pc];
+                switch (code) {
+                case MATCH:
+                    arg[base + pc] = k;
+                    break;
+                case SPLIT:
+                    arg[base + pc] += base;
+                    arg2[base + pc] += base;
+                    break;
+                case JMP:
+                    arg[base + pc] += base;
+                    break;
+                case PROGRESS:
+                    arg2[base + pc] += base;
+                    break;
+                }
+            }
+            base += a.size;
+        }
+        return new Automaton(op, arg, arg2, obj, codePoints);
+    }
+
+    private static Automaton build(Pattern p, boolean supplementary) {
+        Compiler c = new Compiler(p.localCount);
+        if (!c.emit(p.matchRoot, null))
+            return null;
+
+        // The nodes capture the groups if a capturing group is repeated
+        if (c.nodeGroups) {
+            for (int pc = 0; pc < c.size; pc++) {
+                if (c.op[pc] == CLOSE) {
+                    c.op[pc] = JMP;
+                    c.arg[pc] = pc + 1;
+                }
+            }
+        }
+
+        // Only keep the group starts that are used, in slots after the
+        // groups.
+        int[] slot = new int[c.localCount];
+        Arrays.fill(slot, -1);
+        for (int pc = 0; pc < c.size; pc++) {
+            if ((c.op[pc] == CLOSE || c.op[pc] == PROGRESS)
+                && slot[c.arg[pc]] < 0)
+                slot[c.arg[pc]] = p.capturingGroupCount * 2 + c.slotCount++;
+        }
+        boolean codePoints = false;
+        boolean assertions = false;
+        for (int pc = 0; pc < c.size; pc++) {
+            switch (c.op[pc]) {
+            case OPEN:
+                if (slot[c.arg[pc]] < 0) {
+                    c.op[pc] = JMP;
+                    c.arg[pc] = pc + 1;
+                    break;
+                }
+                // fall through
+            case CLOSE:
+            case PROGRESS:
+                c.arg[pc] = slot[c.arg[pc]];
+                break;
+            case CP:
+            case CP_I:
+            case CP_U:
+            case PROP:
+                codePoints = true;
+                break;
+            case ASSERT:
+            case BOUND:
+                assertions = true;
+                break;
+            }
+        }
+
+        // The threads of a step must all move past a surrogate pair
+        // together, so an instruction consuming a lone surrogate cannot
+        // be mixed with ones consuming code points.
+        if (codePoints) {
+            for (int pc = 0; pc < c.size; pc++) {
+                switch (c.op[pc]) {
+                case CHAR:
+                case CHAR_I:
+                case CHAR_U:
+                    if (Character.isSurrogate((char)c.arg[pc]))
+                        return null;
+                    break;
+                case BMP_PROP:
+                    CharProperty prop = (CharProperty)c.obj[pc];
+                    for (int ch = Character.MIN_SURROGATE;
+                         ch <= Character.MAX_SURROGATE; ch++) {
+                        if (prop.isSatisfiedBy(ch))
+                            return null;
+                    }
+                    break;
+                }
+            }
+        }
+        boolean onePass = !assertions && onePass(c);
+        return new Automaton(c, p, supplementary, codePoints, assertions,
+                             onePass);
+    }
+
+    /**
+     * Returns whether at every SPLIT no instruction reached on one way
+     * consumes a char that one reached on the other way does, so that
+     * the nodes backtrack at most one char at each choice and take time
+     * linear in the input for a match at a given position.
+     */
+    private static boolean onePass(Compiler c) {
+        int[] marks = new int[c.size];
+        int[] stack = new int[c.size + 1];
+        int[] left = new int[c.size];
+        int[] right = new int[c.size];
+        Object[] scanned = new Object[MAX_SCANS * 2];
+        int scans = 0;
+        for (int pc = 0; pc < c.size; pc++) {
+            if (c.op[pc] != SPLIT)
+                continue;
+            int m = firsts(c, c.arg[pc], left, marks, 2 * pc + 1, stack);
+            int n = firsts(c, c.arg2[pc], right, marks, 2 * pc + 2, stack);
+            for (int i = 0; i < m; i++) {
+                for (int j = 0; j < n; j++) {
+                    int p = left[i];
+                    int q = right[j];
+                    if (c.op[p] == MATCH || c.op[q] == MATCH)
+                        continue;
+                    int[] chars = literals(c, p);
+                    int other = q;
+                    if (chars == null) {
+                        chars = literals(c, q);
+                        other = p;
+                    }
+                    if (chars != null) {
+                        for (int ch : chars) {
+                            if (accepts(c.op[other], c.arg[other],
+                                        c.obj[other], ch))
+                                return false;
+                        }
+                        continue;
+                    }
+                    // Two properties; code point properties are not
+                    // tested over all code points.
+                    if (c.op[p] != BMP_PROP && c.op[p] != CHAR_U
+                        && c.op[q] != BMP_PROP && c.op[q] != CHAR_U)
+                        return false;
+                    Object x = key(c, p);
+                    Object y = key(c, q);
+                    boolean known = false;
+                    for (int k = 0; k < scans && !known; k++)
+                        known = scanned[2 * k].equals(x)
+                            && scanned[2 * k + 1].equals(y);
+                    if (known)
+                        continue;
+                    if (scans == MAX_SCANS)
+                        return false;
+                    for (int ch = 0; ch <= Character.MAX_VALUE; ch++) {
+                        if (accepts(c.op[p], c.arg[p], c.obj[p], ch)
+                            && accepts(c.op[q], c.arg[q], c.obj[q], ch))
+                            return false;
+                    }
+                    scanned[2 * scans] = x;
+                    scanned[2 * scans++ + 1] = y;
+                }
+            }
+        }
+        return true;
+    }
+
+    // Stores the consuming and MATCH instructions reached from pc in
+    // pcs, and returns their number; the instructions passed are marked
+    // with mark. Anchors and boundaries are passed.
+    private static int firsts(Compiler c, int pc, int[] pcs, int[] marks,
+                              int mark, int[] stack) {
+        int n = 0;
+        int sp = 0;
+        stack[sp++] = pc;
+        while (sp > 0) {
+            pc = stack[--sp];
+            while (marks[pc] != mark) {
+                marks[pc] = mark;
+                int code = c.op[pc];
+                if (code == JMP) {
+                    pc = c.arg[pc];
+                } else if (code == SPLIT || code == PROGRESS) {
+                    stack[sp++] = c.arg2[pc];
+                    pc = (code == SPLIT) ? c.arg[pc] : pc + 1;
+                } else if (code > PROP) {
+                    pc++;
+                } else {
+                    pcs[n++] = pc;
+                    break;
+                }
+            }
+        }
+        return n;
+    }
+
+    // Returns the chars the instruction at pc accepts if they are known
+    // without testing every char, or null.
+    private static int[] literals(Compiler c, int pc) {
+        int a = c.arg[pc];
+        switch (c.op[pc]) {
+        case CHAR:
+        case CP:
+            return new int[] { a };
+        case CHAR_I:
+        case CP_I:
+            return ASCII.isLower(a) ? new int[] { a, ASCII.toUpper(a) }
+                                    : new int[] { a };
+        default:
+            return null;
+        }
+    }
+
+    // The property the instruction at pc tests, to tell the pairs of
+    // properties already tested.
+    private static Object key(Compiler c, int pc) {
+        return (c.op[pc] == CHAR_U) ? Integer.valueOf(c.arg[pc]) : c.obj[pc];
+    }
+
+    // Whether a consuming instruction accepts the char or code point c.
+    private static boolean accepts(int code, int a, Object o, int c) {
+        switch (code) {
+        case CHAR:
+        case CP:
+            return c == a;
+        case CHAR_I:
+        case CP_I:
+            return c == a || ASCII.toLower(c) == a;
+        case CHAR_U:
+        case CP_U:
+            return c == a
+                || Character.toLowerCase(Character.toUpperCase(c)) == a;
+        default:
+            return ((CharProperty)o).isSatisfiedBy(c);
+        }
+    }
+
+    /**
+     * Compiles the node tree into instructions.
+     */
+    private static final class Compiler {
+        int[] op = new int[16];
+        int[] arg = new int[16];
+        int[] arg2 = new int[16];
+        Object[] obj = new Object[16];
+        int size;
+        int slotCount;
+        int localCount;     // the locals of the nodes, then those added
+        boolean nodeGroups; // whether a capturing group is repeated
+        private int repeats;
+
+        Compiler(int localCount) {
+            this.localCount = localCount;
+        }
+
+        int add(int code, int a, int b, Object o) {
+            if (size == op.length) {
+                int n = size * 2;
+                op = Arrays.copyOf(op, n);
+                arg = Arrays.copyOf(arg, n);
+                arg2 = Arrays.copyOf(arg2, n);
+                obj = Arrays.copyOf(obj, n);
+            }
+            op[size] = code;
+            arg[size] = a;
+            arg2[size] = b;
+            obj[size] = o;
+            return size++;
+        }
+
+        int add(int code, int a) {
+            return add(code, a, 0, null);
+        }
+
+        /**
+         * Emits the nodes from node up to end, or up to the last node if
+         * end is null. Returns false if a node cannot be compiled.
+         */
+        boolean emit(Node node, Node end) {
+            while (node != end) {
+                if (node == null || size > MAX_SIZE)
+                    return false;
+                if (node == Pattern.lastAccept) {
+                    if (end != null)
+                        return false;
+                    add(MATCH, 0);
+                    return true;
+                }
+                if (node instanceof Single) {
+                    add(CHAR, ((Single)node).c);
+                } else if (node instanceof BmpCharProperty) {
+                    add(BMP_PROP, 0, 0, node);
+                } else if (node instanceof CharProperty) {
+                    add(PROP, 0, 0, node);
+                } else if (node instanceof SliceNode) {
+                    int code;
+                    if (node instanceof SliceUS)
+                        code = CP_U;
+                    else if (node instanceof SliceIS)
+                        code = CP_I;
+                    else if (node instanceof SliceS)
+                        code = CP;
+                    else if (node instanceof SliceU)
+                        code = CHAR_U;
+                    else if (node instanceof SliceI)
+                        code = CHAR_I;
+                    else
+                        code = CHAR;
+                    for (int c : ((SliceNode)node).buffer)
+                        add(code, c);
+                } else if (node instanceof Branch) {
+                    Branch branch = (Branch)node;
+                    int[] exits = new int[branch.size];
+                    for (int n = 0; n < branch.size; n++) {
+                        boolean last = n == branch.size - 1;
+                        int split = last ? -1 : add(SPLIT, size + 1);
+                        if (branch.atoms[n] != null
+                            && !emit(branch.atoms[n], branch.conn))
+                            return false;
+                        if (!last) {
+                            exits[n] = add(JMP, 0);
+                            arg2[split] = size;
+                        }
+                    }
+                    for (int n = 0; n < branch.size - 1; n++)
+                        arg[exits[n]] = size;
+                    node = branch.conn.next;
+                    continue;
+                } else if (node instanceof Ques) {
+                    Ques ques = (Ques)node;
+                    if (ques.type != Pattern.GREEDY && ques.type != Pattern.LAZY)
+                        return false;
+                    int split = add(SPLIT, 0);
+                    int body = size;
+                    if (!emit(ques.atom, Pattern.accept))
+                        return false;
+                    prefer(split, ques.type == Pattern.GREEDY, body, size);
+                } else if (node instanceof Curly) {
+                    Curly curly = (Curly)node;
+                    if (curly.type != Pattern.GREEDY && curly.type != Pattern.LAZY)
+                        return false;
+                    // The node stops at an empty iteration; it keeps no
+                    // start, so a local is added for one that can be empty
+                    int local = canBeEmpty(curly.atom, Pattern.accept)
+                        ? localCount++ : -1;
+                    if (!repeat(curly.atom, Pattern.accept, curly.cmin, curly.cmax,
+                                curly.type == Pattern.GREEDY, local, 0, local))
+                        return false;
+                } else if (node instanceof GroupCurly) {
+                    GroupCurly curly = (GroupCurly)node;
+                    if (curly.type != Pattern.GREEDY && curly.type != Pattern.LAZY)
+                        return false;
+                    // The atom is a chain ending with the tail of the group
+                    Node tail = curly.atom;
+                    for (int n = 0; n <= MAX_SIZE && tail != null; n++) {
+                        if (tail instanceof GroupTail
+                            && ((GroupTail)tail).localIndex == curly.localIndex)
+                            break;
+                        tail = tail.next;
+                    }
+                    if (!(tail instanceof GroupTail))
+                        return false;
+                    if (!repeat(curly.atom, tail, curly.cmin, curly.cmax,
+                                curly.type == Pattern.GREEDY, curly.localIndex,
+                                curly.capture ? curly.groupIndex : 0,
+                                curly.localIndex))
+                        return false;
+                } else if (node instanceof Prolog) {
+                    Loop loop = ((Prolog)node).loop;
+                    if (!repeat(loop.body, loop, loop.cmin, loop.cmax,
+                                !(loop instanceof LazyLoop), -1, 0,
+                                loop.beginIndex))
+                        return false;
+                    node = loop.next;
+                    continue;
+                } else if (node instanceof GroupHead) {
+                    add(OPEN, ((GroupHead)node).localIndex);
+                } else if (node instanceof GroupTail) {
+                    GroupTail tail = (GroupTail)node;
+                    if (tail.groupIndex != 0) {
+                        add(CLOSE, tail.localIndex, tail.groupIndex, null);
+                        nodeGroups |= repeats > 0;
+                    }
+                } else if (node instanceof Begin || node instanceof End
+                           || node instanceof Caret || node instanceof UnixCaret
+                           || node instanceof Dollar || node instanceof UnixDollar
+                           || node instanceof LastMatch) {
+                    add(ASSERT, 0, 0, node);
+                } else if (node instanceof Bound) {
+                    add(BOUND, 0, 0, node);
+                } else {
+                    // Back references, lookaround, independent groups
+                    return false;
+                }
+                node = node.next;
+            }
+            return true;
+        }
+
+        // Whether the nodes from atom to end can match the empty string;
+        // the nodes do not study a loop, so they are walked here.
+        private static boolean canBeEmpty(Node atom, Node end) {
+            Node node = atom;
+            for (int n = 0; n <= MAX_SIZE; n++) {
+                if (node == null || node == end || node == Pattern.accept
+                    || node == Pattern.lastAccept)
+                    return true;
+                if (node instanceof CharProperty || node instanceof SliceNode)
+                    return false;
+                if (node instanceof Branch) {
+                    Branch branch = (Branch)node;
+                    boolean empty = false;
+                    for (int i = 0; i < branch.size && !empty; i++)
+                        empty = canBeEmpty(branch.atoms[i], branch.conn);
+                    if (!empty)
+                        return false;
+                    node = branch.conn;
+                } else if (node instanceof Curly) {
+                    Curly curly = (Curly)node;
+                    if (curly.cmin > 0 && !canBeEmpty(curly.atom, Pattern.accept))
+                        return false;
+                } else if (node instanceof GroupCurly) {
+                    // The atom is deterministic, so the nodes study it
+                    GroupCurly curly = (GroupCurly)node;
+                    Pattern.TreeInfo info = new Pattern.TreeInfo();
+                    curly.atom.study(info);
+                    if (curly.cmin > 0 && info.minLength > 0)
+                        return false;
+                } else if (node instanceof Prolog) {
+                    Loop loop = ((Prolog)node).loop;
+                    if (loop.cmin > 0 && !canBeEmpty(loop.body, loop))
+                        return false;
+                    node = loop;
+                }
+                node = node.next;
+            }
+            return true;
+        }
+
+        /**
+         * Emits cmin to cmax iterations of the atom. If open is not
+         * negative an iteration saves its start in that local, and sets
+         * group if it is not 0. If local is not negative the repetition
+         * ends after an iteration that does not move past the position
+         * saved in that local, as the nodes do; only an atom that can
+         * match the empty string is checked, so that the DFA, which
+         * cannot tell, accepts the same input as the automaton.
+         */
+        boolean repeat(Node atom, Node end, int cmin, int cmax, boolean greedy,
+                       int open, int group, int local) {
+            boolean empty = local >= 0 && canBeEmpty(atom, end);
+            repeats++;
+            int[] exits = new int[4];
+            int n = 0;
+            for (int k = 0; k < cmin; k++) {
+                if (!iteration(atom, end, open, group))
+                    return false;
+                if (empty) {
+                    exits = grow(exits, n);
+                    exits[n++] = add(PROGRESS, local);
+                }
+            }
+            if (cmax == Pattern.MAX_REPS) {
+                // An empty iteration may follow one that ends where it
+                // starts, and the instructions they share must not be
+                // visited twice in a step, so a body that can be empty
+                // is emitted twice and the iterations alternate.
+                int first = size;
+                int jump = -1;
+                for (int copy = 0; copy < (empty ? 2 : 1); copy++) {
+                    int split = add(SPLIT, 0);
+                    int body = size;
+                    if (!iteration(atom, end, open, group))
+                        return false;
+                    if (empty) {
+                        exits = grow(exits, n);
+                        exits[n++] = add(PROGRESS, local);
+                    }
+                    if (jump >= 0)
+                        arg[jump] = split;
+                    jump = add(JMP, first);
+                    prefer(split, greedy, body, -1);
+                    exits = grow(exits, n);
+                    exits[n++] = split;
+                }
+            } else {
+                int[] splits = new int[Math.max(cmax - cmin, 0)];
+                for (int k = cmin; k < cmax; k++) {
+                    if (size > MAX_SIZE)
+                        return false;
+                    int split = add(SPLIT, 0);
+                    splits[k - cmin] = split;
+                    int body = size;
+                    if (!iteration(atom, end, open, group))
+                        return false;
+                    if (empty) {
+                        exits = grow(exits, n);
+                        exits[n++] = add(PROGRESS, local);
+                    }
+                    prefer(split, greedy, body, -1);
+                }
+                for (int split : splits) {
+                    if (arg[split] < 0)
+                        arg[split] = size;
+                    else
+                        arg2[split] = size;
+                }
+            }
+            for (int k = 0; k < n; k++) {
+                if (arg[exits[k]] < 0)
+                    arg[exits[k]] = size;
+                else
+                    arg2[exits[k]] = size;
+            }
+            repeats--;
+            return true;
+        }
+
+        private boolean iteration(Node atom, Node end, int open, int group) {
+            if (open >= 0)
+                add(OPEN, open);
+            if (!emit(atom, end))
+                return false;
+            if (group != 0) {
+                add(CLOSE, open, group, null);
+                nodeGroups = true;
+            }
+            return true;
+        }
+
+        // Points a split at the body and past it, in the order of
+        // priority; -1 is patched later.
+        private void prefer(int split, boolean greedy, int body, int past) {
+            arg[split] = greedy ? body : past;
+            arg2[split] = greedy ? past : body;
+        }
+
+        private static int[] grow(int[] a, int n) {
+            return n < a.length ? a : Arrays.copyOf(a, n * 2);
+        }
+    }
+
+    /**
+     * Finds the next match at or after from, as the root node of the
+     * pattern would.
+     */
+    boolean search(Matcher matcher, int from) {
+        if (dfaUsable && !anchored) {
+            int begin = dfa(true).scan(matcher, from, false);
+            if (begin < 0) {
+                matcher.hitEnd = true;
+                return false;
+            }
+            matcher.hitEnd = false;
+            from = begin;
+        }
+        if (onePass)
+            return matcher.parentPattern.root.match(matcher, from, matcher.text);
+        boolean result = run(matcher, from, anchored, Matcher.NOANCHOR);
+        if (!result && !anchored)
+            matcher.hitEnd = true;
+        return result;
+    }
+
+    /**
+     * Matches at from, as the match root node of the pattern would.
+     */
+    boolean match(Matcher matcher, int from, int acceptMode) {
+        if (dfaUsable) {
+            if (dfa(false).scan(matcher, from,
+                                acceptMode == Matcher.ENDANCHOR) < 0)
+                return false;
+            matcher.hitEnd = false;
+        }
+        if (onePass)
+            return matcher.parentPattern.matchRoot.match(matcher, from,
+                                                         matcher.text);
+        return run(matcher, from, true, acceptMode);
+    }
+
+    /**
+     * Scans the input from from to to on the DFA of a union, and sets
+     * hits[k] if the automaton k finds a match in the input, or if whole,
+     * matches all of it. Returns the number of automata left without a
+     * hit, given the number before, or -1 if the scan gave up on a
+     * surrogate.
+     */
+    int scanAll(CharSequence seq, int from, int to, boolean whole,
+                boolean[] hits, int remaining) {
+        return dfa(!whole).scanAll(seq, from, to, hits, remaining);
+    }
+
+    private Dfa dfa(boolean floating) {
+        Dfa dfa = floating ? floatingDfa : anchoredDfa;
+        if (dfa == null) {
+            dfa = new Dfa(floating);
+            if (floating)
+                floatingDfa = dfa;
+            else
+                anchoredDfa = dfa;
+        }
+        return dfa;
+    }
+
+    // -- Pike VM --
+
+    // Events of a thread that the nodes record in the matcher
+    private static final int HIT_END = 1;
+    private static final int REQUIRE_END = 2;
+
+    /**
+     * The thread lists and stack of a matcher. Threads are kept in three
+     * lists, for the current position and the next two, since a thread
+     * consuming a surrogate pair moves two chars ahead.
+     * <p>
+     * The nodes only record in the matcher that the end was hit or is
+     * required on the paths they try before the match, so a thread
+     * carries the events of its path and of the paths of higher priority
+     * that failed before it was added; the events of a failed thread are
+     * pending until the next thread is added.
+     * <p>
+     * A list holds at most one thread per consuming or MATCH instruction,
+     * and the stack one entry per SPLIT, so only the marks take the size
+     * of the automaton.
+     */
+    static final class Threads {
+        final Automaton owner;
+        final int[][] pcs = new int[3][];
+        final int[][] starts = new int[3][];
+        final int[][][] caps = new int[3][][];
+        final int[][] events = new int[3][];
+        final int[][] marks = new int[3][];
+        final int[] counts = new int[3];
+        final int[] gens = new int[3];
+        final int[] stackPcs;
+        final int[][] stackCaps;
+        final int[] stackEvents;
+        int pending;
+
+        Threads(Automaton owner) {
+            this.owner = owner;
+            int n = owner.size;
+            int width = 0;
+            int splits = 0;
+            for (int pc = 0; pc < n; pc++) {
+                int code = owner.op[pc];
+                if (code <= PROP)
+                    width++;
+                else if (code == SPLIT)
+                    splits++;
+            }
+            for (int k = 0; k < 3; k++) {
+                pcs[k] = new int[width];
+                starts[k] = new int[width];
+                caps[k] = new int[width][];
+                events[k] = new int[width];
+                marks[k] = new int[n];
+                gens[k] = 1;
+            }
+            stackPcs = new int[splits + 1];
+            stackCaps = new int[splits + 1][];
+            stackEvents = new int[splits + 1];
+        }
+
+        void clear(int list) {
+            counts[list] = 0;
+            if (++gens[list] == 0) {
+                Arrays.fill(marks[list], 0);
+                gens[list] = 1;
+            }
+        }
+    }
+
+    private boolean run(Matcher matcher, int from, boolean anchor,
+                        int acceptMode) {
+        Threads t = matcher.threads;
+        if (t == null || t.owner != this)
+            matcher.threads = t = new Threads(this);
+        for (int k = 0; k < 3; k++)
+            t.clear(k);
+        t.pending = 0;
+        CharSequence seq = matcher.text;
+        int to = matcher.to;
+        int first = -1;
+        int last = -1;
+        int[] caps = null;
+        int events = 0;
+
+        for (int i = from; i <= to; i++) {
+            int cur = i % 3;
+            if (first < 0 && (i == from || !anchor)
+                && (anchor || i <= to - minLength)
+                && (!supplementary || i == from || !inPair(seq, i)))
+                add(t, cur, 0, i, noCaptures, 0, matcher, i, seq);
+            int n = t.counts[cur];
+            if (n == 0) {
+                if ((first >= 0 || anchor) && t.counts[(i + 1) % 3] == 0
+                    && t.counts[(i + 2) % 3] == 0)
+                    break;
+                t.clear(cur);
+                continue;
+            }
+            // Failures at the end of the list come after all the threads
+            // of the next position.
+            int tail = t.pending;
+            t.pending = 0;
+            int[] pcs = t.pcs[cur];
+            int[] starts = t.starts[cur];
+            int[][] threadCaps = t.caps[cur];
+            int[] threadEvents = t.events[cur];
+            for (int k = 0; k < n; k++) {
+                int pc = pcs[k];
+                if (op[pc] == MATCH) {
+                    if (acceptMode == Matcher.ENDANCHOR && i != to) {
+                        t.pending |= threadEvents[k];
+                        continue;
+                    }
+                    // Threads of lower priority are dropped
+                    first = starts[k];
+                    last = i;
+                    caps = threadCaps[k];
+                    events = threadEvents[k] | t.pending;
+                    t.pending = 0;
+                    tail = 0;
+                    break;
+                }
+                int j = step(pc, seq, i, to);
+                if (j >= 0) {
+                    add(t, j % 3, pc + 1, starts[k], threadCaps[k],
+                        threadEvents[k], matcher, j, seq);
+                } else {
+                    t.pending |= threadEvents[k] | (j == -2 ? HIT_END : 0);
+                }
+            }
+            t.pending |= tail;
+            t.clear(cur);
+        }
+        events |= t.pending;
+        matcher.hitEnd = (events & HIT_END) != 0;
+        matcher.requireEnd = (events & REQUIRE_END) != 0;
+        if (first < 0)
+            return false;
+
+        matcher.first = first;
+        if (nodeGroups) {
+            // The nodes find the same match, trying only the paths from its
+            // start, but without the end events of the paths before it
+            boolean hitEnd = matcher.hitEnd;
+            boolean requireEnd = matcher.requireEnd;
+            boolean found = matcher.parentPattern.matchRoot.match(matcher,
+                                                                  first, seq);
+            matcher.hitEnd = hitEnd;
+            matcher.requireEnd = requireEnd;
+            if (found)
+                return true;
+            Arrays.fill(matcher.groups, -1);
+        }
+        matcher.last = last;
+        int[] groups = matcher.groups;
+        groups[0] = first;
+        groups[1] = last;
+        if (caps != null)
+            System.arraycopy(caps, 2, groups, 2, groupCount * 2 - 2);
+        return true;
+    }
+
+    private static boolean inPair(CharSequence seq, int i) {
+        return i > 0 && i < seq.length()
+            && Character.isLowSurrogate(seq.charAt(i))
+            && Character.isHighSurrogate(seq.charAt(i - 1));
+    }
+
+    /**
+     * Adds the thread at pc to a list, following the instructions that
+     * do not consume input, in the order of their priority.
+     */
+    private void add(Threads t, int list, int pc, int start, int[] caps,
+                     int events, Matcher matcher, int i, CharSequence seq) {
+        int[] marks = t.marks[list];
+        int gen = t.gens[list];
+        int sp = 0;
+        t.stackPcs[sp] = pc;
+        t.stackCaps[sp] = caps;
+        t.stackEvents[sp++] = events;
+        while (sp > 0) {
+            pc = t.stackPcs[--sp];
+            caps = t.stackCaps[sp];
+            events = t.stackEvents[sp];
+        follow:
+            for (;;) {
+                if (marks[pc] == gen) {
+                    // The path ends in one of higher priority, but the
+                    // nodes would try it after that one, so its events
+                    // are kept as if it failed.
+                    t.pending |= events;
+                    break;
+                }
+                marks[pc] = gen;
+                switch (op[pc]) {
+                case JMP:
+                    pc = arg[pc];
+                    break;
+                case SPLIT:
+                    t.stackPcs[sp] = arg2[pc];
+                    t.stackCaps[sp] = caps;
+                    t.stackEvents[sp++] = events;
+                    pc = arg[pc];
+                    break;
+                case OPEN:
+                    caps = caps.clone();
+                    caps[arg[pc]] = i;
+                    pc++;
+                    break;
+                case CLOSE:
+                    caps = caps.clone();
+                    caps[arg2[pc]] = caps[arg[pc]];
+                    caps[arg2[pc] + 1] = i;
+                    pc++;
+                    break;
+                case PROGRESS:
+                    pc = (i > caps[arg[pc]]) ? pc + 1 : arg2[pc];
+                    break;
+                case ASSERT:
+                case BOUND:
+                    matcher.hitEnd = false;
+                    matcher.requireEnd = false;
+                    boolean ok;
+                    if (op[pc] == ASSERT) {
+                        ok = check((Node)obj[pc], matcher, i, seq);
+                    } else {
+                        Bound bound = (Bound)obj[pc];
+                        ok = (bound.check(matcher, i, seq) & bound.type) > 0;
+                    }
+                    if (matcher.hitEnd)
+                        events |= HIT_END;
+                    if (matcher.requireEnd)
+                        events |= REQUIRE_END;
+                    if (!ok) {
+                        t.pending |= events;
+                        break follow;
+                    }
+                    pc++;
+                    break;
+                default:
+                    int n = t.counts[list]++;
+                    t.pcs[list][n] = pc;
+                    t.starts[list][n] = start;
+                    t.caps[list][n] = caps;
+                    t.events[list][n] = events | t.pending;
+                    t.pending = 0;
+                    break follow;
+                }
+            }
+        }
+    }
+
+    private static boolean check(Node node, Matcher matcher, int i,
+                                 CharSequence seq) {
+        if (node instanceof Begin)
+            return ((Begin)node).check(matcher, i, seq);
+        if (node instanceof End)
+            return ((End)node).check(matcher, i, seq);
+        if (node instanceof Caret)
+            return ((Caret)node).check(matcher, i, seq);
+        if (node instanceof UnixCaret)
+            return ((UnixCaret)node).check(matcher, i, seq);
+        if (node instanceof Dollar)
+            return ((Dollar)node).check(matcher, i, seq);
+        if (node instanceof UnixDollar)
+            return ((UnixDollar)node).check(matcher, i, seq);
+        return ((LastMatch)node).check(matcher, i, seq);
+    }
+
+    /**
+     * Runs the consuming instruction at pc at position i, and returns the
+     * position after what it consumed, -1 if it does not match, or -2 if
+     * it hit the end.
+     */
+    private int step(int pc, CharSequence seq, int i, int to) {
+        if (i >= to)
+            return -2;
+        int c;
+        switch (op[pc]) {
+        case CHAR:
+            return seq.charAt(i) == arg[pc] ? i + 1 : -1;
+        case CHAR_I:
+            c = seq.charAt(i);
+            return (arg[pc] == c || arg[pc] == ASCII.toLower(c)) ? i + 1 : -1;
+        case CHAR_U:
+            c = seq.charAt(i);
+            return (arg[pc] == c
+                    || arg[pc] == Character.toLowerCase(Character.toUpperCase(c)))
+                ? i + 1 : -1;
+        case BMP_PROP:
+            return ((CharProperty)obj[pc]).isSatisfiedBy(seq.charAt(i))
+                ? i + 1 : -1;
+        case PROP:
+            c = Character.codePointAt(seq, i);
+            if (!((CharProperty)obj[pc]).isSatisfiedBy(c))
+                return -1;
+            break;
+        default:
+            c = Character.codePointAt(seq, i);
+            int lower = c;
+            if (op[pc] == CP_I)
+                lower = ASCII.toLower(c);
+            else if (op[pc] == CP_U)
+                lower = Character.toLowerCase(Character.toUpperCase(c));
+            if (arg[pc] != c && arg[pc] != lower)
+                return -1;
+        }
+        int j = i + Character.charCount(c);
+        return (j > to) ? -2 : j;
+    }
+
+    // -- DFA --
+
+    /**
+     * A DFA state: the consuming instructions and MATCH reached, sorted,
+     * and the arguments of the MATCH instructions. A state of a floating
+     * DFA is fresh if all the matches started before it failed. The
+     * transitions on ASCII characters are cached in an array, the others
+     * in a hash table; both are read without a lock.
+     */
+    private static final class State {
+        final int[] pcs;
+        final int[] accepts;
+        final boolean match;
+        final boolean consumes;
+        final boolean fresh;
+        final State[] next = new State[128];
+        volatile Others others;
+
+        State(int[] pcs, int[] accepts, boolean fresh) {
+            this.pcs = pcs;
+            this.accepts = accepts;
+            this.match = accepts.length > 0;
+            this.fresh = fresh;
+            this.consumes = pcs.length > accepts.length;
+        }
+
+        // Returns the cached transition on a non-ASCII char, or null if
+        // there is none or it is still being added.
+        State other(char c) {
+            Others t = others;
+            if (t == null)
+                return null;
+            int mask = t.chars.length - 1;
+            for (int i = hash(c) & mask; ; i = (i + 1) & mask) {
+                char k = t.chars[i];
+                if (k == c)
+                    return t.states[i];
+                if (k == 0)
+                    return null;
+            }
+        }
+
+        // Caches a transition on a non-ASCII char; called with the DFA
+        // locked. The table is added to in place while it is at most
+        // half full, and replaced by a larger copy when it would not be.
+        void addOther(char c, State n) {
+            Others t = others;
+            if (t == null) {
+                t = new Others(8);
+            } else if ((t.count + 1) * 2 > t.chars.length) {
+                Others u = new Others(t.chars.length * 2);
+                for (int i = 0; i < t.chars.length; i++) {
+                    if (t.chars[i] != 0)
+                        u.put(t.chars[i], t.states[i]);
+                }
+                t = u;
+            }
+            t.put(c, n);
+            others = t;
+        }
+
+        private static int hash(char c) {
+            int h = c * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        // An open addressed table; 0 marks a free slot, as no transition
+        // on a NUL char is cached here. A reader may see a char before
+        // its state.
+        private static final class Others {
+            final char[] chars;
+            final State[] states;
+            int count;
+
+            Others(int length) {
+                chars = new char[length];
+                states = new State[length];
+            }
+
+            void put(char c, State n) {
+                int mask = chars.length - 1;
+                int i = hash(c) & mask;
+                while (chars[i] != 0)
+                    i = (i + 1) & mask;
+                states[i] = n;
+                chars[i] = c;
+                count++;
+            }
+        }
+    }
+
+    /**
+     * A DFA built from the automaton as its states are reached, used to
+     * reject input that cannot match. The DFA follows both ways out of a
+     * PROGRESS instruction, which only comes after an atom that can match
+     * the empty string, so it accepts the same input as the automaton but
+     * through more paths. A floating DFA also starts a match at every
+     * position.
+     * <p>
+     * The DFA of a union drops its states when there are too many, the
+     * others give up.
+     */
+    private final class Dfa {
+        private final boolean floating;
+        private final boolean exact;
+        private final HashMap<Key,State> states = new HashMap<>();
+        private final State start;
+        private final boolean[] seen = new boolean[size];
+        private final int[] stack = new int[size + 1];
+        private int[] set = new int[size];
+        private int count;
+        private int others;
+        private volatile boolean full;
+
+        Dfa(boolean floating) {
+            this.floating = floating;
+            boolean progress = false;
+            for (int pc = 0; pc < size; pc++)
+                progress |= op[pc] == PROGRESS;
+            exact = !progress;
+            count = 0;
+            closure(0);
+            start = state(false);
+        }
+
+        /**
+         * Scans the input from from to the end of the region. Returns -1
+         * if there can be no match, or else a position at or after from
+         * before which no match starts, if the scan got that far. If
+         * toEnd, a match must end at the end of the region.
+         */
+        int scan(Matcher matcher, int from, boolean toEnd) {
+            if (full)
+                return from;
+            CharSequence seq = matcher.text;
+            int to = matcher.to;
+            int begin = from;
+            State s = start;
+            for (int i = from; i < to; i++) {
+                if (s.match && !toEnd)
+                    return begin;
+                if (s.pcs.length == 0)
+                    return -1;
+                char c = seq.charAt(i);
+                State n = (c < 128) ? s.next[c] : s.other(c);
+                if (n == null) {
+                    if (codePoints && Character.isSurrogate(c))
+                        return begin;
+                    n = transition(s, c);
+                    if (n == null)
+                        return begin;
+                }
+                s = n;
+                if (s.fresh && (!supplementary || !inPair(seq, i + 1)))
+                    begin = i + 1;
+            }
+            if (s.consumes) {
+                // The automaton may not get this far, so it has to say
+                // whether the end was hit.
+                if (!exact)
+                    return begin;
+                matcher.hitEnd = true;
+            }
+            return s.match ? begin : -1;
+        }
+
+        /**
+         * Scans the input from from to to, and sets hits[k] for each k
+         * accepted in a state reached, or if the DFA is anchored, in the
+         * last state. Returns the number of hits left to set, given the
+         * number before, or -1 if the scan gave up.
+         */
+        int scanAll(CharSequence seq, int from, int to, boolean[] hits,
+                    int remaining) {
+            State s = start;
+            for (int i = from; ; i++) {
+                if (floating || i == to) {
+                    for (int k : s.accepts) {
+                        if (!hits[k]) {
+                            hits[k] = true;
+                            if (--remaining == 0)
+                                return 0;
+                        }
+                    }
+                }
+                if (i == to || s.pcs.length == 0)
+                    return remaining;
+                char c = seq.charAt(i);
+                State n = (c < 128) ? s.next[c] : s.other(c);
+                if (n == null) {
+                    if (codePoints && Character.isSurrogate(c))
+                        return -1;
+                    n = transition(s, c);
+                    if (n == null)
+                        return -1;
+                }
+                s = n;
+            }
+        }
+
+        // Builds the transition not found in the state; another thread may
+        // have built it since.
+        private synchronized State transition(State s, char c) {
+            State n = (c < 128) ? s.next[c] : s.other(c);
+            if (n != null)
+                return n;
+            if (full)
+                return null;
+            count = 0;
+            for (int pc : s.pcs) {
+                if (op[pc] != MATCH && accepts(pc, c))
+                    closure(pc + 1);
+            }
+            boolean fresh = floating && count == 0;
+            if (floating)
+                closure(0);
+            n = state(fresh);
+            if (n == null) {
+                if (!union) {
+                    full = true;
+                    return null;
+                }
+                flush();
+                n = state(fresh);
+            }
+            if (c < 128) {
+                s.next[c] = n;
+            } else {
+                if (others >= (union ? MAX_UNION_STATES : MAX_STATES) * 16) {
+                    for (State t : states.values())
+                        t.others = null;
+                    others = 0;
+                }
+                s.addOther(c, n);
+                others++;
+            }
+            return n;
+        }
+
+        private boolean accepts(int pc, char c) {
+            return Automaton.accepts(op[pc], arg[pc], obj[pc], c);
+        }
+
+        // Adds the instructions reached from pc to the set.
+        private void closure(int pc) {
+            int sp = 0;
+            stack[sp++] = pc;
+            while (sp > 0) {
+                pc = stack[--sp];
+                while (!seen[pc]) {
+                    seen[pc] = true;
+                    int code = op[pc];
+                    if (code == JMP) {
+                        pc = arg[pc];
+                    } else if (code == SPLIT) {
+                        stack[sp++] = arg2[pc];
+                        pc = arg[pc];
+                    } else if (code == PROGRESS) {
+                        stack[sp++] = arg2[pc];
+                        pc++;
+                    } else if (code == OPEN || code == CLOSE) {
+                        pc++;
+                    } else {
+                        set[count++] = pc;
+                        break;
+                    }
+                }
+            }
+        }
+
+        // Returns the state for the set, or null if there are too many.
+        private State state(boolean fresh) {
+            int[] pcs = Arrays.copyOf(set, count);
+            Arrays.fill(seen, false);
+            Arrays.sort(pcs);
+            Key key = new Key(pcs, fresh);
+            State s = states.get(key);
+            if (s == null) {
+                if (states.size() >= (union ? MAX_UNION_STATES : MAX_STATES))
+                    return null;
+                int n = 0;
+                for (int pc : pcs) {
+                    if (op[pc] == MATCH)
+                        n++;
+                }
+                int[] accepts = new int[n];
+                n = 0;
+                for (int pc : pcs) {
+                    if (op[pc] == MATCH)
+                        accepts[n++] = arg[pc];
+                }
+                s = new State(pcs, accepts, fresh);
+                states.put(key, s);
+            }
+            return s;
+        }
+
+        // Drops the cached states but the start state. A scan still in an
+        // old state goes on from the states built again.
+        private void flush() {
+            for (State s : states.values()) {
+                Arrays.fill(s.next, null);
+                s.others = null;
+            }
+            states.clear();
+            others = 0;
+            states.put(new Key(start.pcs, start.fresh), start);
+        }
+    }
+
+    private static final class Key {
+        final int[] pcs;
+        final boolean fresh;
+        final int hash;
+
+        Key(int[] pcs, boolean fresh) {
+            this.pcs = pcs;
+            this.fresh = fresh;
+            this.hash = Arrays.hashCode(pcs) * 2 + (fresh ? 1 : 0);
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            Key k = (Key)o;
+            return fresh == k.fresh && Arrays.equals(pcs, k.pcs);
+        }
+    }
+}
@@ -166,6 +166,22 @@ public final class Matcher implements MatchResult {
      */
     int[] locals;
 
+    /**
+     * Storage used by the automaton of the pattern, if it has one, to hold
+     * the threads of a match. Allocated on first use.
+     */
+    Automaton.Threads threads;
+
+    /**
+     * Where the literal prefix and the required literal of the pattern
+     * next occur in the region, at or after where the last search since
+     * the matcher was reset started, or -1 if not looked for yet. NONE if
+     * they do not occur.
+     */
+    int prefixAt = -1, requiredAt = -1;
+
+    static final int NONE = Integer.MAX_VALUE;
+
     /**
      * Boolean indicating whether or not more input could change
      * the results of the last match.
@@ -274,10 +290,14 @@ public final class Matcher implements MatchResult {
             throw new IllegalArgumentException("Pattern cannot be null");
         parentPattern = newPattern;
 
-        // Reallocate state storage
+        // Reallocate state storage, unless the old one is large enough
         int parentGroupCount = Math.max(newPattern.capturingGroupCount, 10);
-        groups = new int[parentGroupCount * 2];
-        locals = new int[newPattern.localCount];
+        if (groups.length < parentGroupCount * 2)
+            groups = new int[parentGroupCount * 2];
+        if (locals.length < newPattern.localCount)
+            locals = new int[newPattern.localCount];
+        prefixAt = -1;
+        requiredAt = -1;
         for (int i = 0; i < groups.length; i++)
             groups[i] = -1;
         for (int i = 0; i < locals.length; i++)
@@ -306,6 +326,8 @@ public final class Matcher implements MatchResult {
         lastAppendPosition = 0;
         from = 0;
         to = getTextLength();
+        prefixAt = -1;
+        requiredAt = -1;
         return this;
     }
 
@@ -422,6 +444,40 @@ public final class Matcher implements MatchResult {
         return groups[group * 2 + 1];
     }
 
+    /**
+     * Stores the start and end indices of the subsequences captured by the
+     * groups during the previous match operation in the given array, so
+     * that they can be read without creating strings.  The start and end
+     * of group <i>g</i> are stored at index <i>2g</i> and <i>2g+1</i> of
+     * <tt>offsets</tt>, as {@link #start(int) start(g)} and {@link
+     * #end(int) end(g)} would return them, for each group from zero to
+     * {@link #groupCount groupCount()}.
+     *
+     * @param  offsets
+     *         The array in which to store the indices, of length at least
+     *         twice the number of groups plus two
+     *
+     * @return  The number of groups whose indices were stored, including
+     *          group zero
+     *
+     * @throws  IllegalStateException
+     *          If no match has yet been attempted,
+     *          or if the previous match operation failed
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>offsets</tt> is too short
+     * @since 1.7
+     */
+    public int groupOffsets(int[] offsets) {
+        if (first < 0)
+            throw new IllegalStateException("No match available");
+        int count = groupCount() + 1;
+        if (offsets.length < count * 2)
+            throw new IndexOutOfBoundsException("offsets");
+        System.arraycopy(groups, 0, offsets, 0, count * 2);
+        return count;
+    }
+
     /**
      * Returns the input subsequence matched by the previous match.
      *
@@ -1196,13 +1252,76 @@ public final class Matcher implements MatchResult {
         for (int i = 0; i < groups.length; i++)
             groups[i] = -1;
         acceptMode = NOANCHOR;
-        boolean result = parentPattern.root.match(this, from, text);
+        if (parentPattern.literalPrefix != null
+            || parentPattern.requiredLiteral != null)
+            from = skip(from);
+        Automaton automaton = parentPattern.automaton();
+        boolean result;
+        if (from < 0) {
+            // As the root would find after trying every position
+            this.hitEnd = true;
+            result = false;
+        } else {
+            result = (automaton != null)
+                ? automaton.search(this, from)
+                : parentPattern.root.match(this, from, text);
+        }
         if (!result)
             this.first = -1;
         this.oldLast = this.last;
         return result;
     }
 
+    /**
+     * Skips the part of the region from from which cannot hold the start
+     * of a match, as every match starts with the literal prefix of the
+     * pattern and contains its required literal. Returns where to search
+     * from, or -1 if there can be no match. The occurrences found are
+     * kept, as the next searches of a matcher do not start before.
+     */
+    private int skip(int from) {
+        String required = parentPattern.requiredLiteral;
+        if (required != null) {
+            if (requiredAt < from)
+                requiredAt = indexOf(required, from);
+            if (requiredAt == NONE)
+                return -1;
+        }
+        String prefix = parentPattern.literalPrefix;
+        if (prefix != null) {
+            if (prefixAt < from)
+                prefixAt = indexOf(prefix, from);
+            if (prefixAt == NONE)
+                return -1;
+            from = prefixAt;
+        }
+        return from;
+    }
+
+    /**
+     * Returns the index of the first occurrence of the literal in the
+     * region at or after from, or NONE if there is none.
+     */
+    private int indexOf(String literal, int from) {
+        int n = literal.length();
+        int max = to - n;
+        if (text instanceof String && to == getTextLength()) {
+            int i = ((String)text).indexOf(literal, from);
+            return (i >= 0) ? i : NONE;
+        }
+        char c = literal.charAt(0);
+        for (int i = from; i <= max; i++) {
+            if (text.charAt(i) != c)
+                continue;
+            int j = 1;
+            while (j < n && text.charAt(i + j) == literal.charAt(j))
+                j++;
+            if (j == n)
+                return i;
+        }
+        return NONE;
+    }
+
     /**
      * Initiates a search for an anchored match to a Pattern within the given
      * bounds. The groups are filled with default values and the match of the
@@ -1218,7 +1337,10 @@ public final class Matcher implements MatchResult {
         for (int i = 0; i < groups.length; i++)
             groups[i] = -1;
         acceptMode = anchor;
-        boolean result = parentPattern.matchRoot.match(this, from, text);
+        Automaton automaton = parentPattern.automaton();
+        boolean result = (automaton != null)
+            ? automaton.match(this, from, anchor)
+            : parentPattern.matchRoot.match(this, from, text);
         if (!result)
             this.first = -1;
         this.oldLast = this.last;
@@ -30,6 +30,7 @@ import java.security.PrivilegedAction;
 import java.text.CharacterIterator;
 import java.text.Normalizer;
 import java.util.Locale;
+import java.util.List;
 import java.util.Map;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -957,6 +958,30 @@ public final class Pattern
      */
     transient Node matchRoot;
 
+    /**
+     * The automaton that runs the operations of matchers in linear time, or
+     * null if the pattern uses constructs that need backtracking, such as
+     * back references, lookaround, independent groups and possessive
+     * quantifiers. Built on first use by a matcher, once automatonBuilt
+     * is set.
+     */
+    private transient Automaton automaton;
+
+    /**
+     * Whether the automaton has been built, or the pattern is a plain
+     * literal, which the nodes search for in linear time already.
+     */
+    private transient volatile boolean automatonBuilt;
+
+    /**
+     * The literal which every match starts with, and the longest other
+     * literal which every match contains, or null. Matchers skip the input
+     * up to where these occur before they search. Only set if matches are
+     * searched for by a Start node.
+     */
+    transient String literalPrefix;
+    transient String requiredLiteral;
+
     /**
      * Temporary storage used by parsing pattern slice.
      */
@@ -1007,7 +1032,7 @@ public final class Pattern
      * (1) There is supplementary char in pattern, or
      * (2) There is complement node of Category or Block
      */
-    private transient boolean hasSupplementary;
+    transient boolean hasSupplementary;
 
     /**
      * Compiles the given regular expression into a pattern.  </p>
@@ -1685,6 +1710,26 @@ loop:   for(int x=0, offset=0; x<nCodePoints; x++, offset+=len) {
             root = hasSupplementary ? new StartS(matchRoot) : new Start(matchRoot);
         }
 
+        // A plain literal is searched for in linear time already
+        automaton = null;
+        automatonBuilt = matchRoot instanceof SliceNode
+            && matchRoot.next == lastAccept;
+
+        // The input is not normalized for canonical equivalence, so its
+        // literals may be spelled differently
+        if (root instanceof Start && !has(CANON_EQ)) {
+            List<String> literals = requiredLiterals();
+            literalPrefix = literalPrefix();
+            for (String literal : literals) {
+                if (requiredLiteral == null
+                    || literal.length() > requiredLiteral.length())
+                    requiredLiteral = literal;
+            }
+            if (requiredLiteral != null && literalPrefix != null
+                && literalPrefix.contains(requiredLiteral))
+                requiredLiteral = null;
+        }
+
         // Release temporary storage
         temp = null;
         buffer = null;
@@ -1693,6 +1738,97 @@ loop:   for(int x=0, offset=0; x<nCodePoints; x++, offset+=len) {
         compiled = true;
     }
 
+    /**
+     * Returns the runs of literal characters in the top level sequence of
+     * nodes, which every match of this pattern contains. Case insensitive
+     * literals are not counted.
+     */
+    List<String> requiredLiterals() {
+        List<String> literals = new ArrayList<>();
+        StringBuilder run = new StringBuilder();
+        Node node = matchRoot;
+        for (;;) {
+            if (node instanceof Slice || node instanceof SliceS) {
+                for (int c : ((SliceNode)node).buffer)
+                    run.appendCodePoint(c);
+            } else if (node instanceof Single) {
+                run.append((char)((Single)node).c);
+            } else if (!(node instanceof GroupHead)
+                       && !(node instanceof GroupTail)) {
+                if (run.length() > 0)
+                    literals.add(run.toString());
+                run.setLength(0);
+                if (node == null || node instanceof LastNode
+                    || (node instanceof Branch && !joins((Branch)node)))
+                    return literals;
+                node = skip(node);
+            }
+            node = node.next;
+        }
+    }
+
+    /**
+     * Returns the literal characters at the start of the top level sequence
+     * of nodes, which every match of this pattern starts with, or null if
+     * there are none. A literal starting with a low surrogate is not
+     * counted, since the search does not start inside a surrogate pair.
+     */
+    private String literalPrefix() {
+        StringBuilder prefix = new StringBuilder();
+        for (Node node = matchRoot; ; node = node.next) {
+            if (node instanceof Slice || node instanceof SliceS) {
+                for (int c : ((SliceNode)node).buffer)
+                    prefix.appendCodePoint(c);
+            } else if (node instanceof Single) {
+                prefix.append((char)((Single)node).c);
+            } else if (!(node instanceof GroupHead)
+                       && !(node instanceof GroupTail)) {
+                if (prefix.length() == 0
+                    || Character.isLowSurrogate(prefix.charAt(0)))
+                    return null;
+                return prefix.toString();
+            }
+        }
+    }
+
+    // Returns the node that the next node after the given one follows.
+    private static Node skip(Node node) {
+        if (node instanceof Branch)
+            return ((Branch)node).conn;
+        if (node instanceof Prolog)
+            return ((Prolog)node).loop;
+        return node;
+    }
+
+    // Whether all the alternatives of the branch go on at its connection,
+    // which they do not if one was added after a group ending with a
+    // branch.
+    private static boolean joins(Branch branch) {
+        for (int i = 0; i < branch.size; i++) {
+            Node node = branch.atoms[i];
+            while (node != null && node != branch.conn) {
+                if (node instanceof LastNode
+                    || (node instanceof Branch && !joins((Branch)node)))
+                    return false;
+                node = skip(node).next;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the automaton of this pattern, building it on first use, or
+     * null if the pattern has none. Threads that race to build it build
+     * the same automaton.
+     */
+    Automaton automaton() {
+        if (!automatonBuilt) {
+            automaton = Automaton.compile(this, hasSupplementary);
+            automatonBuilt = true;
+        }
+        return automaton;
+    }
+
     Map<String, Integer> namedGroups() {
         if (namedGroups == null)
             namedGroups = new HashMap<>(2);
@@ -3466,10 +3602,13 @@ loop:   for(int x=0, offset=0; x<nCodePoints; x++, offset+=len) {
      * multiline mode.
      */
     static final class Begin extends Node {
-        boolean match(Matcher matcher, int i, CharSequence seq) {
+        boolean check(Matcher matcher, int i, CharSequence seq) {
             int fromIndex = (matcher.anchoringBounds) ?
                 matcher.from : 0;
-            if (i == fromIndex && next.match(matcher, i, seq)) {
+            return i == fromIndex;
+        }
+        boolean match(Matcher matcher, int i, CharSequence seq) {
+            if (check(matcher, i, seq) && next.match(matcher, i, seq)) {
                 matcher.first = i;
                 matcher.groups[0] = i;
                 matcher.groups[1] = matcher.last;
@@ -3485,15 +3624,18 @@ loop:   for(int x=0, offset=0; x<nCodePoints; x++, offset+=len) {
      * should not match at the last newline before the end as $ will.
      */
     static final class End extends Node {
-        boolean match(Matcher matcher, int i, CharSequence seq) {
+        boolean check(Matcher matcher, int i, CharSequence seq) {
             int endIndex = (matcher.anchoringBounds) ?
                 matcher.to : matcher.getTextLength();
             if (i == endIndex) {
                 matcher.hitEnd = true;
-                return next.match(matcher, i, seq);
+                return true;
             }
             return false;
         }
+        boolean match(Matcher matcher, int i, CharSequence seq) {
+            return check(matcher, i, seq) && next.match(matcher, i, seq);
+        }
     }
 
     /**
@@ -3501,7 +3643,7 @@ loop:   for(int x=0, offset=0; x<nCodePoints; x++, offset+=len) {
      * object to match for the multiline ^.
      */
     static final class Caret extends Node {
-        boolean match(Matcher matcher, int i, CharSequence seq) {
+        boolean check(Matcher matcher, int i, CharSequence seq) {
             int startIndex = matcher.from;
             int endIndex = matcher.to;
             if (!matcher.anchoringBounds) {
@@ -3524,7 +3666,10 @@ loop:   for(int x=0, offset=0; x<nCodePoints; x++, offset+=len) {
                 if (ch == '\r' && seq.charAt(i) == '\n')
                     return false;
             }
-            return next.match(matcher, i, seq);
+            return true;
+        }
+        boolean match(Matcher matcher, int i, CharSequence seq) {
+            return check(matcher, i, seq) && next.match(matcher, i, seq);
         }
     }
 
@@ -3532,7 +3677,7 @@ loop:   for(int x=0, offset=0; x<nCodePoints; x++, offset+=len) {
      * Node to anchor at the beginning of a line when in unixdot mode.
      */
     static final class UnixCaret extends Node {
-        boolean match(Matcher matcher, int i, CharSequence seq) {
+        boolean check(Matcher matcher, int i, CharSequence seq) {
             int startIndex = matcher.from;
             int endIndex = matcher.to;
             if (!matcher.anchoringBounds) {
@@ -3550,7 +3695,10 @@ loop:   for(int x=0, offset=0; x<nCodePoints; x++, offset+=len) {
                     return false;
                 }
             }
-            return next.match(matcher, i, seq);
+            return true;
+        }
+        boolean match(Matcher matcher, int i, CharSequence seq) {
+            return check(matcher, i, seq) && next.match(matcher, i, seq);
         }
     }
 
@@ -3559,8 +3707,11 @@ loop:   for(int x=0, offset=0; x<nCodePoints; x++, offset+=len) {
      * This is used for the \G construct.
      */
     static final class LastMatch extends Node {
+        boolean check(Matcher matcher, int i, CharSequence seq) {
+            return i == matcher.oldLast;
+        }
         boolean match(Matcher matcher, int i, CharSequence seq) {
-            if (i != matcher.oldLast)
+            if (!check(matcher, i, seq))
                 return false;
             return next.match(matcher, i, seq);
         }
@@ -3584,7 +3735,7 @@ loop:   for(int x=0, offset=0; x<nCodePoints; x++, offset+=len) {
         Dollar(boolean mul) {
             multiline = mul;
         }
-        boolean match(Matcher matcher, int i, CharSequence seq) {
+        boolean check(Matcher matcher, int i, CharSequence seq) {
             int endIndex = (matcher.anchoringBounds) ?
                 matcher.to : matcher.getTextLength();
             if (!multiline) {
@@ -3614,11 +3765,11 @@ loop:   for(int x=0, offset=0; x<nCodePoints; x++, offset+=len) {
                      if (i > 0 && seq.charAt(i-1) == '\r')
                          return false;
                      if (multiline)
-                         return next.match(matcher, i, seq);
+                         return true;
                  } else if (ch == '\r' || ch == '\u0085' ||
                             (ch|1) == '\u2029') {
                      if (multiline)
-                         return next.match(matcher, i, seq);
+                         return true;
                  } else { // No line terminator, no match
                      return false;
                  }
@@ -3628,7 +3779,10 @@ loop:   for(int x=0, offset=0; x<nCodePoints; x++, offset+=len) {
             // If a $ matches because of end of input, then more input
             // could cause it to fail!
             matcher.requireEnd = true;
-            return next.match(matcher, i, seq);
+            return true;
+        }
+        boolean match(Matcher matcher, int i, CharSequence seq) {
+            return check(matcher, i, seq) && next.match(matcher, i, seq);
         }
         boolean study(TreeInfo info) {
             next.study(info);
@@ -3645,7 +3799,7 @@ loop:   for(int x=0, offset=0; x<nCodePoints; x++, offset+=len) {
         UnixDollar(boolean mul) {
             multiline = mul;
         }
-        boolean match(Matcher matcher, int i, CharSequence seq) {
+        boolean check(Matcher matcher, int i, CharSequence seq) {
             int endIndex = (matcher.anchoringBounds) ?
                 matcher.to : matcher.getTextLength();
             if (i < endIndex) {
@@ -3658,7 +3812,7 @@ loop:   for(int x=0, offset=0; x<nCodePoints; x++, offset+=len) {
                     // If multiline return next.match without setting
                     // matcher.hitEnd
                     if (multiline)
-                        return next.match(matcher, i, seq);
+                        return true;
                 } else {
                     return false;
                 }
@@ -3669,7 +3823,10 @@ loop:   for(int x=0, offset=0; x<nCodePoints; x++, offset+=len) {
             // If a $ matches because of end of input, then more input
             // could cause it to fail!
             matcher.requireEnd = true;
-            return next.match(matcher, i, seq);
+            return true;
+        }
+        boolean match(Matcher matcher, int i, CharSequence seq) {
+            return check(matcher, i, seq) && next.match(matcher, i, seq);
         }
         boolean study(TreeInfo info) {
             next.study(info);
@@ -3681,7 +3838,7 @@ loop:   for(int x=0, offset=0; x<nCodePoints; x++, offset+=len) {
      * Abstract node class to match one character satisfying some
      * boolean property.
      */
-    private static abstract class CharProperty extends Node {
+    static abstract class CharProperty extends Node {
         abstract boolean isSatisfiedBy(int ch);
         CharProperty complement() {
             return new CharProperty() {
@@ -3709,7 +3866,7 @@ loop:   for(int x=0, offset=0; x<nCodePoints; x++, offset+=len) {
      * Optimized version of CharProperty that works only for
      * properties never satisfied by Supplementary characters.
      */
-    private static abstract class BmpCharProperty extends CharProperty {
+    static abstract class BmpCharProperty extends CharProperty {
         boolean match(Matcher matcher, int i, CharSequence seq) {
             if (i < matcher.to) {
                 return isSatisfiedBy(seq.charAt(i))
@@ -0,0 +1,495 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+package java.util.regex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of compiled regular expressions, which finds which of them match
+ * an input sequence in a single pass over it.
+ *
+ * <p> A pattern set is created from regular expressions or compiled
+ * {@link Pattern}s by one of the {@link #compile compile} methods.  The
+ * {@link #find(CharSequence) find} method returns the indexes of the
+ * patterns that would find a match in an input sequence, and the {@link
+ * #matches matches} method those that would match all of it, as the
+ * methods of the same name of a {@link Matcher} would.
+ *
+ * <p> The patterns without anchors, word boundaries, back references,
+ * lookaround, independent groups or possessive quantifiers are combined
+ * into automata, run on DFAs whose states are built and cached as they
+ * are reached, so the cost of a pass does not grow with the number of
+ * patterns.  The other patterns are matched on their own.  A pattern
+ * whose top level sequence has a literal part, which every match must
+ * contain, is only tried if the literal was found in the input by an
+ * Aho-Corasick automaton over the literals of all the patterns; the
+ * patterns are combined by literal, so that a pass only runs the
+ * automata of the literals found.
+ *
+ * <p> Instances of this class are immutable and are safe for use by
+ * multiple concurrent threads.
+ *
+ * @see Pattern
+ * @since 1.7
+ */
+public final class PatternSet {
+
+    private final Pattern[] patterns;
+
+    // The union of the automata of the patterns without a literal, and the
+    // indexes of these patterns
+    private final Automaton automaton;
+    private final int[] parts;
+
+    // The indexes of the patterns matched on their own
+    private final int[] others;
+
+    // The required literals, and for each of them the union of the
+    // automata of the patterns with the literal and their indexes
+    private final Literals literals;
+    private final Automaton[] groups;
+    private final int[][] members;
+
+    // The index of the literal of each pattern, or -1
+    private final int[] literal;
+
+    private PatternSet(Pattern[] patterns) {
+        int n = patterns.length;
+        this.patterns = patterns;
+
+        // The literal of a pattern is the one which the fewest patterns
+        // contain, and the longest of those, so that a literal common to
+        // many patterns does not make them all candidates
+        List<List<String>> runs = new ArrayList<>(n);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            List<String> run = patterns[i].requiredLiterals();
+            runs.add(run);
+            for (String word : new HashSet<>(run)) {
+                Integer count = counts.get(word);
+                counts.put(word, (count == null) ? 1 : count + 1);
+            }
+        }
+        Map<String, Integer> indexes = new HashMap<>();
+        literal = new int[n];
+        for (int i = 0; i < n; i++) {
+            String best = null;
+            int fewest = 0;
+            for (String word : runs.get(i)) {
+                int count = counts.get(word);
+                if (best == null || count < fewest
+                    || (count == fewest && word.length() > best.length())) {
+                    best = word;
+                    fewest = count;
+                }
+            }
+            if (best == null) {
+                literal[i] = -1;
+            } else {
+                Integer index = indexes.get(best);
+                if (index == null) {
+                    index = indexes.size();
+                    indexes.put(best, index);
+                }
+                literal[i] = index;
+            }
+        }
+        int count = indexes.size();
+        String[] words = new String[count];
+        for (Map.Entry<String, Integer> e : indexes.entrySet())
+            words[e.getValue()] = e.getKey();
+        literals = (count > 0) ? new Literals(words) : null;
+
+        // The patterns with a literal are split by literal, so that the
+        // states of a union do not track the patterns which cannot match
+        Automaton[] automata = new Automaton[n];
+        int[] sizes = new int[count + 1];
+        int j = 0;
+        for (int i = 0; i < n; i++) {
+            automata[i] = Automaton.compileForUnion(patterns[i]);
+            if (automata[i] == null)
+                j++;
+            else
+                sizes[literal[i] + 1]++;
+        }
+        others = new int[j];
+        int[][] members = new int[count + 1][];
+        for (int k = 0; k <= count; k++)
+            members[k] = new int[sizes[k]];
+        j = 0;
+        Arrays.fill(sizes, 0);
+        for (int i = 0; i < n; i++) {
+            if (automata[i] == null) {
+                others[j++] = i;
+            } else {
+                int k = literal[i] + 1;
+                members[k][sizes[k]++] = i;
+            }
+        }
+        Automaton[] unions = new Automaton[count + 1];
+        for (int k = 0; k <= count; k++) {
+            int[] m = members[k];
+            if (m.length > 0) {
+                Automaton[] union = new Automaton[m.length];
+                for (int i = 0; i < m.length; i++)
+                    union[i] = automata[m[i]];
+                unions[k] = Automaton.union(union);
+            }
+        }
+        automaton = unions[0];
+        parts = members[0];
+        groups = Arrays.copyOfRange(unions, 1, count + 1);
+        this.members = Arrays.copyOfRange(members, 1, count + 1);
+    }
+
+    /**
+     * Compiles the given regular expressions into a pattern set.
+     *
+     * @param  regexes
+     *         The expressions to be compiled
+     *
+     * @return  A pattern set of the expressions, in the same order
+     *
+     * @throws  PatternSyntaxException
+     *          If the syntax of an expression is invalid
+     */
+    public static PatternSet compile(String[] regexes) {
+        return compile(regexes, 0);
+    }
+
+    /**
+     * Compiles the given regular expressions into a pattern set with the
+     * given flags.
+     *
+     * @param  regexes
+     *         The expressions to be compiled
+     *
+     * @param  flags
+     *         Match flags, as for {@link Pattern#compile(String, int)}
+     *
+     * @return  A pattern set of the expressions, in the same order
+     *
+     * @throws  IllegalArgumentException
+     *          If bit values other than those corresponding to the defined
+     *          match flags are set in <tt>flags</tt>
+     *
+     * @throws  PatternSyntaxException
+     *          If the syntax of an expression is invalid
+     */
+    public static PatternSet compile(String[] regexes, int flags) {
+        Pattern[] patterns = new Pattern[regexes.length];
+        for (int i = 0; i < regexes.length; i++)
+            patterns[i] = Pattern.compile(regexes[i], flags);
+        return new PatternSet(patterns);
+    }
+
+    /**
+     * Creates a pattern set of the given patterns.
+     *
+     * @param  patterns
+     *         The patterns of the set
+     *
+     * @return  A pattern set of the patterns, in the same order
+     */
+    public static PatternSet compile(Pattern[] patterns) {
+        patterns = patterns.clone();
+        for (Pattern p : patterns) {
+            if (p == null)
+                throw new NullPointerException();
+        }
+        return new PatternSet(patterns);
+    }
+
+    /**
+     * Returns the number of patterns in this set.
+     *
+     * @return  The number of patterns
+     */
+    public int size() {
+        return patterns.length;
+    }
+
+    /**
+     * Returns the pattern at the given index in this set.
+     *
+     * @param  index
+     *         The index of the pattern
+     *
+     * @return  The pattern
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If the index is out of range
+     */
+    public Pattern pattern(int index) {
+        return patterns[index];
+    }
+
+    /**
+     * Returns the indexes of the patterns of this set for which a matcher
+     * would find a match in the given input sequence.
+     *
+     * @param  input
+     *         The character sequence to be matched
+     *
+     * @return  The indexes of the patterns with a match
+     */
+    public BitSet find(CharSequence input) {
+        return scan(input, false);
+    }
+
+    /**
+     * Finds the patterns of this set that match in the given input
+     * sequence, and where.  The start and end of the match that a matcher
+     * of the pattern at index <i>i</i> would find first are stored at
+     * index <i>2i</i> and <i>2i+1</i> of <tt>bounds</tt>, or -1 if there
+     * is none.  Only the patterns that match are run on matchers.
+     *
+     * @param  input
+     *         The character sequence to be matched
+     *
+     * @param  bounds
+     *         The array of the bounds of the matches, of length at least
+     *         twice the size of this set
+     *
+     * @return  The number of patterns with a match
+     *
+     * @throws  IndexOutOfBoundsException
+     *          If <tt>bounds</tt> is too short
+     */
+    public int find(CharSequence input, int[] bounds) {
+        int n = patterns.length;
+        if (bounds.length < 2 * n)
+            throw new IndexOutOfBoundsException("bounds");
+        Arrays.fill(bounds, 0, 2 * n, -1);
+        BitSet hits = scan(input, false);
+        for (int i = hits.nextSetBit(0); i >= 0; i = hits.nextSetBit(i + 1)) {
+            Matcher m = patterns[i].matcher(input);
+            if (m.find()) {
+                bounds[2 * i] = m.start();
+                bounds[2 * i + 1] = m.end();
+            }
+        }
+        return hits.cardinality();
+    }
+
+    /**
+     * Returns the indexes of the patterns of this set that match the
+     * entire given input sequence.
+     *
+     * @param  input
+     *         The character sequence to be matched
+     *
+     * @return  The indexes of the patterns that match
+     */
+    public BitSet matches(CharSequence input) {
+        return scan(input, true);
+    }
+
+    private BitSet scan(CharSequence input, boolean whole) {
+        BitSet result = new BitSet(patterns.length);
+        if (automaton != null)
+            scan(automaton, parts, input, whole, result);
+        boolean[] found = (literals != null) ? literals.find(input) : null;
+        if (found != null) {
+            for (int k = 0; k < groups.length; k++) {
+                if (found[k] && groups[k] != null)
+                    scan(groups[k], members[k], input, whole, result);
+            }
+        }
+        for (int i : others) {
+            if ((literal[i] < 0 || found[literal[i]])
+                && run(patterns[i], input, whole))
+                result.set(i);
+        }
+        return result;
+    }
+
+    // Runs the union of the automata of the given patterns.
+    private void scan(Automaton union, int[] parts, CharSequence input,
+                      boolean whole, BitSet result) {
+        boolean[] hits = new boolean[parts.length];
+        if (union.scanAll(input, 0, input.length(), whole,
+                          hits, parts.length) < 0) {
+            // The DFA gave up on a surrogate
+            for (int k = 0; k < parts.length; k++) {
+                if (!hits[k])
+                    hits[k] = run(patterns[parts[k]], input, whole);
+            }
+        }
+        for (int k = 0; k < parts.length; k++) {
+            if (hits[k])
+                result.set(parts[k]);
+        }
+    }
+
+    private static boolean run(Pattern p, CharSequence input, boolean whole) {
+        Matcher m = p.matcher(input);
+        return whole ? m.matches() : m.find();
+    }
+
+    /**
+     * Returns the string representation of this pattern set, the source
+     * regular expressions of its patterns.
+     *
+     * @return  The string representation of this pattern set
+     */
+    public String toString() {
+        return Arrays.toString(patterns);
+    }
+
+    /**
+     * An Aho-Corasick automaton over a set of strings, which finds the
+     * strings that occur in an input sequence in a single pass.  The
+     * transitions of a node are kept sorted by char, and those of the root
+     * on ASCII chars in a table.
+     */
+    private static final class Literals {
+        private final int count;
+        private final char[][] labels;
+        private final int[][] targets;
+        private final int[] fail;
+        private final int[][] outputs;
+        private final int[] root = new int[128];
+
+        Literals(String[] words) {
+            count = words.length;
+            int max = 1;
+            for (String w : words)
+                max += w.length();
+            char[][] labels = new char[max][];
+            int[][] targets = new int[max][];
+            int[][] outputs = new int[max][];
+            labels[0] = new char[0];
+            targets[0] = new int[0];
+            outputs[0] = new int[0];
+            int nodes = 1;
+            for (int k = 0; k < words.length; k++) {
+                String w = words[k];
+                int s = 0;
+                for (int i = 0; i < w.length(); i++) {
+                    char c = w.charAt(i);
+                    int j = Arrays.binarySearch(labels[s], c);
+                    if (j >= 0) {
+                        s = targets[s][j];
+                        continue;
+                    }
+                    j = -j - 1;
+                    int t = nodes++;
+                    labels[t] = new char[0];
+                    targets[t] = new int[0];
+                    outputs[t] = new int[0];
+                    labels[s] = insert(labels[s], j, c);
+                    targets[s] = insert(targets[s], j, t);
+                    s = t;
+                }
+                outputs[s] = insert(outputs[s], outputs[s].length, k);
+            }
+            this.labels = labels;
+            this.targets = targets;
+            for (int j = 0; j < labels[0].length; j++) {
+                if (labels[0][j] < 128)
+                    root[labels[0][j]] = targets[0][j];
+            }
+
+            // Breadth first, so the fail node of a node is done before it
+            fail = new int[nodes];
+            int[] queue = new int[nodes];
+            int head = 0;
+            int tail = 0;
+            for (int t : targets[0])
+                queue[tail++] = t;
+            while (head < tail) {
+                int s = queue[head++];
+                for (int j = 0; j < labels[s].length; j++) {
+                    char c = labels[s][j];
+                    int t = targets[s][j];
+                    int f = fail[s];
+                    int next;
+                    while ((next = child(f, c)) < 0 && f != 0)
+                        f = fail[f];
+                    fail[t] = (next >= 0) ? next : 0;
+                    int[] inherited = outputs[fail[t]];
+                    for (int k : inherited)
+                        outputs[t] = insert(outputs[t], outputs[t].length, k);
+                    queue[tail++] = t;
+                }
+            }
+            this.outputs = outputs;
+        }
+
+        private int child(int s, char c) {
+            if (s == 0 && c < 128)
+                return (root[c] != 0) ? root[c] : -1;
+            int j = Arrays.binarySearch(labels[s], c);
+            return (j >= 0) ? targets[s][j] : -1;
+        }
+
+        /**
+         * Returns which of the strings occur in the input.
+         */
+        boolean[] find(CharSequence input) {
+            boolean[] found = new boolean[count];
+            int left = count;
+            int s = 0;
+            for (int i = 0, n = input.length(); i < n; i++) {
+                char c = input.charAt(i);
+                int t;
+                while ((t = child(s, c)) < 0 && s != 0)
+                    s = fail[s];
+                s = (t >= 0) ? t : 0;
+                for (int k : outputs[s]) {
+                    if (!found[k]) {
+                        found[k] = true;
+                        if (--left == 0)
+                            return found;
+                    }
+                }
+            }
+            return found;
+        }
+
+        private static char[] insert(char[] a, int i, char c) {
+            char[] b = new char[a.length + 1];
+            System.arraycopy(a, 0, b, 0, i);
+            b[i] = c;
+            System.arraycopy(a, i, b, i + 1, a.length - i);
+            return b;
+        }
+
+        private static int[] insert(int[] a, int i, int v) {
+            int[] b = new int[a.length + 1];
+            System.arraycopy(a, 0, b, 0, i);
+            b[i] = v;
+            System.arraycopy(a, i, b, i + 1, a.length - i);
+            return b;
+        }
+    }
+}
@@ -89,8 +89,9 @@ class Adler32 implements Checksum {
      * limit; its limit will not have been changed.
      *
      * @param buffer the ByteBuffer to update the checksum with
+     * @since 1.7
      */
-    private void update(ByteBuffer buffer) {
+    public void update(ByteBuffer buffer) {
         int pos = buffer.position();
         int limit = buffer.limit();
         assert (pos <= limit);
@@ -123,6 +124,35 @@ class Adler32 implements Checksum {
         return (long)adler & 0xffffffffL;
     }
 
+    /**
+     * Returns the Adler-32 checksum of the concatenation of two sequences
+     * of bytes, given the checksum of each sequence and the length of the
+     * second. This allows the checksums of parts of a data stream,
+     * computed separately and perhaps concurrently, to be merged.
+     *
+     * @param adler1 the checksum of the first sequence
+     * @param adler2 the checksum of the second sequence
+     * @param len2 the length of the second sequence
+     * @return the checksum of the concatenated sequences
+     * @exception IllegalArgumentException if {@code len2} is negative
+     * @since 1.7
+     */
+    public static long combine(long adler1, long adler2, long len2) {
+        if (len2 < 0)
+            throw new IllegalArgumentException("negative length");
+        final int BASE = 65521;         // largest prime smaller than 65536
+        long rem = len2 % BASE;
+        long sum1 = adler1 & 0xffff;
+        long sum2 = (rem * sum1) % BASE;
+        sum1 += (adler2 & 0xffff) + BASE - 1;
+        sum2 += ((adler1 >> 16) & 0xffff) + ((adler2 >> 16) & 0xffff) + BASE - rem;
+        if (sum1 >= BASE) sum1 -= BASE;
+        if (sum1 >= BASE) sum1 -= BASE;
+        if (sum2 >= (BASE << 1)) sum2 -= (BASE << 1);
+        if (sum2 >= BASE) sum2 -= BASE;
+        return sum1 | (sum2 << 16);
+    }
+
     // Set up JavaUtilZipAccess in SharedSecrets
     static {
        sun.misc.SharedSecrets.setJavaUtilZipAccess(new sun.misc.JavaUtilZipAccess() {
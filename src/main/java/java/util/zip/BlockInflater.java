@@ -0,0 +1,470 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.zip;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A decoder of raw deflate data (RFC 1951) for {@link
+ * SeekableInflaterChannel}. Unlike {@link Inflater}, it stops at the end
+ * of each deflate block and reports the bit position reached, and it can
+ * resume decoding at a block that does not start on a byte boundary,
+ * given the 32K bytes of history that precede it.
+ *
+ * <p> Compressed data is read on demand from an {@link Input}. Output is
+ * written to a circular window of {@code WINSIZE} bytes supplied by the
+ * caller, which also holds the history that matches refer back to; the
+ * caller always passes the same window and writes at the position where
+ * the previous call left off, modulo the window size.
+ */
+final class BlockInflater {
+
+    /*
+     * A source of compressed data.
+     */
+    interface Input {
+        // reads up to len bytes at the given position, -1 at the end
+        int read(byte[] b, int off, int len, long pos) throws IOException;
+    }
+
+    static final int WINSIZE = InflaterIndex.WINSIZE;
+
+    // bits of the lookup tables that decode short codes in one step
+    private static final int FASTBITS = 9;
+    private static final int FAST = 1 << FASTBITS;
+
+    // decoder modes
+    private static final int HEADER = 0;    // at the start of a block
+    private static final int STORED = 1;    // in a stored block
+    private static final int CODES = 2;     // in a compressed block
+    private static final int DONE = 3;      // after the last block
+
+    // base values and extra bits of the length and distance codes
+    private static final short[] LBASE = {
+        3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31,
+        35, 43, 51, 59, 67, 83, 99, 115, 131, 163, 195, 227, 258 };
+    private static final byte[] LEXT = {
+        0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2,
+        3, 3, 3, 3, 4, 4, 4, 4, 5, 5, 5, 5, 0 };
+    private static final short[] DBASE = {
+        1, 2, 3, 4, 5, 7, 9, 13, 17, 25, 33, 49, 65, 97, 129, 193,
+        257, 385, 513, 769, 1025, 1537, 2049, 3073, 4097, 6145,
+        8193, 12289, 16385, 24577 };
+    private static final byte[] DEXT = {
+        0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6,
+        7, 7, 8, 8, 9, 9, 10, 10, 11, 11, 12, 12, 13, 13 };
+
+    // order of the code length code lengths
+    private static final byte[] ORDER = {
+        16, 17, 18, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3, 13, 2, 14, 1, 15 };
+
+    private static final Huffman FIXED_LEN = new Huffman(288);
+    private static final Huffman FIXED_DIST = new Huffman(30);
+    static {
+        byte[] lengths = new byte[288];
+        Arrays.fill(lengths, 0, 144, (byte)8);
+        Arrays.fill(lengths, 144, 256, (byte)9);
+        Arrays.fill(lengths, 256, 280, (byte)7);
+        Arrays.fill(lengths, 280, 288, (byte)8);
+        FIXED_LEN.build(lengths, 0, 288);
+        Arrays.fill(lengths, 0, 30, (byte)5);
+        FIXED_DIST.build(lengths, 0, 30);
+    }
+
+    private final Input src;
+    private final byte[] in = new byte[16 * 1024];
+    private int inOff, inLen;       // unread bytes of in
+    private long inPos;             // position of the byte after in[inLen - 1]
+    private int bitbuf, bitcnt;     // bits read from in but not consumed
+
+    private int mode;
+    private boolean last;           // true if the current block is the last
+    private boolean boundary;       // true if stopped at the end of a block
+    private int stored;             // bytes left of a stored block
+    private int copyLen, copyDist;  // rest of a match
+    private int history;            // bytes of history in the window
+    private Huffman lencode, distcode;
+    private final Huffman dynLen = new Huffman(288);
+    private final Huffman dynDist = new Huffman(30);
+    private final byte[] lengths = new byte[288 + 30];
+
+    BlockInflater(Input src) {
+        this.src = src;
+    }
+
+    /*
+     * Starts decoding at the block at the given bit position of the
+     * compressed data, preceded by the given number of bytes of history
+     * in the window.
+     */
+    void reset(long bitPos, int history) throws IOException {
+        inOff = inLen = 0;
+        inPos = bitPos >>> 3;
+        bitbuf = bitcnt = 0;
+        mode = HEADER;
+        last = boundary = false;
+        stored = copyLen = 0;
+        this.history = history;
+        int skip = (int)(bitPos & 7);
+        if (skip != 0)
+            bits(skip);
+    }
+
+    /*
+     * Decodes up to len bytes into w at off, returning the number of bytes
+     * written. Returns early at the end of each block, with atBoundary()
+     * then true if the block is not the last one, and at the end of the
+     * data.
+     */
+    int inflate(byte[] w, int off, int len)
+        throws IOException, DataFormatException
+    {
+        assert w.length == WINSIZE && off + len <= WINSIZE;
+        boundary = false;
+        int n = 0;
+        try {
+            while (n < len && mode != DONE && !boundary) {
+                switch (mode) {
+                case HEADER:
+                    header();
+                    break;
+                case STORED:
+                    n = copyStored(w, off, n, len);
+                    break;
+                default:
+                    n = decodeCodes(w, off, n, len);
+                }
+            }
+        } finally {
+            history = (int)Math.min((long)history + n, WINSIZE);
+        }
+        return n;
+    }
+
+    /*
+     * Returns true if the last call to inflate stopped at the end of a
+     * block that is not the last one.
+     */
+    boolean atBoundary() {
+        return boundary;
+    }
+
+    boolean finished() {
+        return mode == DONE;
+    }
+
+    /*
+     * Returns the position, in bits, of the first bit not consumed.
+     */
+    long bitPosition() {
+        return (inPos - (inLen - inOff)) * 8 - bitcnt;
+    }
+
+    /*
+     * Returns the position of the first byte after the last block, once
+     * finished.
+     */
+    long inputPosition() {
+        assert mode == DONE && (bitcnt & 7) == 0;
+        return bitPosition() >>> 3;
+    }
+
+    // -- blocks --
+
+    private void header() throws IOException, DataFormatException {
+        last = bits(1) == 1;
+        switch (bits(2)) {
+        case 0:
+            dropToByte();
+            int len = bits(16);
+            if (len != (~bits(16) & 0xffff))
+                throw new DataFormatException("invalid stored block lengths");
+            stored = len;
+            mode = STORED;
+            break;
+        case 1:
+            lencode = FIXED_LEN;
+            distcode = FIXED_DIST;
+            mode = CODES;
+            break;
+        case 2:
+            dynamic();
+            lencode = dynLen;
+            distcode = dynDist;
+            mode = CODES;
+            break;
+        default:
+            throw new DataFormatException("invalid block type");
+        }
+    }
+
+    private void endBlock() {
+        if (last) {
+            dropToByte();
+            mode = DONE;
+        } else {
+            mode = HEADER;
+            boundary = true;
+        }
+    }
+
+    private int copyStored(byte[] w, int off, int n, int len)
+        throws IOException
+    {
+        int end = n + Math.min(stored, len - n);
+        stored -= end - n;
+        while (n < end && bitcnt >= 8) {
+            w[off + n++] = (byte)bitbuf;
+            bitbuf >>>= 8;
+            bitcnt -= 8;
+        }
+        while (n < end) {
+            if (inOff == inLen)
+                refill();
+            int k = Math.min(inLen - inOff, end - n);
+            System.arraycopy(in, inOff, w, off + n, k);
+            inOff += k;
+            n += k;
+        }
+        if (stored == 0)
+            endBlock();
+        return n;
+    }
+
+    private int decodeCodes(byte[] w, int off, int n, int len)
+        throws IOException, DataFormatException
+    {
+        while (n < len) {
+            if (copyLen > 0) {
+                int k = Math.min(copyLen, len - n);
+                copyLen -= k;
+                int from = (off + n - copyDist) & (WINSIZE - 1);
+                while (k-- > 0) {
+                    w[off + n++] = w[from];
+                    from = (from + 1) & (WINSIZE - 1);
+                }
+                continue;
+            }
+            int sym = decode(lencode);
+            if (sym < 256) {
+                w[off + n++] = (byte)sym;
+            } else if (sym == 256) {
+                endBlock();
+                return n;
+            } else {
+                sym -= 257;
+                if (sym >= 29)
+                    throw new DataFormatException("invalid literal/length code");
+                copyLen = LBASE[sym] + bits(LEXT[sym]);
+                sym = decode(distcode);
+                if (sym >= 30)
+                    throw new DataFormatException("invalid distance code");
+                copyDist = DBASE[sym] + bits(DEXT[sym]);
+                if (copyDist > history + n)
+                    throw new DataFormatException("invalid distance too far back");
+            }
+        }
+        return n;
+    }
+
+    private void dynamic() throws IOException, DataFormatException {
+        int nlen = bits(5) + 257;
+        int ndist = bits(5) + 1;
+        int ncode = bits(4) + 4;
+        if (nlen > 286 || ndist > 30)
+            throw new DataFormatException("too many length or distance symbols");
+        Arrays.fill(lengths, 0, 19, (byte)0);
+        for (int i = 0; i < ncode; i++)
+            lengths[ORDER[i]] = (byte)bits(3);
+        // the code length code is decoded with dynLen before it is rebuilt
+        if (dynLen.build(lengths, 0, 19) != 0)
+            throw new DataFormatException("invalid code lengths set");
+        int index = 0;
+        while (index < nlen + ndist) {
+            int sym = decode(dynLen);
+            if (sym < 16) {
+                lengths[index++] = (byte)sym;
+                continue;
+            }
+            int len = 0;
+            if (sym == 16) {
+                if (index == 0)
+                    throw new DataFormatException("invalid bit length repeat");
+                len = lengths[index - 1];
+                sym = 3 + bits(2);
+            } else if (sym == 17) {
+                sym = 3 + bits(3);
+            } else {
+                sym = 11 + bits(7);
+            }
+            if (index + sym > nlen + ndist)
+                throw new DataFormatException("invalid bit length repeat");
+            while (sym-- > 0)
+                lengths[index++] = (byte)len;
+        }
+        if (lengths[256] == 0)
+            throw new DataFormatException("invalid code -- missing end-of-block");
+        // incomplete codes are only allowed for a single code
+        int err = dynLen.build(lengths, 0, nlen);
+        if (err < 0 || (err > 0 && nlen - dynLen.count[0] != 1))
+            throw new DataFormatException("invalid literal/lengths set");
+        err = dynDist.build(lengths, nlen, ndist);
+        if (err < 0 || (err > 0 && ndist - dynDist.count[0] != 1))
+            throw new DataFormatException("invalid distances set");
+    }
+
+    // -- bits --
+
+    private void refill() throws IOException {
+        int n = src.read(in, 0, in.length, inPos);
+        if (n <= 0)
+            throw new EOFException("Unexpected end of ZLIB input stream");
+        inOff = 0;
+        inLen = n;
+        inPos += n;
+    }
+
+    /*
+     * Loads bits until there are at least n, returning false if the end
+     * of the data comes first.
+     */
+    private boolean fill(int n) throws IOException {
+        while (bitcnt < n) {
+            if (inOff == inLen) {
+                int k = src.read(in, 0, in.length, inPos);
+                if (k <= 0)
+                    return false;
+                inOff = 0;
+                inLen = k;
+                inPos += k;
+            }
+            bitbuf |= (in[inOff++] & 0xff) << bitcnt;
+            bitcnt += 8;
+        }
+        return true;
+    }
+
+    private int bits(int n) throws IOException {
+        if (!fill(n))
+            throw new EOFException("Unexpected end of ZLIB input stream");
+        int v = bitbuf & ((1 << n) - 1);
+        bitbuf >>>= n;
+        bitcnt -= n;
+        return v;
+    }
+
+    private void dropToByte() {
+        int k = bitcnt & 7;
+        bitbuf >>>= k;
+        bitcnt -= k;
+    }
+
+    private int decode(Huffman h) throws IOException, DataFormatException {
+        if (fill(FASTBITS)) {
+            int e = h.fast[bitbuf & (FAST - 1)];
+            if (e != 0) {
+                int len = e & 15;
+                bitbuf >>>= len;
+                bitcnt -= len;
+                return e >> 4;
+            }
+        }
+        // a long code, or near the end of the data: one bit at a time
+        int code = 0, first = 0, index = 0;
+        for (int len = 1; len < 16; len++) {
+            code |= bits(1);
+            int count = h.count[len];
+            if (code - count < first)
+                return h.symbol[index + (code - first)];
+            index += count;
+            first = (first + count) << 1;
+            code <<= 1;
+        }
+        throw new DataFormatException("invalid code");
+    }
+
+    /*
+     * A canonical Huffman code: the number of codes of each length and the
+     * symbols ordered by code, plus a table that decodes the codes of up to
+     * FASTBITS bits from the next FASTBITS bits of input. An entry of the
+     * table holds symbol << 4 | length, or 0 for a longer code.
+     */
+    private static final class Huffman {
+        final short[] count = new short[16];
+        final short[] symbol;
+        final short[] fast = new short[FAST];
+        private final short[] offs = new short[16];
+
+        Huffman(int n) {
+            symbol = new short[n];
+        }
+
+        /*
+         * Builds the code from the code lengths of n symbols, returning 0
+         * for a complete code, a positive number for an incomplete one and
+         * a negative number for an oversubscribed one.
+         */
+        int build(byte[] lengths, int off, int n) {
+            Arrays.fill(count, (short)0);
+            for (int i = 0; i < n; i++)
+                count[lengths[off + i]]++;
+            Arrays.fill(fast, (short)0);
+            if (count[0] == n)
+                return 0;
+            int left = 1;
+            for (int len = 1; len < 16; len++) {
+                left <<= 1;
+                left -= count[len];
+                if (left < 0)
+                    return left;
+            }
+            offs[1] = 0;
+            for (int len = 1; len < 15; len++)
+                offs[len + 1] = (short)(offs[len] + count[len]);
+            for (int i = 0; i < n; i++) {
+                int len = lengths[off + i];
+                if (len != 0)
+                    symbol[offs[len]++] = (short)i;
+            }
+            int code = 0, index = 0;
+            for (int len = 1; len <= FASTBITS; len++) {
+                for (int k = 0; k < count[len]; k++, index++, code++) {
+                    short e = (short)(symbol[index] << 4 | len);
+                    for (int i = reverse(code, len); i < FAST; i += 1 << len)
+                        fast[i] = e;
+                }
+                code <<= 1;
+            }
+            return left;
+        }
+
+        private static int reverse(int code, int len) {
+            return Integer.reverse(code) >>> (32 - len);
+        }
+    }
+}
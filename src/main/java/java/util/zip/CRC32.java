@@ -25,16 +25,30 @@
 
 package java.util.zip;
 
+import java.nio.ByteBuffer;
+import sun.nio.ch.DirectBuffer;
+
 /**
  * A class that can be used to compute the CRC-32 of a data stream.
  *
+ * <p> Updates with fewer than a few hundred bytes are computed in Java,
+ * avoiding the cost of a native call; larger updates use the native
+ * zlib implementation. The CRC-32 values of separately computed parts of
+ * a data stream can be merged with {@link #combine combine}.
+ *
  * @see         Checksum
+ * @see         CRC32C
  * @author      David Connelly
  */
 public
 class CRC32 implements Checksum {
     private int crc;
 
+    /*
+     * Updates shorter than this are computed in Java.
+     */
+    private static final int JNI_THRESHOLD = 256;
+
     /**
      * Creates a new CRC32 object.
      */
@@ -49,7 +63,7 @@ class CRC32 implements Checksum {
      * @param b the byte to update the checksum with
      */
     public void update(int b) {
-        crc = update(crc, b);
+        crc = SlicingCRC.IEEE.update(crc, b);
     }
 
     /**
@@ -62,7 +76,11 @@ class CRC32 implements Checksum {
         if (off < 0 || len < 0 || off > b.length - len) {
             throw new ArrayIndexOutOfBoundsException();
         }
-        crc = updateBytes(crc, b, off, len);
+        if (len < JNI_THRESHOLD) {
+            crc = SlicingCRC.IEEE.update(crc, b, off, len);
+        } else {
+            crc = updateBytes(crc, b, off, len);
+        }
     }
 
     /**
@@ -71,7 +89,44 @@ class CRC32 implements Checksum {
      * @param b the array of bytes to update the checksum with
      */
     public void update(byte[] b) {
-        crc = updateBytes(crc, b, 0, b.length);
+        update(b, 0, b.length);
+    }
+
+    /**
+     * Updates the CRC-32 checksum with the bytes from the specified buffer.
+     *
+     * The checksum is updated using
+     * buffer.{@link java.nio.Buffer#remaining() remaining()}
+     * bytes starting at
+     * buffer.{@link java.nio.Buffer#position() position()}
+     * Upon return, the buffer's position will be updated to its
+     * limit; its limit will not have been changed. The bytes of a direct
+     * buffer are read in place, in Java.
+     *
+     * @param buffer the ByteBuffer to update the checksum with
+     * @since 1.7
+     */
+    public void update(ByteBuffer buffer) {
+        int pos = buffer.position();
+        int limit = buffer.limit();
+        assert (pos <= limit);
+        int rem = limit - pos;
+        if (rem <= 0)
+            return;
+        if (buffer instanceof DirectBuffer) {
+            long address = ((DirectBuffer)buffer).address();
+            crc = SlicingCRC.IEEE.update(crc, address + pos, rem);
+        } else if (buffer.hasArray()) {
+            update(buffer.array(), pos + buffer.arrayOffset(), rem);
+        } else {
+            byte[] b = new byte[Math.min(rem, 4096)];
+            while (buffer.hasRemaining()) {
+                int n = Math.min(buffer.remaining(), b.length);
+                buffer.get(b, 0, n);
+                update(b, 0, n);
+            }
+        }
+        buffer.position(limit);
     }
 
     /**
@@ -88,6 +143,22 @@ class CRC32 implements Checksum {
         return (long)crc & 0xffffffffL;
     }
 
-    private native static int update(int crc, int b);
+    /**
+     * Returns the CRC-32 of the concatenation of two sequences of bytes,
+     * given the CRC-32 of each sequence and the length of the second. This
+     * allows the checksums of parts of a data stream, computed separately
+     * and perhaps concurrently, to be merged.
+     *
+     * @param crc1 the CRC-32 of the first sequence
+     * @param crc2 the CRC-32 of the second sequence
+     * @param len2 the length of the second sequence
+     * @return the CRC-32 of the concatenated sequences
+     * @exception IllegalArgumentException if {@code len2} is negative
+     * @since 1.7
+     */
+    public static long combine(long crc1, long crc2, long len2) {
+        return SlicingCRC.IEEE.combine((int)crc1, (int)crc2, len2) & 0xffffffffL;
+    }
+
     private native static int updateBytes(int crc, byte[] b, int off, int len);
 }
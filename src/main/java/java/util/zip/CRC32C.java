@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.zip;
+
+import java.nio.ByteBuffer;
+import sun.nio.ch.DirectBuffer;
+
+/**
+ * A class that can be used to compute the CRC-32C of a data stream.
+ *
+ * <p> CRC-32C is defined in RFC 3720 (iSCSI) and uses the Castagnoli
+ * polynomial, 0x1EDC6F41, which has better error detection properties
+ * than the polynomial of {@link CRC32}. The checksum is computed in Java
+ * with the slicing-by-8 algorithm. The CRC-32C values of separately
+ * computed parts of a data stream can be merged with {@link #combine
+ * combine}.
+ *
+ * @see         Checksum
+ * @see         CRC32
+ * @since 1.7
+ */
+public final
+class CRC32C implements Checksum {
+    private int crc;
+
+    /**
+     * Creates a new CRC32C object.
+     */
+    public CRC32C() {
+    }
+
+    /**
+     * Updates the CRC-32C checksum with the specified byte (the low
+     * eight bits of the argument b).
+     *
+     * @param b the byte to update the checksum with
+     */
+    public void update(int b) {
+        crc = SlicingCRC.CASTAGNOLI.update(crc, b);
+    }
+
+    /**
+     * Updates the CRC-32C checksum with the specified array of bytes.
+     *
+     * @param b the byte array to update the checksum with
+     * @param off the start offset of the data
+     * @param len the number of bytes to use for the update
+     */
+    public void update(byte[] b, int off, int len) {
+        if (b == null) {
+            throw new NullPointerException();
+        }
+        if (off < 0 || len < 0 || off > b.length - len) {
+            throw new ArrayIndexOutOfBoundsException();
+        }
+        crc = SlicingCRC.CASTAGNOLI.update(crc, b, off, len);
+    }
+
+    /**
+     * Updates the CRC-32C checksum with the specified array of bytes.
+     *
+     * @param b the array of bytes to update the checksum with
+     */
+    public void update(byte[] b) {
+        update(b, 0, b.length);
+    }
+
+    /**
+     * Updates the CRC-32C checksum with the bytes from the specified
+     * buffer.
+     *
+     * The checksum is updated using
+     * buffer.{@link java.nio.Buffer#remaining() remaining()}
+     * bytes starting at
+     * buffer.{@link java.nio.Buffer#position() position()}
+     * Upon return, the buffer's position will be updated to its
+     * limit; its limit will not have been changed. The bytes of a direct
+     * buffer are not copied.
+     *
+     * @param buffer the ByteBuffer to update the checksum with
+     */
+    public void update(ByteBuffer buffer) {
+        int pos = buffer.position();
+        int limit = buffer.limit();
+        assert (pos <= limit);
+        int rem = limit - pos;
+        if (rem <= 0)
+            return;
+        if (buffer instanceof DirectBuffer) {
+            crc = SlicingCRC.CASTAGNOLI.update(crc,
+                ((DirectBuffer)buffer).address() + pos, rem);
+        } else if (buffer.hasArray()) {
+            crc = SlicingCRC.CASTAGNOLI.update(crc,
+                buffer.array(), pos + buffer.arrayOffset(), rem);
+        } else {
+            byte[] b = new byte[Math.min(rem, 4096)];
+            while (buffer.hasRemaining()) {
+                int n = Math.min(buffer.remaining(), b.length);
+                buffer.get(b, 0, n);
+                crc = SlicingCRC.CASTAGNOLI.update(crc, b, 0, n);
+            }
+        }
+        buffer.position(limit);
+    }
+
+    /**
+     * Resets CRC-32C to initial value.
+     */
+    public void reset() {
+        crc = 0;
+    }
+
+    /**
+     * Returns CRC-32C value.
+     */
+    public long getValue() {
+        return (long)crc & 0xffffffffL;
+    }
+
+    /**
+     * Returns the CRC-32C of the concatenation of two sequences of bytes,
+     * given the CRC-32C of each sequence and the length of the second.
+     * This allows the checksums of parts of a data stream, computed
+     * separately and perhaps concurrently, to be merged.
+     *
+     * @param crc1 the CRC-32C of the first sequence
+     * @param crc2 the CRC-32C of the second sequence
+     * @param len2 the length of the second sequence
+     * @return the CRC-32C of the concatenated sequences
+     * @exception IllegalArgumentException if {@code len2} is negative
+     */
+    public static long combine(long crc1, long crc2, long len2) {
+        return SlicingCRC.CASTAGNOLI.combine((int)crc1, (int)crc2, len2) & 0xffffffffL;
+    }
+}
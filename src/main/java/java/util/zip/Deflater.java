@@ -25,6 +25,10 @@
 
 package java.util.zip;
 
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * This class provides support for general purpose compression using the
  * popular ZLIB compression library. The ZLIB compression library was
@@ -67,15 +71,23 @@ package java.util.zip;
  * }
  * </pre></blockquote>
  *
+ * <p> Input and output may also be provided as {@link ByteBuffer}s. The
+ * position of a buffer is advanced by the number of bytes consumed or
+ * produced. Buffers without an accessible array, such as direct buffers,
+ * are copied through a heap array.
+ *
  * @see         Inflater
+ * @see         ZStreamPool
  * @author      David Connelly
  */
 public
 class Deflater {
 
     private final ZStreamRef zsRef;
+    private final boolean nowrap;
     private byte[] buf = new byte[0];
     private int off, len;
+    private ByteBuffer input;       // input buffer, if set from a buffer
     private int level, strategy;
     private boolean setParams;
     private boolean finish, finished;
@@ -152,6 +164,12 @@ class Deflater {
      */
     public static final int FULL_FLUSH = 3;
 
+    // size of the heap array that output to a direct buffer goes through
+    private static final int COPY_SIZE = 8192;
+
+    // number of instances that have not been ended
+    private static final AtomicInteger openCount = new AtomicInteger();
+
     static {
         /* Zip library is loaded from System.initializeSystemClass */
         initIDs();
@@ -169,6 +187,8 @@ class Deflater {
         this.level = level;
         this.strategy = DEFAULT_STRATEGY;
         this.zsRef = new ZStreamRef(init(level, DEFAULT_STRATEGY, nowrap));
+        this.nowrap = nowrap;
+        openCount.incrementAndGet();
     }
 
     /**
@@ -207,6 +227,7 @@ class Deflater {
             this.buf = b;
             this.off = off;
             this.len = len;
+            this.input = null;
         }
     }
 
@@ -220,6 +241,40 @@ class Deflater {
         setInput(b, 0, b.length);
     }
 
+    /**
+     * Sets input data for compression from the remaining bytes of the
+     * given buffer. This should be called whenever needsInput() returns
+     * true indicating that more input data is required.
+     *
+     * <p> The buffer's position is advanced as input is consumed by the
+     * {@code deflate} methods; its contents must not be modified until all
+     * of it has been consumed or new input is set. The remaining bytes of a
+     * buffer without an accessible array are copied.
+     *
+     * @param in the input data buffer
+     * @see Deflater#needsInput
+     * @since 1.7
+     */
+    public void setInput(ByteBuffer in) {
+        if (in == null) {
+            throw new NullPointerException();
+        }
+        synchronized (zsRef) {
+            if (in.hasArray()) {
+                this.buf = in.array();
+                this.off = in.arrayOffset() + in.position();
+            } else {
+                // direct or read-only buffer, the array is not accessible
+                byte[] copy = new byte[in.remaining()];
+                in.duplicate().get(copy);
+                this.buf = copy;
+                this.off = 0;
+            }
+            this.len = in.remaining();
+            this.input = in;
+        }
+    }
+
     /**
      * Sets preset dictionary for compression. A preset dictionary is used
      * when the history buffer can be predetermined. When the data is later
@@ -259,6 +314,20 @@ class Deflater {
         setDictionary(b, 0, b.length);
     }
 
+    /**
+     * Sets preset dictionary for compression to the remaining bytes of the
+     * given buffer, advancing its position to its limit.
+     * @param dict the dictionary data buffer
+     * @see Inflater#inflate
+     * @see Inflater#getAdler
+     * @since 1.7
+     */
+    public void setDictionary(ByteBuffer dict) {
+        byte[] b = new byte[dict.remaining()];
+        dict.get(b);
+        setDictionary(b, 0, b.length);
+    }
+
     /**
      * Sets the compression strategy to the specified value.
      * @param strategy the new compression strategy
@@ -430,12 +499,73 @@ class Deflater {
                 int n = deflateBytes(zsRef.address(), b, off, len, flush);
                 bytesWritten += n;
                 bytesRead += (thisLen - this.len);
+                if (input != null)
+                    input.position(input.position() + (thisLen - this.len));
                 return n;
             }
             throw new IllegalArgumentException();
         }
     }
 
+    /**
+     * Compresses the input data into the remaining space of the specified
+     * buffer, advancing its position by the number of bytes of compressed
+     * data. Returns actual number of bytes of compressed data.
+     *
+     * <p>This method uses {@link #NO_FLUSH} as its compression flush mode.
+     * An invocation of this method of the form {@code deflater.deflate(out)}
+     * yields the same result as the invocation of
+     * {@code deflater.deflate(out, Deflater.NO_FLUSH)}.
+     *
+     * @param out the buffer for the compressed data
+     * @return the actual number of bytes of compressed data written to the
+     *         output buffer
+     * @throws ReadOnlyBufferException if the buffer is read-only
+     * @since 1.7
+     */
+    public int deflate(ByteBuffer out) {
+        return deflate(out, NO_FLUSH);
+    }
+
+    /**
+     * Compresses the input data into the remaining space of the specified
+     * buffer, advancing its position by the number of bytes of compressed
+     * data. Returns actual number of bytes of compressed data. The flush
+     * modes are as for {@link #deflate(byte[],int,int,int)}. A buffer
+     * without an accessible array is filled through a heap array.
+     *
+     * @param out the buffer for the compressed data
+     * @param flush the compression flush mode
+     * @return the actual number of bytes of compressed data written to
+     *         the output buffer
+     *
+     * @throws IllegalArgumentException if the flush mode is invalid
+     * @throws ReadOnlyBufferException if the buffer is read-only
+     * @since 1.7
+     */
+    public int deflate(ByteBuffer out, int flush) {
+        if (out.isReadOnly()) {
+            throw new ReadOnlyBufferException();
+        }
+        int pos = out.position();
+        int rem = Math.max(out.limit() - pos, 0);
+        if (out.hasArray()) {
+            int n = deflate(out.array(), out.arrayOffset() + pos, rem, flush);
+            out.position(pos + n);
+            return n;
+        }
+        byte[] b = new byte[Math.min(rem, COPY_SIZE)];
+        int total = 0;
+        do {
+            int n = deflate(b, 0, Math.min(rem - total, b.length), flush);
+            out.put(b, 0, n);
+            total += n;
+            if (n < b.length)
+                break;
+        } while (total < rem);
+        return total;
+    }
+
     /**
      * Returns the ADLER-32 value of the uncompressed data.
      * @return the ADLER-32 value of the uncompressed data
@@ -509,6 +639,7 @@ class Deflater {
             reset(zsRef.address());
             finish = false;
             finished = false;
+            input = null;
             off = len = 0;
             bytesRead = bytesWritten = 0;
         }
@@ -528,6 +659,8 @@ class Deflater {
             if (addr != 0) {
                 end(addr);
                 buf = null;
+                input = null;
+                openCount.decrementAndGet();
             }
         }
     }
@@ -545,6 +678,35 @@ class Deflater {
             throw new NullPointerException("Deflater has been closed");
     }
 
+    boolean ended() {
+        synchronized (zsRef) {
+            return zsRef.address() == 0;
+        }
+    }
+
+    boolean nowrap() {
+        return nowrap;
+    }
+
+    int level() {
+        synchronized (zsRef) {
+            return level;
+        }
+    }
+
+    int strategy() {
+        synchronized (zsRef) {
+            return strategy;
+        }
+    }
+
+    /*
+     * Returns the number of instances that have not been ended.
+     */
+    static int openCount() {
+        return openCount.get();
+    }
+
     private static native void initIDs();
     private native static long init(int level, int strategy, boolean nowrap);
     private native static void setDictionary(long addr, byte[] b, int off, int len);
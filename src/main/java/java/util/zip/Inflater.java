@@ -25,6 +25,10 @@
 
 package java.util.zip;
 
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * This class provides support for general purpose decompression using the
  * popular ZLIB compression library. The ZLIB compression library was
@@ -66,7 +70,13 @@ package java.util.zip;
  * }
  * </pre></blockquote>
  *
+ * <p> Input and output may also be provided as {@link ByteBuffer}s. The
+ * position of a buffer is advanced by the number of bytes consumed or
+ * produced. Buffers without an accessible array, such as direct buffers,
+ * are copied through a heap array.
+ *
  * @see         Deflater
+ * @see         ZStreamPool
  * @author      David Connelly
  *
  */
@@ -74,8 +84,10 @@ public
 class Inflater {
 
     private final ZStreamRef zsRef;
+    private final boolean nowrap;
     private byte[] buf = defaultBuf;
     private int off, len;
+    private ByteBuffer input;       // input buffer, if set from a buffer
     private boolean finished;
     private boolean needDict;
     private long bytesRead;
@@ -83,6 +95,12 @@ class Inflater {
 
     private static final byte[] defaultBuf = new byte[0];
 
+    // size of the heap array that output to a direct buffer goes through
+    private static final int COPY_SIZE = 8192;
+
+    // number of instances that have not been ended
+    private static final AtomicInteger openCount = new AtomicInteger();
+
     static {
         /* Zip library is loaded from System.initializeSystemClass */
         initIDs();
@@ -101,6 +119,8 @@ class Inflater {
      */
     public Inflater(boolean nowrap) {
         zsRef = new ZStreamRef(init(nowrap));
+        this.nowrap = nowrap;
+        openCount.incrementAndGet();
     }
 
     /**
@@ -130,6 +150,7 @@ class Inflater {
             this.buf = b;
             this.off = off;
             this.len = len;
+            this.input = null;
         }
     }
 
@@ -144,6 +165,40 @@ class Inflater {
         setInput(b, 0, b.length);
     }
 
+    /**
+     * Sets input data for decompression from the remaining bytes of the
+     * given buffer. Should be called whenever needsInput() returns true
+     * indicating that more input data is required.
+     *
+     * <p> The buffer's position is advanced as input is consumed by the
+     * {@code inflate} methods; its contents must not be modified until all
+     * of it has been consumed or new input is set. The remaining bytes of a
+     * buffer without an accessible array are copied.
+     *
+     * @param in the input data buffer
+     * @see Inflater#needsInput
+     * @since 1.7
+     */
+    public void setInput(ByteBuffer in) {
+        if (in == null) {
+            throw new NullPointerException();
+        }
+        synchronized (zsRef) {
+            if (in.hasArray()) {
+                this.buf = in.array();
+                this.off = in.arrayOffset() + in.position();
+            } else {
+                // direct or read-only buffer, the array is not accessible
+                byte[] copy = new byte[in.remaining()];
+                in.duplicate().get(copy);
+                this.buf = copy;
+                this.off = 0;
+            }
+            this.len = in.remaining();
+            this.input = in;
+        }
+    }
+
     /**
      * Sets the preset dictionary to the given array of bytes. Should be
      * called when inflate() returns 0 and needsDictionary() returns true
@@ -182,6 +237,22 @@ class Inflater {
         setDictionary(b, 0, b.length);
     }
 
+    /**
+     * Sets the preset dictionary to the remaining bytes of the given
+     * buffer, advancing its position to its limit. Should be called when
+     * inflate() returns 0 and needsDictionary() returns true indicating that
+     * a preset dictionary is required.
+     * @param dict the dictionary data buffer
+     * @see Inflater#needsDictionary
+     * @see Inflater#getAdler
+     * @since 1.7
+     */
+    public void setDictionary(ByteBuffer dict) {
+        byte[] b = new byte[dict.remaining()];
+        dict.get(b);
+        setDictionary(b, 0, b.length);
+    }
+
     /**
      * Returns the total number of bytes remaining in the input buffer.
      * This can be used to find out what bytes still remain in the input
@@ -259,6 +330,8 @@ class Inflater {
             int n = inflateBytes(zsRef.address(), b, off, len);
             bytesWritten += n;
             bytesRead += (thisLen - this.len);
+            if (input != null)
+                input.position(input.position() + (thisLen - this.len));
             return n;
         }
     }
@@ -280,6 +353,44 @@ class Inflater {
         return inflate(b, 0, b.length);
     }
 
+    /**
+     * Uncompresses bytes into the remaining space of the specified buffer,
+     * advancing its position by the number of bytes uncompressed. Returns
+     * actual number of bytes uncompressed. A return value of 0 indicates
+     * that needsInput() or needsDictionary() should be called in order to
+     * determine if more input data or a preset dictionary is required.
+     * A buffer without an accessible array is filled through a heap array.
+     * @param out the buffer for the uncompressed data
+     * @return the actual number of uncompressed bytes
+     * @exception DataFormatException if the compressed data format is invalid
+     * @exception ReadOnlyBufferException if the buffer is read-only
+     * @see Inflater#needsInput
+     * @see Inflater#needsDictionary
+     * @since 1.7
+     */
+    public int inflate(ByteBuffer out) throws DataFormatException {
+        if (out.isReadOnly()) {
+            throw new ReadOnlyBufferException();
+        }
+        int pos = out.position();
+        int rem = Math.max(out.limit() - pos, 0);
+        if (out.hasArray()) {
+            int n = inflate(out.array(), out.arrayOffset() + pos, rem);
+            out.position(pos + n);
+            return n;
+        }
+        byte[] b = new byte[Math.min(rem, COPY_SIZE)];
+        int total = 0;
+        while (total < rem) {
+            int n = inflate(b, 0, Math.min(rem - total, b.length));
+            out.put(b, 0, n);
+            total += n;
+            if (n < b.length)
+                break;
+        }
+        return total;
+    }
+
     /**
      * Returns the ADLER-32 value of the uncompressed data.
      * @return the ADLER-32 value of the uncompressed data
@@ -351,6 +462,7 @@ class Inflater {
             ensureOpen();
             reset(zsRef.address());
             buf = defaultBuf;
+            input = null;
             finished = false;
             needDict = false;
             off = len = 0;
@@ -372,6 +484,8 @@ class Inflater {
             if (addr != 0) {
                 end(addr);
                 buf = null;
+                input = null;
+                openCount.decrementAndGet();
             }
         }
     }
@@ -395,6 +509,17 @@ class Inflater {
         }
     }
 
+    boolean nowrap() {
+        return nowrap;
+    }
+
+    /*
+     * Returns the number of instances that have not been ended.
+     */
+    static int openCount() {
+        return openCount.get();
+    }
+
     private native static void initIDs();
     private native static long init(boolean nowrap);
     private native static void setDictionary(long addr, byte[] b, int off,
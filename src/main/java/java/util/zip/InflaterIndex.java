@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.zip;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.InputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A sparse index of access points into a compressed stream, used by {@link
+ * SeekableInflaterChannel} to position itself in the uncompressed data
+ * without decompressing everything before the new position.
+ *
+ * <p> An access point records a position in the uncompressed data, the
+ * position in the compressed data of the deflate block that starts there
+ * (including the number of bits of the previous byte that belong to the
+ * block), and up to 32K bytes of the uncompressed data that precede it,
+ * which the block may refer back to. Access points are added, at
+ * intervals of at least the index <i>span</i>, while the channel
+ * decompresses data that it has not seen before, so the first pass over
+ * the data builds the index and later positioning needs to decompress at
+ * most about a span of data.
+ *
+ * <p> An index may be written with {@link #store store} and read back with
+ * {@link #load load}, so that it can be kept alongside the compressed data
+ * and used by channels opened later. An index is only valid for the
+ * compressed data from which it was built; reading other data through it
+ * gives undefined results. Instances of this class are safe for use by
+ * multiple concurrent threads.
+ *
+ * @see SeekableInflaterChannel
+ * @since 1.7
+ */
+public final class InflaterIndex {
+    /**
+     * The default span, in bytes of uncompressed data, between the access
+     * points of an index.
+     */
+    public static final long DEFAULT_SPAN = 1024 * 1024;
+
+    private static final int MAGIC = 0x4a5a4958;    // "JZIX"
+    private static final int VERSION = 1;
+
+    // the window is never larger than this
+    static final int WINSIZE = 32 * 1024;
+
+    private final long span;
+    private long size = -1;         // uncompressed size, if known
+
+    // the access points, in order of uncompressed position
+    private int count;
+    private long[] outs = new long[16];
+    private long[] ins = new long[16];
+    private byte[] bits = new byte[16];
+    private byte[][] windows = new byte[16][];
+
+    /**
+     * Creates an empty index with the default span.
+     */
+    public InflaterIndex() {
+        this(DEFAULT_SPAN);
+    }
+
+    /**
+     * Creates an empty index with the given span. A smaller span makes
+     * positioning faster but the index larger, each access point keeping
+     * up to 32K bytes of uncompressed data.
+     *
+     * @param span the minimum number of bytes of uncompressed data between
+     *        access points
+     * @exception IllegalArgumentException if {@code span} is less than 32K
+     */
+    public InflaterIndex(long span) {
+        if (span < WINSIZE)
+            throw new IllegalArgumentException("span < " + WINSIZE);
+        this.span = span;
+    }
+
+    /**
+     * Returns the minimum number of bytes of uncompressed data between the
+     * access points of this index.
+     *
+     * @return the span of this index
+     */
+    public long span() {
+        return span;
+    }
+
+    /**
+     * Returns the number of access points in this index.
+     *
+     * @return the number of access points
+     */
+    public synchronized int accessPoints() {
+        return count;
+    }
+
+    /**
+     * Returns the size of the uncompressed data, or -1 if it is not yet
+     * known because the data has not been decompressed to its end.
+     *
+     * @return the uncompressed size, or -1
+     */
+    public synchronized long uncompressedSize() {
+        return size;
+    }
+
+    /**
+     * Tells whether the index is complete, that is whether the data has
+     * been decompressed to its end.
+     *
+     * @return {@code true} if the index covers all of the data
+     */
+    public synchronized boolean isComplete() {
+        return size >= 0;
+    }
+
+    /**
+     * Writes this index to the given output stream, in a form that can be
+     * read back with {@link #load load}. The stream is flushed but not
+     * closed.
+     *
+     * @param out the output stream
+     * @exception IOException if an I/O error has occurred
+     */
+    public synchronized void store(OutputStream out) throws IOException {
+        DataOutputStream dos = new DataOutputStream(out);
+        dos.writeInt(MAGIC);
+        dos.writeInt(VERSION);
+        dos.writeLong(span);
+        dos.writeLong(size);
+        dos.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            dos.writeLong(outs[i]);
+            dos.writeLong(ins[i]);
+            dos.writeByte(bits[i]);
+            dos.writeInt(windows[i].length);
+            dos.write(windows[i]);
+        }
+        dos.flush();
+    }
+
+    /**
+     * Reads an index written by {@link #store store} from the given input
+     * stream. The stream is not closed.
+     *
+     * @param in the input stream
+     * @return the index
+     * @exception ZipException if the stream does not contain a valid index
+     * @exception IOException if an I/O error has occurred
+     */
+    public static InflaterIndex load(InputStream in) throws IOException {
+        DataInputStream dis = new DataInputStream(in);
+        if (dis.readInt() != MAGIC || dis.readInt() != VERSION)
+            throw new ZipException("Not an inflater index");
+        long span = dis.readLong();
+        long size = dis.readLong();
+        int n = dis.readInt();
+        if (span < WINSIZE || size < -1 || n < 0)
+            throw new ZipException("Invalid inflater index");
+        InflaterIndex index = new InflaterIndex(span);
+        for (int i = 0; i < n; i++) {
+            long out = dis.readLong();
+            long pos = dis.readLong();
+            int b = dis.readByte();
+            int len = dis.readInt();
+            if (out < 0 || pos < 0 || b < 0 || b > 7 ||
+                len < 0 || len > WINSIZE ||
+                (i > 0 && out <= index.outs[i - 1]))
+                throw new ZipException("Invalid inflater index");
+            byte[] window = new byte[len];
+            dis.readFully(window);
+            index.add(out, pos, b, window);
+        }
+        index.size = size;
+        return index;
+    }
+
+    // -- methods used by SeekableInflaterChannel --
+
+    /*
+     * Adds an access point at the given uncompressed position if one is
+     * needed there. The check and the addition are made under one lock, as
+     * the channels sharing the index may reach the same position at once;
+     * the caller checks needs first so as not to copy a window in vain.
+     */
+    synchronized boolean addIfNeeded(long out, long in, int nbits,
+                                     byte[] window)
+    {
+        if (!needs(out))
+            return false;
+        add(out, in, nbits, window);
+        return true;
+    }
+
+    /*
+     * Adds an access point after the last one.
+     */
+    private void add(long out, long in, int nbits, byte[] window) {
+        if (count == outs.length) {
+            int n = count * 2;
+            outs = Arrays.copyOf(outs, n);
+            ins = Arrays.copyOf(ins, n);
+            bits = Arrays.copyOf(bits, n);
+            windows = Arrays.copyOf(windows, n);
+        }
+        outs[count] = out;
+        ins[count] = in;
+        bits[count] = (byte)nbits;
+        windows[count] = window;
+        count++;
+    }
+
+    /*
+     * Tells whether an access point should be added at the given
+     * uncompressed position.
+     */
+    synchronized boolean needs(long out) {
+        return count == 0 || out >= outs[count - 1] + span;
+    }
+
+    synchronized void setSize(long size) {
+        this.size = size;
+    }
+
+    /*
+     * Returns the index of the last access point at or before the given
+     * uncompressed position, or -1 if there is none.
+     */
+    synchronized int find(long out) {
+        int i = Arrays.binarySearch(outs, 0, count, out);
+        return (i >= 0) ? i : -(i + 1) - 1;
+    }
+
+    synchronized long out(int i) {
+        return outs[i];
+    }
+
+    synchronized long in(int i) {
+        return ins[i];
+    }
+
+    synchronized int bits(int i) {
+        return bits[i];
+    }
+
+    synchronized byte[] window(int i) {
+        return windows[i];
+    }
+}
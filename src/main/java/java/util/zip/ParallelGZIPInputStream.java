@@ -0,0 +1,566 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.zip;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * This class implements a stream filter for reading compressed data in the
+ * GZIP file format, decompressing the members of a multi-member stream
+ * concurrently.
+ *
+ * <p> A GZIP stream may consist of several members, each a complete GZIP
+ * stream. A member whose header has the extra field written by {@link
+ * ParallelGZIPOutputStream} in multi-member mode records its own length,
+ * so it can be read without decompressing it and handed to a task
+ * submitted to an {@link ExecutorService}, while the following members
+ * are read. The decompressed members are returned in order, and at most a
+ * bounded number of members are in flight at any time.
+ *
+ * <p> Members without the extra field, such as those written by {@link
+ * GZIPOutputStream} or {@code ParallelGZIPOutputStream} in single-member
+ * mode, are decompressed as they are read, by the thread invoking the
+ * {@code read} methods, as {@link GZIPInputStream} would. A stream may
+ * mix both kinds of member.
+ *
+ * <p> If no executor is specified then the stream uses a pool of daemon
+ * threads shared by all the streams, one per available processor, which
+ * exit when they have been idle for a while. This class is not safe for use by multiple concurrent threads.
+ *
+ * @see ParallelGZIPOutputStream
+ * @since 1.7
+ */
+
+public class ParallelGZIPInputStream extends FilterInputStream {
+    private static final int GZIP_MAGIC = 0x8b1f;
+
+    /*
+     * File header flags.
+     */
+    private final static int FHCRC      = 2;    // Header CRC
+    private final static int FEXTRA     = 4;    // Extra field
+    private final static int FNAME      = 8;    // File name
+    private final static int FCOMMENT   = 16;   // File comment
+
+    private static final int TRAILER_SIZE = 8;
+
+    /*
+     * The longest member that is read into memory to be decompressed by a
+     * task. A longer member, which ParallelGZIPOutputStream does not write,
+     * is decompressed by the reading thread.
+     */
+    private static final long MAX_MEMBER_SIZE = 64 * 1024 * 1024;
+
+    private final ExecutorService executor;
+    private final int maxInFlight;
+
+    // decompressed members, in order, not yet returned
+    private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+
+    // input buffer
+    private final byte[] ibuf = new byte[64 * 1024];
+    private int ipos, ilim;
+
+    // the decompressed member being returned
+    private byte[] cur;
+    private int cpos;
+
+    private byte[] singleByteBuf = new byte[1];
+
+    // the member being decompressed by the reading thread, if any
+    private final Inflater inf = new Inflater(true);
+    private final CRC32 crc = new CRC32();
+    private boolean streaming;
+
+    // header being read
+    private final CRC32 hcrc = new CRC32();
+    private int hlen;
+
+    private int members;                // number of members read
+    private boolean eof;                // no more members in the input
+    private boolean closed;
+
+    /**
+     * Creates a new input stream.
+     *
+     * @param  in
+     *         the input stream
+     *
+     * @throws ZipException
+     *         if a GZIP format error has occurred or the compression method
+     *         used is unsupported
+     * @throws IOException
+     *         if an I/O error has occurred
+     */
+    public ParallelGZIPInputStream(InputStream in) throws IOException {
+        this(in, null);
+    }
+
+    /**
+     * Creates a new input stream that decompresses members with tasks run
+     * by the given executor.
+     *
+     * @param  in
+     *         the input stream
+     * @param  executor
+     *         the executor to run decompression tasks, or {@code null} to
+     *         use a pool of threads shared by all the streams
+     *
+     * @throws ZipException
+     *         if a GZIP format error has occurred or the compression method
+     *         used is unsupported
+     * @throws IOException
+     *         if an I/O error has occurred
+     */
+    public ParallelGZIPInputStream(InputStream in, ExecutorService executor)
+        throws IOException
+    {
+        super(in);
+        if (in == null)
+            throw new NullPointerException();
+        int nThreads = Runtime.getRuntime().availableProcessors();
+        this.executor = (executor != null)
+            ? executor : ParallelGZIPOutputStream.defaultExecutor();
+        this.maxInFlight = nThreads * 2;
+        try {
+            fill();
+        } catch (IOException | RuntimeException x) {
+            releaseResources();
+            throw x;
+        }
+    }
+
+    /**
+     * Reads a byte of uncompressed data.
+     *
+     * @return the byte read, or -1 if the end of the compressed input is
+     *         reached
+     *
+     * @throws IOException
+     *         if an I/O error has occurred
+     */
+    public int read() throws IOException {
+        return read(singleByteBuf, 0, 1) == -1 ? -1 : singleByteBuf[0] & 0xff;
+    }
+
+    /**
+     * Reads uncompressed data into an array of bytes. If {@code len} is not
+     * zero, the method blocks until some input can be decompressed;
+     * otherwise, no bytes are read and {@code 0} is returned.
+     *
+     * @param  b
+     *         the buffer into which the data is read
+     * @param  off
+     *         the start offset in the destination array {@code b}
+     * @param  len
+     *         the maximum number of bytes read
+     *
+     * @return the actual number of bytes read, or -1 if the end of the
+     *         compressed input is reached
+     *
+     * @throws ZipException
+     *         if the compressed input data is corrupt
+     * @throws IOException
+     *         if an I/O error has occurred
+     */
+    public int read(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if ((off | len | (off + len) | (b.length - (off + len))) < 0)
+            throw new IndexOutOfBoundsException();
+        if (len == 0)
+            return 0;
+        for (;;) {
+            if (cur != null) {
+                int n = Math.min(len, cur.length - cpos);
+                if (n > 0) {
+                    System.arraycopy(cur, cpos, b, off, n);
+                    cpos += n;
+                    return n;
+                }
+                cur = null;
+            }
+            if (!pending.isEmpty()) {
+                cur = take(pending.poll());
+                cpos = 0;
+                // keep the tasks busy while the member is consumed
+                fill();
+                continue;
+            }
+            if (streaming) {
+                int n = readStreaming(b, off, len);
+                if (n > 0)
+                    return n;
+                continue;
+            }
+            if (eof)
+                return -1;
+            fill();
+        }
+    }
+
+    /**
+     * Returns the number of bytes that can be read without blocking, which
+     * is the number of decompressed bytes remaining in the current member
+     * when it was decompressed by a task.
+     *
+     * @return the number of bytes that can be read without blocking
+     *
+     * @throws IOException
+     *         if an I/O error has occurred
+     */
+    public int available() throws IOException {
+        ensureOpen();
+        return (cur == null) ? 0 : cur.length - cpos;
+    }
+
+    /**
+     * Marks are not supported.
+     *
+     * @return {@code false}
+     */
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Closes this input stream and releases any system resources associated
+     * with the stream.
+     *
+     * @throws IOException
+     *         if an I/O error has occurred
+     */
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            try {
+                releaseResources();
+            } finally {
+                in.close();
+            }
+        }
+    }
+
+    private void releaseResources() {
+        closed = true;
+        for (Future<byte[]> f: pending)
+            f.cancel(false);
+        pending.clear();
+        cur = null;
+        inf.end();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed)
+            throw new IOException("Stream closed");
+    }
+
+    /*
+     * Reads member headers, submitting indexed members for decompression,
+     * until the maximum number of members are in flight, a member that must
+     * be decompressed by the reading thread is found, or the input ends.
+     */
+    private void fill() throws IOException {
+        while (!streaming && !eof && pending.size() < maxInFlight) {
+            if (ipos >= ilim && !fillBuffer()) {
+                if (members == 0)
+                    throw new EOFException();
+                eof = true;
+                return;
+            }
+            long memberLen;
+            try {
+                memberLen = readHeader();
+            } catch (IOException x) {
+                // as GZIPInputStream, ignore anything after the first member
+                // that is not a member
+                if (members == 0)
+                    throw x;
+                eof = true;
+                return;
+            }
+            members++;
+            if (memberLen > 0 && memberLen < hlen + TRAILER_SIZE)
+                throw new ZipException("Corrupt GZIP header");
+            if (memberLen > 0 && memberLen - hlen <= MAX_MEMBER_SIZE) {
+                final byte[] member = new byte[(int)(memberLen - hlen)];
+                readFully(member);
+                pending.add(executor.submit(new Callable<byte[]>() {
+                    public byte[] call() throws IOException {
+                        return inflateMember(member);
+                    }
+                }));
+            } else {
+                inf.reset();
+                crc.reset();
+                streaming = true;
+            }
+        }
+    }
+
+    /*
+     * Decompresses the member being read by the reading thread, returning 0
+     * when the member ends.
+     */
+    private int readStreaming(byte[] b, int off, int len) throws IOException {
+        try {
+            for (;;) {
+                if (inf.needsInput()) {
+                    if (!fillBuffer())
+                        throw new EOFException("Unexpected end of ZLIB input stream");
+                    inf.setInput(ibuf, ipos, ilim - ipos);
+                    ipos = ilim;
+                }
+                int n = inf.inflate(b, off, len);
+                if (n > 0) {
+                    crc.update(b, off, n);
+                    return n;
+                }
+                if (inf.finished()) {
+                    ipos = ilim - inf.getRemaining();
+                    // Uses left-to-right evaluation order
+                    if ((readUInt() != crc.getValue()) ||
+                        // rfc1952; ISIZE is the input size modulo 2^32
+                        (readUInt() != (inf.getBytesWritten() & 0xffffffffL)))
+                        throw new ZipException("Corrupt GZIP trailer");
+                    streaming = false;
+                    return 0;
+                }
+                if (inf.needsDictionary())
+                    throw new ZipException("Corrupt GZIP member");
+            }
+        } catch (DataFormatException e) {
+            String s = e.getMessage();
+            throw new ZipException(s != null ? s : "Invalid ZLIB data format");
+        }
+    }
+
+    /*
+     * Decompresses an indexed member, given all of it after the header.
+     */
+    private byte[] inflateMember(byte[] member) throws IOException {
+        int len = member.length - TRAILER_SIZE;
+        long expectedCrc = get32(member, len);
+        long isize = get32(member, len + 4);
+        if (isize > ParallelGZIPOutputStream.MAX_BLOCK_SIZE)
+            throw new ZipException("GZIP member too large");
+        Inflater inf = ZStreamPool.getInflater(true);
+        try {
+            inf.setInput(member, 0, len);
+            byte[] out = new byte[(int)isize];
+            int pos = 0;
+            byte[] excess = null;
+            while (!inf.finished()) {
+                int n;
+                if (pos < out.length) {
+                    n = inf.inflate(out, pos, out.length - pos);
+                    pos += n;
+                } else {
+                    // more data than the trailer records?
+                    if (excess == null)
+                        excess = new byte[1];
+                    n = inf.inflate(excess);
+                    if (n > 0)
+                        throw new ZipException("Corrupt GZIP trailer");
+                }
+                if (n == 0 && !inf.finished() &&
+                    (inf.needsInput() || inf.needsDictionary()))
+                    throw new ZipException("Corrupt GZIP member");
+            }
+            if (pos != out.length || inf.getRemaining() != 0)
+                throw new ZipException("Corrupt GZIP trailer");
+            CRC32 crc = new CRC32();
+            crc.update(out, 0, out.length);
+            if (crc.getValue() != expectedCrc)
+                throw new ZipException("Corrupt GZIP trailer");
+            return out;
+        } catch (DataFormatException e) {
+            String s = e.getMessage();
+            throw new ZipException(s != null ? s : "Invalid ZLIB data format");
+        } finally {
+            ZStreamPool.release(inf);
+        }
+    }
+
+    private byte[] take(Future<byte[]> f) throws IOException {
+        try {
+            return f.get();
+        } catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException x) {
+            Throwable cause = x.getCause();
+            if (cause instanceof IOException)
+                throw (IOException)cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+            if (cause instanceof Error)
+                throw (Error)cause;
+            throw new IOException(cause);
+        }
+    }
+
+    /*
+     * Reads a GZIP member header. Returns the length of the member recorded
+     * in the header extra field, or -1 if the header has no such field.
+     */
+    private long readHeader() throws IOException {
+        hcrc.reset();
+        hlen = 0;
+        // Check header magic
+        if (readHeaderUShort() != GZIP_MAGIC) {
+            throw new ZipException("Not in GZIP format");
+        }
+        // Check compression method
+        if (readHeaderUByte() != 8) {
+            throw new ZipException("Unsupported compression method");
+        }
+        // Read flags
+        int flg = readHeaderUByte();
+        // Skip MTIME, XFL, and OS fields
+        for (int i = 0; i < 6; i++)
+            readHeaderUByte();
+        long memberLen = -1;
+        // Look for the member length in the extra field
+        if ((flg & FEXTRA) == FEXTRA) {
+            int xlen = readHeaderUShort();
+            while (xlen >= 4) {
+                int si1 = readHeaderUByte();
+                int si2 = readHeaderUByte();
+                int sublen = readHeaderUShort();
+                xlen -= 4;
+                if (sublen > xlen)
+                    throw new ZipException("Corrupt GZIP header");
+                xlen -= sublen;
+                if (si1 == ParallelGZIPOutputStream.MEMBER_SI1 &&
+                    si2 == ParallelGZIPOutputStream.MEMBER_SI2 &&
+                    sublen == ParallelGZIPOutputStream.MEMBER_SUBFIELD_LEN) {
+                    memberLen = readHeaderUShort() |
+                                ((long)readHeaderUShort() << 16);
+                } else {
+                    while (sublen-- > 0)
+                        readHeaderUByte();
+                }
+            }
+            while (xlen-- > 0)
+                readHeaderUByte();
+        }
+        // Skip optional file name
+        if ((flg & FNAME) == FNAME) {
+            while (readHeaderUByte() != 0) { }
+        }
+        // Skip optional file comment
+        if ((flg & FCOMMENT) == FCOMMENT) {
+            while (readHeaderUByte() != 0) { }
+        }
+        // Check optional header CRC
+        if ((flg & FHCRC) == FHCRC) {
+            int v = (int)hcrc.getValue() & 0xffff;
+            if (readHeaderUShort() != v) {
+                throw new ZipException("Corrupt GZIP header");
+            }
+        }
+        return memberLen;
+    }
+
+    private int readHeaderUByte() throws IOException {
+        int b = readUByte();
+        hcrc.update(b);
+        hlen++;
+        return b;
+    }
+
+    private int readHeaderUShort() throws IOException {
+        int b = readHeaderUByte();
+        return (readHeaderUByte() << 8) | b;
+    }
+
+    /*
+     * Reads unsigned integer in Intel byte order.
+     */
+    private long readUInt() throws IOException {
+        long s = readUShort();
+        return ((long)readUShort() << 16) | s;
+    }
+
+    /*
+     * Reads unsigned short in Intel byte order.
+     */
+    private int readUShort() throws IOException {
+        int b = readUByte();
+        return (readUByte() << 8) | b;
+    }
+
+    /*
+     * Reads unsigned byte.
+     */
+    private int readUByte() throws IOException {
+        if (ipos >= ilim && !fillBuffer())
+            throw new EOFException();
+        return ibuf[ipos++] & 0xff;
+    }
+
+    private void readFully(byte[] b) throws IOException {
+        int off = 0;
+        while (off < b.length) {
+            if (ipos >= ilim && !fillBuffer())
+                throw new EOFException("Unexpected end of GZIP member");
+            int n = Math.min(b.length - off, ilim - ipos);
+            System.arraycopy(ibuf, ipos, b, off, n);
+            ipos += n;
+            off += n;
+        }
+    }
+
+    /*
+     * Refills the input buffer if it is empty, returning false at the end
+     * of the input.
+     */
+    private boolean fillBuffer() throws IOException {
+        if (ipos < ilim)
+            return true;
+        int n;
+        do {
+            n = in.read(ibuf, 0, ibuf.length);
+        } while (n == 0);
+        ipos = 0;
+        ilim = Math.max(n, 0);
+        return n > 0;
+    }
+
+    private static long get32(byte[] b, int off) {
+        return ((b[off] & 0xff) | ((b[off + 1] & 0xff) << 8) |
+                ((b[off + 2] & 0xff) << 16) | ((long)(b[off + 3] & 0xff) << 24));
+    }
+}
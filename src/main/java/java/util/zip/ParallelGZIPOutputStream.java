@@ -0,0 +1,538 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.zip;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class implements a stream filter for writing compressed data in the
+ * GZIP file format, compressing fixed-size blocks of the input concurrently.
+ *
+ * <p> The input is split into blocks of {@code blockSize} bytes, and each
+ * block is compressed by a task submitted to an {@link ExecutorService}.
+ * The compressed blocks are written to the underlying stream in order, and
+ * at most a bounded number of blocks are in flight at any time, so memory
+ * use does not depend on the length of the input.
+ *
+ * <p> The stream is written in one of two layouts:
+ * <ul>
+ *   <li><p> A <em>single-member</em> stream is an ordinary GZIP stream.
+ *   Each block is compressed with the last 32K of the previous block as
+ *   its preset dictionary, and is terminated with a {@link
+ *   Deflater#SYNC_FLUSH sync flush} so that the compressed blocks can
+ *   simply be concatenated. The compression ratio is very close to that
+ *   of {@link GZIPOutputStream}. </p></li>
+ *   <li><p> A <em>multi-member</em> stream is a concatenation of
+ *   independent GZIP members, one per block, as allowed by RFC 1952. The
+ *   header of each member has an extra field recording the length of the
+ *   member, which allows {@link ParallelGZIPInputStream} to decompress the
+ *   members concurrently. Any GZIP reader, including {@link
+ *   GZIPInputStream}, can read the stream. </p></li>
+ * </ul>
+ *
+ * <p> If no executor is specified then the stream uses a pool of daemon
+ * threads shared by all the streams, one per available processor, which
+ * exit when they have been idle for a while. This class is not safe for use by multiple concurrent threads.
+ *
+ * @see ParallelGZIPInputStream
+ * @since 1.7
+ */
+
+public class ParallelGZIPOutputStream extends FilterOutputStream {
+    /**
+     * The default block size.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+
+    // the limits on the block size; blocks must be larger than the window
+    // so that each one can prime the dictionary of the next
+    static final int MIN_BLOCK_SIZE = 64 * 1024;
+    static final int MAX_BLOCK_SIZE = 16 * 1024 * 1024;
+
+    // size of the deflate window, and so of the preset dictionary
+    private static final int DICT_SIZE = 32 * 1024;
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int TRAILER_SIZE = 8;
+    private static final int FEXTRA = 4;
+
+    // the extra field subfield that records the member length
+    static final int MEMBER_SI1 = 'P';
+    static final int MEMBER_SI2 = 'L';
+    static final int MEMBER_SUBFIELD_LEN = 4;
+    static final int MEMBER_HEADER_SIZE = 10 + 2 + 4 + MEMBER_SUBFIELD_LEN;
+
+    private final int blockSize;
+    private final int level;
+    private final boolean multiMember;
+    private final ExecutorService executor;
+    private final int maxInFlight;
+
+    // compressed blocks, in order, not yet written to the output
+    private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+
+    private byte[] block;               // the block being filled
+    private int count;                  // number of bytes in block
+    private byte[] dict;                // the previous block, or null
+    private int dictLen;
+    private boolean empty = true;       // true if no bytes written
+
+    private byte[] singleByteBuf = new byte[1];
+
+    // CRC-32 and length of the uncompressed data (single-member only)
+    private final CRC32 crc = new CRC32();
+    private int totalIn;
+
+    private boolean finished;
+    private boolean closed;
+
+    /**
+     * Creates a new single-member output stream with the default block
+     * size and compression level.
+     *
+     * @param  out
+     *         the output stream
+     *
+     * @throws IOException
+     *         if an I/O error occurs writing the GZIP header
+     */
+    public ParallelGZIPOutputStream(OutputStream out) throws IOException {
+        this(out, DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION, false, null);
+    }
+
+    /**
+     * Creates a new output stream.
+     *
+     * @param  out
+     *         the output stream
+     * @param  blockSize
+     *         the number of uncompressed bytes compressed by each task
+     * @param  level
+     *         the compression level (0-9), or {@link
+     *         Deflater#DEFAULT_COMPRESSION}
+     * @param  multiMember
+     *         {@code true} to write a GZIP member per block, {@code false}
+     *         to write a single member
+     * @param  executor
+     *         the executor to run compression tasks, or {@code null} to use
+     *         a pool of threads shared by all the streams
+     *
+     * @throws IllegalArgumentException
+     *         if {@code blockSize} is less than 64K or greater than 16M,
+     *         or {@code level} is not a valid compression level
+     * @throws IOException
+     *         if an I/O error occurs writing the GZIP header
+     */
+    public ParallelGZIPOutputStream(OutputStream out,
+                                    int blockSize,
+                                    int level,
+                                    boolean multiMember,
+                                    ExecutorService executor)
+        throws IOException
+    {
+        super(out);
+        if (out == null)
+            throw new NullPointerException();
+        if (blockSize < MIN_BLOCK_SIZE || blockSize > MAX_BLOCK_SIZE)
+            throw new IllegalArgumentException("Illegal block size: " + blockSize);
+        if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION)
+            throw new IllegalArgumentException("Illegal compression level: " + level);
+        int nThreads = Runtime.getRuntime().availableProcessors();
+        this.blockSize = blockSize;
+        this.level = level;
+        this.multiMember = multiMember;
+        this.executor = (executor != null) ? executor : defaultExecutor();
+        this.maxInFlight = nThreads * 2;
+        this.block = new byte[blockSize];
+        if (!multiMember)
+            writeHeader();
+    }
+
+    /*
+     * Returns the executor used by the streams for which none is specified.
+     */
+    static ExecutorService defaultExecutor() {
+        return DefaultExecutor.INSTANCE;
+    }
+
+    /*
+     * Holds the default executor: a daemon thread per available processor,
+     * created on demand and ended after a minute without work, so that
+     * streams that are not closed leave no threads behind.
+     */
+    private static class DefaultExecutor {
+        static final ExecutorService INSTANCE;
+        static {
+            int nThreads = Runtime.getRuntime().availableProcessors();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                nThreads, nThreads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "GZIP worker");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+            executor.allowCoreThreadTimeOut(true);
+            INSTANCE = executor;
+        }
+    }
+
+    /**
+     * Writes a byte to the compressed output stream.
+     *
+     * @param  b
+     *         the byte to be written
+     *
+     * @throws IOException
+     *         if an I/O error has occurred
+     */
+    public void write(int b) throws IOException {
+        singleByteBuf[0] = (byte)(b & 0xff);
+        write(singleByteBuf, 0, 1);
+    }
+
+    /**
+     * Writes an array of bytes to the compressed output stream. This method
+     * blocks if the maximum number of blocks are being compressed.
+     *
+     * @param  b
+     *         the data to be written
+     * @param  off
+     *         the start offset of the data
+     * @param  len
+     *         the length of the data
+     *
+     * @throws IOException
+     *         if an I/O error has occurred
+     */
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if ((off | len | (off + len) | (b.length - (off + len))) < 0)
+            throw new IndexOutOfBoundsException();
+        if (!multiMember) {
+            crc.update(b, off, len);
+            totalIn += len;
+        }
+        while (len > 0) {
+            int n = Math.min(len, blockSize - count);
+            System.arraycopy(b, off, block, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            empty = false;
+            if (count == blockSize)
+                submitBlock(false);
+        }
+    }
+
+    /**
+     * Flushes the stream. The buffered input is compressed and all
+     * compressed data is written to the underlying stream before it is
+     * flushed; this may degrade compression if invoked frequently.
+     *
+     * @throws IOException
+     *         if an I/O error has occurred
+     */
+    public void flush() throws IOException {
+        ensureOpen();
+        if (count > 0)
+            submitBlock(false);
+        while (!pending.isEmpty())
+            writeBlock(pending.poll());
+        out.flush();
+    }
+
+    /**
+     * Finishes writing compressed data to the output stream without closing
+     * the underlying stream.
+     *
+     * @throws IOException
+     *         if an I/O error has occurred
+     */
+    public void finish() throws IOException {
+        ensureOpen();
+        if (finished)
+            return;
+        // a single-member stream always ends with a final block, a
+        // multi-member stream needs one only if it would otherwise be empty
+        if (count > 0 || !multiMember || empty)
+            submitBlock(true);
+        while (!pending.isEmpty())
+            writeBlock(pending.poll());
+        if (!multiMember) {
+            byte[] trailer = new byte[TRAILER_SIZE];
+            writeInt((int)crc.getValue(), trailer, 0);
+            writeInt(totalIn, trailer, 4);
+            out.write(trailer);
+        }
+        finished = true;
+    }
+
+    /**
+     * Writes remaining compressed data to the output stream and closes the
+     * underlying stream.
+     *
+     * @throws IOException
+     *         if an I/O error has occurred
+     */
+    public void close() throws IOException {
+        if (closed)
+            return;
+        try {
+            finish();
+        } finally {
+            closed = true;
+            try {
+                // in case finish failed
+                for (Future<byte[]> f: pending)
+                    f.cancel(false);
+                pending.clear();
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed)
+            throw new IOException("Stream closed");
+        if (finished)
+            throw new IOException("write beyond end of stream");
+    }
+
+    /*
+     * Submits the current block for compression, writing completed blocks
+     * or waiting for the oldest block if the maximum number are in flight.
+     */
+    private void submitBlock(final boolean last) throws IOException {
+        final byte[] b = block;
+        final int len = count;
+        final byte[] d = dict;
+        final int dlen = dictLen;
+        Callable<byte[]> task = new Callable<byte[]>() {
+            public byte[] call() {
+                return multiMember ? compressMember(b, len)
+                                   : compressBlock(b, len, d, dlen, last);
+            }
+        };
+        while (pending.size() >= maxInFlight ||
+               (!pending.isEmpty() && pending.peek().isDone())) {
+            writeBlock(pending.poll());
+        }
+        pending.add(executor.submit(task));
+        if (!multiMember) {
+            dict = b;
+            dictLen = len;
+        }
+        block = new byte[blockSize];
+        count = 0;
+    }
+
+    private void writeBlock(Future<byte[]> f) throws IOException {
+        byte[] b;
+        try {
+            b = f.get();
+        } catch (InterruptedException x) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException x) {
+            Throwable cause = x.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+            if (cause instanceof Error)
+                throw (Error)cause;
+            throw new IOException(cause);
+        }
+        out.write(b);
+    }
+
+    private Deflater getDeflater() {
+        return ZStreamPool.getDeflater(level, true);
+    }
+
+    private void releaseDeflater(Deflater def) {
+        ZStreamPool.release(def);
+    }
+
+    /*
+     * Compresses a block of a single-member stream, using the end of the
+     * previous block as the preset dictionary. Blocks other than the last
+     * end on a byte boundary so that they can be concatenated.
+     */
+    private byte[] compressBlock(byte[] b, int len,
+                                 byte[] dict, int dictLen, boolean last)
+    {
+        Deflater def = getDeflater();
+        try {
+            if (dict != null) {
+                int n = Math.min(dictLen, DICT_SIZE);
+                def.setDictionary(dict, dictLen - n, n);
+            }
+            def.setInput(b, 0, len);
+            Output out = new Output(len);
+            if (last) {
+                def.finish();
+                while (!def.finished())
+                    out.deflate(def, Deflater.NO_FLUSH);
+            } else {
+                while (!def.needsInput())
+                    out.deflate(def, Deflater.NO_FLUSH);
+                // the flush is complete when it does not fill the buffer
+                while (out.deflate(def, Deflater.SYNC_FLUSH)) { }
+            }
+            return out.toByteArray();
+        } finally {
+            releaseDeflater(def);
+        }
+    }
+
+    /*
+     * Compresses a block into a complete GZIP member whose header records
+     * the length of the member.
+     */
+    private byte[] compressMember(byte[] b, int len) {
+        Deflater def = getDeflater();
+        try {
+            def.setInput(b, 0, len);
+            def.finish();
+            Output out = new Output(len);
+            out.pos = MEMBER_HEADER_SIZE;
+            while (!def.finished())
+                out.deflate(def, Deflater.NO_FLUSH);
+            CRC32 crc = new CRC32();
+            crc.update(b, 0, len);
+            out.ensureCapacity(TRAILER_SIZE);
+            writeInt((int)crc.getValue(), out.buf, out.pos);
+            writeInt(len, out.buf, out.pos + 4);
+            out.pos += TRAILER_SIZE;
+
+            byte[] m = out.toByteArray();
+            writeMemberHeader(m, m.length);
+            return m;
+        } finally {
+            releaseDeflater(def);
+        }
+    }
+
+    /*
+     * A growable buffer for compressed data.
+     */
+    private static class Output {
+        byte[] buf;
+        int pos;
+
+        Output(int len) {
+            // enough for most input, grown if needed
+            buf = new byte[len + (len >> 3) + 64];
+        }
+
+        void ensureCapacity(int n) {
+            if (buf.length - pos < n)
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + n));
+        }
+
+        // deflates into the buffer, returning true if the buffer was filled
+        boolean deflate(Deflater def, int flush) {
+            ensureCapacity(64);
+            int space = buf.length - pos;
+            int n = def.deflate(buf, pos, space, flush);
+            pos += n;
+            return n == space;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+    }
+
+    /*
+     * Writes the GZIP member header.
+     */
+    private void writeHeader() throws IOException {
+        out.write(new byte[] {
+                      (byte) GZIP_MAGIC,        // Magic number (short)
+                      (byte)(GZIP_MAGIC >> 8),  // Magic number (short)
+                      Deflater.DEFLATED,        // Compression method (CM)
+                      0,                        // Flags (FLG)
+                      0,                        // Modification time MTIME (int)
+                      0,                        // Modification time MTIME (int)
+                      0,                        // Modification time MTIME (int)
+                      0,                        // Modification time MTIME (int)
+                      0,                        // Extra flags (XFLG)
+                      0                         // Operating system (OS)
+                  });
+    }
+
+    /*
+     * Writes the header of a member of a multi-member stream, with an
+     * extra field holding the length of the member.
+     */
+    private static void writeMemberHeader(byte[] buf, int memberLen) {
+        buf[0] = (byte) GZIP_MAGIC;                     // Magic number
+        buf[1] = (byte)(GZIP_MAGIC >> 8);
+        buf[2] = Deflater.DEFLATED;                     // CM
+        buf[3] = FEXTRA;                                // FLG
+        // MTIME, XFLG and OS are zero
+        writeShort(4 + MEMBER_SUBFIELD_LEN, buf, 10);   // XLEN
+        buf[12] = (byte)MEMBER_SI1;                     // SI1
+        buf[13] = (byte)MEMBER_SI2;                     // SI2
+        writeShort(MEMBER_SUBFIELD_LEN, buf, 14);       // LEN
+        writeInt(memberLen, buf, 16);                   // member length
+    }
+
+    /*
+     * Writes integer in Intel byte order to a byte array, starting at a
+     * given offset.
+     */
+    private static void writeInt(int i, byte[] buf, int offset) {
+        writeShort(i & 0xffff, buf, offset);
+        writeShort((i >> 16) & 0xffff, buf, offset + 2);
+    }
+
+    /*
+     * Writes short integer in Intel byte order to a byte array, starting
+     * at a given offset
+     */
+    private static void writeShort(int s, byte[] buf, int offset) {
+        buf[offset] = (byte)(s & 0xff);
+        buf[offset + 1] = (byte)((s >> 8) & 0xff);
+    }
+}
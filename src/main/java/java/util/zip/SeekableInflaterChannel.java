@@ -0,0 +1,700 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.zip;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * A read-only byte channel over the uncompressed form of data in the GZIP,
+ * ZLIB or raw DEFLATE format, or of a {@link ZipFile} entry, that can be
+ * positioned anywhere in the uncompressed data.
+ *
+ * <p> Deflate data can only be decompressed from the beginning, so the
+ * channel keeps an {@link InflaterIndex} of access points at which
+ * decompression can be resumed. Access points are added as the channel
+ * first decompresses each part of the data, and positioning the channel
+ * resumes decompression at the last access point before the new position,
+ * so once the data has been read through, as by a first sequential pass,
+ * a read at any position decompresses at most about a {@linkplain
+ * InflaterIndex#span span} of data. An index may be shared by the
+ * channels opened on the same data, and may be {@linkplain
+ * InflaterIndex#store stored} and {@linkplain InflaterIndex#load loaded}
+ * so that the first pass is not repeated.
+ *
+ * <p> GZIP data may consist of several members, each a complete GZIP
+ * stream; the channel reads them as a single stream of uncompressed data.
+ * The checksum and size of a member are verified when the member is read
+ * from its beginning; they cannot be verified when reading starts at an
+ * access point within the member.
+ *
+ * <p> Unless otherwise noted, passing a <tt>null</tt> argument to a
+ * constructor or method in this class will cause a {@link
+ * NullPointerException} to be thrown. A channel is safe for use by
+ * multiple concurrent threads, but each read positions the decompressor,
+ * so concurrent readers of the same data are better served by channels
+ * of their own that share an index.
+ *
+ * @see InflaterIndex
+ * @since 1.7
+ */
+public final class SeekableInflaterChannel implements SeekableByteChannel {
+
+    /**
+     * The formats of compressed data that the channel can read.
+     */
+    public static enum Format {
+        /**
+         * Raw deflate data, as in a zip file entry.
+         */
+        DEFLATE,
+        /**
+         * Deflate data in the ZLIB format (RFC 1950), without a preset
+         * dictionary.
+         */
+        ZLIB,
+        /**
+         * Deflate data in the GZIP file format (RFC 1952), possibly of
+         * several members.
+         */
+        GZIP
+    }
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+
+    /*
+     * File header flags.
+     */
+    private final static int FHCRC      = 2;    // Header CRC
+    private final static int FEXTRA     = 4;    // Extra field
+    private final static int FNAME      = 8;    // File name
+    private final static int FCOMMENT   = 16;   // File comment
+
+    private static final int WINSIZE = InflaterIndex.WINSIZE;
+
+    private final Source src;
+    private final Format format;        // null if the data is not compressed
+    private final long size;            // uncompressed size, or -1 if unknown
+    private final InflaterIndex index;
+    private final BlockInflater inf;
+    private final Checksum check;       // checksum of the current member
+    private final byte[] buf;           // buffer of stored data
+    private final byte[] window;        // the last 32K of uncompressed data
+
+    private int wpos;           // next position to write in window
+    private long history;       // bytes decompressed in the current member
+    private boolean verify;     // true if the member is read from its start
+    private int outStart;       // window position of the data not yet read
+    private int outLen;         // number of bytes of data not yet read
+    private long total;         // position of the end of the data in window
+    private boolean eof;        // true if the end of the data was reached
+
+    private long position;
+    private boolean closed;
+
+    /**
+     * Creates a channel over the compressed data read from the given
+     * channel, with a new index of the default span.
+     *
+     * @param ch the channel from which to read the compressed data
+     * @param format the format of the compressed data
+     * @exception ZipException if the data does not start with a valid
+     *            header of the given format
+     * @exception IOException if an I/O error has occurred
+     */
+    public SeekableInflaterChannel(SeekableByteChannel ch, Format format)
+        throws IOException
+    {
+        this(ch, format, new InflaterIndex());
+    }
+
+    /**
+     * Creates a channel over the compressed data read from the given
+     * channel, using and extending the given index. Closing the channel
+     * closes {@code ch}.
+     *
+     * @param ch the channel from which to read the compressed data
+     * @param format the format of the compressed data
+     * @param index an index of the compressed data, possibly empty
+     * @exception ZipException if the data does not start with a valid
+     *            header of the given format
+     * @exception IOException if an I/O error has occurred
+     */
+    public SeekableInflaterChannel(SeekableByteChannel ch, Format format,
+                                   InflaterIndex index)
+        throws IOException
+    {
+        this(new ChannelSource(ch), format, -1, index);
+    }
+
+    /**
+     * Creates a channel over the data of the given zip file entry, with a
+     * new index of the default span.
+     *
+     * @param zf the zip file
+     * @param entry the zip file entry
+     * @exception ZipException if the entry is not in the zip file or if a
+     *            ZIP format error has occurred
+     * @exception IOException if an I/O error has occurred
+     * @exception IllegalStateException if the zip file has been closed
+     */
+    public SeekableInflaterChannel(ZipFile zf, ZipEntry entry)
+        throws IOException
+    {
+        this(zf, entry, new InflaterIndex());
+    }
+
+    /**
+     * Creates a channel over the data of the given zip file entry, using
+     * and extending the given index. The index is not used if the entry is
+     * stored without compression. Closing the channel does not close the
+     * zip file, but the channel cannot be read once the zip file has been
+     * closed.
+     *
+     * @param zf the zip file
+     * @param entry the zip file entry
+     * @param index an index of the entry data, possibly empty
+     * @exception ZipException if the entry is not in the zip file or if a
+     *            ZIP format error has occurred
+     * @exception IOException if an I/O error has occurred
+     * @exception IllegalStateException if the zip file has been closed
+     */
+    public SeekableInflaterChannel(ZipFile zf, ZipEntry entry,
+                                   InflaterIndex index)
+        throws IOException
+    {
+        this(EntrySource.get(zf, entry), index);
+    }
+
+    private SeekableInflaterChannel(EntrySource src, InflaterIndex index)
+        throws IOException
+    {
+        this(src, src.stored ? null : Format.DEFLATE, src.usize, index);
+    }
+
+    private SeekableInflaterChannel(Source src, Format format, long size,
+                                    InflaterIndex index)
+        throws IOException
+    {
+        if (format == null) {
+            this.src = src;
+            this.format = null;
+            this.size = size;
+            this.index = index;
+            this.inf = null;
+            this.check = null;
+            this.buf = new byte[16 * 1024];
+            this.window = null;
+            return;
+        }
+        if (index == null)
+            throw new NullPointerException("index");
+        long start = 0;
+        switch (format) {
+        case GZIP:
+            start = readHeader(src, 0);
+            if (start < 0)
+                throw new ZipException("Not in GZIP format");
+            break;
+        case ZLIB:
+            byte[] b = new byte[2];
+            if (readFully(src, b, 0, 2, 0) != 2)
+                throw new EOFException("Unexpected end of ZLIB input stream");
+            int cmf = b[0] & 0xff;
+            int flg = b[1] & 0xff;
+            if ((cmf & 0x0f) != 8 || (cmf >> 4) > 7 ||
+                ((cmf << 8) | flg) % 31 != 0)
+                throw new ZipException("Not in ZLIB format");
+            if ((flg & 0x20) != 0)
+                throw new ZipException("Preset dictionary not supported");
+            start = 2;
+            break;
+        }
+        this.src = src;
+        this.format = format;
+        this.size = size;
+        this.index = index;
+        this.inf = new BlockInflater(src);
+        this.check = (format == Format.GZIP) ? new CRC32()
+                   : (format == Format.ZLIB) ? new Adler32()
+                   : null;
+        this.buf = null;
+        this.window = new byte[WINSIZE];
+        startMember(start);
+    }
+
+    /**
+     * Returns the index used by this channel. The index contains the
+     * access points found by this channel, and by the other channels that
+     * share it, so far.
+     *
+     * @return the index
+     */
+    public InflaterIndex index() {
+        return index;
+    }
+
+    /**
+     * Reads a sequence of uncompressed bytes from this channel into the
+     * given buffer, starting at the current position.
+     *
+     * @param dst the buffer into which bytes are to be transferred
+     * @return the number of bytes read, possibly zero, or <tt>-1</tt> if
+     *         the position is at or beyond the end of the data
+     * @exception ZipException if a format error has occurred in the
+     *            compressed data
+     * @exception ClosedChannelException if this channel is closed
+     * @exception IOException if an I/O error has occurred
+     */
+    @Override
+    public synchronized int read(ByteBuffer dst) throws IOException {
+        ensureOpen();
+        if (format == null)
+            return readStored(dst);
+        seek(position);
+        int n = 0;
+        while (dst.hasRemaining()) {
+            if (outLen == 0) {
+                produce();
+                if (outLen == 0)
+                    break;
+            }
+            int k = Math.min(outLen, dst.remaining());
+            dst.put(window, outStart, k);
+            outStart += k;
+            outLen -= k;
+            n += k;
+        }
+        if (n == 0 && dst.hasRemaining())
+            return -1;
+        position += n;
+        return n;
+    }
+
+    /**
+     * Throws {@code NonWritableChannelException}, this channel being
+     * read-only.
+     */
+    @Override
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    /**
+     * Returns this channel's position in the uncompressed data.
+     *
+     * @return the position
+     * @exception ClosedChannelException if this channel is closed
+     */
+    @Override
+    public synchronized long position() throws IOException {
+        ensureOpen();
+        return position;
+    }
+
+    /**
+     * Sets this channel's position in the uncompressed data. The data is
+     * not decompressed until the next read. Setting the position beyond the
+     * end of the data is legal, the next read then returning {@code -1}.
+     *
+     * @param newPosition the new position
+     * @return this channel
+     * @exception IllegalArgumentException if the new position is negative
+     * @exception ClosedChannelException if this channel is closed
+     */
+    @Override
+    public synchronized SeekableInflaterChannel position(long newPosition)
+        throws IOException
+    {
+        if (newPosition < 0)
+            throw new IllegalArgumentException();
+        ensureOpen();
+        position = newPosition;
+        return this;
+    }
+
+    /**
+     * Returns the size of the uncompressed data. If the size is not
+     * recorded by a zip file entry or by a complete index then the data is
+     * decompressed to its end, completing the index.
+     *
+     * @return the uncompressed size
+     * @exception ZipException if a format error has occurred in the
+     *            compressed data
+     * @exception ClosedChannelException if this channel is closed
+     * @exception IOException if an I/O error has occurred
+     */
+    @Override
+    public synchronized long size() throws IOException {
+        ensureOpen();
+        if (size >= 0)
+            return size;
+        long n = index.uncompressedSize();
+        if (n >= 0)
+            return n;
+        seek(Long.MAX_VALUE);
+        return total;
+    }
+
+    /**
+     * Throws {@code NonWritableChannelException}, this channel being
+     * read-only.
+     */
+    @Override
+    public SeekableByteChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return !closed;
+    }
+
+    /**
+     * Closes this channel and the channel from which it reads, if any. The
+     * index is left as it is.
+     *
+     * @exception IOException if an I/O error has occurred
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            src.close();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed)
+            throw new ClosedChannelException();
+    }
+
+    private int readStored(ByteBuffer dst) throws IOException {
+        if (!dst.hasRemaining())
+            return 0;
+        if (position >= size)
+            return -1;
+        int len = (int)Math.min(Math.min(buf.length, dst.remaining()),
+                                size - position);
+        int n = src.read(buf, 0, len, position);
+        if (n < 0)
+            throw new EOFException("Unexpected end of zip file entry");
+        dst.put(buf, 0, n);
+        position += n;
+        return n;
+    }
+
+    // -- decompression --
+
+    /*
+     * Positions the decompressor so that the next byte of data it returns
+     * is at the given position, or at the end of the data. The decompressor
+     * resumes at an access point if the position is behind it or if there
+     * is an access point between it and the position.
+     */
+    private void seek(long pos) throws IOException {
+        long next = total - outLen;
+        if (pos == next)
+            return;
+        int i = index.find(pos);
+        if (i >= 0 && (pos < next || index.out(i) > next)) {
+            restore(i);
+            next = total;
+        }
+        while (next < pos) {
+            if (outLen == 0) {
+                produce();
+                if (outLen == 0)
+                    return;
+            }
+            int n = (int)Math.min(outLen, pos - next);
+            outStart += n;
+            outLen -= n;
+            next += n;
+        }
+    }
+
+    /*
+     * Decompresses data into the window until there is some to return or
+     * the end of the data is reached, adding access points to the index at
+     * the deflate block boundaries it crosses.
+     */
+    private void produce() throws IOException {
+        try {
+            while (outLen == 0 && !eof) {
+                if (inf.finished()) {
+                    endMember();
+                    continue;
+                }
+                if (wpos == WINSIZE)
+                    wpos = 0;
+                int n = inf.inflate(window, wpos, WINSIZE - wpos);
+                if (n > 0) {
+                    if (verify)
+                        check.update(window, wpos, n);
+                    outStart = wpos;
+                    outLen = n;
+                    wpos += n;
+                    history += n;
+                    total += n;
+                }
+                // at the end of a block that is not the last one
+                if (inf.atBoundary() && index.needs(total))
+                    addAccessPoint();
+            }
+        } catch (DataFormatException e) {
+            String s = e.getMessage();
+            throw new ZipException(s != null ? s : "Invalid ZLIB data format");
+        }
+    }
+
+    /*
+     * Adds an access point at the current position, which is at the end of
+     * a deflate block. The block may end within a byte, the first nbits
+     * bits of which, from the high bit, then belong to the next block.
+     */
+    private void addAccessPoint() {
+        long bitPos = inf.bitPosition();
+        long in = (bitPos + 7) >>> 3;
+        int nbits = (int)(in * 8 - bitPos);
+        int len = (int)Math.min(history, WINSIZE);
+        int head = Math.min(len, wpos);
+        byte[] w = new byte[len];
+        System.arraycopy(window, WINSIZE - (len - head), w, 0, len - head);
+        System.arraycopy(window, wpos - head, w, len - head, head);
+        index.addIfNeeded(total, in, nbits, w);
+    }
+
+    /*
+     * Resets the inflater to resume decompression at access point i.
+     */
+    private void restore(int i) throws IOException {
+        long in = index.in(i);
+        int nbits = index.bits(i);
+        byte[] w = index.window(i);
+        inf.reset(in * 8 - nbits, w.length);
+        System.arraycopy(w, 0, window, 0, w.length);
+        wpos = w.length;
+        history = w.length;
+        // an access point without history is at the start of a member
+        verify = (w.length == 0);
+        if (check != null)
+            check.reset();
+        total = index.out(i);
+        outLen = 0;
+        eof = false;
+    }
+
+    /*
+     * Starts decompressing the member whose deflate data is at the given
+     * position.
+     */
+    private void startMember(long in) throws IOException {
+        inf.reset(in * 8, 0);
+        wpos = 0;
+        history = 0;
+        verify = true;
+        if (check != null)
+            check.reset();
+        index.addIfNeeded(total, in, 0, new byte[0]);
+    }
+
+    /*
+     * Reads the trailer of the member whose deflate data has been
+     * decompressed, and starts the next member if there is one.
+     */
+    private void endMember() throws IOException {
+        long in = inf.inputPosition();
+        if (format == Format.GZIP) {
+            byte[] t = new byte[8];
+            if (readFully(src, t, 0, 8, in) != 8)
+                throw new EOFException("Unexpected end of ZLIB input stream");
+            if (verify && (get32(t, 0) != check.getValue() ||
+                           get32(t, 4) != (history & 0xffffffffL)))
+                throw new ZipException("Corrupt GZIP trailer");
+            in += 8;
+            long n = readHeader(src, in);
+            if (n > 0) {
+                startMember(in + n);
+                return;
+            }
+        } else if (format == Format.ZLIB) {
+            byte[] t = new byte[4];
+            if (readFully(src, t, 0, 4, in) != 4)
+                throw new EOFException("Unexpected end of ZLIB input stream");
+            long v = ((t[0] & 0xffL) << 24) | ((t[1] & 0xff) << 16) |
+                     ((t[2] & 0xff) << 8) | (t[3] & 0xff);
+            if (verify && v != check.getValue())
+                throw new ZipException("Corrupt ZLIB trailer");
+        }
+        eof = true;
+        index.setSize(total);
+    }
+
+    /*
+     * Reads the GZIP member header at the given position, returning its
+     * length, or -1 if there is no header there.
+     */
+    private static long readHeader(Source src, long pos) throws IOException {
+        byte[] h = new byte[10];
+        if (readFully(src, h, 0, 10, pos) != 10 ||
+            (int)get32(h, 0) << 16 >>> 16 != GZIP_MAGIC)
+            return -1;
+        if ((h[2] & 0xff) != 8)
+            throw new ZipException("Unsupported compression method");
+        int flg = h[3] & 0xff;
+        long p = pos + 10;
+        if ((flg & FEXTRA) != 0) {
+            if (readFully(src, h, 0, 2, p) != 2)
+                throw new EOFException("Unexpected end of GZIP header");
+            p += 2 + ((h[0] & 0xff) | ((h[1] & 0xff) << 8));
+        }
+        if ((flg & FNAME) != 0)
+            p = skipString(src, p);
+        if ((flg & FCOMMENT) != 0)
+            p = skipString(src, p);
+        if ((flg & FHCRC) != 0)
+            p += 2;
+        return p - pos;
+    }
+
+    /*
+     * Returns the position after the zero-terminated string at the given
+     * position.
+     */
+    private static long skipString(Source src, long p) throws IOException {
+        byte[] b = new byte[256];
+        for (;;) {
+            int n = src.read(b, 0, b.length, p);
+            if (n <= 0)
+                throw new EOFException("Unexpected end of GZIP header");
+            for (int i = 0; i < n; i++) {
+                if (b[i] == 0)
+                    return p + i + 1;
+            }
+            p += n;
+        }
+    }
+
+    private static int readFully(Source src, byte[] b, int off, int len,
+                                 long pos)
+        throws IOException
+    {
+        int n = 0;
+        while (n < len) {
+            int k = src.read(b, off + n, len - n, pos + n);
+            if (k <= 0)
+                break;
+            n += k;
+        }
+        return n;
+    }
+
+    /*
+     * Fetches unsigned 32-bit value from byte array at specified offset.
+     * The bytes are assumed to be in Intel (little-endian) byte order.
+     */
+    private static long get32(byte[] b, int off) {
+        return ((b[off] & 0xff) | ((b[off + 1] & 0xff) << 8) |
+                ((b[off + 2] & 0xff) << 16) | ((long)(b[off + 3] & 0xff) << 24));
+    }
+
+    // -- sources of compressed data --
+
+    private static abstract class Source implements BlockInflater.Input {
+        abstract void close() throws IOException;
+    }
+
+    private static class ChannelSource extends Source {
+        private final SeekableByteChannel ch;
+
+        ChannelSource(SeekableByteChannel ch) {
+            if (ch == null)
+                throw new NullPointerException("ch");
+            this.ch = ch;
+        }
+
+        public int read(byte[] b, int off, int len, long pos)
+            throws IOException
+        {
+            ByteBuffer bb = ByteBuffer.wrap(b, off, len);
+            if (ch instanceof FileChannel)
+                return ((FileChannel)ch).read(bb, pos);
+            synchronized (ch) {
+                ch.position(pos);
+                return ch.read(bb);
+            }
+        }
+
+        void close() throws IOException {
+            ch.close();
+        }
+    }
+
+    private static class EntrySource extends Source {
+        private final ZipFile zf;
+        private final long offset;      // position of the data in zf
+        private final long csize;
+        final long usize;
+        final boolean stored;
+
+        private EntrySource(ZipFile zf, long[] data) {
+            this.zf = zf;
+            this.stored = (data[0] == ZipEntry.STORED);
+            this.offset = data[1];
+            this.csize = data[2];
+            this.usize = data[3];
+        }
+
+        static EntrySource get(ZipFile zf, ZipEntry entry) throws IOException {
+            if (entry == null)
+                throw new NullPointerException("entry");
+            long[] data = zf.getEntryData(entry);
+            if (data == null)
+                throw new ZipException("Entry not found: " + entry.getName());
+            if (data[0] != ZipEntry.STORED && data[0] != ZipEntry.DEFLATED)
+                throw new ZipException("invalid compression method");
+            return new EntrySource(zf, data);
+        }
+
+        public int read(byte[] b, int off, int len, long pos)
+            throws IOException
+        {
+            if (pos >= csize)
+                return -1;
+            return zf.readAt(b, off, (int)Math.min(len, csize - pos),
+                             offset + pos);
+        }
+
+        void close() {
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.zip;
+
+import java.nio.ByteOrder;
+import sun.misc.Unsafe;
+
+/**
+ * A pure Java implementation of a reflected 32-bit CRC using the
+ * slicing-by-8 algorithm, which consumes eight bytes per step with eight
+ * lookup tables. Used for the small updates for which the cost of a JNI
+ * call would dominate, and for CRC-32C.
+ *
+ * <p> CRC values passed to and returned by these methods are final CRC
+ * values, that is, with the initial and final inversion applied, as with
+ * the values returned by {@link Checksum#getValue}.
+ */
+
+final class SlicingCRC {
+
+    /**
+     * The CRC-32 of ISO 3309 and ITU-T V.42, used by ZIP and GZIP.
+     */
+    static final SlicingCRC IEEE = new SlicingCRC(0xEDB88320);
+
+    /**
+     * The CRC-32C (Castagnoli) of RFC 3720, used by iSCSI and SCTP.
+     */
+    static final SlicingCRC CASTAGNOLI = new SlicingCRC(0x82F63B78);
+
+    private static final Unsafe unsafe = Unsafe.getUnsafe();
+    private static final boolean littleEndian =
+        ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+    private final int poly;             // reversed polynomial
+    private final int[] table;          // 8 tables of 256 entries
+
+    private SlicingCRC(int poly) {
+        this.poly = poly;
+        int[] t = new int[8 * 256];
+        for (int n = 0; n < 256; n++) {
+            int c = n;
+            for (int k = 0; k < 8; k++)
+                c = ((c & 1) != 0) ? (c >>> 1) ^ poly : c >>> 1;
+            t[n] = c;
+        }
+        for (int n = 0; n < 256; n++) {
+            int c = t[n];
+            for (int k = 1; k < 8; k++) {
+                c = t[c & 0xff] ^ (c >>> 8);
+                t[k * 256 + n] = c;
+            }
+        }
+        this.table = t;
+    }
+
+    /**
+     * Updates a CRC with a byte.
+     */
+    int update(int crc, int b) {
+        crc = ~crc;
+        crc = table[(crc ^ b) & 0xff] ^ (crc >>> 8);
+        return ~crc;
+    }
+
+    /**
+     * Updates a CRC with len bytes of the given array.
+     */
+    int update(int crc, byte[] b, int off, int len) {
+        final int[] t = table;
+        crc = ~crc;
+        while (len >= 8) {
+            int lo = crc ^ ((b[off] & 0xff)           |
+                            (b[off + 1] & 0xff) << 8  |
+                            (b[off + 2] & 0xff) << 16 |
+                            (b[off + 3] & 0xff) << 24);
+            int hi =        ((b[off + 4] & 0xff)      |
+                            (b[off + 5] & 0xff) << 8  |
+                            (b[off + 6] & 0xff) << 16 |
+                            (b[off + 7] & 0xff) << 24);
+            crc = slice(t, lo, hi);
+            off += 8;
+            len -= 8;
+        }
+        while (len-- > 0)
+            crc = t[(crc ^ b[off++]) & 0xff] ^ (crc >>> 8);
+        return ~crc;
+    }
+
+    /**
+     * Updates a CRC with len bytes of memory at the given address. Eight
+     * bytes are read at a time once the address is aligned, as not all
+     * platforms support unaligned access.
+     */
+    int update(int crc, long address, int len) {
+        final int[] t = table;
+        crc = ~crc;
+        while (len > 0 && (address & 7) != 0) {
+            crc = t[(crc ^ unsafe.getByte(address++)) & 0xff] ^ (crc >>> 8);
+            len--;
+        }
+        while (len >= 8) {
+            long v = unsafe.getLong(address);
+            if (!littleEndian)
+                v = Long.reverseBytes(v);
+            crc = slice(t, crc ^ (int)v, (int)(v >>> 32));
+            address += 8;
+            len -= 8;
+        }
+        while (len-- > 0)
+            crc = t[(crc ^ unsafe.getByte(address++)) & 0xff] ^ (crc >>> 8);
+        return ~crc;
+    }
+
+    private static int slice(int[] t, int lo, int hi) {
+        return t[7 * 256 + (lo & 0xff)]          ^
+               t[6 * 256 + ((lo >>> 8) & 0xff)]  ^
+               t[5 * 256 + ((lo >>> 16) & 0xff)] ^
+               t[4 * 256 + (lo >>> 24)]          ^
+               t[3 * 256 + (hi & 0xff)]          ^
+               t[2 * 256 + ((hi >>> 8) & 0xff)]  ^
+               t[1 * 256 + ((hi >>> 16) & 0xff)] ^
+               t[hi >>> 24];
+    }
+
+    /**
+     * Returns the CRC of the concatenation of two sequences of bytes,
+     * given the CRC of each, and the length of the second. The CRC of the
+     * first sequence is advanced over len2 zero bytes by repeated squaring
+     * of the operator for one zero bit, as in zlib's crc32_combine.
+     */
+    int combine(int crc1, int crc2, long len2) {
+        if (len2 < 0)
+            throw new IllegalArgumentException("negative length");
+        if (len2 == 0)
+            return crc1;
+
+        int[] even = new int[32];       // even-power-of-two zeros operator
+        int[] odd = new int[32];        // odd-power-of-two zeros operator
+
+        // put operator for one zero bit in odd
+        odd[0] = poly;
+        int row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+
+        // put operator for two zero bits in even
+        square(even, odd);
+
+        // put operator for four zero bits in odd
+        square(odd, even);
+
+        // apply len2 zeros to crc1 (first square will put the operator for
+        // one zero byte, eight zero bits, in even)
+        do {
+            // apply zeros operator for this bit of len2
+            square(even, odd);
+            if ((len2 & 1) != 0)
+                crc1 = times(even, crc1);
+            len2 >>>= 1;
+
+            // if no more bits set, then done
+            if (len2 == 0)
+                break;
+
+            // another iteration of the loop with odd and even swapped
+            square(odd, even);
+            if ((len2 & 1) != 0)
+                crc1 = times(odd, crc1);
+            len2 >>>= 1;
+        } while (len2 != 0);
+
+        return crc1 ^ crc2;
+    }
+
+    private static int times(int[] mat, int vec) {
+        int sum = 0;
+        for (int i = 0; vec != 0; i++, vec >>>= 1) {
+            if ((vec & 1) != 0)
+                sum ^= mat[i];
+        }
+        return sum;
+    }
+
+    private static void square(int[] square, int[] mat) {
+        for (int n = 0; n < 32; n++)
+            square[n] = times(mat, mat[n]);
+    }
+}
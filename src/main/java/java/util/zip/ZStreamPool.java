@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * ORACLE PROPRIETARY/CONFIDENTIAL. Use is subject to license terms.
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ *
+ */
+
+package java.util.zip;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A JVM-wide pool of {@link Inflater} and {@link Deflater} instances.
+ *
+ * <p> Each {@code Inflater} and {@code Deflater} holds native zlib memory,
+ * about 40K for an inflater and 260K for a deflater, that is released only
+ * when its {@code end} method is invoked or it is finalized. Code that
+ * compresses or decompresses many short streams can instead obtain an
+ * instance from this pool and {@link #release release} it when done. A
+ * released instance is {@link Inflater#reset reset} and kept for reuse,
+ * up to a bound on the number of idle instances of each kind, beyond
+ * which released instances are ended.
+ *
+ * <p> Inflaters are pooled by their {@code nowrap} mode, and deflaters by
+ * their compression level and {@code nowrap} mode. A deflater whose
+ * strategy has been changed is ended rather than pooled. The bound on the
+ * number of idle instances of each kind defaults to twice the number of
+ * available processors, and can be changed with the system property
+ * {@code java.util.zip.ZStreamPool.maxIdle}.
+ *
+ * <p> An instance must not be used after it has been released. {@link
+ * ZipFile} obtains the inflaters for its entry streams from this pool.
+ *
+ * <p> The pool also reports the number of instances that have not been
+ * ended, whether pooled or not, and an estimate of the native memory
+ * they hold.
+ *
+ * @since 1.7
+ */
+
+public final class ZStreamPool {
+    private ZStreamPool() { }
+
+    // estimates of the native memory held by an instance: the window, and
+    // for deflaters the hash tables, with memLevel 8, plus the zlib state
+    private static final long INFLATER_NATIVE_SIZE = (1 << 15) + 7 * 1024;
+    private static final long DEFLATER_NATIVE_SIZE = (1 << 17) + (1 << 17) + 6 * 1024;
+
+    private static final int maxIdle;
+    static {
+        int n = 2 * Runtime.getRuntime().availableProcessors();
+        String prop = sun.misc.VM.getSavedProperty("java.util.zip.ZStreamPool.maxIdle");
+        if (prop != null) {
+            try {
+                n = Math.max(0, Integer.parseInt(prop));
+            } catch (NumberFormatException ignore) { }
+        }
+        maxIdle = n;
+    }
+
+    // idle inflaters indexed by nowrap mode
+    private static final ArrayDeque<Inflater>[] inflaters = newQueues(2);
+
+    // idle deflaters indexed by nowrap mode and level (-1 to 9)
+    private static final ArrayDeque<Deflater>[] deflaters = newQueues(2 * 11);
+
+    private static final AtomicInteger idleInflaters = new AtomicInteger();
+    private static final AtomicInteger idleDeflaters = new AtomicInteger();
+
+    @SuppressWarnings("unchecked")
+    private static <T> ArrayDeque<T>[] newQueues(int n) {
+        ArrayDeque<T>[] queues = (ArrayDeque<T>[])new ArrayDeque<?>[n];
+        for (int i = 0; i < n; i++)
+            queues[i] = new ArrayDeque<>();
+        return queues;
+    }
+
+    private static ArrayDeque<Inflater> inflaterQueue(boolean nowrap) {
+        return inflaters[nowrap ? 1 : 0];
+    }
+
+    private static ArrayDeque<Deflater> deflaterQueue(int level, boolean nowrap) {
+        return deflaters[(nowrap ? 11 : 0) + level + 1];
+    }
+
+    /**
+     * Returns an inflater from the pool, or a new inflater if there is no
+     * idle inflater with the given mode.
+     *
+     * @param  nowrap
+     *         if true then support GZIP compatible compression
+     *
+     * @return an inflater in its initial state
+     *
+     * @see Inflater#Inflater(boolean)
+     */
+    public static Inflater getInflater(boolean nowrap) {
+        ArrayDeque<Inflater> q = inflaterQueue(nowrap);
+        Inflater inf;
+        synchronized (q) {
+            while ((inf = q.pollFirst()) != null) {
+                idleInflaters.decrementAndGet();
+                if (!inf.ended())
+                    return inf;
+            }
+        }
+        return new Inflater(nowrap);
+    }
+
+    /**
+     * Releases an inflater to the pool. The inflater is reset, and is
+     * ended instead if the pool already holds the maximum number of idle
+     * inflaters with its mode. This method does nothing if the inflater
+     * has been ended.
+     *
+     * @param  inf
+     *         the inflater
+     */
+    public static void release(Inflater inf) {
+        if (inf.ended())
+            return;
+        inf.reset();
+        ArrayDeque<Inflater> q = inflaterQueue(inf.nowrap());
+        synchronized (q) {
+            if (q.size() < maxIdle) {
+                q.addFirst(inf);
+                idleInflaters.incrementAndGet();
+                return;
+            }
+        }
+        inf.end();
+    }
+
+    /**
+     * Returns a deflater from the pool, or a new deflater if there is no
+     * idle deflater with the given level and mode.
+     *
+     * @param  level
+     *         the compression level (0-9), or {@link
+     *         Deflater#DEFAULT_COMPRESSION}
+     * @param  nowrap
+     *         if true then use GZIP compatible compression
+     *
+     * @return a deflater in its initial state, with the default strategy
+     *
+     * @throws IllegalArgumentException
+     *         if the compression level is invalid
+     *
+     * @see Deflater#Deflater(int,boolean)
+     */
+    public static Deflater getDeflater(int level, boolean nowrap) {
+        if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION)
+            throw new IllegalArgumentException("invalid compression level");
+        ArrayDeque<Deflater> q = deflaterQueue(level, nowrap);
+        Deflater def;
+        synchronized (q) {
+            while ((def = q.pollFirst()) != null) {
+                idleDeflaters.decrementAndGet();
+                if (!def.ended())
+                    return def;
+            }
+        }
+        return new Deflater(level, nowrap);
+    }
+
+    /**
+     * Releases a deflater to the pool. The deflater is reset, and is ended
+     * instead if its strategy is not the default strategy or the pool
+     * already holds the maximum number of idle deflaters with its level
+     * and mode. This method does nothing if the deflater has been ended.
+     *
+     * @param  def
+     *         the deflater
+     */
+    public static void release(Deflater def) {
+        if (def.ended())
+            return;
+        if (def.strategy() != Deflater.DEFAULT_STRATEGY) {
+            def.end();
+            return;
+        }
+        def.reset();
+        ArrayDeque<Deflater> q = deflaterQueue(def.level(), def.nowrap());
+        synchronized (q) {
+            if (q.size() < maxIdle) {
+                q.addFirst(def);
+                idleDeflaters.incrementAndGet();
+                return;
+            }
+        }
+        def.end();
+    }
+
+    /**
+     * Ends all idle instances held by the pool.
+     */
+    public static void clear() {
+        for (ArrayDeque<Inflater> q: inflaters) {
+            synchronized (q) {
+                Inflater inf;
+                while ((inf = q.pollFirst()) != null) {
+                    idleInflaters.decrementAndGet();
+                    inf.end();
+                }
+            }
+        }
+        for (ArrayDeque<Deflater> q: deflaters) {
+            synchronized (q) {
+                Deflater def;
+                while ((def = q.pollFirst()) != null) {
+                    idleDeflaters.decrementAndGet();
+                    def.end();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of idle inflaters held by the pool.
+     *
+     * @return the number of idle inflaters
+     */
+    public static int getIdleInflaterCount() {
+        return idleInflaters.get();
+    }
+
+    /**
+     * Returns the number of idle deflaters held by the pool.
+     *
+     * @return the number of idle deflaters
+     */
+    public static int getIdleDeflaterCount() {
+        return idleDeflaters.get();
+    }
+
+    /**
+     * Returns the number of inflaters in the Java virtual machine, pooled
+     * or not, that have not been ended.
+     *
+     * @return the number of inflaters that have not been ended
+     */
+    public static int getOpenInflaterCount() {
+        return Inflater.openCount();
+    }
+
+    /**
+     * Returns the number of deflaters in the Java virtual machine, pooled
+     * or not, that have not been ended.
+     *
+     * @return the number of deflaters that have not been ended
+     */
+    public static int getOpenDeflaterCount() {
+        return Deflater.openCount();
+    }
+
+    /**
+     * Returns an estimate of the native memory, in bytes, held by the idle
+     * instances in the pool.
+     *
+     * @return an estimate of the native memory held by idle instances
+     */
+    public static long getIdleNativeMemory() {
+        return idleInflaters.get() * INFLATER_NATIVE_SIZE +
+               idleDeflaters.get() * DEFLATER_NATIVE_SIZE;
+    }
+
+    /**
+     * Returns an estimate of the native memory, in bytes, held by all the
+     * inflaters and deflaters in the Java virtual machine that have not
+     * been ended.
+     *
+     * @return an estimate of the native memory held by open instances
+     */
+    public static long getNativeMemoryUsed() {
+        return Inflater.openCount() * INFLATER_NATIVE_SIZE +
+               Deflater.openCount() * DEFLATER_NATIVE_SIZE;
+    }
+}
@@ -30,17 +30,17 @@ import java.io.InputStream;
 import java.io.IOException;
 import java.io.EOFException;
 import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.WeakHashMap;
-import java.security.AccessController;
-import sun.security.action.GetPropertyAction;
 import static java.util.zip.ZipConstants64.*;
 
 /**
@@ -54,7 +54,7 @@ import static java.util.zip.ZipConstants64.*;
  */
 public
 class ZipFile implements ZipConstants, Closeable {
-    private long jzfile;           // address of jzfile data
+    private Source zsrc;           // shared central directory index
     private final String name;     // zip file name
     private final int total;       // total number of entries
     private final boolean locsig;  // if zip file starts with LOCSIG (usually true)
@@ -77,23 +77,6 @@ class ZipFile implements ZipConstants, Closeable {
      */
     public static final int OPEN_DELETE = 0x4;
 
-    static {
-        /* Zip library is loaded from System.initializeSystemClass */
-        initIDs();
-    }
-
-    private static native void initIDs();
-
-    private static final boolean usemmap;
-
-    static {
-        // A system prpperty to disable mmap use to avoid vm crash when
-        // in-use zip file is accidently overwritten by others.
-        String prop = sun.misc.VM.getSavedProperty("sun.zip.disableMemoryMapping");
-        usemmap = (prop == null ||
-                   !(prop.length() == 0 || prop.equalsIgnoreCase("true")));
-    }
-
     /**
      * Opens a zip file for reading.
      *
@@ -212,12 +195,12 @@ class ZipFile implements ZipConstants, Closeable {
             throw new NullPointerException("charset is null");
         this.zc = ZipCoder.get(charset);
         long t0 = System.nanoTime();
-        jzfile = open(name, mode, file.lastModified(), usemmap);
+        this.zsrc = Source.get(file, (mode & OPEN_DELETE) != 0);
         sun.misc.PerfCounter.getZipFileOpenTime().addElapsedTimeFrom(t0);
         sun.misc.PerfCounter.getZipFileCount().increment();
         this.name = name;
-        this.total = getTotal(jzfile);
-        this.locsig = startsWithLOC(jzfile);
+        this.total = zsrc.total;
+        this.locsig = zsrc.startsWithLoc;
     }
 
     /**
@@ -281,7 +264,7 @@ class ZipFile implements ZipConstants, Closeable {
     public String getComment() {
         synchronized (this) {
             ensureOpen();
-            byte[] bcomm = getCommentBytes(jzfile);
+            byte[] bcomm = zsrc.comment;
             if (bcomm == null)
                 return null;
             return zc.toString(bcomm, bcomm.length);
@@ -300,25 +283,19 @@ class ZipFile implements ZipConstants, Closeable {
         if (name == null) {
             throw new NullPointerException("name");
         }
-        long jzentry = 0;
         synchronized (this) {
             ensureOpen();
-            jzentry = getEntry(jzfile, zc.getBytes(name), true);
-            if (jzentry != 0) {
-                ZipEntry ze = getZipEntry(name, jzentry);
-                freeEntry(jzfile, jzentry);
-                return ze;
+            byte[] bname = zc.getBytes(name);
+            int pos = zsrc.getEntryPos(bname, true);
+            if (pos != -1) {
+                // the entry keeps the requested name, even if it was
+                // found with a '/' appended
+                return getZipEntry(name, pos);
             }
         }
         return null;
     }
 
-    private static native long getEntry(long jzfile, byte[] name,
-                                        boolean addSlash);
-
-    // freeEntry releases the C jzentry struct.
-    private static native void freeEntry(long jzfile, long jzentry);
-
     // the outstanding inputstreams that need to be closed,
     // mapped to the inflater objects they use.
     private final Map<InputStream, Inflater> streams = new WeakHashMap<>();
@@ -341,21 +318,21 @@ class ZipFile implements ZipConstants, Closeable {
         if (entry == null) {
             throw new NullPointerException("entry");
         }
-        long jzentry = 0;
+        int pos = -1;
         ZipFileInputStream in = null;
         synchronized (this) {
             ensureOpen();
             if (!zc.isUTF8() && (entry.flag & EFS) != 0) {
-                jzentry = getEntry(jzfile, zc.getBytesUTF8(entry.name), false);
+                pos = zsrc.getEntryPos(zc.getBytesUTF8(entry.name), false);
             } else {
-                jzentry = getEntry(jzfile, zc.getBytes(entry.name), false);
+                pos = zsrc.getEntryPos(zc.getBytes(entry.name), false);
             }
-            if (jzentry == 0) {
+            if (pos == -1) {
                 return null;
             }
-            in = new ZipFileInputStream(jzentry);
+            in = new ZipFileInputStream(zsrc.cen, pos);
 
-            switch (getEntryMethod(jzentry)) {
+            switch (CENHOW(zsrc.cen, pos)) {
             case STORED:
                 synchronized (streams) {
                     streams.put(in, null);
@@ -363,7 +340,7 @@ class ZipFile implements ZipConstants, Closeable {
                 return in;
             case DEFLATED:
                 // MORE: Compute good size for inflater stream:
-                long size = getEntrySize(jzentry) + 2; // Inflater likes a bit of slack
+                long size = in.size() + 2; // Inflater likes a bit of slack
                 if (size > 65536) size = 8192;
                 if (size <= 0) size = 4096;
                 Inflater inf = getInflater();
@@ -379,6 +356,42 @@ class ZipFile implements ZipConstants, Closeable {
         }
     }
 
+    /*
+     * Returns the compression method of the given entry, the position in
+     * the zip file of its data, its compressed size and its uncompressed
+     * size, or null if the entry is not in this zip file. Used together
+     * with readAt by SeekableInflaterChannel.
+     */
+    long[] getEntryData(ZipEntry entry) throws IOException {
+        synchronized (this) {
+            ensureOpen();
+            int pos;
+            if (!zc.isUTF8() && (entry.flag & EFS) != 0) {
+                pos = zsrc.getEntryPos(zc.getBytesUTF8(entry.name), false);
+            } else {
+                pos = zsrc.getEntryPos(zc.getBytes(entry.name), false);
+            }
+            if (pos == -1) {
+                return null;
+            }
+            byte[] cen = zsrc.cen;
+            return new long[] { CENHOW(cen, pos),
+                                zsrc.dataOffset(cen, pos),
+                                Source.entryCSize(cen, pos),
+                                Source.entrySize(cen, pos) };
+        }
+    }
+
+    /*
+     * Reads up to len bytes of the zip file at the given position.
+     */
+    int readAt(byte[] b, int off, int len, long pos) throws IOException {
+        synchronized (this) {
+            ensureOpenOrZipException();
+            return zsrc.readAt(b, off, len, pos);
+        }
+    }
+
     private class ZipFileInflaterInputStream extends InflaterInputStream {
         private volatile boolean closeRequested = false;
         private boolean eof = false;
@@ -435,36 +448,20 @@ class ZipFile implements ZipConstants, Closeable {
     }
 
     /*
-     * Gets an inflater from the list of available inflaters or allocates
-     * a new one.
+     * Gets an inflater from the JVM-wide pool of available inflaters or
+     * allocates a new one.
      */
     private Inflater getInflater() {
-        Inflater inf;
-        synchronized (inflaterCache) {
-            while (null != (inf = inflaterCache.poll())) {
-                if (false == inf.ended()) {
-                    return inf;
-                }
-            }
-        }
-        return new Inflater(true);
+        return ZStreamPool.getInflater(true);
     }
 
     /*
-     * Releases the specified inflater to the list of available inflaters.
+     * Releases the specified inflater to the pool of available inflaters.
      */
     private void releaseInflater(Inflater inf) {
-        if (false == inf.ended()) {
-            inf.reset();
-            synchronized (inflaterCache) {
-                inflaterCache.add(inf);
-            }
-        }
+        ZStreamPool.release(inf);
     }
 
-    // List of available Inflater objects for decompression
-    private Deque<Inflater> inflaterCache = new ArrayDeque<>();
-
     /**
      * Returns the path name of the ZIP file.
      * @return the path name of the ZIP file
@@ -482,6 +479,7 @@ class ZipFile implements ZipConstants, Closeable {
         ensureOpen();
         return new Enumeration<ZipEntry>() {
                 private int i = 0;
+                private int pos = 0;    // position of the next CEN header
                 public boolean hasMoreElements() {
                     synchronized (ZipFile.this) {
                         ensureOpen();
@@ -494,64 +492,54 @@ class ZipFile implements ZipConstants, Closeable {
                         if (i >= total) {
                             throw new NoSuchElementException();
                         }
-                        long jzentry = getNextEntry(jzfile, i++);
-                        if (jzentry == 0) {
-                            String message;
-                            if (closeRequested) {
-                                message = "ZipFile concurrently closed";
-                            } else {
-                                message = getZipMessage(ZipFile.this.jzfile);
-                            }
-                            throw new ZipError("jzentry == 0" +
-                                               ",\n jzfile = " + ZipFile.this.jzfile +
-                                               ",\n total = " + ZipFile.this.total +
-                                               ",\n name = " + ZipFile.this.name +
-                                               ",\n i = " + i +
-                                               ",\n message = " + message
-                                );
-                        }
-                        ZipEntry ze = getZipEntry(null, jzentry);
-                        freeEntry(jzfile, jzentry);
+                        // the CEN was validated when the index was built
+                        ZipEntry ze = getZipEntry(null, pos);
+                        pos = Source.nextEntryPos(zsrc.cen, pos);
+                        i++;
                         return ze;
                     }
                 }
             };
     }
 
-    private ZipEntry getZipEntry(String name, long jzentry) {
+    private ZipEntry getZipEntry(String name, int pos) {
+        byte[] cen = zsrc.cen;
+        int nlen = CENNAM(cen, pos);
+        int elen = CENEXT(cen, pos);
+        int clen = CENCOM(cen, pos);
         ZipEntry e = new ZipEntry();
-        e.flag = getEntryFlag(jzentry);  // get the flag first
+        e.flag = CENFLG(cen, pos);  // get the flag first
         if (name != null) {
             e.name = name;
         } else {
-            byte[] bname = getEntryBytes(jzentry, JZENTRY_NAME);
             if (!zc.isUTF8() && (e.flag & EFS) != 0) {
-                e.name = zc.toStringUTF8(bname, bname.length);
+                e.name = zc.toStringUTF8(cen, pos + CENHDR, nlen);
             } else {
-                e.name = zc.toString(bname, bname.length);
+                e.name = zc.toString(cen, pos + CENHDR, nlen);
             }
         }
-        e.time = getEntryTime(jzentry);
-        e.crc = getEntryCrc(jzentry);
-        e.size = getEntrySize(jzentry);
-        e. csize = getEntryCSize(jzentry);
-        e.method = getEntryMethod(jzentry);
-        e.extra = getEntryBytes(jzentry, JZENTRY_EXTRA);
-        byte[] bcomm = getEntryBytes(jzentry, JZENTRY_COMMENT);
-        if (bcomm == null) {
+        e.time = CENTIM(cen, pos);
+        e.crc = CENCRC(cen, pos);
+        e.size = Source.entrySize(cen, pos);
+        e.csize = Source.entryCSize(cen, pos);
+        e.method = CENHOW(cen, pos);
+        if (elen != 0) {
+            int start = pos + CENHDR + nlen;
+            e.extra = Arrays.copyOfRange(cen, start, start + elen);
+        }
+        if (clen == 0) {
             e.comment = null;
         } else {
+            int start = pos + CENHDR + nlen + elen;
             if (!zc.isUTF8() && (e.flag & EFS) != 0) {
-                e.comment = zc.toStringUTF8(bcomm, bcomm.length);
+                e.comment = zc.toStringUTF8(cen, start, clen);
             } else {
-                e.comment = zc.toString(bcomm, bcomm.length);
+                e.comment = zc.toString(cen, start, clen);
             }
         }
         return e;
     }
 
-    private static native long getNextEntry(long jzfile, int i);
-
     /**
      * Returns the number of entries in the ZIP file.
      * @return the number of entries in the ZIP file
@@ -591,20 +579,13 @@ class ZipFile implements ZipConstants, Closeable {
                 }
             }
 
-            // Release cached inflaters
-            Inflater inf;
-            synchronized (inflaterCache) {
-                while (null != (inf = inflaterCache.poll())) {
-                    inf.end();
-                }
-            }
-
-            if (jzfile != 0) {
-                // Close the zip file
-                long zf = this.jzfile;
-                jzfile = 0;
+            if (zsrc != null) {
+                // Release the shared index, closing the zip file if this
+                // was the last user
+                Source src = this.zsrc;
+                zsrc = null;
 
-                close(zf);
+                Source.release(src);
             }
         }
     }
@@ -627,14 +608,12 @@ class ZipFile implements ZipConstants, Closeable {
         close();
     }
 
-    private static native void close(long jzfile);
-
     private void ensureOpen() {
         if (closeRequested) {
             throw new IllegalStateException("zip file closed");
         }
 
-        if (jzfile == 0) {
+        if (zsrc == null) {
             throw new IllegalStateException("The object is not initialized.");
         }
     }
@@ -651,16 +630,14 @@ class ZipFile implements ZipConstants, Closeable {
      */
    private class ZipFileInputStream extends InputStream {
         private volatile boolean closeRequested = false;
-        protected long jzentry; // address of jzentry data
-        private   long pos;     // current position within entry data
+        private   long pos;     // current position within the zip file
         protected long rem;     // number of remaining bytes within entry
         protected long size;    // uncompressed size of this entry
 
-        ZipFileInputStream(long jzentry) {
-            pos = 0;
-            rem = getEntryCSize(jzentry);
-            size = getEntrySize(jzentry);
-            this.jzentry = jzentry;
+        ZipFileInputStream(byte[] cen, int cenpos) throws IOException {
+            rem = Source.entryCSize(cen, cenpos);
+            size = Source.entrySize(cen, cenpos);
+            pos = zsrc.dataOffset(cen, cenpos);
         }
 
         public int read(byte b[], int off, int len) throws IOException {
@@ -676,8 +653,7 @@ class ZipFile implements ZipConstants, Closeable {
             synchronized (ZipFile.this) {
                 ensureOpenOrZipException();
 
-                len = ZipFile.read(ZipFile.this.jzfile, jzentry, pos, b,
-                                   off, len);
+                len = zsrc.readAt(b, off, len, pos);
             }
             if (len > 0) {
                 pos += len;
@@ -723,12 +699,6 @@ class ZipFile implements ZipConstants, Closeable {
             closeRequested = true;
 
             rem = 0;
-            synchronized (ZipFile.this) {
-                if (jzentry != 0 && ZipFile.this.jzfile != 0) {
-                    freeEntry(ZipFile.this.jzfile, jzentry);
-                    jzentry = 0;
-                }
-            }
             synchronized (streams) {
                 streams.remove(this);
             }
@@ -757,26 +727,562 @@ class ZipFile implements ZipConstants, Closeable {
         return locsig;
     }
 
-    private static native long open(String name, int mode, long lastModified,
-                                    boolean usemmap) throws IOException;
-    private static native int getTotal(long jzfile);
-    private static native boolean startsWithLOC(long jzfile);
-    private static native int read(long jzfile, long jzentry,
-                                   long pos, byte[] b, int off, int len);
-
-    // access to the native zentry object
-    private static native long getEntryTime(long jzentry);
-    private static native long getEntryCrc(long jzentry);
-    private static native long getEntryCSize(long jzentry);
-    private static native long getEntrySize(long jzentry);
-    private static native int getEntryMethod(long jzentry);
-    private static native int getEntryFlag(long jzentry);
-    private static native byte[] getCommentBytes(long jzfile);
-
-    private static final int JZENTRY_NAME = 0;
-    private static final int JZENTRY_EXTRA = 1;
-    private static final int JZENTRY_COMMENT = 2;
-    private static native byte[] getEntryBytes(long jzentry, int type);
-
-    private static native String getZipMessage(long jzfile);
+    /*
+     * Returns the names of all entries in the "META-INF/" directory, the
+     * directory name compared ignoring case, or null if there are none.
+     * Called reflectively by java.util.jar.JarFile.
+     */
+    private String[] getMetaInfEntryNames() {
+        synchronized (this) {
+            ensureOpen();
+            int[] metanames = zsrc.metanames;
+            if (metanames.length == 0)
+                return null;
+            byte[] cen = zsrc.cen;
+            String[] names = new String[metanames.length];
+            for (int i = 0; i < names.length; i++) {
+                int pos = metanames[i];
+                int nlen = CENNAM(cen, pos);
+                if (!zc.isUTF8() && (CENFLG(cen, pos) & EFS) != 0) {
+                    names[i] = zc.toStringUTF8(cen, pos + CENHDR, nlen);
+                } else {
+                    names[i] = zc.toString(cen, pos + CENHDR, nlen);
+                }
+            }
+            return names;
+        }
+    }
+
+    // -- Central directory access --
+
+    private static final int get16(byte[] b, int off) {
+        return (b[off] & 0xff) | ((b[off + 1] & 0xff) << 8);
+    }
+
+    private static final long get32(byte[] b, int off) {
+        return (get16(b, off) | ((long)get16(b, off + 2) << 16)) & 0xffffffffL;
+    }
+
+    private static final long get64(byte[] b, int off) {
+        return get32(b, off) | (get32(b, off + 4) << 32);
+    }
+
+    private static final long CENSIG(byte[] b, int pos) { return get32(b, pos); }
+    private static final int  CENFLG(byte[] b, int pos) { return get16(b, pos + CENFLG); }
+    private static final int  CENHOW(byte[] b, int pos) { return get16(b, pos + CENHOW); }
+    private static final long CENTIM(byte[] b, int pos) { return get32(b, pos + CENTIM); }
+    private static final long CENCRC(byte[] b, int pos) { return get32(b, pos + CENCRC); }
+    private static final long CENSIZ(byte[] b, int pos) { return get32(b, pos + CENSIZ); }
+    private static final long CENLEN(byte[] b, int pos) { return get32(b, pos + CENLEN); }
+    private static final int  CENNAM(byte[] b, int pos) { return get16(b, pos + CENNAM); }
+    private static final int  CENEXT(byte[] b, int pos) { return get16(b, pos + CENEXT); }
+    private static final int  CENCOM(byte[] b, int pos) { return get16(b, pos + CENCOM); }
+    private static final long CENOFF(byte[] b, int pos) { return get32(b, pos + CENOFF); }
+
+    /**
+     * The central directory of a zip file, read once into memory and
+     * indexed by entry name.
+     *
+     * <p> The index is a single open-addressing hash table of {@code int}
+     * pairs: the hash of an entry name followed by the position of the
+     * entry's CEN header in {@link #cen} plus one (zero marks an empty
+     * slot). Collisions are resolved by linear probing; the table is kept
+     * at most half full so that lookups of absent names terminate quickly.
+     * Looking up an entry compares the raw name bytes in place, so no
+     * {@code ZipEntry} or {@code String} is created until one is returned.
+     *
+     * <p> A {@code Source} is shared by all {@code ZipFile} instances that
+     * are open on the same file, keyed by the file's path and last
+     * modified time, and is closed when the last of them is closed. A
+     * file opened with {@code OPEN_DELETE} gets a {@code Source} of its own,
+     * as it is deleted once opened. Entry data is read with positional
+     * reads of the file's channel, so concurrent readers do not contend
+     * for a lock or a file position.
+     */
+    private static class Source {
+        private final Key key;              // the key in files, or null
+        private int refs = 1;               // guarded by files
+
+        private final RandomAccessFile zfile;
+        private final FileChannel ch;       // the channel of zfile
+        private byte[] cen;                 // the CEN headers
+        private long locpos;                // position of the first LOC header
+        private byte[] comment;             // zip file comment
+        private int[] table;                // hash/position pairs
+        private int[] metanames;            // positions of META-INF/ entries
+        private int total;                  // number of entries
+        private boolean startsWithLoc;      // true if zip file starts with LOCSIG
+
+        private static final int READBLOCKSZ = 128;
+        private static final int END_MAXLEN = 0xFFFF + ENDHDR;
+
+        private static final HashMap<Key, Source> files = new HashMap<>();
+
+        /*
+         * Identifies a zip file by path and last modified time, so that
+         * a file replaced on disk is not served from a stale index.
+         */
+        private static class Key {
+            final String path;
+            final long lastModified;
+
+            Key(File file) {
+                this.path = file.getPath();
+                this.lastModified = file.lastModified();
+            }
+
+            public int hashCode() {
+                return path.hashCode() + (int)(lastModified ^ (lastModified >>> 32));
+            }
+
+            public boolean equals(Object obj) {
+                if (!(obj instanceof Key))
+                    return false;
+                Key other = (Key)obj;
+                return lastModified == other.lastModified &&
+                       path.equals(other.path);
+            }
+        }
+
+        /*
+         * Returns the shared Source for the given file, opening and
+         * indexing the file if it is not already open. A file to be
+         * deleted is not shared.
+         */
+        static Source get(File file, boolean toDelete) throws IOException {
+            if (toDelete)
+                return new Source(null, file, true);
+            Key key = new Key(file);
+            Source src;
+            synchronized (files) {
+                src = files.get(key);
+                if (src != null) {
+                    src.refs++;
+                    return src;
+                }
+            }
+            src = new Source(key, file, toDelete);
+            synchronized (files) {
+                Source prev = files.get(key);
+                if (prev != null) {
+                    // another thread opened the same file, use its index
+                    prev.refs++;
+                    src.close();
+                    return prev;
+                }
+                files.put(key, src);
+                return src;
+            }
+        }
+
+        /*
+         * Drops a reference to the given Source, closing it if it is no
+         * longer used.
+         */
+        static void release(Source src) throws IOException {
+            synchronized (files) {
+                if (--src.refs != 0)
+                    return;
+                if (src.key != null)
+                    files.remove(src.key);
+            }
+            src.close();
+        }
+
+        private Source(Key key, File file, boolean toDelete) throws IOException {
+            this.key = key;
+            this.zfile = new RandomAccessFile(file, "r");
+            this.ch = zfile.getChannel();
+            if (toDelete) {
+                // the contents remain accessible through the open file
+                file.delete();
+            }
+            try {
+                initCEN(-1);
+                byte[] buf = new byte[4];
+                startsWithLoc = (readFullyAt(buf, 0, 4, 0) == 4 &&
+                                 get32(buf, 0) == LOCSIG);
+            } catch (IOException x) {
+                try {
+                    zfile.close();
+                } catch (IOException ignore) { }
+                throw x;
+            }
+        }
+
+        private void close() throws IOException {
+            zfile.close();
+            cen = null;
+            table = null;
+        }
+
+        // Reads len bytes at the given position, stopping only at EOF.
+        private int readFullyAt(byte[] buf, int off, int len, long pos)
+            throws IOException
+        {
+            ByteBuffer bb = ByteBuffer.wrap(buf, off, len);
+            int n = 0;
+            while (n < len) {
+                int k = ch.read(bb, pos + n);
+                if (k < 0)
+                    break;
+                n += k;
+            }
+            return n;
+        }
+
+        int readAt(byte[] buf, int off, int len, long pos) throws IOException {
+            return ch.read(ByteBuffer.wrap(buf, off, len), pos);
+        }
+
+        /*
+         * The END header fields needed to locate the CEN.
+         */
+        private static class End {
+            int  centot;    // 4 bytes
+            long cenlen;    // 4 bytes
+            long cenoff;    // 4 bytes
+            long endpos;    // 4 bytes
+        }
+
+        /*
+         * Searches for the END header, scanning backwards from the end of
+         * the file over the maximum length of the zip file comment, and
+         * follows the ZIP64 END locator if one of the END fields overflowed.
+         */
+        private End findEND() throws IOException {
+            long ziplen = zfile.length();
+            if (ziplen <= 0)
+                zerror("zip file is empty");
+            End end = new End();
+            byte[] buf = new byte[READBLOCKSZ];
+            long minHDR = (ziplen - END_MAXLEN) > 0 ? ziplen - END_MAXLEN : 0;
+            long minPos = minHDR - (buf.length - ENDHDR);
+            for (long pos = ziplen - buf.length; pos >= minPos; pos -= (buf.length - ENDHDR)) {
+                int off = 0;
+                if (pos < 0) {
+                    // pretend there are some NUL bytes before start of file
+                    off = (int)-pos;
+                    Arrays.fill(buf, 0, off, (byte)0);
+                }
+                int len = buf.length - off;
+                if (readFullyAt(buf, off, len, pos + off) != len)
+                    zerror("zip END header not found");
+
+                // now scan the block backwards for END header signature
+                for (int i = buf.length - ENDHDR; i >= 0; i--) {
+                    if (get32(buf, i) != ENDSIG)
+                        continue;
+                    // found ENDSIG header
+                    end.centot = get16(buf, i + ENDTOT);
+                    end.cenlen = get32(buf, i + ENDSIZ);
+                    end.cenoff = get32(buf, i + ENDOFF);
+                    end.endpos = pos + i;
+                    int comlen = get16(buf, i + ENDCOM);
+                    if (end.endpos + ENDHDR + comlen != ziplen) {
+                        // ENDSIG matched, but the comment length does not
+                        // match the file size (padding after the END header,
+                        // or a signature inside the comment); accept it only
+                        // if it points at a CEN and a LOC header.
+                        byte[] sbuf = new byte[4];
+                        long cenpos = end.endpos - end.cenlen;
+                        long locpos = cenpos - end.cenoff;
+                        if (cenpos < 0 || locpos < 0 ||
+                            readFullyAt(sbuf, 0, 4, cenpos) != 4 ||
+                            get32(sbuf, 0) != CENSIG ||
+                            readFullyAt(sbuf, 0, 4, locpos) != 4 ||
+                            get32(sbuf, 0) != LOCSIG) {
+                            continue;
+                        }
+                    }
+                    if (comlen > 0) {
+                        comment = new byte[comlen];
+                        if (readFullyAt(comment, 0, comlen, end.endpos + ENDHDR) != comlen)
+                            zerror("zip comment read failed");
+                    }
+                    if (end.cenlen == ZIP64_MAGICVAL ||
+                        end.cenoff == ZIP64_MAGICVAL ||
+                        end.centot == ZIP64_MAGICCOUNT) {
+                        findEND64(end);
+                    }
+                    return end;
+                }
+            }
+            zerror("zip END header not found");
+            return null;
+        }
+
+        /*
+         * Replaces the END fields with those of the ZIP64 END header, if
+         * the file has a valid ZIP64 END locator.
+         */
+        private void findEND64(End end) throws IOException {
+            byte[] loc64 = new byte[ZIP64_LOCHDR];
+            if (end.endpos < ZIP64_LOCHDR ||
+                readFullyAt(loc64, 0, loc64.length, end.endpos - ZIP64_LOCHDR)
+                    != loc64.length ||
+                get32(loc64, 0) != ZIP64_LOCSIG) {
+                return;
+            }
+            long end64pos = get64(loc64, ZIP64_LOCOFF);
+            byte[] end64buf = new byte[ZIP64_ENDHDR];
+            if (readFullyAt(end64buf, 0, end64buf.length, end64pos)
+                    != end64buf.length ||
+                get32(end64buf, 0) != ZIP64_ENDSIG) {
+                return;
+            }
+            long cenlen64 = get64(end64buf, ZIP64_ENDSIZ);
+            long cenoff64 = get64(end64buf, ZIP64_ENDOFF);
+            long centot64 = get64(end64buf, ZIP64_ENDTOT);
+            // double-check the fields that did not overflow
+            if ((cenlen64 != end.cenlen && end.cenlen != ZIP64_MAGICVAL) ||
+                (cenoff64 != end.cenoff && end.cenoff != ZIP64_MAGICVAL) ||
+                (centot64 != end.centot && end.centot != ZIP64_MAGICCOUNT)) {
+                return;
+            }
+            if (cenlen64 > Integer.MAX_VALUE || centot64 > Integer.MAX_VALUE)
+                zerror("invalid ZIP64 END header (central directory too large)");
+            end.cenlen = cenlen64;
+            end.cenoff = cenoff64;
+            end.centot = (int)centot64;
+            end.endpos = end64pos;
+        }
+
+        /*
+         * Reads the CEN into memory and builds the name index. If knownTotal
+         * is -1 the entry count of the END header is used; it is recounted
+         * if the END header turns out to be wrong, which happens with some
+         * tools when there are more than 65535 entries.
+         */
+        private void initCEN(int knownTotal) throws IOException {
+            if (knownTotal == -1) {
+                End end = findEND();
+                if (end.endpos == 0) {
+                    // only END header present
+                    locpos = 0;
+                    total = 0;
+                    cen = new byte[0];
+                    table = new int[2];
+                    metanames = new int[0];
+                    return;
+                }
+                if (end.cenlen > end.endpos)
+                    zerror("invalid END header (bad central directory size)");
+                long cenpos = end.endpos - end.cenlen;
+                // position of the first LOC header; usually 0, but may not
+                // be for self-extracting and other prefixed archives
+                locpos = cenpos - end.cenoff;
+                if (locpos < 0)
+                    zerror("invalid END header (bad central directory offset)");
+                cen = new byte[(int)end.cenlen];
+                if (readFullyAt(cen, 0, cen.length, cenpos) != cen.length)
+                    zerror("read CEN tables failed");
+                total = end.centot;
+            } else {
+                total = knownTotal;
+            }
+
+            int capacity = 2;
+            while (capacity < total * 2 && capacity < (1 << 30))
+                capacity <<= 1;
+            int mask = capacity - 1;
+            table = new int[capacity * 2];
+            int[] metas = new int[8];
+            int nmetas = 0;
+
+            int limit = cen.length;
+            int pos = 0;
+            int i = 0;
+            while (pos + CENHDR <= limit) {
+                if (i >= total) {
+                    // the END header has the wrong entry count
+                    initCEN(countCENHeaders(limit));
+                    return;
+                }
+                if (CENSIG(cen, pos) != CENSIG)
+                    zerror("invalid CEN header (bad signature)");
+                int method = CENHOW(cen, pos);
+                int nlen   = CENNAM(cen, pos);
+                if ((CENFLG(cen, pos) & 1) != 0)
+                    zerror("invalid CEN header (encrypted entry)");
+                if (method != STORED && method != DEFLATED)
+                    zerror("invalid CEN header (bad compression method: " + method + ")");
+                int next = nextEntryPos(cen, pos);
+                if (next > limit)
+                    zerror("invalid CEN header (bad header size)");
+
+                // add the entry to the index
+                int hash = hash(cen, pos + CENHDR, nlen);
+                int idx = mix(hash) & mask;
+                while (table[idx * 2 + 1] != 0)
+                    idx = (idx + 1) & mask;
+                table[idx * 2] = hash;
+                table[idx * 2 + 1] = pos + 1;
+
+                if (isMetaName(cen, pos + CENHDR, nlen)) {
+                    if (nmetas == metas.length)
+                        metas = Arrays.copyOf(metas, nmetas * 2);
+                    metas[nmetas++] = pos;
+                }
+                pos = next;
+                i++;
+            }
+            if (pos != limit || i != total)
+                zerror("invalid CEN header (bad header size)");
+            metanames = Arrays.copyOf(metas, nmetas);
+        }
+
+        private int countCENHeaders(int limit) {
+            int count = 0;
+            for (int pos = 0; pos + CENHDR <= limit; pos = nextEntryPos(cen, pos))
+                count++;
+            return count;
+        }
+
+        /*
+         * Returns the position of the CEN header of the named entry, or -1
+         * if there is no such entry. If addSlash is true and the name does
+         * not end with '/', an entry with a '/' appended is also accepted.
+         */
+        int getEntryPos(byte[] name, boolean addSlash) {
+            if (total == 0)
+                return -1;
+            int hash = hash(name, 0, name.length);
+            int pos = lookup(name, hash, false);
+            if (pos == -1 && addSlash &&
+                name.length > 0 && name[name.length - 1] != '/') {
+                pos = lookup(name, 31 * hash + '/', true);
+            }
+            return pos;
+        }
+
+        private int lookup(byte[] name, int hash, boolean slash) {
+            int mask = (table.length >> 1) - 1;
+            int idx = mix(hash) & mask;
+            int p;
+            while ((p = table[idx * 2 + 1]) != 0) {
+                int pos = p - 1;
+                if (table[idx * 2] == hash && nameEquals(pos, name, slash))
+                    return pos;
+                idx = (idx + 1) & mask;
+            }
+            return -1;
+        }
+
+        private boolean nameEquals(int pos, byte[] name, boolean slash) {
+            int nlen = CENNAM(cen, pos);
+            if (nlen != name.length + (slash ? 1 : 0))
+                return false;
+            int off = pos + CENHDR;
+            for (int i = 0; i < name.length; i++) {
+                if (cen[off + i] != name[i])
+                    return false;
+            }
+            return !slash || cen[off + name.length] == '/';
+        }
+
+        /*
+         * Returns the position in the zip file of the data of the entry
+         * whose CEN header is at the given position.
+         */
+        long dataOffset(byte[] cen, int pos) throws IOException {
+            long off = locpos + entryLocOff(cen, pos);
+            byte[] loc = new byte[LOCHDR];
+            if (readFullyAt(loc, 0, LOCHDR, off) != LOCHDR)
+                throw new ZipException("ZipFile error reading zip file");
+            if (get32(loc, 0) != LOCSIG)
+                throw new ZipException("ZipFile invalid LOC header (bad signature)");
+            return off + LOCHDR + get16(loc, LOCNAM) + get16(loc, LOCEXT);
+        }
+
+        static int nextEntryPos(byte[] cen, int pos) {
+            return pos + CENHDR + CENNAM(cen, pos) + CENEXT(cen, pos) + CENCOM(cen, pos);
+        }
+
+        static long entrySize(byte[] cen, int pos) {
+            long size = CENLEN(cen, pos);
+            return (size == ZIP64_MAGICVAL) ? zip64Value(cen, pos, 0, size) : size;
+        }
+
+        static long entryCSize(byte[] cen, int pos) {
+            long csize = CENSIZ(cen, pos);
+            return (csize == ZIP64_MAGICVAL) ? zip64Value(cen, pos, 1, csize) : csize;
+        }
+
+        static long entryLocOff(byte[] cen, int pos) {
+            long off = CENOFF(cen, pos);
+            return (off == ZIP64_MAGICVAL) ? zip64Value(cen, pos, 2, off) : off;
+        }
+
+        /*
+         * Reads a value from the ZIP64 extra field of a CEN header. The
+         * field holds, in order, the uncompressed size, the compressed size
+         * and the LOC header offset, each present only if the corresponding
+         * CEN field is ZIP64_MAGICVAL. Returns dflt if the value is absent.
+         */
+        private static long zip64Value(byte[] cen, int pos, int field, long dflt) {
+            int off = pos + CENHDR + CENNAM(cen, pos);
+            int end = off + CENEXT(cen, pos);
+            while (off + 4 <= end) {
+                int tag = get16(cen, off);
+                int sz = get16(cen, off + 2);
+                off += 4;
+                if (off + sz > end)
+                    break;
+                if (tag == ZIP64_EXTID) {
+                    long[] fields = { CENLEN(cen, pos), CENSIZ(cen, pos), CENOFF(cen, pos) };
+                    int p = off;
+                    for (int i = 0; i <= field; i++) {
+                        if (fields[i] != ZIP64_MAGICVAL)
+                            continue;
+                        if (p + 8 > off + sz)
+                            return dflt;
+                        if (i == field)
+                            return get64(cen, p);
+                        p += 8;
+                    }
+                    return dflt;
+                }
+                off += sz;
+            }
+            return dflt;
+        }
+
+        private static int hash(byte[] b, int off, int len) {
+            int h = 0;
+            for (int i = off; i < off + len; i++)
+                h = 31 * h + (b[i] & 0xff);
+            return h;
+        }
+
+        // spreads the higher bits of the hash to the table index
+        private static int mix(int h) {
+            return h ^ (h >>> 16);
+        }
+
+        private static final byte[] META_INF = {
+            'M', 'E', 'T', 'A', '-', 'I', 'N', 'F', '/'
+        };
+
+        /*
+         * Returns true if the name starts with "META-INF/", ignoring the
+         * case of the directory name. The directory itself is included.
+         */
+        private static boolean isMetaName(byte[] b, int off, int len) {
+            if (len < META_INF.length)
+                return false;
+            for (int i = 0; i < META_INF.length; i++) {
+                int c = b[off + i];
+                if (c >= 'a' && c <= 'z')
+                    c -= 'a' - 'A';
+                if (c != META_INF[i])
+                    return false;
+            }
+            return true;
+        }
+
+        private static void zerror(String msg) throws ZipException {
+            throw new ZipException(msg);
+        }
+    }
 }